@@ -95,7 +95,7 @@ public class ContentManager implements Serializable {
         if (c == null) {
             throw new IllegalArgumentException("Null codec registered");
         }
-        languages.put(new CaseInsensitiveString(name), c);
+        languages.put(CaseInsensitiveString.intern(name), c);
     }
 
     /**
@@ -124,7 +124,7 @@ public class ContentManager implements Serializable {
         if (o == null) {
             throw new IllegalArgumentException("Null ontology registered");
         }
-        ontologies.put(new CaseInsensitiveString(name), o);
+        ontologies.put(CaseInsensitiveString.intern(name), o);
     }
 
     /**
@@ -138,7 +138,7 @@ public class ContentManager implements Serializable {
      * with the given name.
      */
     public Codec lookupLanguage(String name) {
-        return (name == null ? null : languages.get(new CaseInsensitiveString(name)));
+        return (name == null ? null : languages.get(CaseInsensitiveString.intern(name)));
     }
 
     /**
@@ -152,7 +152,7 @@ public class ContentManager implements Serializable {
      * with the given name.
      */
     public Ontology lookupOntology(String name) {
-        return (name == null ? null : ontologies.get(new CaseInsensitiveString(name)));
+        return (name == null ? null : ontologies.get(CaseInsensitiveString.intern(name)));
     }
 
     /**
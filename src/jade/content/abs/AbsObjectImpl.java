@@ -84,7 +84,7 @@ public class AbsObjectImpl implements AbsObject {
      *              removed.
      */
     protected void set(String name, AbsObject value) {
-        CaseInsensitiveString ciName = new CaseInsensitiveString(name);
+        CaseInsensitiveString ciName = CaseInsensitiveString.intern(name);
         if (value == null) {
             orderedKeys.remove(name);
             elements.remove(ciName);
@@ -106,7 +106,7 @@ public class AbsObjectImpl implements AbsObject {
      * @see AbsObject#getAbsObject(String)
      */
     public AbsObject getAbsObject(String name) {
-        return elements.get(new CaseInsensitiveString(name));
+        return elements.get(CaseInsensitiveString.intern(name));
     }
 
     /**
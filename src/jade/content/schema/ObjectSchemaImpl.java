@@ -28,15 +28,25 @@ import jade.content.abs.AbsObject;
 import jade.content.onto.BasicOntology;
 import jade.content.onto.Ontology;
 import jade.content.onto.OntologyException;
+import jade.content.abs.AbsPrimitive;
 import jade.content.schema.facets.CardinalityFacet;
+import jade.content.schema.facets.RegexFacet;
 import jade.content.schema.facets.TypedAggregateFacet;
 import jade.core.CaseInsensitiveString;
 import jade.util.Logger;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 /**
  * @author Giovanni Caire - TILAB
@@ -44,6 +54,10 @@ import java.util.Vector;
 class ObjectSchemaImpl extends ObjectSchema {
     static final String RESULT_SLOT_NAME = "__Result_SLOT_123";
 
+    // Incremented each time the structure of any schema changes (slots, super-schemas, facets).
+    // Validation plans compiled for a previous version are discarded and compiled again.
+    private static final AtomicInteger structureVersion = new AtomicInteger();
+
     static {
         baseSchema = new ObjectSchemaImpl();
     }
@@ -65,6 +79,9 @@ class ObjectSchemaImpl extends ObjectSchema {
 
     private Hashtable<CaseInsensitiveString, Vector<Facet>> facets;
 
+    // The immutable validation plan of this schema, compiled on first use
+    private transient volatile ValidationPlan plan;
+
     /**
      * Construct a schema that vinculates an entity to be a generic
      * object (i.e. no constraints at all)
@@ -91,7 +108,7 @@ class ObjectSchemaImpl extends ObjectSchema {
      *                    or  MANDATORY
      */
     protected void add(String name, ObjectSchema slotSchema, int optionality) {
-        CaseInsensitiveString ciName = new CaseInsensitiveString(name);
+        CaseInsensitiveString ciName = CaseInsensitiveString.intern(name);
         if (slots == null) {
             slots = new Hashtable<>();
             slotNames = new Vector<>();
@@ -103,6 +120,7 @@ class ObjectSchemaImpl extends ObjectSchema {
                 slotNames.addElement(ciName);
             }
         }
+        structureVersion.incrementAndGet();
     }
 
     /**
@@ -214,6 +232,7 @@ class ObjectSchemaImpl extends ObjectSchema {
                 superSchemas = new Vector<>();
             }
             superSchemas.addElement(superSchema);
+            structureVersion.incrementAndGet();
         }
     }
 
@@ -228,7 +247,7 @@ class ObjectSchemaImpl extends ObjectSchema {
      */
     protected void addFacet(String slotName, Facet f) throws OntologyException {
         if (containsSlot(slotName)) {
-            CaseInsensitiveString ciName = new CaseInsensitiveString(slotName);
+            CaseInsensitiveString ciName = CaseInsensitiveString.intern(slotName);
             if (facets == null) {
                 facets = new Hashtable<>();
             }
@@ -241,6 +260,7 @@ class ObjectSchemaImpl extends ObjectSchema {
                     logger.log(Logger.CONFIG, "Added facet " + f + " to slot " + slotName);
             }
             v.addElement(f);
+            structureVersion.incrementAndGet();
         } else {
             throw new OntologyException(slotName + " is not a valid slot in this schema");
         }
@@ -262,17 +282,7 @@ class ObjectSchemaImpl extends ObjectSchema {
      * @return the names of all slots.
      */
     public String[] getNames() {
-        Vector<CaseInsensitiveString> allSlotNames = new Vector<>();
-
-        fillAllSlotNames(allSlotNames);
-
-        String[] names = new String[allSlotNames.size()];
-        int counter = 0;
-        for (Enumeration<CaseInsensitiveString> e = allSlotNames.elements(); e.hasMoreElements(); ) {
-            names[counter++] = e.nextElement().toString();
-        }
-
-        return names;
+        return getPlan().names.clone();
     }
 
     /**
@@ -303,7 +313,7 @@ class ObjectSchemaImpl extends ObjectSchema {
      *                           in this schema.
      */
     public ObjectSchema getSchema(String name) throws OntologyException {
-        SlotDescriptor slot = getSlot(new CaseInsensitiveString(name));
+        SlotDescriptor slot = getSlot(CaseInsensitiveString.intern(name));
         if (slot == null) {
             throw new OntologyException("No slot named: " + name + " in schema " + typeName);
         }
@@ -319,7 +329,7 @@ class ObjectSchemaImpl extends ObjectSchema {
      * slot defined in this  Schema  .
      */
     public boolean containsSlot(String name) {
-        SlotDescriptor slot = getSlot(new CaseInsensitiveString(name));
+        SlotDescriptor slot = getSlot(CaseInsensitiveString.intern(name));
         return (slot != null);
     }
 
@@ -332,7 +342,7 @@ class ObjectSchemaImpl extends ObjectSchema {
      * slot actually defined in this  Schema   (excluding super-schemas).
      */
     public boolean isOwnSlot(String name) {
-        SlotDescriptor slot = getOwnSlot(new CaseInsensitiveString(name));
+        SlotDescriptor slot = getOwnSlot(CaseInsensitiveString.intern(name));
         return (slot != null);
     }
 
@@ -345,7 +355,7 @@ class ObjectSchemaImpl extends ObjectSchema {
      *                           in this schema.
      */
     public boolean isMandatory(String name) throws OntologyException {
-        SlotDescriptor slot = getSlot(new CaseInsensitiveString(name));
+        SlotDescriptor slot = getSlot(CaseInsensitiveString.intern(name));
         if (slot == null) {
             throw new OntologyException("No slot named: " + name);
         }
@@ -401,107 +411,118 @@ class ObjectSchemaImpl extends ObjectSchema {
      */
     protected void validateSlots(AbsObject abs, Ontology onto) throws OntologyException {
         // Validate all the attributes in the abstract descriptor
-        String[] slotNames = getNames();
-        for (String slotName : slotNames) {
-            AbsObject slotValue = abs.getAbsObject(slotName);
-            CaseInsensitiveString ciName = new CaseInsensitiveString(slotName);
-            validate(ciName, slotValue, onto);
+        SlotPlan[] slotPlans = getPlan().slots;
+        for (SlotPlan sp : slotPlans) {
+            validate(sp, abs.getAbsObject(sp.name), onto);
         }
     }
 
     /**
      * Validate a given abstract descriptor as a value for a slot
-     * defined in this schema
+     * defined in this schema (or in one of its super schemas).
+     * The checks are the same, and are performed in the same order, as if the schemas
+     * were scanned from this schema up to the one actually declaring the slot:
+     * - The value is checked against the schema of the slot (or against the optionality
+     * of the slot if it is null)
+     * - The facets defined on the slot in the declaring schema are applied (unless the
+     * value is null)
+     * - The facets defined on the slot in the schemas between the declaring schema
+     * and this schema are applied.
      *
-     * @param slotName The name of the slot
-     * @param value    The abstract descriptor to be validated
-     * @return true if the slot is defined in this schema (or in
-     * one of its super schemas). false otherwise
+     * @param sp    The plan of the slot
+     * @param value The abstract descriptor to be validated
      * @throws OntologyException If the abstract descriptor is not a
      *                           valid value
      */
-    private boolean validate(CaseInsensitiveString slotName, AbsObject value, Ontology onto) throws OntologyException {
+    private void validate(SlotPlan sp, AbsObject value, Ontology onto) throws OntologyException {
         // DEBUG
         if (logger.isLoggable(Logger.FINE))
-            logger.log(Logger.FINE, "Validating " + (value != null ? value.toString() : "null") + " as a value for slot " + slotName);
-        // NOTE: for performance reasons we don't want to scan the schema
-        // to check if slotValue is a valid slot and THEN to scan again
-        // the schema to validate value. This is the reason for the
-        // boolean return value of this method
-        boolean slotFound = false;
-
-        // If the slot is defined in this schema --> check the value
-        // against the schema of the slot. Otherwise let the super-schema
-        // where the slot is defined validate the value
-        SlotDescriptor dsc = getOwnSlot(slotName);
-        if (dsc != null) {
-            // DEBUG
-            if (logger.isLoggable(Logger.CONFIG))
-                logger.log(Logger.CONFIG, "Slot " + slotName + " is defined in schema " + this);
-            if (value == null) {
-                // Check optionality
-                if (dsc.optionality == MANDATORY) {
-                    throw new OntologyException("Missing value for mandatory slot " + slotName + ". Schema is " + this);
-                }
-                // Don't need to check facets on a null value for an optional slot
-                return true;
-            } else {
-                // - Get from the ontology the schema s that defines the type
-                // of the abstract descriptor value.
-                // - Check if this schema is compatible with the schema for
-                // slot slotName
-                // - Finally check value against s
-                ObjectSchema s = onto.getSchema(value.getTypeName());
-                //DEBUG
-                if (logger.isLoggable(Logger.CONFIG))
-                    logger.log(Logger.CONFIG, "Actual schema for " + value + " is " + s);
-                if (s == null) {
-                    throw new OntologyException("No schema found for type " + value.getTypeName() + ". Ontology is " + onto.getName());
-                }
-                if (!s.isCompatibleWith(dsc.schema)) {
-                    throw new OntologyException("Schema " + s + " for element " + value + " is not compatible with schema " + dsc.schema + " for slot " + slotName);
-                }
-                //DEBUG
-                if (logger.isLoggable(Logger.CONFIG))
-                    logger.log(Logger.CONFIG, "Schema " + s + " for type " + value + " is compatible with schema " + dsc.schema + " for slot " + slotName);
-                s.validate(value, onto);
+            logger.log(Logger.FINE, "Validating " + (value != null ? value.toString() : "null") + " as a value for slot " + sp.name);
+
+        if (value == null) {
+            // Check optionality
+            if (sp.mandatory) {
+                throw new OntologyException("Missing value for mandatory slot " + sp.name + ". Schema is " + sp.declaringSchema);
             }
-            slotFound = true;
+            // Don't need to check facets of the declaring schema on a null value for an optional slot
         } else {
-            if (superSchemas != null) {
-                Enumeration<ObjectSchema> e = superSchemas.elements();
-                while (e.hasMoreElements()) {
-                    ObjectSchemaImpl s = (ObjectSchemaImpl) e.nextElement();
-                    if (s.validate(slotName, value, onto)) {
-                        slotFound = true;
-                        // Don't need to check other super-schemas
-                        break;
-                    }
-                }
+            // - Get from the ontology the schema s that defines the type
+            // of the abstract descriptor value.
+            // - Check if this schema is compatible with the schema for
+            // slot slotName
+            // - Finally check value against s
+            ObjectSchema s = onto.getSchema(value.getTypeName());
+            if (s == null) {
+                throw new OntologyException("No schema found for type " + value.getTypeName() + ". Ontology is " + onto.getName());
+            }
+            if (!sp.isCompatible(s)) {
+                throw new OntologyException("Schema " + s + " for element " + value + " is not compatible with schema " + sp.schema + " for slot " + sp.name);
+            }
+            s.validate(value, onto);
+            for (Facet f : sp.declaringFacets) {
+                f.validate(value, onto);
             }
         }
 
-        if (slotFound && facets != null) {
-            // Check value against the facets (if any) defined for the
-            // slot in this schema
-            Vector<Facet> ff = facets.get(slotName);
-            if (ff != null) {
-                Enumeration<Facet> e = ff.elements();
-                while (e.hasMoreElements()) {
-                    Facet f = e.nextElement();
-                    //DEBUG
-                    if (logger.isLoggable(Logger.CONFIG))
-                        logger.log(Logger.CONFIG, "Checking facet " + f + " defined on slot " + slotName);
-                    f.validate(value, onto);
+        for (Facet f : sp.inheritedFacets) {
+            f.validate(value, onto);
+        }
+    }
+
+    /**
+     * Retrieve the validation plan of this schema compiling it if not done yet or if the
+     * structure of some schema changed since the last compilation.
+     */
+    private ValidationPlan getPlan() {
+        ValidationPlan p = plan;
+        int version = structureVersion.get();
+        if (p == null || p.version != version) {
+            p = new ValidationPlan(this, version);
+            plan = p;
+        }
+        return p;
+    }
+
+    /**
+     * Resolve a slot starting from this schema and going up to the schema declaring it.
+     * Facets defined on the slot in the traversed schemas are collected from the declaring
+     * schema outwards, that is in the order they must be applied.
+     *
+     * @return The SlotPlan for the given slot or null if the slot is not defined in this
+     * schema nor in its super-schemas.
+     */
+    private SlotPlan resolveSlot(CaseInsensitiveString ciName, List<Facet> inheritedFacets) {
+        SlotPlan sp = null;
+        SlotDescriptor dsc = getOwnSlot(ciName);
+        if (dsc != null) {
+            sp = new SlotPlan(dsc, this, compileFacets(ciName));
+        } else if (superSchemas != null) {
+            for (int i = 0; i < superSchemas.size(); ++i) {
+                ObjectSchemaImpl s = (ObjectSchemaImpl) superSchemas.elementAt(i);
+                sp = s.resolveSlot(ciName, inheritedFacets);
+                if (sp != null) {
+                    // Don't need to check other super-schemas
+                    for (Facet f : compileFacets(ciName)) {
+                        inheritedFacets.add(f);
+                    }
+                    break;
                 }
-            } else {
-                //DEBUG
-                if (logger.isLoggable(Logger.CONFIG))
-                    logger.log(Logger.CONFIG, "No facets for slot " + slotName);
             }
         }
+        return sp;
+    }
 
-        return slotFound;
+    private Facet[] compileFacets(CaseInsensitiveString ciName) {
+        Vector<Facet> ff = (facets != null ? facets.get(ciName) : null);
+        if (ff == null) {
+            return new Facet[0];
+        }
+        Facet[] compiled = new Facet[ff.size()];
+        for (int i = 0; i < compiled.length; ++i) {
+            Facet f = ff.elementAt(i);
+            compiled[i] = (f instanceof RegexFacet rf ? new CompiledRegexFacet(rf.getRegex()) : f);
+        }
+        return compiled;
     }
 
     /**
@@ -571,6 +592,9 @@ class ObjectSchemaImpl extends ObjectSchema {
     }
 
     public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
         if (o != null) {
             return toString().equals(o.toString());
         } else {
@@ -612,7 +636,7 @@ class ObjectSchemaImpl extends ObjectSchema {
      */
     Vector<Facet> getAllFacets(String slotName) { // Package-scoped for testing purposes only
         Vector<Facet> allFacets = new Vector<>();
-        CaseInsensitiveString caseInsensitiveSlotName = new CaseInsensitiveString(slotName);
+        CaseInsensitiveString caseInsensitiveSlotName = CaseInsensitiveString.intern(slotName);
         if (facets != null) {
             Vector<Facet> v = facets.get(caseInsensitiveSlotName);
             if (v != null) {
@@ -668,6 +692,16 @@ class ObjectSchemaImpl extends ObjectSchema {
     }
 
     public boolean isAssignableFrom(ObjectSchema s) {
+        ValidationPlan p = getPlan();
+        Boolean cached = p.assignableFrom.get(s);
+        if (cached == null) {
+            cached = computeAssignableFrom(s, p);
+            p.assignableFrom.put(s, cached);
+        }
+        return cached;
+    }
+
+    private boolean computeAssignableFrom(ObjectSchema s, ValidationPlan p) {
         // This = destination schema
         // s = source schema
 
@@ -680,35 +714,26 @@ class ObjectSchemaImpl extends ObjectSchema {
             return true;
         }
 
-        try {
-            // All slots of the destination schema that are present in the source schema too must be assignable.
-            // Slots of the destination schema not present in the source schema must be OPTIONAL.
-            ObjectSchema destSchema;
-            ObjectSchema srcSchema;
-            String[] destSlotNames = getNames();
-            for (String destSlotName : destSlotNames) {
-                destSchema = getSchema(destSlotName);
-
-                try {
-                    srcSchema = s.getSchema(destSlotName);
-
-                    // The slot is present in source and destination schema -> check compatibility
-                    if (!destSchema.isAssignableFrom(srcSchema)) {
-                        return false;
-                    }
-                } catch (OntologyException e) {
-                    // The slot is present only in destination schema -> must be not mandatory
-                    if (isMandatory(destSlotName)) {
-                        return false;
-                    }
+        // All slots of the destination schema that are present in the source schema too must be assignable.
+        // Slots of the destination schema not present in the source schema must be OPTIONAL.
+        ObjectSchema srcSchema;
+        for (SlotPlan destSlot : p.slots) {
+            try {
+                srcSchema = s.getSchema(destSlot.name);
+
+                // The slot is present in source and destination schema -> check compatibility
+                if (!destSlot.schema.isAssignableFrom(srcSchema)) {
+                    return false;
+                }
+            } catch (OntologyException e) {
+                // The slot is present only in destination schema -> must be not mandatory
+                if (destSlot.mandatory) {
+                    return false;
                 }
             }
-
-            return true;
-
-        } catch (OntologyException e) {
-            return false;
         }
+
+        return true;
     }
 
     private class SlotDescriptor implements Serializable {
@@ -727,5 +752,98 @@ class ObjectSchemaImpl extends ObjectSchema {
 
     }
 
+    /**
+     * The immutable validation plan of a schema: the flattened list of all slots
+     * (including those defined in super-schemas) with everything needed to validate them.
+     */
+    private static final class ValidationPlan {
+        private final int version;
+        private final String[] names;
+        private final SlotPlan[] slots;
+        // Results of isAssignableFrom() keyed by source schema
+        private final Map<ObjectSchema, Boolean> assignableFrom = new ConcurrentHashMap<>();
+
+        private ValidationPlan(ObjectSchemaImpl schema, int version) {
+            this.version = version;
+            Vector<CaseInsensitiveString> allSlotNames = new Vector<>();
+            schema.fillAllSlotNames(allSlotNames);
+
+            names = new String[allSlotNames.size()];
+            List<SlotPlan> ss = new ArrayList<>(names.length);
+            Set<CaseInsensitiveString> resolved = new HashSet<>();
+            for (int i = 0; i < names.length; ++i) {
+                CaseInsensitiveString ciName = allSlotNames.elementAt(i);
+                names[i] = ciName.toString();
+                // A slot re-defined in a sub-schema is listed twice, but validated once
+                if (resolved.add(ciName)) {
+                    List<Facet> inheritedFacets = new ArrayList<>();
+                    SlotPlan sp = schema.resolveSlot(ciName, inheritedFacets);
+                    if (sp != null) {
+                        sp.inheritedFacets = inheritedFacets.toArray(new Facet[0]);
+                        ss.add(sp);
+                    }
+                }
+            }
+            slots = ss.toArray(new SlotPlan[0]);
+        }
+    }
+
+    /**
+     * The validation plan of a single slot
+     */
+    private static final class SlotPlan {
+        private final String name;
+        private final ObjectSchema schema;
+        private final boolean mandatory;
+        private final ObjectSchemaImpl declaringSchema;
+        private final Facet[] declaringFacets;
+        private Facet[] inheritedFacets;
+        // Results of isCompatibleWith() for the schemas of the values found in this slot
+        private final Map<ObjectSchema, Boolean> compatible = new ConcurrentHashMap<>();
+
+        private SlotPlan(SlotDescriptor dsc, ObjectSchemaImpl declaringSchema, Facet[] declaringFacets) {
+            name = dsc.name;
+            schema = dsc.schema;
+            mandatory = dsc.optionality == MANDATORY;
+            this.declaringSchema = declaringSchema;
+            this.declaringFacets = declaringFacets;
+        }
+
+        private boolean isCompatible(ObjectSchema s) {
+            Boolean b = compatible.get(s);
+            if (b == null) {
+                b = s.isCompatibleWith(schema);
+                compatible.put(s, b);
+            }
+            return b;
+        }
+    }
+
+    /**
+     * Same as RegexFacet, but with the regular expression compiled once
+     */
+    private static final class CompiledRegexFacet implements Facet {
+        private final String regex;
+        private final Pattern pattern;
+
+        private CompiledRegexFacet(String regex) {
+            this.regex = regex;
+            pattern = Pattern.compile(regex);
+        }
+
+        public void validate(AbsObject value, Ontology onto) throws OntologyException {
+            if (!(value instanceof AbsPrimitive absPrimitive)) {
+                throw new OntologyException(value + " is not an AbsPrimitive");
+            }
+
+            Object absValue = absPrimitive.getObject();
+            if (absValue != null) {
+                if (!pattern.matcher(absValue.toString()).matches()) {
+                    throw new OntologyException(value + " not match the regular expression " + regex);
+                }
+            }
+        }
+    }
+
 }
 
@@ -141,7 +141,7 @@ public class AID implements Comparable<Object>, Serializable {
      */
     public void setName(String n) {
         name = n.trim();
-        hashCode = name.toLowerCase().hashCode();
+        hashCode = CaseInsensitiveString.foldedHashCode(name);
     }
 
     /**
@@ -468,6 +468,9 @@ public class AID implements Comparable<Object>, Serializable {
      * </ul>
      */
     public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
         if (o == null) {
             return false;
         }
@@ -493,7 +496,7 @@ public class AID implements Comparable<Object>, Serializable {
      */
     public int compareTo(Object o) {
         AID id = (AID) o;
-        return name.toLowerCase().toUpperCase().compareTo(id.name.toLowerCase().toUpperCase());
+        return CaseInsensitiveString.compareIgnoreCase(name, id.name);
     }
 
 
@@ -531,7 +534,7 @@ public class AID implements Comparable<Object>, Serializable {
         }
         name = n.trim();
         name = createGUID(name, hap);
-        hashCode = name.toLowerCase().hashCode();
+        hashCode = CaseInsensitiveString.foldedHashCode(name);
     }
 
     /**
@@ -0,0 +1,130 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+package jade.core;
+
+//#J2ME_EXCLUDE_FILE
+//#APIDOC_EXCLUDE_FILE
+
+import jade.content.abs.AbsConcept;
+
+import java.util.TreeMap;
+
+/**
+ * Benchmark measuring the cost of the AID based lookups performed on the hot paths of a container.
+ * The LADT and the GADT are filled with a number of agents. Then each of them is looked up with a freshly
+ * built AID whose name differs only in case, i.e. as it happens when the receiver of a message is decoded
+ * from the network. The same AIDs are then looked up in a sorted map (as in the agent lists kept by the AMS)
+ * and the slots of an abstract descriptor are read by name. The average time of each lookup is printed at
+ * the end of each round.
+ * <p>
+ * Usage: <code>java jade.core.AIDLookupBenchmark [-agents N] [-rounds N]</code>
+ * <ul>
+ * <li>agents: number of agents in the LADT and GADT (default 10000)</li>
+ * <li>rounds: number of measure rounds. The first ones just warm up the JVM (default 5)</li>
+ * </ul>
+ */
+public class AIDLookupBenchmark {
+    private static final int LOOKUPS_PER_AGENT = 100;
+    private static final int SLOT_LOOKUPS = 2000000;
+
+    public static void main(String[] args) {
+        int nAgents = 10000;
+        int nRounds = 5;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-agents" -> nAgents = Integer.parseInt(value);
+                case "-rounds" -> nRounds = Integer.parseInt(value);
+                default -> {
+                    System.out.println("Unknown option " + args[i]);
+                    System.exit(1);
+                }
+            }
+        }
+
+        String[] names = new String[nAgents];
+        LADT ladt = new LADT(nAgents);
+        GADT gadt = new GADT();
+        TreeMap<AID, AID> sorted = new TreeMap<>();
+        for (int i = 0; i < nAgents; ++i) {
+            names[i] = "Agent" + i + "@192.168.0.1:1099/JADE";
+            AID id = new AID(names[i], AID.ISGUID);
+            ladt.put(id, new Agent());
+            gadt.put(id, new AgentDescriptor());
+            sorted.put(id, id);
+        }
+        AbsConcept descriptor = new AbsConcept("agent-identifier");
+        descriptor.set("name", names[0]);
+        descriptor.set("addresses", "http://localhost:7778/acc");
+
+        for (int round = 1; round <= nRounds; ++round) {
+            int misses = 0;
+            long start = System.nanoTime();
+            for (int k = 0; k < LOOKUPS_PER_AGENT; ++k) {
+                for (String name : names) {
+                    AID id = new AID(name.toUpperCase(), AID.ISGUID);
+                    if (ladt.acquire(id) == null) {
+                        misses++;
+                    } else {
+                        ladt.release(id);
+                    }
+                }
+            }
+            long ladtTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int k = 0; k < LOOKUPS_PER_AGENT; ++k) {
+                for (String name : names) {
+                    AID id = new AID(name.toUpperCase(), AID.ISGUID);
+                    if (gadt.acquire(id) == null) {
+                        misses++;
+                    } else {
+                        gadt.release(id);
+                    }
+                }
+            }
+            long gadtTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int k = 0; k < LOOKUPS_PER_AGENT; ++k) {
+                for (String name : names) {
+                    if (sorted.get(new AID(name.toUpperCase(), AID.ISGUID)) == null) {
+                        misses++;
+                    }
+                }
+            }
+            long sortedTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int k = 0; k < SLOT_LOOKUPS; ++k) {
+                if (descriptor.getAbsObject("NAME") == null || descriptor.getAbsObject("addresses") == null) {
+                    misses++;
+                }
+            }
+            long slotTime = System.nanoTime() - start;
+
+            long nLookups = (long) LOOKUPS_PER_AGENT * nAgents;
+            System.out.println("Round " + round + ": LADT acquire/release = " + ladtTime / nLookups + " ns, GADT acquire/release = " + gadtTime / nLookups + " ns, sorted map get = " + sortedTime / nLookups + " ns, slot get = " + slotTime / (2L * SLOT_LOOKUPS) + " ns" + (misses > 0 ? " (" + misses + " misses!)" : ""));
+        }
+    }
+}
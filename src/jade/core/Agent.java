@@ -26,6 +26,7 @@ package jade.core;
 import jade.core.behaviours.Behaviour;
 import jade.core.mobility.AgentMobilityHelper;
 import jade.core.mobility.Movable;
+import jade.core.profiling.AgentProfiler;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
 import jade.lang.acl.ACLMessage;
@@ -36,6 +37,11 @@ import jade.util.Logger;
 import static java.lang.System.out;
 import java.io.*;
 import java.util.*;
+//#J2ME_EXCLUDE_BEGIN
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+//#J2ME_EXCLUDE_END
 
 //#MIDP_EXCLUDE_END
 
@@ -128,6 +134,33 @@ public class Agent implements Runnable, Serializable, TimerListener {
      */
     public static final int D_MAX = 41;    // Hand-made type checking
     public static final String MSG_QUEUE_CLASS = "jade_core_Agent_msgQueueClass";
+    /**
+     * Overflow policy of the agent message queue (see <code>BoundedMessageQueue</code>).
+     * Setting this or any of the following <code>MSG_QUEUE_*</code> properties makes the agent use
+     * a <code>BoundedMessageQueue</code>.
+     */
+    public static final String MSG_QUEUE_OVERFLOW_POLICY = "jade_core_Agent_msgQueueOverflowPolicy";
+    /**
+     * Comma separated list of performatives (e.g. <code>failure,cancel</code>) of messages that
+     * are received before all the others
+     */
+    public static final String MSG_QUEUE_PRIORITY_PERFORMATIVES = "jade_core_Agent_msgQueuePriorityPerformatives";
+    /**
+     * Comma separated list of performatives discarded first by the <code>drop-by-performative</code> overflow policy
+     */
+    public static final String MSG_QUEUE_DROPPABLE_PERFORMATIVES = "jade_core_Agent_msgQueueDroppablePerformatives";
+    /**
+     * Number of queued messages above which the delivery of non-priority messages to the agent is pushed back to senders
+     */
+    public static final String MSG_QUEUE_HIGH_WATER_MARK = "jade_core_Agent_msgQueueHighWaterMark";
+    /**
+     * Directory where messages are spilled by the <code>spill-to-disk</code> overflow policy
+     */
+    public static final String MSG_QUEUE_SPILL_DIR = "jade_core_Agent_msgQueueSpillDir";
+    /**
+     * Initial maximum size of the agent message queue (0 means unlimited)
+     */
+    public static final String MSG_QUEUE_MAX_SIZE = "jade_core_Agent_msgQueueMaxSize";
     @Serial
     private static final long serialVersionUID = 3487495895819000L;
     private final Logger log = Logger.getJADELogger(this.getClass().getName());
@@ -144,15 +177,16 @@ public class Agent implements Runnable, Serializable, TimerListener {
     private int msgQueueMaxSize = 0;
     //#MIDP_EXCLUDE_BEGIN
     private transient boolean temporaryMessageQueue;
-    private transient List<Event> o2aQueue;
+    private transient volatile O2AQueue o2aQueue;
     private int o2aQueueSize = 0;
-    private transient Map<Event, CondVar> o2aLocks;
+    private String o2aOverflowPolicy = O2AQueue.DROP_OLDEST;
     //#MIDP_EXCLUDE_END
     //#APIDOC_EXCLUDE_END
     private Behaviour o2aManager = null;
     private transient Object suspendLock;
     //#J2ME_EXCLUDE_BEGIN
     private Map<Class<?>, Object> o2aInterfaces;
+    private transient volatile O2AInvoker o2aInvoker;
     private String myName = null;
     private AID myAID = null;
     private String myHap = null;
@@ -185,6 +219,11 @@ public class Agent implements Runnable, Serializable, TimerListener {
      * These events in facts are very frequent.
      */
     private boolean generateBehaviourEvents = false;
+    /**
+     * The profiler collecting runtime statistics about this agent, if any.
+     * When null (default) no measurement is performed.
+     */
+    private transient volatile AgentProfiler myProfiler = null;
     /**
      * Declared transient because the container changes in case
      * of agent migration.
@@ -208,7 +247,6 @@ public class Agent implements Runnable, Serializable, TimerListener {
     public Agent() {
         //#MIDP_EXCLUDE_BEGIN
         myToolkit = DummyToolkit.instance();
-        o2aLocks = new HashMap<>();
         suspendLock = new Object();
         temporaryMessageQueue = true;
         //#MIDP_EXCLUDE_END
@@ -323,17 +361,71 @@ public class Agent implements Runnable, Serializable, TimerListener {
      * @return The MessageQueue to be used by this agent or null if the internal message queue must be used
      */
     protected MessageQueue createMessageQueue() {
+        MessageQueue queue = null;
         String msgQueueClass = getProperty(MSG_QUEUE_CLASS, null);
         if (msgQueueClass != null) {
             try {
-                return (MessageQueue) Class.forName(msgQueueClass).getDeclaredConstructor().newInstance();
+                queue = (MessageQueue) Class.forName(msgQueueClass).getDeclaredConstructor().newInstance();
             } catch (Exception e) {
                 System.out.println("Error loading MessageQueue of class " + msgQueueClass + " [" + e + "]");
             }
         }
-        return null;
+        //#MIDP_EXCLUDE_BEGIN
+        String policy = getProperty(MSG_QUEUE_OVERFLOW_POLICY, null);
+        String priority = getProperty(MSG_QUEUE_PRIORITY_PERFORMATIVES, null);
+        String droppable = getProperty(MSG_QUEUE_DROPPABLE_PERFORMATIVES, null);
+        String highWaterMark = getProperty(MSG_QUEUE_HIGH_WATER_MARK, null);
+        String spillDir = getProperty(MSG_QUEUE_SPILL_DIR, null);
+        String maxSize = getProperty(MSG_QUEUE_MAX_SIZE, null);
+        if (queue == null && (policy != null || priority != null || droppable != null || highWaterMark != null || spillDir != null || maxSize != null)) {
+            queue = new BoundedMessageQueue();
+        }
+        if (queue instanceof BoundedMessageQueue) {
+            BoundedMessageQueue bq = (BoundedMessageQueue) queue;
+            bq.setOwner(this);
+            try {
+                if (policy != null) {
+                    bq.setOverflowPolicy(policy);
+                }
+                if (priority != null) {
+                    bq.setPriorityPerformatives(parsePerformatives(priority));
+                }
+                if (droppable != null) {
+                    bq.setDroppablePerformatives(parsePerformatives(droppable));
+                }
+                if (highWaterMark != null) {
+                    bq.setHighWaterMark(Integer.parseInt(highWaterMark));
+                }
+                bq.setSpillDirectory(spillDir);
+            } catch (Exception e) {
+                log.log(Logger.WARNING, "Agent " + getLocalName() + " - Invalid message queue configuration [" + e + "]");
+            }
+        }
+        if (maxSize != null && msgQueueMaxSize == 0) {
+            try {
+                msgQueueMaxSize = Integer.parseInt(maxSize);
+            } catch (NumberFormatException nfe) {
+                log.log(Logger.WARNING, "Agent " + getLocalName() + " - Invalid message queue size " + maxSize);
+            }
+        }
+        //#MIDP_EXCLUDE_END
+        return queue;
     }
 
+    //#MIDP_EXCLUDE_BEGIN
+    private static int[] parsePerformatives(String list) {
+        String[] names = list.split(",");
+        int[] pp = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            pp[i] = ACLMessage.getInteger(names[i].trim());
+            if (pp[i] < 0) {
+                throw new IllegalArgumentException("Unknown performative " + names[i]);
+            }
+        }
+        return pp;
+    }
+    //#MIDP_EXCLUDE_END
+
     /**
      * If the agent still has a temporary message queue, create the real one and copy messages if any
      */
@@ -951,6 +1043,12 @@ public class Agent implements Runnable, Serializable, TimerListener {
      * @see Agent#doWait()
      */
     public void doWake() {
+        wake(null);
+    }
+
+    // Wakes up the agent. If the wake-up is due to the arrival of some messages,
+    // only the behaviours that may be interested in them are restarted.
+    private void wake(ACLMessage[] mm) {
         synchronized (stateLock) {
             int previous = myLifeCycle.getState();
             if ((previous == AP_WAITING) || (previous == AP_IDLE)) {
@@ -958,7 +1056,11 @@ public class Agent implements Runnable, Serializable, TimerListener {
             }
         }
         if (myLifeCycle.isMessageAware()) {
-            activateAllBehaviours();
+            if (mm == null) {
+                activateAllBehaviours();
+            } else {
+                myScheduler.restartAll(mm);
+            }
             synchronized (msgQueue) {
                 msgQueue.notifyAll(); // Wakes up the embedded thread
             }
@@ -983,9 +1085,19 @@ public class Agent implements Runnable, Serializable, TimerListener {
     // This is called only by the scheduler
     void idle() throws InterruptedException {
         setActiveState(AP_IDLE);
+        AgentProfiler profiler = myProfiler;
+        if (profiler != null) {
+            profiler.idleStarted();
+        }
         // No need for synchronized block since this is only called by the
         // scheduler in the synchronized schedule() method
-        waitOn(myScheduler, 0);
+        try {
+            waitOn(myScheduler, 0);
+        } finally {
+            if (profiler != null) {
+                profiler.idleTerminated();
+            }
+        }
         setActiveState(AP_ACTIVE);
     }
 
@@ -1096,41 +1208,49 @@ public class Agent implements Runnable, Serializable, TimerListener {
      * @see jade.wrapper.AgentController#putO2AObject(Event o, boolean blocking)
      */
     public void putO2AObject(Event o, boolean blocking) throws InterruptedException {
-        // Drop object on the floor if object-to-agent communication is
-        // disabled.
-        if (o2aQueue == null)
-            return;
+        O2AQueue.Rendezvous rendezvous = offerO2AObject(o, blocking);
+        if (rendezvous != null)
+            // Sleep until the object is retrieved
+            rendezvous.waitOn();
+    }
 
-        CondVar cond = null;
-        // the following block is synchronized because o2aQueue.add and o2aLocks.put must be
-        // an atomic operation
-        synchronized (o2aQueue) {
-            // If the queue has a limited capacity and it is full, discard the
-            // first element
-            if ((o2aQueueSize != 0) && (o2aQueue.size() == o2aQueueSize))
-                o2aQueue.remove(0);
+    //#APIDOC_EXCLUDE_BEGIN
 
-            o2aQueue.add(o);
+    /**
+     * Insert an object in the object-to-agent communication queue without waiting for it
+     * to be retrieved. This allows callers holding resources the agent may need (e.g. its
+     * LADT row) to release them before waiting.
+     *
+     * @return The <code>Rendezvous</code> to wait on for the object to be retrieved, or
+     * null if the insertion was not blocking or the object was discarded
+     * @see Agent#putO2AObject(Event o, boolean blocking)
+     */
+    public O2AQueue.Rendezvous offerO2AObject(Event o, boolean blocking) throws InterruptedException {
+        // Drop object on the floor if object-to-agent communication is
+        // disabled.
+        O2AQueue queue = o2aQueue;
+        if (queue == null)
+            return null;
 
-            // If we are going to block, then activate behaviours after storing the CondVar object
-            if (blocking) {
-                cond = new CondVar();
+        O2AQueue.Rendezvous rendezvous = (blocking ? new O2AQueue.Rendezvous(o) : null);
+        if (!queue.offer(blocking ? rendezvous : o)) {
+            // The object was discarded according to the overflow policy
+            return null;
+        }
 
-                // Store lock for later, when getO2AObject will be called
-                o2aLocks.put(o, cond);
-            }
-        } // end synchronization
         // Reactivate the O2AManager if any or the whole agent if no O2AManager is set.
-        if (o2aManager == null) {
-            // This method is synchronized on the scheduler
-            activateAllBehaviours();
-        } else {
-            o2aManager.restart();
+        // This is not necessary if the agent was already activated and did not execute any behaviour since then
+        if (queue.needsActivation()) {
+            if (o2aManager == null) {
+                // This method is synchronized on the scheduler
+                activateAllBehaviours();
+            } else {
+                o2aManager.restart();
+            }
         }
-        if (blocking)
-            // Sleep on the condition. This method is synchronized on the condvar
-            cond.waitOn();
+        return rendezvous;
     }
+    //#APIDOC_EXCLUDE_END
 
     /**
      * This method picks an object (if present) from the internal
@@ -1154,30 +1274,32 @@ public class Agent implements Runnable, Serializable, TimerListener {
     public Object getO2AObject() {
 
         // Return 'null' if object-to-agent communication is disabled
-        if (o2aQueue == null)
+        O2AQueue queue = o2aQueue;
+        if (queue == null)
             return null;
 
-        CondVar cond;
-        Event result;
-        synchronized (o2aQueue) {
-            if (o2aQueue.isEmpty())
-                return null;
-
-            // Retrieve the first object from the object-to-agent
-            // communication queue
-            result = o2aQueue.remove(0);
-
-            // If some thread issued a blocking putO2AObject() call with this
-            // object, wake it up. cond.set is synchronized on CondVar object
-            cond = o2aLocks.remove(result);
-        }
-
-        if (cond != null) {
-            cond.set();
-        }
-
-        return result;
+        // Retrieve the first object from the object-to-agent communication queue.
+        // If some thread issued a blocking putO2AObject() call with this object, it is waken up
+        return queue.poll();
+    }
 
+    /**
+     * This method moves up to <code>maxObjects</code> objects (if present) from the internal
+     * object-to-agent communication queue to the given collection. Retrieving objects in batches
+     * is more efficient than calling <code>getO2AObject()</code> once per object when objects
+     * are inserted at a high rate.
+     * <br>
+     * <b>NOT available in MIDP</b>
+     * <br>
+     *
+     * @param c          The collection where retrieved objects are added
+     * @param maxObjects The maximum number of objects to retrieve
+     * @return the number of retrieved objects
+     * @see Agent#getO2AObject()
+     */
+    public int drainO2AObjects(Collection<? super Event> c, int maxObjects) {
+        O2AQueue queue = o2aQueue;
+        return (queue != null ? queue.drainTo(c, maxObjects) : 0);
     }
 
     /**
@@ -1198,21 +1320,42 @@ public class Agent implements Runnable, Serializable, TimerListener {
      * see getO2AObject()
      */
     public void setEnabledO2ACommunication(boolean enabled, int queueSize) {
-        if (enabled) {
-            if (o2aQueue == null)
-                o2aQueue = new ArrayList<>(queueSize);
+        setEnabledO2ACommunication(enabled, queueSize, o2aOverflowPolicy);
+    }
 
+    /**
+     * This method declares this agent attitude towards object-to-agent
+     * communication specifying the policy to apply when the queue is full.
+     * <br>
+     * <b>NOT available in MIDP</b>
+     * <br>
+     *
+     * @param enabled        Tells whether Java objects inserted with
+     *                       putO2AObject()   will be accepted.
+     * @param queueSize      The maximum number of Java objects that will be queued. 0 means no limit
+     * @param overflowPolicy One of <code>O2AQueue.DROP_OLDEST</code> (default), <code>O2AQueue.DROP_NEWEST</code>
+     *                       and <code>O2AQueue.BLOCK</code> (see <code>O2AQueue</code>)
+     * @see Agent#setEnabledO2ACommunication(boolean enabled, int queueSize)
+     */
+    public void setEnabledO2ACommunication(boolean enabled, int queueSize, String overflowPolicy) {
+        if (enabled) {
             // Ignore a negative value
             if (queueSize >= 0)
                 o2aQueueSize = queueSize;
+            if (o2aQueue == null) {
+                o2aQueue = new O2AQueue(o2aQueueSize, overflowPolicy);
+            } else {
+                o2aQueue.setOverflowPolicy(overflowPolicy);
+                o2aQueue.setMaxSize(o2aQueueSize);
+            }
+            o2aOverflowPolicy = overflowPolicy;
         } else {
-
             // Wake up all threads blocked in putO2AObject() calls
-            for (CondVar cv : o2aLocks.values()) {
-                if (cv != null) cv.set();
-            }
-
+            O2AQueue queue = o2aQueue;
             o2aQueue = null;
+            if (queue != null) {
+                queue.close();
+            }
         }
 
     }
@@ -1262,6 +1405,40 @@ public class Agent implements Runnable, Serializable, TimerListener {
         o2aInterfaces.put(theInterface, implementation);
     }
 
+    /**
+     * Asynchronously invoke the implementation registered for a given O2A interface.
+     * The invocation is executed by the agent thread, and therefore does not need to be synchronized
+     * with the agent behaviours, while the calling thread gets a future completed with its result.
+     *
+     * @param theInterface The O2A interface whose implementation must be invoked.
+     * @param invocation   The function invoking the registered implementation.
+     * @return A future completed with the result of the invocation or completed exceptionally if no
+     * implementation is registered for the given interface, the invocation throws an exception or
+     * the agent terminates before executing it.
+     */
+    public <T, R> CompletableFuture<R> invokeO2AInterface(Class<T> theInterface, Function<? super T, ? extends R> invocation) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        T implementation = getO2AInterface(theInterface);
+        if (implementation == null) {
+            result.completeExceptionally(new IllegalArgumentException("No implementation registered for O2A interface " + theInterface.getName()));
+            return result;
+        }
+
+        O2AInvoker invoker = o2aInvoker;
+        if (invoker == null) {
+            synchronized (o2aInterfaces) {
+                invoker = o2aInvoker;
+                if (invoker == null) {
+                    invoker = new O2AInvoker();
+                    o2aInvoker = invoker;
+                    addBehaviour(invoker);
+                }
+            }
+        }
+        invoker.add(new O2AInvocation<>(implementation, invocation, result));
+        return result;
+    }
+
     /**
      * This method is the main body of every agent. It
      * provides startup and cleanup hooks for application
@@ -1313,7 +1490,26 @@ public class Agent implements Runnable, Serializable, TimerListener {
         myLifeCycle = myActiveLifeCycle;
         takeDown();
         pendingTimers.clear();
+        //#MIDP_EXCLUDE_BEGIN
+        // Release threads blocked in putO2AObject() calls and pending O2A invocations before
+        // handleEnd(), that needs exclusive access to the LADT row those threads may be holding
+        O2AQueue queue = o2aQueue;
+        if (queue != null) {
+            queue.close();
+        }
+        //#MIDP_EXCLUDE_END
+        //#J2ME_EXCLUDE_BEGIN
+        O2AInvoker invoker = o2aInvoker;
+        if (invoker != null) {
+            invoker.abort();
+        }
+        //#J2ME_EXCLUDE_END
         myToolkit.handleEnd(myAID);
+        //#MIDP_EXCLUDE_BEGIN
+        if (msgQueue instanceof BoundedMessageQueue) {
+            ((BoundedMessageQueue) msgQueue).close();
+        }
+        //#MIDP_EXCLUDE_END
         myLifeCycle = myBufferedLifeCycle;
     }
     //#APIDOC_EXCLUDE_END
@@ -1463,8 +1659,7 @@ public class Agent implements Runnable, Serializable, TimerListener {
         theDispatcher = TimerDispatcher.getTimerDispatcher();
         // restore O2AQueue
         if (o2aQueueSize > 0)
-            o2aQueue = new ArrayList<>(o2aQueueSize);
-        o2aLocks = new HashMap<>();
+            o2aQueue = new O2AQueue(o2aQueueSize, o2aOverflowPolicy != null ? o2aOverflowPolicy : O2AQueue.DROP_OLDEST);
         myToolkit = DummyToolkit.instance();
         temporaryMessageQueue = true;
         msgQueue = new InternalMessageQueue(msgQueueMaxSize, this);
@@ -1590,6 +1785,10 @@ public class Agent implements Runnable, Serializable, TimerListener {
             //#MIDP_EXCLUDE_BEGIN
             if (msg != null) {
                 myToolkit.handleReceived(myAID, msg);
+                AgentProfiler profiler = myProfiler;
+                if (profiler != null) {
+                    profiler.messageReceived(System.currentTimeMillis() - msg.getPostTimeStamp());
+                }
             }
             //#MIDP_EXCLUDE_END
         }
@@ -1767,6 +1966,18 @@ public class Agent implements Runnable, Serializable, TimerListener {
         generateBehaviourEvents = b;
     }
 
+    //#APIDOC_EXCLUDE_BEGIN
+
+    // Public as it is called by the Behaviour class and by the ProfilingService
+    public AgentProfiler getProfiler() {
+        return myProfiler;
+    }
+
+    public void setProfiler(AgentProfiler profiler) {
+        myProfiler = profiler;
+    }
+    //#APIDOC_EXCLUDE_END
+
     // Notify toolkit that the current agent has changed its state
     private void notifyChangedAgentState(int oldState, int newState) {
         myToolkit.handleChangedAgentState(myAID, oldState, newState);
@@ -1797,7 +2008,13 @@ public class Agent implements Runnable, Serializable, TimerListener {
                 myToolkit.handlePosted(myAID, msg);
                 //#MIDP_EXCLUDE_END
                 msgQueue.addLast(msg);
-                doWake();
+                //#MIDP_EXCLUDE_BEGIN
+                AgentProfiler profiler = myProfiler;
+                if (profiler != null) {
+                    profiler.messagePosted(msgQueue.size());
+                }
+                //#MIDP_EXCLUDE_END
+                wake(new ACLMessage[]{msg});
             }
         }
     }
@@ -1813,7 +2030,30 @@ public class Agent implements Runnable, Serializable, TimerListener {
                 //#MIDP_EXCLUDE_END
                 msgQueue.addLast(msg);
             }
-            doWake();
+            //#MIDP_EXCLUDE_BEGIN
+            AgentProfiler profiler = myProfiler;
+            if (profiler != null) {
+                profiler.messagePosted(msgQueue.size());
+            }
+            //#MIDP_EXCLUDE_END
+            wake(mm);
+        }
+    }
+
+    /**
+     * Post the leading messages of <code>mm</code> that the message queue can accept without
+     * exceeding its high-water mark (see <code>BoundedMessageQueue</code>). The check and the
+     * insertion are atomic with respect to concurrent deliveries to this agent.
+     *
+     * @return the number of messages actually posted
+     */
+    final int postAcceptableMessages(ACLMessage[] mm) {
+        synchronized (msgQueue) {
+            int n = msgQueue instanceof BoundedMessageQueue bq ? bq.getAcceptableCnt(mm) : mm.length;
+            if (n > 0) {
+                postMessagesBlock(n < mm.length ? Arrays.copyOf(mm, n) : mm);
+            }
+            return n;
         }
     }
 
@@ -2111,24 +2351,69 @@ public class Agent implements Runnable, Serializable, TimerListener {
     } // End of inner class TBPair
 
     /**
-     * Inner class CondVar
-     * A simple class for a boolean condition variable
+     * Inner class O2AInvoker
+     * The behaviour executing asynchronous O2A interface invocations in the agent thread
      */
-    private static class CondVar {
-        private boolean value = false;
+    private class O2AInvoker extends Behaviour {
+        // Maximum number of invocations executed before giving other behaviours a chance to run
+        private static final int MAX_INVOCATIONS_PER_ROUND = 100;
 
-        public synchronized void waitOn() throws InterruptedException {
-            while (!value) {
-                wait();
+        // Null after a migration: pending invocations are not transferred and a new invoker is created on demand
+        private transient ConcurrentLinkedQueue<O2AInvocation<?, ?>> invocations = new ConcurrentLinkedQueue<>();
+
+        private void add(O2AInvocation<?, ?> invocation) {
+            invocations.add(invocation);
+            restart();
+        }
+
+        private void abort() {
+            O2AInvocation<?, ?> invocation;
+            while ((invocation = invocations.poll()) != null) {
+                invocation.result.completeExceptionally(new jade.wrapper.O2AException("Agent " + myName + " terminated"));
+            }
+        }
+
+        public void action() {
+            O2AInvocation<?, ?> invocation;
+            int cnt = 0;
+            // Stop as soon as the agent is no longer active (e.g. an invocation called doDelete()):
+            // remaining invocations are failed when the agent terminates
+            while (cnt < MAX_INVOCATIONS_PER_ROUND && myAgent.getState() == AP_ACTIVE && (invocation = invocations.poll()) != null) {
+                invocation.run();
+                cnt++;
+            }
+            if (invocations.isEmpty()) {
+                block();
             }
         }
 
-        public synchronized void set() {
-            value = true;
-            notifyAll();
+        public boolean done() {
+            return invocations == null;
         }
+    } // End of inner class O2AInvoker
 
-    } // End of inner class CondVar
+    /**
+     * Inner class O2AInvocation
+     */
+    private static class O2AInvocation<T, R> {
+        private final T implementation;
+        private final Function<? super T, ? extends R> invocation;
+        private final CompletableFuture<R> result;
+
+        private O2AInvocation(T implementation, Function<? super T, ? extends R> invocation, CompletableFuture<R> result) {
+            this.implementation = implementation;
+            this.invocation = invocation;
+            this.result = result;
+        }
+
+        private void run() {
+            try {
+                result.complete(invocation.apply(implementation));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }
+    } // End of inner class O2AInvocation
 
     //#J2ME_EXCLUDE_END
 
@@ -2271,9 +2556,22 @@ public class Agent implements Runnable, Serializable, TimerListener {
             // Select the next behaviour to execute
             Behaviour currentBehaviour = myScheduler.schedule();
             long oldRestartCounter = currentBehaviour.getRestartCounter();
+            //#MIDP_EXCLUDE_BEGIN
+            O2AQueue queue = o2aQueue;
+            if (queue != null) {
+                queue.resetActivation();
+            }
+            //#MIDP_EXCLUDE_END
 
             // Just do it!
-            currentBehaviour.actionWrapper();
+            AgentProfiler profiler = myProfiler;
+            if (profiler != null) {
+                long start = System.nanoTime();
+                currentBehaviour.actionWrapper();
+                profiler.scheduledExecuted(System.nanoTime() - start);
+            } else {
+                currentBehaviour.actionWrapper();
+            }
 
             // When it is needed no more, delete it from the behaviours queue
             if (currentBehaviour.done()) {
@@ -81,6 +81,19 @@ public interface AgentContainer {
 
     void releaseLocalAgent(AID id);
 
+    /**
+     * Access a local agent in shared mode: unlike <code>acquireLocalAgent()</code>, any number
+     * of threads can hold an agent at the same time.
+     * The default implementation falls back to exclusive access.
+     */
+    default Agent acquireLocalAgentShared(AID id) {
+        return acquireLocalAgent(id);
+    }
+
+    default void releaseLocalAgentShared(AID id) {
+        releaseLocalAgent(id);
+    }
+
     AID[] agentNames();
 
     //#APIDOC_EXCLUDE_BEGIN
@@ -102,6 +115,18 @@ public interface AgentContainer {
 
     boolean postMessagesBlockToLocalAgent(ACLMessage[] mm, AID receiverID);
 
+    /**
+     * Post the leading messages in <code>mm</code> that the message queue of the given local agent can accept
+     * without exceeding its high-water mark. The delivery of the others should be pushed back to the sender.
+     * By default all messages are posted.
+     *
+     * @return the number of messages actually posted or -1 if the receiver was not found
+     */
+    default int postAcceptableMessagesToLocalAgent(ACLMessage[] mm, AID receiverID) {
+        boolean found = mm.length == 1 ? postMessageToLocalAgent(mm[0], receiverID) : postMessagesBlockToLocalAgent(mm, receiverID);
+        return found ? mm.length : -1;
+    }
+
     Location here();
 
     void shutDown();
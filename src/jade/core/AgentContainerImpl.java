@@ -24,6 +24,7 @@
 package jade.core;
 
 import jade.core.behaviours.Behaviour;
+import jade.core.management.AgentManagementService;
 import jade.core.management.AgentManagementSlice;
 import jade.core.messaging.GenericMessage;
 import jade.domain.AMSEventQueueFeeder;
@@ -40,9 +41,16 @@ import jade.security.JADESecurityException;
 import jade.util.Logger;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 /**
@@ -68,6 +76,20 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
     public static final String ENABLE_MONITOR = "jade_core_AgentContainerImpl_enablemonitor";
     public static final String MONITOR_AGENT_NAME = "monitor-%C";
     public static final String MONITOR_AGENT_CLASS = "jade.core.ContainerMonitorAgent";
+    /**
+     * Profile option that specifies whether or not services that declare the services they depend on
+     * (see <code>Service.getDependencies()</code>) can be booted concurrently at container startup. Default is true
+     */
+    public static final String PARALLEL_BOOT = "jade_core_AgentContainerImpl_parallelboot";
+    /**
+     * Profile option specifying a ';' separated list of service classes (among those specified in the
+     * <code>services</code> option) whose activation must be deferred until an agent first requests
+     * their helper. Since such services have no slice on this container until they are activated, they
+     * should be services that other containers do not need to reach before (e.g. the AgentReplicationService).
+     */
+    public static final String LAZY_SERVICES = "jade_core_AgentContainerImpl_lazyservices";
+    // Max number of threads used to boot services concurrently
+    private static final int MAX_BOOT_THREADS = 8;
 
     private final Logger myLogger = Logger.getMyLogger(this.getClass().getName());
 
@@ -102,6 +124,8 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
     private ServiceFinder myServiceFinder;
     // The Object managing Thread resources in this container
     private ResourceManager myResourceManager;
+    // The services whose activation is deferred until first use, indexed by service name
+    private final Map<String, ServiceDescriptor> lazyServices = new ConcurrentHashMap<>();
     private AID theAMS;
     private AID theDefaultDF;
 
@@ -161,6 +185,10 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
                 target.createAgent(id, className, args, principal, null, AgentManagementSlice.CREATE_ONLY, dummyCmd);
             }
 
+            public Throwable[] createAgents(AID[] ids, List<Specifier> specs) {
+                return AgentContainerImpl.this.createAgents(ids, specs, principal, credentials);
+            }
+
             public void killContainer() throws Throwable {
                 // Do as if it was a remote call from the main to allow
                 // security checks to take place if needed
@@ -281,6 +309,43 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
         }
     }
 
+    /**
+     * Creates a set of agents in this container minimizing the interactions with the main container.
+     * Each agent is created as if it was created individually by means of a container proxy.
+     * If the AgentManagement service in place does not support bulk creation, agents
+     * are created one by one. Created agents are not started.
+     *
+     * @return For each agent,  null   if it was created successfully or the reason of the failure
+     * @see AgentManagementService#createAgents(AID[], List, jade.wrapper.ContainerProxy)
+     */
+    public Throwable[] createAgents(AID[] agentIDs, List<Specifier> specs, JADEPrincipal ownerPrincipal, Credentials ownerCredentials) {
+        // Replaces wildcards
+        String[] replacements = new String[]{myID.getName(), myProfile.getParameter(Profile.AGENT_TAG, "")};
+        for (AID agentID : agentIDs) {
+            agentID.setName(JADEManagementOntology.adjustAgentName(agentID.getName(), replacements));
+        }
+
+        jade.wrapper.ContainerProxy proxy = getContainerProxy(ownerPrincipal, ownerCredentials);
+        try {
+            Service svc = myServiceFinder.findService(AgentManagementSlice.NAME);
+            if (svc instanceof AgentManagementService ams) {
+                return ams.createAgents(agentIDs, specs, proxy);
+            }
+        } catch (IMTPException | ServiceException e) {
+            myLogger.log(Logger.WARNING, "Cannot access the AgentManagement service. Creating agents one by one", e);
+        }
+
+        Throwable[] results = new Throwable[agentIDs.length];
+        for (int i = 0; i < agentIDs.length; ++i) {
+            try {
+                proxy.createAgent(agentIDs[i], specs.get(i).getClassName(), specs.get(i).getArgs());
+            } catch (Throwable t) {
+                results[i] = t;
+            }
+        }
+        return results;
+    }
+
     public NodeDescriptor getNodeDescriptor() {
         return myNodeDescriptor;
     }
@@ -357,6 +422,7 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
      * Add the node to the platform with the basic services
      */
     protected void startNode() throws IMTPException, ProfileException, ServiceException, JADESecurityException, NotFoundException {
+        long startTime = System.currentTimeMillis();
         // Initialize all services (without activating them)
         List<ServiceDescriptor> services = new ArrayList<>();
 
@@ -365,6 +431,7 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
         List<Specifier> l = myProfile.getSpecifiers(Profile.SERVICES);
         myProfile.setSpecifiers(Profile.SERVICES, l); // Avoid parsing services twice
         initAdditionalServices(l.iterator(), services);
+        long initTime = System.currentTimeMillis();
 
         // Register with the platform (pass only global services to the Main)
         ServiceDescriptor[] descriptors = new ServiceDescriptor[services.size()];
@@ -375,6 +442,7 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
         // name of this container
         myServiceManager.addNode(myNodeDescriptor, descriptors);
         creationTime = System.currentTimeMillis();
+        long addNodeTime = creationTime;
 
         //#MIDP_EXCLUDE_BEGIN
         // If we are the master main container --> initialize the AMS and DF. Do that before booting all services
@@ -385,7 +453,9 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
         //#MIDP_EXCLUDE_END
 
         // Once we are connected, boot all services
+        long bootStartTime = System.currentTimeMillis();
         bootAllServices(services);
+        long bootTime = System.currentTimeMillis();
 
         //#MIDP_EXCLUDE_BEGIN
         // If we are the master main container --> start the AMS and DF.
@@ -393,6 +463,14 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
             myMainContainer.startSystemAgents(this, null);
         }
         //#MIDP_EXCLUDE_END
+        long endTime = System.currentTimeMillis();
+
+        myLogger.log(Logger.INFO, "Container startup times (ms): services-init = " + (initTime - startTime) +
+                ", node-registration = " + (addNodeTime - initTime) +
+                ", services-boot = " + (bootTime - bootStartTime) +
+                ", system-agents = " + ((bootStartTime - addNodeTime) + (endTime - bootTime)) +
+                ", total = " + (endTime - startTime) +
+                (lazyServices.isEmpty() ? "" : ". Deferred services: " + lazyServices.keySet()));
     }
 
     void initMandatoryServices(List<ServiceDescriptor> services) throws ServiceException {
@@ -417,6 +495,13 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
     }
 
     void initAdditionalServices(Iterator<Specifier> serviceSpecifiers, List<ServiceDescriptor> services) throws ServiceException {
+        String lazy = myProfile.getParameter(LAZY_SERVICES, null);
+        List<String> lazyClasses = new ArrayList<>();
+        if (lazy != null) {
+            for (String s : lazy.split(";")) {
+                lazyClasses.add(s.trim());
+            }
+        }
         while (serviceSpecifiers.hasNext()) {
             Specifier s = serviceSpecifiers.next();
             String serviceClass = s.getClassName();
@@ -427,7 +512,12 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
             try {
                 ServiceDescriptor dsc = startService(serviceClass, false);
                 dsc.setMandatory(isMandatory);
-                services.add(dsc);
+                if (!isMandatory && lazyClasses.contains(serviceClass)) {
+                    lazyServices.put(dsc.getName(), dsc);
+                    myLogger.log(Logger.CONFIG, "Activation of service " + dsc.getName() + " deferred until first use");
+                } else {
+                    services.add(dsc);
+                }
             } catch (ServiceException se) {
                 if (isMandatory) {
                     throw se;
@@ -439,19 +529,100 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
     }
 
     void bootAllServices(List<ServiceDescriptor> services) throws ServiceException {
+        //#J2ME_EXCLUDE_BEGIN
+        if (services.size() > 1 && myProfile.getBooleanProperty(PARALLEL_BOOT, true)) {
+            bootAllServicesConcurrently(services);
+            return;
+        }
+        //#J2ME_EXCLUDE_END
         for (ServiceDescriptor service : services) {
-            try {
-                service.getService().boot(myProfile);
-                if (service.getName().equals("jade.core.security.Security")) {
-                    // Security active. This is just for performance optimization when security is not active
-                    securityOn = true;
+            bootService(service);
+        }
+    }
+
+    //#J2ME_EXCLUDE_BEGIN
+    /**
+     * Boot each service as soon as all the services it depends on have been booted
+     */
+    private void bootAllServicesConcurrently(List<ServiceDescriptor> services) throws ServiceException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(services.size(), MAX_BOOT_THREADS));
+        try {
+            Map<String, CompletableFuture<Void>> boots = new HashMap<>();
+            List<CompletableFuture<Void>> all = new ArrayList<>(services.size());
+            for (ServiceDescriptor service : services) {
+                String[] dependencies = service.getService().getDependencies();
+                List<CompletableFuture<Void>> prerequisites = all;
+                if (dependencies != null) {
+                    prerequisites = new ArrayList<>(dependencies.length);
+                    for (String d : dependencies) {
+                        CompletableFuture<Void> f = boots.get(d);
+                        if (f != null) {
+                            prerequisites.add(f);
+                        }
+                    }
                 }
-            } catch (Throwable t) {
-                if (service.isMandatory()) {
-                    throw new ServiceException("Error while booting mandatory service " + service.getName(), t);
-                } else {
-                    myLogger.log(Logger.WARNING, "Exception booting service " + service.getName(), t);
+                CompletableFuture<Void> boot = CompletableFuture.allOf(prerequisites.toArray(new CompletableFuture<?>[0])).thenRunAsync(() -> {
+                    try {
+                        bootService(service);
+                    } catch (ServiceException se) {
+                        throw new CompletionException(se);
+                    }
+                }, executor);
+                boots.put(service.getName(), boot);
+                all.add(boot);
+            }
+            CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException ce) {
+            Throwable cause = ce.getCause();
+            if (cause instanceof ServiceException) {
+                throw (ServiceException) cause;
+            }
+            throw new ServiceException("Unexpected error booting services", cause);
+        } finally {
+            executor.shutdown();
+        }
+    }
+    //#J2ME_EXCLUDE_END
+
+    private void bootService(ServiceDescriptor service) throws ServiceException {
+        try {
+            long start = System.currentTimeMillis();
+            service.getService().boot(myProfile);
+            if (service.getName().equals("jade.core.security.Security")) {
+                // Security active. This is just for performance optimization when security is not active
+                securityOn = true;
+            }
+            if (myLogger.isLoggable(Logger.CONFIG)) {
+                myLogger.log(Logger.CONFIG, "Service " + service.getName() + " booted in " + (System.currentTimeMillis() - start) + " ms");
+            }
+        } catch (Throwable t) {
+            if (service.isMandatory()) {
+                throw new ServiceException("Error while booting mandatory service " + service.getName(), t);
+            } else {
+                myLogger.log(Logger.WARNING, "Exception booting service " + service.getName(), t);
+            }
+        }
+    }
+
+    /**
+     * Activate a service whose activation was deferred until first use (if not already done)
+     */
+    private void activateLazyService(String name) throws ServiceException {
+        synchronized (lazyServices) {
+            ServiceDescriptor dsc = lazyServices.get(name);
+            if (dsc != null) {
+                long start = System.currentTimeMillis();
+                try {
+                    myServiceManager.activateService(dsc);
+                    dsc.getService().boot(myProfile);
+                } catch (ServiceException se) {
+                    throw se;
+                } catch (Throwable t) {
+                    throw new ServiceException("An error occurred during service activation", t);
+                } finally {
+                    lazyServices.remove(name);
                 }
+                myLogger.log(Logger.INFO, "Service " + name + " activated on first use in " + (System.currentTimeMillis() - start) + " ms");
             }
         }
     }
@@ -531,15 +702,21 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
     private void startBootstrapAgents() {
         try {
             List<Specifier> l = myProfile.getSpecifiers(Profile.AGENTS);
+            //#MIDP_EXCLUDE_BEGIN
+            List<AID> agentIDs = new ArrayList<>();
+            List<Specifier> agentSpecs = new ArrayList<>();
+            //#MIDP_EXCLUDE_END
             for (Specifier o : l) {
                 if (o.getName() != null) {
                     AID agentID = new AID(AID.createGUID(o.getName(), getPlatformID()), AID.ISGUID);
 
+                    //#MIDP_EXCLUDE_BEGIN
+                    // Agents are created all together below
+                    agentIDs.add(agentID);
+                    agentSpecs.add(o);
+                    //#MIDP_EXCLUDE_END
+					/*#MIDP_INCLUDE_BEGIN
                     try {
-                        //#MIDP_EXCLUDE_BEGING
-                        getContainerProxy(myNodeDescriptor.getOwnerPrincipal(), myNodeDescriptor.getOwnerCredentials()).createAgent(agentID, o.getClassName(), o.getArgs());
-                        //#MIDP_EXCLUDE_END
-						/*#MIDP_INCLUDE_BEGIN
 						 String serviceName = jade.core.management.AgentManagementSlice.NAME;
 						 Service svc = myServiceFinder.findService(serviceName);
 						 jade.core.management.AgentManagementSlice target = (jade.core.management.AgentManagementSlice) myIMTPManager.createSliceProxy(serviceName, svc.getHorizontalInterface(), myIMTPManager.getLocalNode());
@@ -547,14 +724,22 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
 						 dummyCmd.setPrincipal(myNodeDescriptor.getOwnerPrincipal());
 						 dummyCmd.setCredentials(myNodeDescriptor.getOwnerCredentials());
 						 target.createAgent(agentID, s.getClassName(), s.getArgs(), myNodeDescriptor.getOwnerPrincipal(), null, target.CREATE_ONLY, dummyCmd);
-						 #MIDP_INCLUDE_END*/
                     } catch (Throwable t) {
                         myLogger.log(Logger.SEVERE, "Cannot create agent " + o.getName() + ": " + t.getMessage());
                     }
+						 #MIDP_INCLUDE_END*/
                 } else {
                     myLogger.log(Logger.WARNING, "Cannot create an agent with no name. Class was " + o.getClassName());
                 }
             }
+            //#MIDP_EXCLUDE_BEGIN
+            Throwable[] results = createAgents(agentIDs.toArray(new AID[0]), agentSpecs, myNodeDescriptor.getOwnerPrincipal(), myNodeDescriptor.getOwnerCredentials());
+            for (int i = 0; i < results.length; ++i) {
+                if (results[i] != null) {
+                    myLogger.log(Logger.SEVERE, "Cannot create agent " + agentSpecs.get(i).getName() + ": " + results[i].getMessage());
+                }
+            }
+            //#MIDP_EXCLUDE_END
 
             // Now activate all agents (this call starts their embedded threads)
             AID[] allLocalNames = localAgents.keys();
@@ -909,7 +1094,10 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
     public ServiceHelper getHelper(Agent a, String serviceName) throws ServiceException {
         try {
 
-            // Retrieve the service
+            // Retrieve the service (activating it if it was deferred until first use)
+            if (lazyServices.containsKey(serviceName)) {
+                activateLazyService(serviceName);
+            }
             Service s = myServiceFinder.findService(serviceName);
             if (s == null) {
                 throw new ServiceNotActiveException(serviceName);
@@ -969,6 +1157,14 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
         localAgents.release(id);
     }
 
+    public Agent acquireLocalAgentShared(AID id) {
+        return localAgents.acquireShared(id);
+    }
+
+    public void releaseLocalAgentShared(AID id) {
+        localAgents.releaseShared(id);
+    }
+
     public boolean isLocalAgent(AID id) {
         return localAgents.contains(id);
     }
@@ -1054,24 +1250,49 @@ class AgentContainerImpl implements AgentContainer, AgentToolkit {
         theDefaultDF.removeAddresses(address);
     }
 
+    public int postAcceptableMessagesToLocalAgent(ACLMessage[] mm, AID receiverID) {
+        //#MIDP_EXCLUDE_BEGIN
+        Agent receiver = localAgents.acquireShared(receiverID);
+        if (receiver != null) {
+            try {
+                return receiver.postAcceptableMessages(mm);
+            } finally {
+                localAgents.releaseShared(receiverID);
+            }
+        }
+        //#MIDP_EXCLUDE_END
+        // Not a local agent (e.g. it lives in a FrontEnd): let the usual posting methods handle it
+        return AgentContainer.super.postAcceptableMessagesToLocalAgent(mm, receiverID);
+    }
+
     public boolean postMessageToLocalAgent(ACLMessage msg, AID receiverID) {
-        Agent receiver = localAgents.acquire(receiverID);
+        // Deliveries to the same agent can go on in parallel: only lifecycle operations
+        // (that acquire the agent exclusively) are mutually exclusive with them
+        Agent receiver = localAgents.acquireShared(receiverID);
         if (receiver == null) {
             return false;
         }
-        receiver.postMessage(msg);
-        localAgents.release(receiverID);
+        try {
+            receiver.postMessage(msg);
+        } finally {
+            localAgents.releaseShared(receiverID);
+        }
 
         return true;
     }
 
     public boolean postMessagesBlockToLocalAgent(ACLMessage[] mm, AID receiverID) {
-        Agent receiver = localAgents.acquire(receiverID);
+        // Deliveries to the same agent can go on in parallel: only lifecycle operations
+        // (that acquire the agent exclusively) are mutually exclusive with them
+        Agent receiver = localAgents.acquireShared(receiverID);
         if (receiver == null) {
             return false;
         }
-        receiver.postMessagesBlock(mm);
-        localAgents.release(receiverID);
+        try {
+            receiver.postMessagesBlock(mm);
+        } finally {
+            localAgents.releaseShared(receiverID);
+        }
 
         return true;
     }
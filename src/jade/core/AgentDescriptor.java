@@ -45,8 +45,9 @@ public class AgentDescriptor {
     public static final boolean FOREIGN_AGENT = true;
     //  private AgentProxy proxy;
     private final boolean foreign;
-    private AMSAgentDescription description;
-    private ContainerID containerID;
+    // Volatile since descriptors are also read without acquiring them in the GADT
+    private volatile AMSAgentDescription description;
+    private volatile ContainerID containerID;
     private JADEPrincipal principal;
     private Credentials amsDelegation;
 
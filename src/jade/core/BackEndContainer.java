@@ -464,7 +464,37 @@ public class BackEndContainer extends AgentContainerImpl implements BackEnd {
     }
 
     public boolean postMessagesBlockToLocalAgent(ACLMessage[] mm, AID receiverID) {
-        // FIXME: To optimize performances we should support messages-block transfer between BE and FE
+        AgentImage image = agentImages.get(receiverID);
+        if (image != null && myFrontEnd instanceof jade.imtp.leap.FrontEndStub) {
+            // The receiver lives in the FrontEnd --> transfer the whole block at once
+            List<ACLMessage> toForward = new ArrayList<>(mm.length);
+            for (ACLMessage msg : mm) {
+                // Skip messages the receiver already got in the FrontEnd (see postMessageToLocalAgent())
+                if (!(agentImages.containsKey(msg.getSender()) && isExplicitReceiver(msg, receiverID))) {
+                    toForward.add(msg);
+                }
+            }
+            boolean[] delivered = new boolean[toForward.size()];
+            try {
+                myLogger.log(Logger.FINE, getID() + " - Delivering block of " + toForward.size() + " IN messages");
+                ((jade.imtp.leap.FrontEndStub) myFrontEnd).messagesIn(toForward.toArray(new ACLMessage[0]), receiverID.getLocalName(), delivered);
+                return true;
+            } catch (NotFoundException nfe) {
+                System.out.println("WARNING: Missing agent in FrontEnd");
+                return false;
+            } catch (IMTPException imtpe) {
+                System.out.println("WARNING: Can't deliver message to FrontEnd");
+                return false;
+            } finally {
+                // Notify the messages actually delivered, in order, even if some others were not
+                for (int i = 0; i < delivered.length; ++i) {
+                    if (delivered[i]) {
+                        handlePosted(receiverID, toForward.get(i));
+                    }
+                }
+            }
+        }
+
         boolean ret = false;
         for (ACLMessage msg : mm) {
             ret = postMessageToLocalAgent(msg, receiverID);
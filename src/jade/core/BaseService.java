@@ -268,6 +268,15 @@ public abstract class BaseService implements Service {
         // Empty placeholder method
     }
 
+    /**
+     * This should be redefined by services that know which other
+     * services they rely upon at boot time. By default a service
+     * is booted after all the services preceding it.
+     */
+    public String[] getDependencies() {
+        return null;
+    }
+
     public void shutdown() {
         // Empty placeholder method
     }
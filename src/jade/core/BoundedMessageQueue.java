@@ -0,0 +1,530 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core;
+
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import jade.util.Logger;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A bounded <code>MessageQueue</code> with configurable overflow policy and two lanes:
+ * messages whose performative is in the <em>priority</em> set (by default FAILURE and CANCEL)
+ * are always received before the others. When the maximum size is reached one of the following
+ * policies is applied:
+ * <ul>
+ * <li><code>drop-oldest</code> (default): the oldest non-priority message is discarded, as in the
+ * default agent message queue.</li>
+ * <li><code>drop-newest</code>: the incoming message is discarded (a priority message instead
+ * replaces the newest non-priority message, if any).</li>
+ * <li><code>drop-by-performative</code>: the oldest message whose performative is in the
+ * <em>droppable</em> set (by default INFORM) is discarded. If there is none, the incoming message
+ * is discarded if droppable, otherwise the <code>drop-oldest</code> policy applies.</li>
+ * <li><code>spill-to-disk</code>: exceeding non-priority messages are serialized to a temporary
+ * file and brought back into memory as room is made. Nothing is discarded, but a
+ * <code>receive()</code> with a template that does not match any in-memory message requires
+ * scanning the spilled messages.</li>
+ * </ul>
+ * Additionally a <em>high-water mark</em> can be set: when the number of queued messages reaches it
+ * the queue is considered congested and the MessagingService rejects (or delays) deliveries of
+ * non-priority messages to the owner agent, thus pushing back on senders instead of discarding.
+ * <p>
+ * This queue can be activated by means of the <code>jade_core_Agent_msgQueueClass</code> property
+ * or by specifying any of the <code>jade_core_Agent_msgQueue...</code> properties listed in the
+ * <code>Agent</code> class. Like the default message queue it is not thread safe: the owner agent
+ * synchronizes all accesses.
+ *
+ * @see Agent#MSG_QUEUE_OVERFLOW_POLICY
+ */
+public class BoundedMessageQueue implements MessageQueue {
+    public static final String DROP_OLDEST = "drop-oldest";
+    public static final String DROP_NEWEST = "drop-newest";
+    public static final String DROP_BY_PERFORMATIVE = "drop-by-performative";
+    public static final String SPILL_TO_DISK = "spill-to-disk";
+
+    // Minimum interval between two logs about discarded messages
+    private static final long DISCARD_LOG_PERIOD = 1000;
+
+    private final LinkedList<ACLMessage> priorityLane = new LinkedList<>();
+    private final LinkedList<ACLMessage> normalLane = new LinkedList<>();
+    private final Logger myLogger = Logger.getJADELogger(getClass().getName());
+    private Agent myAgent;
+    private int maxSize;
+    private int highWaterMark;
+    private String overflowPolicy = DROP_OLDEST;
+    private final boolean[] priorityPerformatives = new boolean[ACLMessage.getAllPerformativeNames().length];
+    private final boolean[] droppablePerformatives = new boolean[ACLMessage.getAllPerformativeNames().length];
+
+    // Spill file: a sequence of (length, serialized ACLMessage) records. Spilled messages are
+    // always more recent than those in the normal lane. Records of messages extracted by a
+    // receive() with a template are not removed: their length is just negated
+    private String spillDir;
+    private File spillFile;
+    private RandomAccessFile spill;
+    private long spillReadPos;
+    private long spillWritePos;
+    private int spillCnt;
+
+    private long discardCnt;
+    private long lastDiscardLogTime;
+    private long discardedSinceLastLog;
+
+    public BoundedMessageQueue() {
+        this(0, null);
+    }
+
+    public BoundedMessageQueue(int maxSize, Agent a) {
+        this.maxSize = maxSize;
+        myAgent = a;
+        setPriorityPerformatives(ACLMessage.FAILURE, ACLMessage.CANCEL);
+        setDroppablePerformatives(ACLMessage.INFORM);
+    }
+
+    void setOwner(Agent a) {
+        myAgent = a;
+    }
+
+    public String getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Set the policy to apply when the maximum size is reached
+     *
+     * @param policy One of <code>drop-oldest</code>, <code>drop-newest</code>,
+     *               <code>drop-by-performative</code> and <code>spill-to-disk</code>
+     */
+    public void setOverflowPolicy(String policy) throws IllegalArgumentException {
+        if (!DROP_OLDEST.equals(policy) && !DROP_NEWEST.equals(policy) && !DROP_BY_PERFORMATIVE.equals(policy) && !SPILL_TO_DISK.equals(policy)) {
+            throw new IllegalArgumentException("Unknown message queue overflow policy " + policy);
+        }
+        if (SPILL_TO_DISK.equals(overflowPolicy) && !SPILL_TO_DISK.equals(policy)) {
+            unspillAll();
+        }
+        overflowPolicy = policy;
+    }
+
+    /**
+     * Set the performatives of messages that must be received before all others
+     */
+    public void setPriorityPerformatives(int... performatives) {
+        fill(priorityPerformatives, performatives);
+    }
+
+    /**
+     * Set the performatives of messages that the <code>drop-by-performative</code> policy discards
+     */
+    public void setDroppablePerformatives(int... performatives) {
+        fill(droppablePerformatives, performatives);
+    }
+
+    private static void fill(boolean[] flags, int[] performatives) {
+        java.util.Arrays.fill(flags, false);
+        for (int p : performatives) {
+            if (p >= 0 && p < flags.length) {
+                flags[p] = true;
+            }
+        }
+    }
+
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Set the number of queued messages above which this queue is considered congested.
+     * 0 (default) means never congested.
+     */
+    public void setHighWaterMark(int highWaterMark) {
+        if (highWaterMark < 0)
+            throw new IllegalArgumentException("Invalid MsgQueue high-water mark");
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Set the directory where the spill file is created. By default the system temporary directory is used.
+     */
+    public void setSpillDirectory(String dir) {
+        spillDir = dir;
+    }
+
+    /**
+     * @return true if the number of queued messages reached the high-water mark
+     */
+    public boolean isCongested() {
+        return highWaterMark > 0 && size() >= highWaterMark;
+    }
+
+    /**
+     * @return the number of leading messages in <code>mm</code> that can be added to this queue
+     * without exceeding the high-water mark. Priority messages are always accepted.
+     */
+    public int getAcceptableCnt(ACLMessage[] mm) {
+        if (highWaterMark <= 0) {
+            return mm.length;
+        }
+        int size = size();
+        for (int i = 0; i < mm.length; i++) {
+            if (!isPriority(mm[i])) {
+                if (size >= highWaterMark) {
+                    return i;
+                }
+                size++;
+            }
+        }
+        return mm.length;
+    }
+
+    public boolean isPriority(ACLMessage msg) {
+        int p = msg.getPerformative();
+        return p >= 0 && p < priorityPerformatives.length && priorityPerformatives[p];
+    }
+
+    private boolean isDroppable(ACLMessage msg) {
+        int p = msg.getPerformative();
+        return p >= 0 && p < droppablePerformatives.length && droppablePerformatives[p];
+    }
+
+    /**
+     * @return the total number of messages discarded by this queue so far
+     */
+    public long getDiscardedCnt() {
+        return discardCnt;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int newSize) throws IllegalArgumentException {
+        if (newSize < 0)
+            throw new IllegalArgumentException("Invalid MsgQueue size");
+        maxSize = newSize;
+        refill();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int size() {
+        return priorityLane.size() + normalLane.size() + spillCnt;
+    }
+
+    private boolean isFull() {
+        return maxSize != 0 && priorityLane.size() + normalLane.size() >= maxSize;
+    }
+
+    public void addFirst(ACLMessage msg) {
+        // This is used to put back a message just extracted: never discard anything
+        if (isPriority(msg)) {
+            priorityLane.addFirst(msg);
+        } else {
+            normalLane.addFirst(msg);
+        }
+    }
+
+    public void addLast(ACLMessage msg) {
+        boolean priority = isPriority(msg);
+        if (!priority && spillCnt > 0) {
+            // Keep FIFO order with respect to already spilled messages
+            if (spillOut(msg)) {
+                return;
+            }
+        }
+        if (isFull()) {
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    if (!priority || normalLane.isEmpty()) {
+                        discarded(msg);
+                        return;
+                    }
+                    discarded(normalLane.removeLast());
+                    break;
+                case DROP_BY_PERFORMATIVE:
+                    if (!removeOldestDroppable()) {
+                        if (isDroppable(msg)) {
+                            discarded(msg);
+                            return;
+                        }
+                        removeOldest();
+                    }
+                    break;
+                case SPILL_TO_DISK:
+                    // Priority messages are never spilled: they may temporarily exceed the maximum size
+                    if (!priority) {
+                        if (spillOut(msg)) {
+                            return;
+                        }
+                        removeOldest();
+                    }
+                    break;
+                default:
+                    removeOldest();
+            }
+        }
+        if (priority) {
+            priorityLane.addLast(msg);
+        } else {
+            normalLane.addLast(msg);
+        }
+    }
+
+    private void removeOldest() {
+        discarded(normalLane.isEmpty() ? priorityLane.removeFirst() : normalLane.removeFirst());
+    }
+
+    private boolean removeOldestDroppable() {
+        for (Iterator<ACLMessage> it = normalLane.iterator(); it.hasNext(); ) {
+            ACLMessage m = it.next();
+            if (isDroppable(m)) {
+                it.remove();
+                discarded(m);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void discarded(ACLMessage msg) {
+        discardCnt++;
+        discardedSinceLastLog++;
+        // Avoid flooding the log when a burst of messages overflows the queue
+        long now = System.currentTimeMillis();
+        if (now - lastDiscardLogTime >= DISCARD_LOG_PERIOD) {
+            myLogger.log(Logger.SEVERE, "Agent " + getAgentName() + " - Message queue size exceeded. " + discardedSinceLastLog + " message(s) discarded (policy " + overflowPolicy + ")");
+            lastDiscardLogTime = now;
+            discardedSinceLastLog = 0;
+        }
+    }
+
+    private String getAgentName() {
+        return myAgent != null ? myAgent.getLocalName() : "null";
+    }
+
+    public ACLMessage receive(MessageTemplate pattern) {
+        ACLMessage result = extract(priorityLane, pattern);
+        if (result == null) {
+            result = extract(normalLane, pattern);
+        }
+        if (result == null && spillCnt > 0) {
+            result = extractSpilled(pattern);
+        }
+        if (result != null) {
+            refill();
+        }
+        return result;
+    }
+
+    private static ACLMessage extract(LinkedList<ACLMessage> lane, MessageTemplate pattern) {
+        for (Iterator<ACLMessage> it = lane.iterator(); it.hasNext(); ) {
+            ACLMessage msg = it.next();
+            if (pattern == null || pattern.match(msg)) {
+                it.remove();
+                return msg;
+            }
+        }
+        return null;
+    }
+
+    //#MIDP_EXCLUDE_BEGIN
+    public void copyTo(List<ACLMessage> messages) {
+        messages.addAll(priorityLane);
+        messages.addAll(normalLane);
+        if (spillCnt > 0) {
+            try {
+                messages.addAll(readSpilled());
+            } catch (IOException ioe) {
+                myLogger.log(Logger.WARNING, "Agent " + getAgentName() + " - Error reading spilled messages", ioe);
+            }
+        }
+    }
+    //#MIDP_EXCLUDE_END
+
+    ///////////////////////////////////////
+    // Spill file management
+    ///////////////////////////////////////
+
+    /**
+     * Append a message to the spill file.
+     *
+     * @return false if the message could not be spilled
+     */
+    private boolean spillOut(ACLMessage msg) {
+        try {
+            if (spill == null) {
+                spillFile = File.createTempFile("jade-mq-" + getAgentName() + "-", ".spill", spillDir != null ? new File(spillDir) : null);
+                spillFile.deleteOnExit();
+                spill = new RandomAccessFile(spillFile, "rw");
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(msg);
+            }
+            spill.seek(spillWritePos);
+            spill.writeInt(bytes.size());
+            spill.write(bytes.toByteArray());
+            spillWritePos = spill.getFilePointer();
+            spillCnt++;
+            return true;
+        } catch (IOException ioe) {
+            myLogger.log(Logger.WARNING, "Agent " + getAgentName() + " - Cannot spill message to disk", ioe);
+            return false;
+        }
+    }
+
+    /**
+     * Read the record at the given position. On return the file pointer is at the next record.
+     *
+     * @return null if the message in the record was already extracted
+     */
+    private ACLMessage readSpilledAt(long pos) throws IOException {
+        spill.seek(pos);
+        int length = spill.readInt();
+        if (length < 0) {
+            spill.seek(spill.getFilePointer() - length);
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        spill.readFully(bytes);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (ACLMessage) in.readObject();
+        } catch (ClassNotFoundException cnfe) {
+            throw new IOException("Corrupted spill file", cnfe);
+        }
+    }
+
+    private List<ACLMessage> readSpilled() throws IOException {
+        List<ACLMessage> l = new ArrayList<>(spillCnt);
+        long pos = spillReadPos;
+        while (l.size() < spillCnt) {
+            ACLMessage msg = readSpilledAt(pos);
+            pos = spill.getFilePointer();
+            if (msg != null) {
+                l.add(msg);
+            }
+        }
+        return l;
+    }
+
+    /**
+     * Move spilled messages back into memory as long as there is room
+     */
+    private void refill() {
+        try {
+            while (spillCnt > 0 && (maxSize == 0 || priorityLane.size() + normalLane.size() < maxSize)) {
+                ACLMessage msg = readSpilledAt(spillReadPos);
+                spillReadPos = spill.getFilePointer();
+                if (msg != null) {
+                    normalLane.addLast(msg);
+                    spillCnt--;
+                }
+            }
+            if (spillCnt == 0) {
+                resetSpill();
+            }
+        } catch (IOException ioe) {
+            spillLost(ioe);
+        }
+    }
+
+    /**
+     * Scan the spilled messages one by one up to the first one matching the template.
+     * The matching message is marked as extracted in place: the spill file is never rewritten.
+     */
+    private ACLMessage extractSpilled(MessageTemplate pattern) {
+        try {
+            long pos = spillReadPos;
+            int scanned = 0;
+            while (scanned < spillCnt) {
+                long recordPos = pos;
+                ACLMessage msg = readSpilledAt(pos);
+                pos = spill.getFilePointer();
+                if (msg != null) {
+                    scanned++;
+                    if (pattern == null || pattern.match(msg)) {
+                        spill.seek(recordPos);
+                        int length = spill.readInt();
+                        spill.seek(recordPos);
+                        spill.writeInt(-length);
+                        spillCnt--;
+                        if (spillCnt == 0) {
+                            resetSpill();
+                        }
+                        return msg;
+                    }
+                }
+            }
+        } catch (IOException ioe) {
+            spillLost(ioe);
+        }
+        return null;
+    }
+
+    private void unspillAll() {
+        int max = maxSize;
+        maxSize = 0;
+        refill();
+        maxSize = max;
+    }
+
+    private void resetSpill() throws IOException {
+        spillReadPos = 0;
+        spillWritePos = 0;
+        spillCnt = 0;
+        if (spill != null) {
+            spill.setLength(0);
+        }
+    }
+
+    private void spillLost(IOException ioe) {
+        myLogger.log(Logger.SEVERE, "Agent " + getAgentName() + " - Error reading spill file. " + spillCnt + " message(s) lost", ioe);
+        discardCnt += spillCnt;
+        try {
+            resetSpill();
+        } catch (IOException ignored) {
+            spillCnt = 0;
+        }
+    }
+
+    /**
+     * Release the spill file, if any
+     */
+    void close() {
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException ignored) {
+            }
+            spillFile.delete();
+            spill = null;
+            spillCnt = 0;
+        }
+    }
+}
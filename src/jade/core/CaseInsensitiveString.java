@@ -25,6 +25,9 @@ package jade.core;
 //#APIDOC_EXCLUDE_FILE
 
 //import java.io.Serializable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import java.io.Serializable;
 
@@ -47,6 +50,11 @@ public class CaseInsensitiveString implements Serializable {
     private final String s;
     private final int hashCode;
 
+    // Canonical instances returned by intern(). The table is bounded since names
+    // are supposed to come from a limited vocabulary (e.g. slot names)
+    private static final int MAX_INTERNED = 8192;
+    private static final Map<String, CaseInsensitiveString> interned = new ConcurrentHashMap<>();
+
     /**
      * Create a new  CaseInsensitiveString   object.
      *
@@ -57,7 +65,109 @@ public class CaseInsensitiveString implements Serializable {
         // the contract of String is to return 0 as the hash of an empty string
         // so I am assuming here than a null string is equal to an empty string
         // this trick avoid generating a null pointer exception
-        hashCode = (s == null ? 0 : s.toLowerCase().hashCode());
+        hashCode = foldedHashCode(s);
+    }
+
+    /**
+     * Return a canonical  CaseInsensitiveString   holding a given name.
+     * Repeated invocations with the same name return the same object without
+     * allocating memory, so that interned instances can be used as lookup keys
+     * and compared by identity.
+     *
+     * @param name The string that will be kept inside the returned object.
+     */
+    public static CaseInsensitiveString intern(String name) {
+        if (name == null) {
+            return new CaseInsensitiveString(null);
+        }
+        CaseInsensitiveString cis = interned.get(name);
+        if (cis == null) {
+            cis = new CaseInsensitiveString(name);
+            if (interned.size() < MAX_INTERNED) {
+                CaseInsensitiveString old = interned.putIfAbsent(name, cis);
+                if (old != null) {
+                    cis = old;
+                }
+            }
+        }
+        return cis;
+    }
+
+    /**
+     * Return the hash code of the lower case version of a string i.e.
+     *  s.toLowerCase().hashCode()  . Strings made of ASCII characters
+     * only (the common case for agent and slot names) are folded on the fly
+     * without allocating memory.
+     *
+     * @param s The string whose case insensitive hash code must be computed.
+     * A null string is considered equal to an empty string.
+     */
+    public static int foldedHashCode(String s) {
+        if (s == null) {
+            return 0;
+        }
+        if (!hasStandardCaseMapping()) {
+            return s.toLowerCase().hashCode();
+        }
+        int h = 0;
+        int length = s.length();
+        for (int i = 0; i < length; ++i) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                return s.toLowerCase().hashCode();
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            h = 31 * h + c;
+        }
+        return h;
+    }
+
+    /**
+     * Case insensitive comparison of two strings imposing the same total order as
+     *  s1.toLowerCase().toUpperCase().compareTo(s2.toLowerCase().toUpperCase())  .
+     * Strings made of ASCII characters only are compared without allocating memory.
+     */
+    public static int compareIgnoreCase(String s1, String s2) {
+        if (s1 == s2) {
+            return 0;
+        }
+        if (hasStandardCaseMapping()) {
+            int n1 = s1.length();
+            int n2 = s2.length();
+            int n = Math.min(n1, n2);
+            int i = 0;
+            for (; i < n; ++i) {
+                char c1 = s1.charAt(i);
+                char c2 = s2.charAt(i);
+                if (c1 >= 0x80 || c2 >= 0x80) {
+                    break;
+                }
+                if (c1 >= 'a' && c1 <= 'z') {
+                    c1 -= 'a' - 'A';
+                }
+                if (c2 >= 'a' && c2 <= 'z') {
+                    c2 -= 'a' - 'A';
+                }
+                if (c1 != c2) {
+                    return c1 - c2;
+                }
+            }
+            if (i == n) {
+                return n1 - n2;
+            }
+        }
+        return s1.toLowerCase().toUpperCase().compareTo(s2.toLowerCase().toUpperCase());
+    }
+
+    /**
+     * In the Turkish, Azeri and Lithuanian locales String.toLowerCase() and
+     * String.toUpperCase() do not map ASCII letters in the standard way
+     */
+    private static boolean hasStandardCaseMapping() {
+        String language = Locale.getDefault().getLanguage();
+        return !("tr".equals(language) || "az".equals(language) || "lt".equals(language));
     }
 
     /**
@@ -69,6 +179,9 @@ public class CaseInsensitiveString implements Serializable {
      * @return  true   if the strings are equal, apart from case.
      */
     public static final boolean equalsIgnoreCase(String s1, String s2) {
+        if (s1 == s2) {
+            return s1 != null;
+        }
         if (s1 == null || s2 == null) {
             return false;
         } else {
@@ -98,6 +211,9 @@ public class CaseInsensitiveString implements Serializable {
      * are equal, apart from case.
      */
     public final boolean equals(Object o) {
+        if (o == this) {
+            return s != null;
+        }
         if (o == null) {
             return false;
         }
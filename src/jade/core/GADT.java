@@ -23,8 +23,8 @@ Boston, MA  02111-1307, USA.
 
 package jade.core;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The table holding information about all agents known to the
@@ -35,15 +35,14 @@ import java.util.Map;
  * @author Giovanni Rimassa - Universita` di Parma
  */
 class GADT {
-    private final Map<AID, Row> agents = new HashMap<>();
+    private final Map<AID, Row> agents = new ConcurrentHashMap<>();
 
     public AgentDescriptor put(AID aid, AgentDescriptor a) {
-        Row r;
-        synchronized (agents) {
-            r = agents.get(aid);
+        Row r = agents.get(aid);
+        if (r == null) {
+            r = agents.putIfAbsent(aid, new Row(a));
         }
         if (r == null) {
-            agents.put(aid, new Row(a));
             return null;
         } else {
             r.lock();
@@ -57,10 +56,7 @@ class GADT {
     }
 
     public AgentDescriptor remove(AID key) {
-        Row r;
-        synchronized (agents) {
-            r = agents.get(key);
-        }
+        Row r = agents.get(key);
         if (r == null) {
             return null;
         } else {
@@ -79,10 +75,7 @@ class GADT {
 
     // The caller must call release() after it has finished with the row
     public AgentDescriptor acquire(AID key) {
-        Row r;
-        synchronized (agents) {
-            r = agents.get(key);
-        }
+        Row r = agents.get(key);
         if (r == null) {
             return null;
         } else {
@@ -92,34 +85,33 @@ class GADT {
     }
 
     public void release(AID key) {
-        Row r;
-        synchronized (agents) {
-            r = agents.get(key);
-        }
+        Row r = agents.get(key);
         if (r != null) {
             r.unlock();
         }
     }
 
+    /**
+     * Lock-free read of an agent descriptor. This is meant for lookups (e.g. of the container
+     * an agent lives in) that do not need to be serialized with updates of the descriptor.
+     */
+    public AgentDescriptor get(AID key) {
+        Row r = agents.get(key);
+        return (r != null ? r.get() : null);
+    }
+
     public AID[] keys() {
-        synchronized (agents) {
-            Object[] objs = agents.keySet().toArray();
-            AID[] result = new AID[objs.length];
-            System.arraycopy(objs, 0, result, 0, result.length);
-            return result;
-        }
+        return agents.keySet().toArray(new AID[0]);
     }
 
     public AgentDescriptor[] values() {
-        synchronized (agents) {
-            Object[] objs = agents.values().toArray();
-            AgentDescriptor[] result = new AgentDescriptor[objs.length];
-            for (int i = 0; i < objs.length; i++) {
-                Row r = (Row) objs[i];
-                result[i] = r.get();
-            }
-            return result;
+        Object[] objs = agents.values().toArray();
+        AgentDescriptor[] result = new AgentDescriptor[objs.length];
+        for (int i = 0; i < objs.length; i++) {
+            Row r = (Row) objs[i];
+            result[i] = r.get();
         }
+        return result;
     }
 
     /**
@@ -127,7 +119,7 @@ class GADT {
      * Rows of the GADT are protected by a recursive mutex lock
      */
     private static class Row {
-        private AgentDescriptor value;
+        private volatile AgentDescriptor value;
         private Thread owner;
         private long depth;
 
@@ -136,7 +128,7 @@ class GADT {
             depth = 0;
         }
 
-        public synchronized AgentDescriptor get() {
+        public AgentDescriptor get() {
             return value;
         }
 
@@ -49,6 +49,9 @@ class InternalMessageQueue implements MessageQueue {
     private int maxSize;
     // For persistence service
     private Long persistentID;
+    // Discarded messages are logged at most once per second
+    private long lastDiscardLogTime;
+    private int discardedSinceLastLog;
 
     public InternalMessageQueue(int size, Agent a) {
         maxSize = size;
@@ -105,7 +108,7 @@ class InternalMessageQueue implements MessageQueue {
         if ((maxSize != 0) && (list.size() >= maxSize)) {
             //#MIDP_EXCLUDE_BEGIN
             list.removeFirst(); // FIFO replacement policy
-            myLogger.log(Logger.SEVERE, "Agent " + getAgentName() + " - Message queue size exceeded. Message discarded!!!!!");
+            discarded();
         }
         list.addLast(msg);
         //#MIDP_EXCLUDE_END
@@ -116,6 +119,16 @@ class InternalMessageQueue implements MessageQueue {
 		 #MIDP_INCLUDE_END*/
     }
 
+    private void discarded() {
+        discardedSinceLastLog++;
+        long now = System.currentTimeMillis();
+        if (now - lastDiscardLogTime >= 1000) {
+            myLogger.log(Logger.SEVERE, "Agent " + getAgentName() + " - Message queue size exceeded. " + discardedSinceLastLog + " message(s) discarded!!!!!");
+            lastDiscardLogTime = now;
+            discardedSinceLastLog = 0;
+        }
+    }
+
     private String getAgentName() {
         return myAgent != null ? myAgent.getLocalName() : "null";
     }
@@ -23,8 +23,9 @@ Boston, MA  02111-1307, USA.
 
 package jade.core;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 // Class for the Local Agent Descriptor Table.
@@ -47,16 +48,15 @@ class LADT {
 
 
     public LADT(int size) {
-        agents = new HashMap<>(size);
+        agents = new ConcurrentHashMap<>(size);
     }
 
     public Agent put(AID aid, Agent a) {
-        Row r;
-        synchronized (agents) {
-            r = agents.get(aid);
+        Row r = agents.get(aid);
+        if (r == null) {
+            r = agents.putIfAbsent(aid, new Row(a));
         }
         if (r == null) {
-            agents.put(aid, new Row(a));
             return null;
         } else {
             r.lock();
@@ -73,10 +73,7 @@ class LADT {
     }
 
     public Agent remove(AID key) {
-        Row r;
-        synchronized (agents) {
-            r = agents.get(key);
-        }
+        Row r = agents.get(key);
         if (r == null)
             return null;
         else {
@@ -95,10 +92,7 @@ class LADT {
 
     // The caller must call release() after it has finished with the row
     public Agent acquire(AID key) {
-        Row r;
-        synchronized (agents) {
-            r = agents.get(key);
-        }
+        Row r = agents.get(key);
         if (r == null)
             return null;
         else {
@@ -108,65 +102,70 @@ class LADT {
     }
 
     public void release(AID key) {
-        Row r;
-        synchronized (agents) {
-            r = agents.get(key);
-        }
+        Row r = agents.get(key);
         if (r != null) {
             r.unlock();
         }
     }
 
-    public AID[] keys() {
-        synchronized (agents) {
-            Object[] objs = agents.keySet().toArray();
-            AID[] result = new AID[objs.length];
+    // Shared access for the message delivery path. Any number of threads can hold a row in shared
+    // mode at the same time, while acquire() (used by lifecycle operations such as move, clone and kill)
+    // waits for them to complete. A thread holding a row in shared mode must not acquire() it.
+    // The caller must call releaseShared() after it has finished with the row (if not null is returned)
+    public Agent acquireShared(AID key) {
+        Row r = agents.get(key);
+        if (r == null)
+            return null;
+        else {
+            return r.lockShared();
+        }
+    }
 
-            // Patch on 11/12/02 by NL to bypass J2ME bug with System.arraycopy
-            for (int i = 0; i < result.length; i++) {
-                result[i] = (AID) objs[i];
-            }
-            return result;
+    public void releaseShared(AID key) {
+        Row r = agents.get(key);
+        if (r != null) {
+            r.unlockShared();
         }
     }
 
+    public AID[] keys() {
+        return agents.keySet().toArray(new AID[0]);
+    }
+
     public Agent[] values() {
-        synchronized (agents) {
-            Object[] objs = agents.values().toArray();
-            Agent[] result = new Agent[objs.length];
-            for (int i = 0; i < objs.length; i++) {
-                Row r = (Row) objs[i];
-                result[i] = r.get();
-            }
-            return result;
+        Object[] objs = agents.values().toArray();
+        Agent[] result = new Agent[objs.length];
+        for (int i = 0; i < objs.length; i++) {
+            Row r = (Row) objs[i];
+            result[i] = r.get();
         }
-
+        return result;
     }
 
-    synchronized boolean contains(AID key) {
+    boolean contains(AID key) {
         return agents.containsKey(key);
     }
 
     // For debugging purpose
     public String[] getStatus() {
-        synchronized (agents) {
-            Object[] objs = agents.values().toArray();
-            String[] status = new String[objs.length];
-            for (int i = 0; i < objs.length; i++) {
-                Row r = (Row) objs[i];
-                status[i] = r.toString();
-            }
-            return status;
+        Object[] objs = agents.values().toArray();
+        String[] status = new String[objs.length];
+        for (int i = 0; i < objs.length; i++) {
+            Row r = (Row) objs[i];
+            status[i] = r.toString();
         }
+        return status;
     }
 
-    // Rows of the LADT are protected by a recursive mutex lock
+    // Rows of the LADT are protected by a recursive mutex lock plus a counter of
+    // threads currently holding the row in shared mode
     private static class Row {
-        private Agent value;
+        private volatile Agent value;
         // DEBUG private Agent bakValue;
         // DEBUG private String target = "ma";
-        private Thread owner;
+        private volatile Thread owner;
         private long depth;
+        private final AtomicInteger sharers = new AtomicInteger();
 
         public Row(Agent a) {
             value = a;
@@ -174,12 +173,13 @@ class LADT {
             depth = 0;
         }
 
-        public synchronized Agent get() {
+        public Agent get() {
             return value;
         }
 
         public synchronized void clear() {
             value = null;
+            notifyAll();
         }
 
         public synchronized void lock() {
@@ -204,6 +204,70 @@ class LADT {
                     owner = me;
                     ++depth;
                 } catch (InterruptedException ie) {
+                    return;
+                }
+                // Wait for threads holding the row in shared mode. As the owner is set,
+                // no other thread can get the row in shared mode in the meanwhile.
+                // This wait is not interruptible: the owner is already set and must not
+                // proceed while shared holders are still inside the row
+                boolean interrupted = false;
+                while (sharers.get() > 0 && value != null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ie) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        // Return the agent or null if the row has been cleared (in this case the row is not held)
+        public Agent lockShared() {
+            Thread me = Thread.currentThread();
+            while (true) {
+                Thread o = owner;
+                if (o == me) {
+                    // Already held exclusively by this thread
+                    return value;
+                }
+                if (o == null) {
+                    sharers.incrementAndGet();
+                    if (owner == null) {
+                        Agent a = value;
+                        if (a == null) {
+                            unlockShared();
+                        }
+                        return a;
+                    }
+                    // Someone took the exclusive lock in the meanwhile --> back off
+                    unlockShared();
+                }
+                synchronized (this) {
+                    try {
+                        while (owner != null && value != null) {
+                            wait();
+                        }
+                    } catch (InterruptedException ie) {
+                    }
+                    if (value == null) {
+                        return null;
+                    }
+                }
+            }
+        }
+
+        public void unlockShared() {
+            if (owner == Thread.currentThread()) {
+                // Held exclusively: nothing to release
+                return;
+            }
+            if (sharers.decrementAndGet() == 0 && owner != null) {
+                // Wake up the thread waiting to get the exclusive lock
+                synchronized (this) {
+                    notifyAll();
                 }
             }
         }
@@ -1255,14 +1255,13 @@ public class MainContainerImpl implements MainContainer, AgentManager {
         AID[] allIds = platformAgents.keys();
 
         for (AID id : allIds) {
-            AgentDescriptor ad = platformAgents.acquire(id);
+            AgentDescriptor ad = platformAgents.get(id);
             if (ad != null) {
                 ContainerID cid1 = ad.getContainerID();
 
                 if (cid.equals(cid1)) {
                     agents.add(id);
                 }
-                platformAgents.release(id);
             }
         }
         return agents;
@@ -1298,12 +1297,10 @@ public class MainContainerImpl implements MainContainer, AgentManager {
      * Return the ID of the container an agent lives in
      */
     public ContainerID getContainerID(AID agentID) throws NotFoundException {
-        AgentDescriptor ad = platformAgents.acquire(agentID);
+        AgentDescriptor ad = platformAgents.get(agentID);
         if (ad == null)
             throw new NotFoundException("getContainerID() failed to find agent " + agentID.getName());
-        ContainerID result = ad.getContainerID();
-        platformAgents.release(agentID);
-        return result;
+        return ad.getContainerID();
     }
 
     /**
@@ -1317,12 +1314,10 @@ public class MainContainerImpl implements MainContainer, AgentManager {
      * Return the AMS description of an agent
      */
     public AMSAgentDescription getAMSDescription(AID agentID) throws NotFoundException {
-        AgentDescriptor ad = platformAgents.acquire(agentID);
+        AgentDescriptor ad = platformAgents.get(agentID);
         if (ad == null)
             throw new NotFoundException("getAMSDescription() failed to find agent " + agentID.getName());
-        AMSAgentDescription amsd = ad.getDescription();
-        platformAgents.release(agentID);
-        return amsd;
+        return ad.getDescription();
     }
 
     /**
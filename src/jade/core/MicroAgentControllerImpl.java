@@ -28,6 +28,11 @@ package jade.core;
 import jade.util.Event;
 import jade.wrapper.*;
 
+//#J2ME_EXCLUDE_BEGIN
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+//#J2ME_EXCLUDE_END
+
 /**
  * @author Marco Ughetti - TILAB
  * @see MicroRuntime#getAgent(String)
@@ -134,6 +139,14 @@ class MicroAgentControllerImpl implements AgentController {
                     }
                 });
     }
+
+    public <T, R> CompletableFuture<R> invokeO2AInterface(Class<T> theInterface, Function<? super T, ? extends R> invocation) throws StaleProxyException {
+        Agent adaptee = myFrontEnd.getLocalAgent(agentName);
+        if (adaptee == null) {
+            throw new StaleProxyException("Controlled agent does not exist");
+        }
+        return adaptee.invokeO2AInterface(theInterface, invocation);
+    }
     //#J2ME_EXCLUDE_END
 
 }
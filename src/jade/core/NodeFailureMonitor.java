@@ -46,6 +46,9 @@ import java.util.Map;
  * </li>
  * <li>UDP based failure monitoring
  * </li>
+ * <li>Heartbeat based failure monitoring with phi-accrual suspicion level, where a single
+ * scheduler thread tracks all nodes (see  jade.core.nodeMonitoring.HeartbeatNodeMonitoringService  )
+ * </li>
  * </ul>
  * <p>
  * <p>
@@ -162,6 +165,14 @@ public abstract class NodeFailureMonitor {
      */
     public abstract void stop();
 
+    /**
+     * Release any resource held by this monitor once the monitored node has been
+     * removed from the platform. Unlike  stop()   this is never expected to interact
+     * with the (possibly dead) monitored node. The default implementation does nothing.
+     */
+    public void dispose() {
+    }
+
     /**
      * Add a child node for monitoring.
      *
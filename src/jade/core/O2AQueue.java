@@ -0,0 +1,269 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core;
+
+//#MIDP_EXCLUDE_FILE
+
+import jade.util.Event;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The queue of objects passed to an agent by means of the Object-To-Agent (O2A) communication
+ * mechanism. Producers and the agent thread never lock the queue: objects are kept in a lock-free
+ * linked queue and the maximum size is enforced by means of an atomic counter.
+ * When the maximum size is reached one of the following policies is applied:
+ * <ul>
+ * <li><code>drop-oldest</code> (default): the oldest object is discarded.</li>
+ * <li><code>drop-newest</code>: the incoming object is discarded.</li>
+ * <li><code>block</code>: the producer waits until the agent retrieves some objects.</li>
+ * </ul>
+ * Producers blocked in a synchronous <code>putO2AObject()</code> call whose object is discarded
+ * are released.
+ *
+ * @see Agent#setEnabledO2ACommunication(boolean, int, String)
+ */
+public class O2AQueue {
+    public static final String DROP_OLDEST = "drop-oldest";
+    public static final String DROP_NEWEST = "drop-newest";
+    public static final String BLOCK = "block";
+
+    private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+    // Number of queued objects plus places reserved by producers that are about to insert their object
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile int maxSize;
+    private volatile String overflowPolicy = DROP_OLDEST;
+    private volatile boolean closed = false;
+
+    // Producers waiting for room (block policy)
+    private final Object roomLock = new Object();
+    private final AtomicInteger roomWaitersCnt = new AtomicInteger();
+
+    // True if the owner agent was activated and has not executed any behaviour since then
+    private final AtomicBoolean activated = new AtomicBoolean();
+    private final AtomicLong discardCnt = new AtomicLong();
+
+    O2AQueue(int maxSize, String overflowPolicy) {
+        setMaxSize(maxSize);
+        setOverflowPolicy(overflowPolicy);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize The maximum number of queued objects. 0 means no limit
+     */
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        signalRoom(true);
+    }
+
+    public String getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    void setOverflowPolicy(String policy) throws IllegalArgumentException {
+        if (!DROP_OLDEST.equals(policy) && !DROP_NEWEST.equals(policy) && !BLOCK.equals(policy)) {
+            throw new IllegalArgumentException("Unknown O2A queue overflow policy " + policy);
+        }
+        overflowPolicy = policy;
+        signalRoom(true);
+    }
+
+    /**
+     * @return The number of objects currently in the queue
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * @return The number of objects discarded since this queue was created
+     */
+    public long getDiscardedCount() {
+        return discardCnt.get();
+    }
+
+    /**
+     * Insert an object (possibly a <code>Rendezvous</code>) in the queue applying the overflow policy
+     *
+     * @return true if the object was inserted, false if it was discarded
+     */
+    boolean offer(Object item) throws InterruptedException {
+        while (true) {
+            if (closed) {
+                release(item);
+                return false;
+            }
+            int max = maxSize;
+            int s = size.get();
+            if (max <= 0 || s < max) {
+                if (size.compareAndSet(s, s + 1)) {
+                    queue.offer(item);
+                    return true;
+                }
+            } else if (DROP_NEWEST.equals(overflowPolicy)) {
+                discardCnt.incrementAndGet();
+                release(item);
+                return false;
+            } else if (BLOCK.equals(overflowPolicy)) {
+                waitForRoom();
+            } else {
+                Object oldest = queue.poll();
+                if (oldest != null) {
+                    size.decrementAndGet();
+                    discardCnt.incrementAndGet();
+                    release(oldest);
+                } else {
+                    // Some producers reserved a place but did not insert their object yet
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The first object in the queue or null if the queue is empty
+     */
+    Event poll() {
+        Object item = queue.poll();
+        if (item == null) {
+            return null;
+        }
+        size.decrementAndGet();
+        signalRoom(false);
+        return release(item);
+    }
+
+    /**
+     * Move up to <code>maxObjects</code> objects from this queue to the given collection
+     *
+     * @return The number of moved objects
+     */
+    int drainTo(Collection<? super Event> c, int maxObjects) {
+        int cnt = 0;
+        Object item;
+        while (cnt < maxObjects && (item = queue.poll()) != null) {
+            c.add(release(item));
+            cnt++;
+        }
+        if (cnt > 0) {
+            size.addAndGet(-cnt);
+            signalRoom(false);
+        }
+        return cnt;
+    }
+
+    /**
+     * @return true if the owner agent must be activated following the insertion of an object,
+     * i.e. if it executed some behaviour since it was last activated
+     */
+    boolean needsActivation() {
+        return activated.compareAndSet(false, true);
+    }
+
+    /**
+     * Called by the agent thread before executing a behaviour: from now on the insertion of an
+     * object must activate the agent again, since the behaviour may block.
+     */
+    void resetActivation() {
+        if (activated.get()) {
+            activated.set(false);
+        }
+    }
+
+    /**
+     * Release all producers waiting for room or for their objects to be retrieved.
+     * Objects inserted after this call are discarded.
+     */
+    void close() {
+        closed = true;
+        Object item;
+        while ((item = queue.poll()) != null) {
+            release(item);
+        }
+        signalRoom(true);
+    }
+
+    private void waitForRoom() throws InterruptedException {
+        synchronized (roomLock) {
+            roomWaitersCnt.incrementAndGet();
+            try {
+                while (!closed && BLOCK.equals(overflowPolicy) && maxSize > 0 && size.get() >= maxSize) {
+                    roomLock.wait();
+                }
+            } finally {
+                roomWaitersCnt.decrementAndGet();
+            }
+        }
+    }
+
+    private void signalRoom(boolean force) {
+        if (force || roomWaitersCnt.get() > 0) {
+            synchronized (roomLock) {
+                roomLock.notifyAll();
+            }
+        }
+    }
+
+    private static Event release(Object item) {
+        if (item instanceof Rendezvous) {
+            Rendezvous r = (Rendezvous) item;
+            r.set();
+            return r.event;
+        }
+        return (Event) item;
+    }
+
+    /**
+     * Inner class Rendezvous.
+     * Wraps an object inserted by a synchronous <code>putO2AObject()</code> call, whose caller
+     * waits until the object is retrieved (or discarded)
+     */
+    public static class Rendezvous {
+        private final Event event;
+        private boolean done = false;
+
+        Rendezvous(Event event) {
+            this.event = event;
+        }
+
+        public synchronized void waitOn() throws InterruptedException {
+            while (!done) {
+                wait();
+            }
+        }
+
+        private synchronized void set() {
+            done = true;
+            notifyAll();
+        }
+    } // END of inner class Rendezvous
+}
@@ -247,7 +247,10 @@ public class PlatformManagerImpl implements PlatformManager {
                 failureMonitor.removeChild(node);
             }
         }
-        monitors.remove(node.getName());
+        NodeFailureMonitor removedMonitor = monitors.remove(node.getName());
+        if (removedMonitor != null) {
+            removedMonitor.dispose();
+        }
 
         // Issue a DEAD_NODE vertical command
         if (!propagated) {
@@ -1,17 +1,24 @@
 package jade.core;
 
 import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.OneShotBehaviour;
 import jade.core.behaviours.TickerBehaviour;
 import jade.imtp.leap.JICP.PDPContextManager;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 import jade.util.ExtendedProperties;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.AgentController;
+import jade.wrapper.StaleProxyException;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 // All JADE configuration options must be specified prefixing them with "jade."
 // Command line example:
@@ -20,6 +27,14 @@ import java.util.Random;
 // send-receive iterations, using messages with a content of 10K and waiting 5 secs after each
 // iteration. 
 // FrontEnds connect to the local host (default) on port 2099 and using the ssl protocol.  
+// java -cp .... -jade.main false -n 50000 -measure creation
+// Launch the agent creation measure: a peripheral container is started in the local JVM and 50000 agents
+// are created in it. The number of agents created per second is reported.
+// java -cp .... -jade.main false -n 1000 -receivers 4 -i 1000 -measure delivery
+// Launch the message delivery measure: a peripheral container is started in the local JVM with 1000 sender
+// agents that send 1000 messages each to one of 4 receiver agents as fast as they can. The number of
+// messages delivered per second is reported. Running it on a multi-core host stresses concurrent deliveries
+// to the same agents.
 public class ScalabilityTest {
     // Size of the content of each message exchanged during the test
     private static final String CONTENT_SIZE = "s";
@@ -67,8 +82,22 @@ public class ScalabilityTest {
     private static final String MEASURE = "measure";
     private static final String BITRATE_MEASURE_S = "bitrate";
     private static final String RTT_MEASURE_S = "rtt";
+    private static final String CREATION_MEASURE_S = "creation";
+    private static final String DELIVERY_MEASURE_S = "delivery";
     private static final int BITRATE_MEASURE = 0;
     private static final int RTT_MEASURE = 1;
+    private static final int CREATION_MEASURE = 2;
+    private static final int DELIVERY_MEASURE = 3;
+
+    // Creation measure only: whether agents must be created in bulk (default) or one by one
+    private static final String BULK = "bulk";
+
+    // Delivery measure only: the number of receiver agents all senders send messages to
+    private static final String N_RECEIVERS = "receivers";
+    private static final int DEFAULT_N_RECEIVERS = 4;
+    private static final int DEFAULT_N_DELIVERY_ITERATIONS = 1000;
+    private static final AtomicLong deliveredCnt = new AtomicLong();
+    private static long expectedDeliveries;
 
     private static final Object terminatedLock = new Object();
     private static final Object readyLock = new Object();
@@ -155,12 +184,30 @@ public class ScalabilityTest {
             String measureStr = pp.getProperty(MEASURE);
             if (RTT_MEASURE_S.equals(measureStr)) {
                 measure = RTT_MEASURE;
+            } else if (CREATION_MEASURE_S.equals(measureStr)) {
+                measure = CREATION_MEASURE;
+            } else if (DELIVERY_MEASURE_S.equals(measureStr)) {
+                measure = DELIVERY_MEASURE;
             }
         } catch (Exception e) {
             // Keep default
         }
 
         String prefix = Profile.getDefaultNetworkName();
+        if (measure == CREATION_MEASURE) {
+            measureCreation(jadeProps, prefix, "true".equals(pp.getProperty(BULK, "true")));
+            return;
+        }
+        if (measure == DELIVERY_MEASURE) {
+            int nReceivers = DEFAULT_N_RECEIVERS;
+            try {
+                nReceivers = Integer.parseInt(pp.getProperty(N_RECEIVERS));
+            } catch (Exception e) {
+                // Keep default
+            }
+            measureDelivery(jadeProps, prefix, nReceivers);
+            return;
+        }
         for (int i = base; i < base + nCouples; i++) {
             initCouple(jadeProps, prefix, i);
             switch (mode) {
@@ -317,6 +364,103 @@ public class ScalabilityTest {
         fer.start(pp);
     }
 
+    private static void measureCreation(Properties jadeProps, String prefix, boolean bulk) {
+        ProfileImpl p = new ProfileImpl(jadeProps);
+        AgentContainer container = p.isMain() ? Runtime.instance().createMainContainer(p) : Runtime.instance().createAgentContainer(p);
+        if (container == null) {
+            System.out.println("Cannot start the container!!!!!");
+            System.exit(1);
+        }
+
+        List<Specifier> specs = new ArrayList<>(nCouples);
+        for (int i = base; i < base + nCouples; i++) {
+            Specifier s = new Specifier();
+            s.setName("C-" + prefix + "-" + i);
+            s.setClassName("jade.core.ScalabilityTest$IdleAgent");
+            specs.add(s);
+        }
+
+        System.out.println("Creating " + nCouples + " agents " + (bulk ? "in bulk" : "one by one") + "....");
+        int failed = 0;
+        long start = System.currentTimeMillis();
+        try {
+            if (bulk) {
+                for (AgentController ac : container.createNewAgents(specs)) {
+                    if (ac == null) {
+                        failed++;
+                    }
+                }
+            } else {
+                for (Specifier s : specs) {
+                    try {
+                        container.createNewAgent(s.getName(), s.getClassName(), null).start();
+                    } catch (StaleProxyException spe) {
+                        failed++;
+                    }
+                }
+            }
+        } catch (StaleProxyException spe) {
+            spe.printStackTrace();
+            System.exit(1);
+        }
+        // Wait until all created agents have executed their setup() method
+        synchronized (readyLock) {
+            while (readyCnt < nCouples - failed) {
+                try {
+                    readyLock.wait();
+                } catch (InterruptedException ie) {
+                    ie.printStackTrace();
+                }
+            }
+        }
+        long time = Math.max(System.currentTimeMillis() - start, 1);
+        System.out.println("----------------------------------\nTest completed successufully.\nAgents created = " + (nCouples - failed) + " (" + failed + " failed) in " + time + " ms\nAgents/sec = " + ((nCouples - failed) * 1000L / time) + "\n----------------------------------");
+        System.exit(0);
+    }
+
+    private static void measureDelivery(Properties jadeProps, String prefix, int nReceivers) {
+        ProfileImpl p = new ProfileImpl(jadeProps);
+        AgentContainer container = p.isMain() ? Runtime.instance().createMainContainer(p) : Runtime.instance().createAgentContainer(p);
+        if (container == null) {
+            System.out.println("Cannot start the container!!!!!");
+            System.exit(1);
+        }
+        if (nIterations <= 0) {
+            nIterations = DEFAULT_N_DELIVERY_ITERATIONS;
+        }
+        expectedDeliveries = ((long) nCouples) * nIterations;
+
+        try {
+            for (int i = 0; i < nReceivers; i++) {
+                container.createNewAgent("DR-" + prefix + "-" + i, "jade.core.ScalabilityTest$DeliveryReceiverAgent", null).start();
+            }
+            for (int i = base; i < base + nCouples; i++) {
+                String rName = "DR-" + prefix + "-" + (i % nReceivers);
+                container.createNewAgent("DS-" + prefix + "-" + i, "jade.core.ScalabilityTest$DeliverySenderAgent", new Object[]{rName}).start();
+            }
+        } catch (StaleProxyException spe) {
+            spe.printStackTrace();
+            System.exit(1);
+        }
+
+        waitUntilReady();
+        System.out.println(nCouples + " senders and " + nReceivers + " receivers ready. Delivering " + expectedDeliveries + " messages....");
+        long start = System.currentTimeMillis();
+        start();
+        synchronized (terminatedLock) {
+            while (deliveredCnt.get() < expectedDeliveries) {
+                try {
+                    terminatedLock.wait();
+                } catch (InterruptedException ie) {
+                    ie.printStackTrace();
+                }
+            }
+        }
+        long time = Math.max(System.currentTimeMillis() - start, 1);
+        System.out.println("----------------------------------\nTest completed successufully.\nMessages delivered = " + expectedDeliveries + " in " + time + " ms\nMessages/sec = " + (expectedDeliveries * 1000L / time) + "\n----------------------------------");
+        System.exit(0);
+    }
+
     private static void notifyTerminated(long time, long time2) {
         synchronized (terminatedLock) {
             totalTime += time;
@@ -524,6 +668,67 @@ public class ScalabilityTest {
     } // END of inner class RTTSenderAgent
 
 
+    /**
+     * Inner class IdleAgent
+     * Just notifies it is up and running. Used to measure the agent creation rate.
+     */
+    public static class IdleAgent extends Agent {
+        protected void setup() {
+            synchronized (readyLock) {
+                readyCnt++;
+                readyLock.notifyAll();
+            }
+        }
+    } // END of inner class IdleAgent
+
+    /**
+     * Inner class DeliverySenderAgent
+     * Sends nIterations messages to its receiver as fast as possible. Used to measure the message delivery rate.
+     */
+    public static class DeliverySenderAgent extends Agent {
+        protected void setup() {
+            final AID receiver = new AID((String) getArguments()[0], AID.ISLOCALNAME);
+            notifyReady();
+            addBehaviour(new OneShotBehaviour(this) {
+                public void action() {
+                    ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+                    msg.addReceiver(receiver);
+                    for (int i = 0; i < nIterations; i++) {
+                        send(msg);
+                    }
+                }
+            });
+        }
+    } // END of inner class DeliverySenderAgent
+
+    /**
+     * Inner class DeliveryReceiverAgent
+     * Just consumes received messages.
+     */
+    public static class DeliveryReceiverAgent extends Agent {
+        protected void setup() {
+            addBehaviour(new CyclicBehaviour(this) {
+                public void action() {
+                    ACLMessage msg = myAgent.receive();
+                    if (msg != null) {
+                        int n = 1;
+                        while (myAgent.receive() != null) {
+                            n++;
+                        }
+                        if (deliveredCnt.addAndGet(n) >= expectedDeliveries) {
+                            synchronized (terminatedLock) {
+                                terminatedLock.notifyAll();
+                            }
+                        }
+                    } else {
+                        block();
+                    }
+                }
+            });
+        }
+    } // END of inner class DeliveryReceiverAgent
+
+
     /**
      * Inner class RTTReceiverAgent
      */
@@ -25,6 +25,7 @@
 package jade.core;
 
 import jade.core.behaviours.Behaviour;
+import jade.lang.acl.ACLMessage;
 
 import java.io.Serializable;
 import java.util.Iterator;
@@ -185,6 +186,34 @@ class Scheduler implements Serializable {
         }
     }
 
+    /**
+     * Restarts the behaviours that may be interested in the given newly
+     * arrived messages. Ready behaviours are restarted as in
+     *  restartAll()   (a ready behaviour may be executing right now and
+     * be about to block, or may have blocked children), while blocked
+     * behaviours are restarted only if they are wakeup candidates for at
+     * least one of the messages. Behaviours that do not declare any
+     * template are always wakeup candidates.
+     *
+     * @see Behaviour#isWakeupCandidate(ACLMessage)
+     */
+    public synchronized void restartAll(ACLMessage[] mm) {
+        Behaviour[] behaviours = readyBehaviours.toArray(new Behaviour[0]);
+        for (Behaviour b : behaviours) {
+            b.restart();
+        }
+
+        behaviours = blockedBehaviours.toArray(new Behaviour[0]);
+        for (Behaviour b : behaviours) {
+            for (ACLMessage msg : mm) {
+                if (b.isWakeupCandidate(msg)) {
+                    b.restart();
+                    break;
+                }
+            }
+        }
+    }
+
     /**
      * Removes a specified behaviour from the scheduler
      */
@@ -216,6 +245,12 @@ class Scheduler implements Serializable {
 		 Behaviour b = (Behaviour)readyBehaviours.elementAt(currentIndex);
 		 #MIDP_INCLUDE_END*/
         currentIndex = (currentIndex + 1) % readyBehaviours.size();
+        //#MIDP_EXCLUDE_BEGIN
+        jade.core.profiling.AgentProfiler profiler = owner.getProfiler();
+        if (profiler != null) {
+            profiler.behaviourScheduled(readyBehaviours.size());
+        }
+        //#MIDP_EXCLUDE_END
         return b;
     }
 
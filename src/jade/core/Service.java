@@ -274,6 +274,24 @@ public interface Service {
      */
     void boot(Profile p) throws ServiceException;
 
+    /**
+     * Retrieve the names of the services this service relies upon
+     * in its  boot()   method. When starting a container, the JADE
+     * kernel can boot a service concurrently with all services it does
+     * not depend on. Only services preceding this one in the list of
+     * services to boot are taken into account.
+     * By default a service is booted only after all services preceding it,
+     * so that only services declaring their dependencies explicitly are booted
+     * concurrently.
+     *
+     * @return The names of the services this service depends on at boot time
+     * (an empty array if it does not depend on any other service), or  null
+     * if this service must be booted only after all services preceding it.
+     */
+    default String[] getDependencies() {
+        return null;
+    }
+
     /**
      * Performs the shutdown step of a kernel-level service.
      * The JADE kernel calls this method just before uninstalling
@@ -25,6 +25,7 @@ package jade.core.behaviours;
 
 import jade.core.Agent;
 import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -107,6 +108,10 @@ public abstract class Behaviour implements Serializable {
      */
     private volatile boolean runnableState = true;
     private volatile long restartCounter = 0;
+    /**
+     * The template of the messages this behaviour is waiting for, if declared
+     */
+    private volatile MessageTemplate wakeupTemplate;
 
     //#APIDOC_EXCLUDE_BEGIN
     private volatile String executionState = STATE_READY;
@@ -295,8 +300,19 @@ public abstract class Behaviour implements Serializable {
         if (myAgent != null) {
             myAgent.notifyChangeBehaviourState(this, Behaviour.STATE_READY, Behaviour.STATE_RUNNING);
         }
+        // Composite behaviours are not profiled: their children are
+        jade.core.profiling.AgentProfiler profiler = (myAgent != null && !(this instanceof CompositeBehaviour) ? myAgent.getProfiler() : null);
+        if (profiler != null) {
+            long start = System.nanoTime();
+            action();
+            profiler.actionExecuted(this, System.nanoTime() - start);
+        } else {
+            action();
+        }
         //#MIDP_EXCLUDE_END
+        /*#MIDP_INCLUDE_BEGIN
         action();
+        #MIDP_INCLUDE_END*/
         //#MIDP_EXCLUDE_BEGIN
         if (myAgent != null) {
             myAgent.notifyChangeBehaviourState(this, Behaviour.STATE_RUNNING, Behaviour.STATE_READY);
@@ -401,6 +417,38 @@ public abstract class Behaviour implements Serializable {
         return restartCounter;
     }
 
+    /**
+     * Declares the template of the messages this behaviour waits for when it blocks.
+     * When a message is posted to the agent, a blocked behaviour declaring a
+     * template is restarted only if the message matches it. Behaviours that do not
+     * declare any template (the default) are restarted at each message arrival.
+     * The template must therefore cover every message the  action()   method
+     * is interested in.
+     *
+     * @param mt The template, or  null   to be restarted at each message arrival
+     */
+    public void setWakeupTemplate(MessageTemplate mt) {
+        wakeupTemplate = mt;
+    }
+
+    /**
+     * @return the template of the messages this behaviour waits for, or  null
+     * if this behaviour did not declare any.
+     * @see Behaviour#setWakeupTemplate(MessageTemplate)
+     */
+    public MessageTemplate getWakeupTemplate() {
+        return wakeupTemplate;
+    }
+
+    /**
+     * This method is used internally by the framework. Developer should not call or redefine it.
+     * Checks whether the arrival of a given message must restart this behaviour when it is blocked.
+     */
+    public boolean isWakeupCandidate(ACLMessage msg) {
+        MessageTemplate mt = getWakeupTemplate();
+        return mt == null || mt.match(msg);
+    }
+
     //#APIDOC_EXCLUDE_BEGIN
 
     /**
@@ -25,6 +25,7 @@ package jade.core.behaviours;
 //#CUSTOM_EXCLUDE_FILE
 
 import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
 
 import java.util.Collection;
 
@@ -57,6 +58,9 @@ public abstract class CompositeBehaviour extends Behaviour {
     private boolean finished = false;
     private boolean currentDone;
     private int currentResult;
+    // True if this behaviour is blocked because its own block() method was called
+    // (as opposed to being blocked because its children are)
+    private volatile boolean selfBlocked = false;
     //#APIDOC_EXCLUDE_END
 
 
@@ -185,6 +189,7 @@ public abstract class CompositeBehaviour extends Behaviour {
      * This method is used internally by the framework. Developer should not call or redefine it.
      */
     protected void handleBlockEvent() {
+        selfBlocked = true;
         // Notify upwards
         super.handleBlockEvent();
 
@@ -204,6 +209,57 @@ public abstract class CompositeBehaviour extends Behaviour {
         // Then notify upwards
         super.handleRestartEvent();
     }
+
+    void setRunnable(boolean runnable) {
+        if (runnable) {
+            selfBlocked = false;
+        }
+        super.setRunnable(runnable);
+    }
+
+    /**
+     * This method is used internally by the framework. Developer should not call or redefine it.
+     * Unless this  CompositeBehaviour   declares a template itself or blocked itself
+     * by calling  block()  , the decision is delegated to the blocked children: a message
+     * that none of them is waiting for does not need to restart the whole composition.
+     */
+    public boolean isWakeupCandidate(ACLMessage msg) {
+        if (getWakeupTemplate() != null) {
+            return super.isWakeupCandidate(msg);
+        }
+        if (selfBlocked) {
+            // Children templates say nothing about the messages this behaviour is waiting for
+            return true;
+        }
+        return isChildWakeupCandidate(msg);
+    }
+
+    /**
+     * Check whether a blocked child of this behaviour may be waiting for the given message.
+     * This is executed by the thread posting the message: subclasses whose children can be
+     * added or removed meanwhile must redefine it to access them safely.
+     */
+    boolean isChildWakeupCandidate(ACLMessage msg) {
+        boolean blockedChildren = false;
+        Collection<Behaviour> c = getChildren();
+        if (c != null) {
+            try {
+                for (Behaviour b : c) {
+                    if (!b.isRunnable()) {
+                        if (b.isWakeupCandidate(msg)) {
+                            return true;
+                        }
+                        blockedChildren = true;
+                    }
+                }
+            } catch (java.util.ConcurrentModificationException cme) {
+                // Children modified by the agent thread meanwhile: wake up to be safe
+                return true;
+            }
+        }
+        // If no child is blocked, this behaviour was blocked explicitly
+        return !blockedChildren;
+    }
     //#APIDOC_EXCLUDE_END
 
     /**
@@ -24,6 +24,7 @@
 package jade.core.behaviours;
 
 import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
 
 import java.util.Collection;
 import java.util.Hashtable;
@@ -310,6 +311,13 @@ public class ParallelBehaviour extends CompositeBehaviour {
 
     //#APIDOC_EXCLUDE_BEGIN
 
+    boolean isChildWakeupCandidate(ACLMessage msg) {
+        // Executed by the thread posting the message as handle() below
+        synchronized (subBehaviours) {
+            return super.isChildWakeupCandidate(msg);
+        }
+    }
+
     /**
      * Handle block/restart notifications. A
      *  ParallelBehaviour   object is blocked
@@ -247,6 +247,13 @@ public final class ReceiverBehaviour extends Behaviour {
         return new MessageFuture();
     }
 
+    /**
+     * This behaviour is only interested in messages matching its template.
+     */
+    public MessageTemplate getWakeupTemplate() {
+        return template;
+    }
+
     /**
      * Actual behaviour implementation. This method receives a suitable
      * ACL message and copies it into the message provided by the
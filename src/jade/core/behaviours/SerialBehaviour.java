@@ -26,6 +26,7 @@ package jade.core.behaviours;
 //#CUSTOM_EXCLUDE_FILE
 
 import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
 
 /**
  * Base class for all composite behaviour whose children run serially,
@@ -92,6 +93,22 @@ public abstract class SerialBehaviour extends CompositeBehaviour {
         }
     }
 
+    /**
+     * Only the current child can be blocked waiting for a message: the others are
+     * not executed until they become the current one.
+     */
+    boolean isChildWakeupCandidate(ACLMessage msg) {
+        Behaviour b;
+        try {
+            b = getCurrent();
+        } catch (RuntimeException re) {
+            // Children modified by the agent thread meanwhile: wake up to be safe
+            return true;
+        }
+        // If the current child is not blocked, this behaviour was blocked explicitly
+        return b == null || b.isRunnable() || b.isWakeupCandidate(msg);
+    }
+
     //#APIDOC_EXCLUDE_END
 
 }
@@ -96,6 +96,11 @@ public class NotificationService extends BaseService {
         return NotificationSlice.NAME;
     }
 
+    // No other service is needed at boot time
+    public String[] getDependencies() {
+        return new String[0];
+    }
+
     public Class<?> getHorizontalInterface() {
         return NotificationSlice.class;
     }
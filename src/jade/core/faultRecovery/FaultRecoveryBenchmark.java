@@ -0,0 +1,257 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+ *****************************************************************/
+package jade.core.faultRecovery;
+
+//#J2ME_EXCLUDE_FILE
+//#APIDOC_EXCLUDE_FILE
+
+import jade.core.BaseNode;
+import jade.core.HorizontalCommand;
+import jade.core.IMTPException;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.wrapper.ContainerController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Benchmark measuring the time a main container restarted after a fault takes to recover the
+ * nodes of its platform. The persistent storage is replaced by a stand-in that holds a number of
+ * stand-in nodes: live nodes answer the main container recovery notification after a short delay,
+ * while dead nodes fail after a longer delay, as a node whose host does not accept connections
+ * anymore does. One in ten nodes is a child node and the storage also holds a corrupt entry that
+ * cannot be deserialized.
+ * <br>
+ * The main container is started once for each recovery parallelism and timeout setting to
+ * compare. For each of them the time taken by the main container startup and the number of
+ * recovered nodes and of nodes removed from the persistent storage (dead or corrupt) are printed.
+ * Nodes still being notified when the recovery timeout expires are counted once they complete.
+ * The exit status is 1 if a recovery completed with unexpected results or exceeded its timeout.
+ * <p>
+ * Usage: <code>java jade.core.faultRecovery.FaultRecoveryBenchmark [-nodes N] [-dead N] [-delay ms] [-dead-delay ms] [-settings P:T,...] [-port N]</code>
+ * <ul>
+ * <li>nodes: number of stand-in nodes (default 300)</li>
+ * <li>dead: number of dead nodes among them (default 90)</li>
+ * <li>delay: time a live node takes to answer (default 20)</li>
+ * <li>dead-delay: time the notification of a dead node takes to fail (default 300)</li>
+ * <li>settings: comma separated list of recovery parallelism:timeout pairs (default 1:0,20:0,4:2000,
+ * i.e. sequential recovery, default parallelism and reduced parallelism with a 2 s deadline)</li>
+ * <li>port: local port of the main container. The following ports are used for the following settings (default 1099)</li>
+ * </ul>
+ */
+public class FaultRecoveryBenchmark {
+    private static final String PLATFORM_NAME = "FaultRecoveryBenchmark";
+    private static final String CORRUPT_NODE_NAME = "Corrupt-node";
+    // Extra time granted to the main container startup beyond the recovery timeout
+    private static final long TIMEOUT_TOLERANCE = 1000;
+
+    // Configuration and results shared with the stand-in storage and nodes, that are
+    // instantiated by the FaultRecoveryService
+    private static int nNodes = 300;
+    private static int nDead = 90;
+    private static long delay = 20;
+    private static long deadDelay = 300;
+    private static final AtomicInteger recoveredCnt = new AtomicInteger();
+    private static final AtomicInteger removedCnt = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        String settings = "1:0,20:0,4:2000";
+        int port = 1099;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-nodes" -> nNodes = Integer.parseInt(value);
+                case "-dead" -> nDead = Integer.parseInt(value);
+                case "-delay" -> delay = Long.parseLong(value);
+                case "-dead-delay" -> deadDelay = Long.parseLong(value);
+                case "-settings" -> settings = value;
+                case "-port" -> port = Integer.parseInt(value);
+                default -> {
+                    System.out.println("Unknown option " + args[i]);
+                    System.exit(1);
+                }
+            }
+        }
+
+        // Per-node recovery logs would hide the results
+        java.util.logging.Logger.getLogger("").setLevel(Level.WARNING);
+        jade.core.Runtime.instance().setCloseVM(false);
+        System.out.println("Recovering " + nNodes + " nodes (" + nDead + " dead) plus a corrupt entry. Live node delay = " + delay + " ms, dead node delay = " + deadDelay + " ms");
+
+        boolean ok = true;
+        for (String setting : settings.split(",")) {
+            String[] pt = setting.split(":");
+            ok &= recover(Integer.parseInt(pt[0].trim()), Long.parseLong(pt[1].trim()), port++);
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static boolean recover(int parallelism, long timeout, int port) throws Exception {
+        recoveredCnt.set(0);
+        removedCnt.set(0);
+        Profile p = new ProfileImpl();
+        p.setParameter(Profile.LOCAL_PORT, String.valueOf(port));
+        p.setParameter(Profile.PLATFORM_ID, PLATFORM_NAME);
+        p.setParameter(Profile.NO_MTP, "true");
+        p.setParameter(Profile.SERVICES, FaultRecoveryService.class.getName());
+        p.setParameter(FaultRecoveryService.PERSISTENT_STORAGE_CLASS, StandInStorage.class.getName());
+        p.setParameter(FaultRecoveryService.RECOVERY_PARALLELISM, String.valueOf(parallelism));
+        p.setParameter(FaultRecoveryService.RECOVERY_TIMEOUT, String.valueOf(timeout));
+
+        long start = System.currentTimeMillis();
+        ContainerController mc = jade.core.Runtime.instance().createMainContainer(p);
+        long startupTime = System.currentTimeMillis() - start;
+        if (mc == null) {
+            System.out.println("Parallelism " + parallelism + ", timeout " + timeout + " ms: main container startup failed");
+            return false;
+        }
+        int recovered = recoveredCnt.get();
+        int removed = removedCnt.get();
+        // Let notifications in progress when the timeout expired complete
+        Thread.sleep(Math.max(delay, deadDelay) * 2);
+        int background = recoveredCnt.get() + removedCnt.get() - recovered - removed;
+        mc.kill();
+
+        System.out.println("Parallelism " + parallelism + ", timeout " + timeout + " ms: startup = " + startupTime + " ms, " + recovered + " recovered, " + removed + " removed" + (background > 0 ? ", " + background + " completed in background" : ""));
+        if (timeout > 0 && startupTime > timeout + TIMEOUT_TOLERANCE) {
+            System.out.println("  Recovery timeout exceeded!");
+            return false;
+        }
+        boolean completed = recovered + removed == nNodes + 1;
+        if (completed && (recovered != nNodes - nDead || removed != nDead + 1)) {
+            System.out.println("  Unexpected results: expected " + (nNodes - nDead) + " recovered and " + (nDead + 1) + " removed");
+            return false;
+        }
+        if (!completed && timeout <= 0) {
+            System.out.println("  Recovery not completed!");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Inner class StandInStorage.
+     * A persistent storage holding the stand-in nodes, live ones first, plus a corrupt entry.
+     */
+    public static class StandInStorage implements PersistentStorage {
+        private String address;
+
+        public void init(Profile p) {
+        }
+
+        public void close() {
+        }
+
+        public void clear(boolean clearPlatform) {
+        }
+
+        public void storePlatformInfo(String platformName, String address) {
+            this.address = address;
+        }
+
+        public String[] getPlatformInfo() {
+            // Pretend the platform was already running, so that the fault recovery procedure starts
+            return new String[]{PLATFORM_NAME, address};
+        }
+
+        public void storeNode(String name, boolean isChild, byte[] nn) {
+        }
+
+        public void removeNode(String name) {
+            removedCnt.incrementAndGet();
+        }
+
+        public void setUnreachable(String name) {
+        }
+
+        public void resetUnreachable(String name) {
+        }
+
+        public Map<String, Object> getAllNodes(boolean children) throws Exception {
+            Map<String, Object> nodes = new HashMap<>();
+            for (int i = 0; i < nNodes; ++i) {
+                if ((i % 10 == 9) == children) {
+                    boolean dead = i >= nNodes - nDead;
+                    String name = "Container-" + i;
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    try (ObjectOutputStream encoder = new ObjectOutputStream(out)) {
+                        encoder.writeObject(new StandInNode(name, dead));
+                    }
+                    nodes.put(name, out.toByteArray());
+                }
+            }
+            if (!children) {
+                nodes.put(CORRUPT_NODE_NAME, new byte[]{1, 2, 3});
+            }
+            return nodes;
+        }
+
+        public byte[] getUnreachableNode(String name) {
+            return null;
+        }
+    } // END of inner class StandInStorage
+
+    /**
+     * Inner class StandInNode.
+     * Answers the main container recovery notification after a delay, or fails if dead.
+     */
+    private static class StandInNode extends BaseNode {
+        private final boolean dead;
+
+        StandInNode(String name, boolean dead) {
+            super(name, false);
+            this.dead = dead;
+        }
+
+        public void platformManagerDead(String deadPMAddr, String notifyingPMAddr) throws IMTPException {
+            try {
+                Thread.sleep(dead ? deadDelay : delay);
+            } catch (InterruptedException ie) {
+                throw new IMTPException("Interrupted");
+            }
+            if (dead) {
+                throw new IMTPException("Connection timed out");
+            }
+            recoveredCnt.incrementAndGet();
+        }
+
+        public Object accept(HorizontalCommand cmd) {
+            return null;
+        }
+
+        public boolean ping(boolean hang) {
+            return true;
+        }
+
+        public void interrupt() {
+        }
+
+        public void exit() {
+        }
+    } // END of inner class StandInNode
+}
@@ -27,14 +27,20 @@ import jade.core.*;
 import jade.core.nodeMonitoring.NodeMonitoringService;
 import jade.core.nodeMonitoring.UDPNodeMonitoringService;
 import jade.core.replication.MainReplicationService;
+import jade.core.sam.AbsoluteCounterValueProvider;
+import jade.core.sam.SAMHelper;
 import jade.util.Logger;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -53,6 +59,12 @@ import java.util.Map;
  * ServiceManager) and issues a Service.REATTACHED incoming V-Command.
  * The FaultRecovery service filter intercepts this command and re-adds
  * all agents living in the container.
+ * <p>
+ * Nodes are notified concurrently (see the <code>recoveryparallelism</code> parameter) so that
+ * each dead node, that costs a full IMTP connection timeout, does not delay the others. Non-child
+ * nodes are always recovered before child nodes. The whole procedure is bounded by the
+ * <code>recoverytimeout</code> parameter: nodes not yet notified when it expires are left in the
+ * persistent storage.
  *
  * @author Giovanni Caire - TILAB
  */
@@ -60,10 +72,28 @@ public class FaultRecoveryService extends BaseService {
     public static final String NAME = FaultRecoveryHelper.SERVICE_NAME;
 
     public static final String CLEAN_STORAGE = "jade_core_faultRecovery_FaultRecoveryService_cleanstorage";
+    /**
+     * The class implementing the PersistentStorage interface. Default is the FSPersistentStorage, which keeps one file
+     * per node. Set it to <code>jade.core.faultRecovery.JournalPersistentStorage</code> to keep all nodes in memory and
+     * log modifications to an append-only journal
+     */
     public static final String PERSISTENT_STORAGE_CLASS = "jade_core_faultRecovery_FaultRecoveryService_persistentstorage";
     public static final String ORPHAN_NODE_POLICY = "jade_core_faultRecovery_FaultRecoveryService_orphannodepolicy";
+    /**
+     * The maximum number of nodes notified concurrently during the fault recovery procedure. Default is 20
+     */
+    public static final String RECOVERY_PARALLELISM = "jade_core_faultRecovery_FaultRecoveryService_recoveryparallelism";
+    /**
+     * The maximum time in ms the main container startup waits for the fault recovery procedure.
+     * A value &lt;= 0 means no limit. Default is 120000
+     */
+    public static final String RECOVERY_TIMEOUT = "jade_core_faultRecovery_FaultRecoveryService_recoverytimeout";
 
     public static final String PERSISTENT_STORAGE_CLASS_DEFAULT = "jade.core.faultRecovery.FSPersistentStorage";
+    public static final int RECOVERY_PARALLELISM_DEFAULT = 20;
+    public static final long RECOVERY_TIMEOUT_DEFAULT = 120000;
+
+    private static final long PROGRESS_LOG_PERIOD = 5000;
 
     public static final String ORPHAN_NODE_POLICY_RECOVER = "RECOVER";
     public static final String ORPHAN_NODE_POLICY_KILL = "KILL";
@@ -84,6 +114,16 @@ public class FaultRecoveryService extends BaseService {
     private boolean bootComplete = false;
     private String orphanNodePolicy;
 
+    private int recoveryParallelism = RECOVERY_PARALLELISM_DEFAULT;
+    private long recoveryTimeout = RECOVERY_TIMEOUT_DEFAULT;
+
+    // Fault recovery progress
+    private final AtomicInteger recoveredCnt = new AtomicInteger();
+    private final AtomicInteger lostCnt = new AtomicInteger();
+    private final AtomicInteger skippedCnt = new AtomicInteger();
+    private final AtomicInteger pendingCnt = new AtomicInteger();
+    private volatile long recoveryTime = -1;
+
     public void init(AgentContainer ac, Profile p) throws ProfileException {
         super.init(ac, p);
         myContainer = ac;
@@ -99,6 +139,18 @@ public class FaultRecoveryService extends BaseService {
             // Read the policy to handle orphan nodes
             orphanNodePolicy = p.getParameter(ORPHAN_NODE_POLICY, ORPHAN_NODE_POLICY_RECOVER);
 
+            // Read the fault recovery procedure bounds
+            try {
+                recoveryParallelism = Math.max(1, Integer.parseInt(p.getParameter(RECOVERY_PARALLELISM, null)));
+            } catch (Exception e) {
+                // Keep default
+            }
+            try {
+                recoveryTimeout = Long.parseLong(p.getParameter(RECOVERY_TIMEOUT, null));
+            } catch (Exception e) {
+                // Keep default
+            }
+
             // Initialize the PersistentStorage
             String psClass = p.getParameter(PERSISTENT_STORAGE_CLASS, PERSISTENT_STORAGE_CLASS_DEFAULT);
             try {
@@ -140,22 +192,8 @@ public class FaultRecoveryService extends BaseService {
                     if (replService == null || replService.getAllSlices().length <= 1) {
                         // FAULT RECOVERY PROCEDURE
                         myLogger.log(Logger.INFO, "Initiating fault recovery procedure...");
-                        // Recover all non-child nodes first
-                        Map<String, Object> allNodes = myPS.getAllNodes(false);
-                        Iterator<String> it = allNodes.keySet().iterator();
-                        while (it.hasNext()) {
-                            String name = it.next();
-                            checkNode(name, (byte[]) allNodes.get(name), oldAddress, currentAddress);
-                        }
-                        // Then recover all child nodes
-                        allNodes = myPS.getAllNodes(true);
-                        it = allNodes.keySet().iterator();
-                        while (it.hasNext()) {
-                            String name = it.next();
-                            checkNode(name, (byte[]) allNodes.get(name), oldAddress, currentAddress);
-                        }
-
-                        myLogger.log(Logger.INFO, "Fault recovery procedure completed.");
+                        initializeSAM();
+                        recoverNodes(oldAddress, currentAddress);
                     }
                 } else {
                     // This is a different platform and we don't want to reattach agents with a different platform name.
@@ -241,7 +279,134 @@ public class FaultRecoveryService extends BaseService {
         };
     }
 
-    private void checkNode(String name, byte[] nn, String oldAddress, String currentAddress) {
+    /**
+     * Notify all nodes in the persistent storage about the main container recovery: first all
+     * non-child nodes, then all child nodes. Each group is processed by a pool of
+     * <code>recoveryParallelism</code> threads. Notifications still in progress when the
+     * recovery timeout expires complete in background, while nodes not notified yet are left
+     * in the persistent storage.
+     */
+    private void recoverNodes(String oldAddress, String currentAddress) throws Exception {
+        long startTime = System.currentTimeMillis();
+        long deadline = (recoveryTimeout > 0 ? startTime + recoveryTimeout : Long.MAX_VALUE);
+        Map<String, Object> nodes = myPS.getAllNodes(false);
+        Map<String, Object> childNodes = myPS.getAllNodes(true);
+        int total = nodes.size() + childNodes.size();
+        pendingCnt.set(total);
+        myLogger.log(Logger.INFO, "Recovering " + total + " nodes (" + childNodes.size() + " child nodes). Parallelism = " + recoveryParallelism + ", timeout = " + recoveryTimeout + " ms");
+
+        AtomicInteger threadCnt = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(recoveryParallelism, r -> {
+            Thread t = new Thread(r, "FaultRecovery-" + threadCnt.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            // Recover all non-child nodes first
+            boolean completed = recoverNodes(executor, nodes, oldAddress, currentAddress, deadline, total);
+            if (completed) {
+                // Then recover all child nodes
+                completed = recoverNodes(executor, childNodes, oldAddress, currentAddress, deadline, total);
+            } else {
+                skippedCnt.addAndGet(childNodes.size());
+                pendingCnt.addAndGet(-childNodes.size());
+            }
+            recoveryTime = System.currentTimeMillis() - startTime;
+            String summary = recoveredCnt.get() + " nodes recovered, " + lostCnt.get() + " lost, " + skippedCnt.get() + " not notified, " + pendingCnt.get() + " still pending";
+            if (completed) {
+                myLogger.log(Logger.INFO, "Fault recovery procedure completed in " + recoveryTime + " ms: " + summary);
+            } else {
+                myLogger.log(Logger.WARNING, "Fault recovery procedure timed out after " + recoveryTime + " ms: " + summary);
+            }
+        } finally {
+            // Notifications in progress (if any) are let complete. Queued ones will find the deadline expired
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Notify a group of nodes concurrently and wait for all of them, or until the deadline expires.
+     *
+     * @return true if all nodes in the group were processed before the deadline
+     */
+    private boolean recoverNodes(ExecutorService executor, Map<String, Object> nodes, String oldAddress, String currentAddress, long deadline, int total) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(nodes.size());
+        for (Map.Entry<String, Object> entry : nodes.entrySet()) {
+            executor.execute(() -> {
+                try {
+                    if (System.currentTimeMillis() < deadline) {
+                        if (checkNode(entry.getKey(), (byte[]) entry.getValue(), oldAddress, currentAddress)) {
+                            recoveredCnt.incrementAndGet();
+                        } else {
+                            lostCnt.incrementAndGet();
+                        }
+                    } else {
+                        skippedCnt.incrementAndGet();
+                    }
+                } finally {
+                    pendingCnt.decrementAndGet();
+                    latch.countDown();
+                }
+            });
+        }
+
+        while (true) {
+            long now = System.currentTimeMillis();
+            if (now >= deadline) {
+                return latch.getCount() == 0;
+            }
+            if (latch.await(Math.min(PROGRESS_LOG_PERIOD, deadline - now), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            myLogger.log(Logger.INFO, "Fault recovery in progress: " + (total - pendingCnt.get()) + "/" + total + " nodes processed (" + recoveredCnt.get() + " recovered, " + lostCnt.get() + " lost)");
+        }
+    }
+
+    private void initializeSAM() {
+        //#J2ME_EXCLUDE_BEGIN
+        //#DOTNET_EXCLUDE_BEGIN
+        try {
+            Service sam = myContainer.getServiceFinder().findService(SAMHelper.SERVICE_NAME);
+            if (sam != null) {
+                SAMHelper samHelper = (SAMHelper) sam.getHelper(null);
+                samHelper.addCounterValueProvider("Fault-recovery-recovered-node-count", new AbsoluteCounterValueProvider() {
+                    public long getValue() {
+                        return recoveredCnt.get();
+                    }
+                });
+                samHelper.addCounterValueProvider("Fault-recovery-lost-node-count", new AbsoluteCounterValueProvider() {
+                    public long getValue() {
+                        return lostCnt.get();
+                    }
+                });
+                samHelper.addCounterValueProvider("Fault-recovery-pending-node-count", new AbsoluteCounterValueProvider() {
+                    public long getValue() {
+                        return pendingCnt.get();
+                    }
+                });
+                samHelper.addCounterValueProvider("Fault-recovery-time", new AbsoluteCounterValueProvider() {
+                    public long getValue() {
+                        return recoveryTime;
+                    }
+                });
+            }
+        } catch (ServiceNotActiveException snae) {
+            // SAMService not active --> just do nothing
+        } catch (Exception e) {
+            // Should never happen
+            myLogger.log(Logger.WARNING, "Error accessing the local SAMService.", e);
+        }
+        //#DOTNET_EXCLUDE_END
+        //#J2ME_EXCLUDE_END
+    }
+
+    /**
+     * Notify a node about the main container recovery.
+     * If the node is unreachable or cannot be deserialized it is removed from the persistent storage.
+     *
+     * @return true if the node was successfully recovered
+     */
+    private boolean checkNode(String name, byte[] nn, String oldAddress, String currentAddress) {
         if (myLogger.isLoggable(Logger.FINE)) {
             myLogger.log(Logger.FINE, "Recovering node " + name + " ...");
         }
@@ -250,7 +415,7 @@ public class FaultRecoveryService extends BaseService {
             node = nodeSerializer.deserialize(nn);
             node.platformManagerDead(oldAddress, currentAddress);
             myLogger.log(Logger.INFO, "Node " + name + " successfully recovered.");
-            return;
+            return true;
         } catch (IMTPException imtpe) {
             myLogger.log(Logger.INFO, "Node " + name + " unreachable. It has likely been killed in the meanwhile");
         } catch (Exception e) {
@@ -259,10 +424,11 @@ public class FaultRecoveryService extends BaseService {
         // If we get here the node either has been killed in the meanwhile or cannot be deserialized -->
         // In any case remove it from the PS
         try {
-            myPS.removeNode(node.getName());
+            myPS.removeNode(name);
         } catch (Exception ex) {
-            myLogger.log(Logger.WARNING, "Cannot remove node " + node.getName() + " from persistent storage. ", ex);
+            myLogger.log(Logger.WARNING, "Cannot remove node " + name + " from persistent storage. ", ex);
         }
+        return false;
     }
 
     private void killNode(String name, byte[] nn) {
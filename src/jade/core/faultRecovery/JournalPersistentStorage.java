@@ -0,0 +1,618 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A.
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation,
+version 2.1 of the License.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.faultRecovery;
+
+import jade.core.Profile;
+import jade.util.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * PersistentStorage implementation keeping persistent information in memory and
+ * logging each modification to an append-only journal in the local file system.
+ * <p>
+ * Modifications are applied to the in-memory state and queued: a dedicated thread appends
+ * all queued records to the journal with a single write and a single fsync (group commit),
+ * so that methods invoked on the platform management path (e.g. <code>storeNode()</code>
+ * when a node is added) never wait for the disk. When the journal grows beyond a given
+ * number of records it is compacted into a snapshot. At startup the state is reloaded
+ * from the last snapshot plus the journal records following it.
+ * <p>
+ * If neither a snapshot nor a journal exists, nodes saved by the <code>FSPersistentStorage</code>
+ * in the same location are imported. The files of the <code>FSPersistentStorage</code> are left untouched.
+ */
+class JournalPersistentStorage implements PersistentStorage, Runnable {
+    public static final String LOCATION = "jade_core_faultRecovery_JournalPersistentStorage_location";
+    /**
+     * The number of journal records that triggers the compaction of the journal into a snapshot. Default is 10000
+     */
+    public static final String SNAPSHOT_THRESHOLD = "jade_core_faultRecovery_JournalPersistentStorage_snapshotthreshold";
+    public static final int SNAPSHOT_THRESHOLD_DEFAULT = 10000;
+
+    private static final String JOURNAL_FILE_NAME = "fault-recovery.journal";
+    private static final String SNAPSHOT_FILE_NAME = "fault-recovery.snapshot";
+    private static final int JOURNAL_MAGIC = 0x4a524e4c;
+    private static final int SNAPSHOT_MAGIC = 0x534e5054;
+    private static final int JOURNAL_HEADER_SIZE = 12;
+    private static final long CLOSE_TIMEOUT = 10000;
+
+    // Journal record types
+    private static final byte PLATFORM_INFO = 1;
+    private static final byte STORE_NODE = 2;
+    private static final byte REMOVE_NODE = 3;
+    private static final byte SET_UNREACHABLE = 4;
+    private static final byte RESET_UNREACHABLE = 5;
+    private static final byte CLEAR = 6;
+
+    private final Logger myLogger = Logger.getMyLogger(getClass().getName());
+
+    // The state seen by callers, including modifications not yet written to the journal
+    private final State state = new State();
+    // The state corresponding to the journal content. Only accessed by the writer thread after init()
+    private State journaledState = new State();
+    private final List<Record> pending = new ArrayList<>();
+    private boolean closing = false;
+    private Thread writer;
+
+    private File journalFile;
+    private File snapshotFile;
+    private RandomAccessFile journal;
+    private long generation;
+    private int journalRecordsCnt;
+    private int snapshotThreshold = SNAPSHOT_THRESHOLD_DEFAULT;
+
+    public void init(Profile p) throws Exception {
+        String locationName = p.getParameter(LOCATION, p.getParameter(FSPersistentStorage.LOCATION, FSPersistentStorage.LOCATION_DEFAULT));
+        File locationDir = new File(locationName);
+        if (!locationDir.exists()) {
+            myLogger.log(Logger.CONFIG, "Journal location directory " + locationName + " does not exists. Creating it ...");
+            if (!locationDir.mkdirs()) {
+                throw new IOException("Cannot create journal location directory " + locationName + ".");
+            }
+        } else if (!locationDir.isDirectory()) {
+            throw new IOException("Journal location " + locationName + " is not a directory.");
+        }
+        try {
+            snapshotThreshold = Integer.parseInt(p.getParameter(SNAPSHOT_THRESHOLD, null));
+        } catch (Exception e) {
+            // Keep default
+        }
+
+        journalFile = new File(locationDir, JOURNAL_FILE_NAME);
+        snapshotFile = new File(locationDir, SNAPSHOT_FILE_NAME);
+        boolean importFS = !journalFile.exists() && !snapshotFile.exists();
+        long start = System.currentTimeMillis();
+        loadSnapshot();
+        journal = new RandomAccessFile(journalFile, "rw");
+        replayJournal();
+        if (importFS) {
+            importFSPersistentStorage(p);
+        }
+        state.copy(journaledState);
+        myLogger.log(Logger.CONFIG, "Persistent storage loaded in " + (System.currentTimeMillis() - start) + " ms: " + state.nodes.size() + " nodes, " + journalRecordsCnt + " journal records");
+
+        writer = new Thread(this, "FaultRecovery-Journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Write all pending records and stop the journal writer
+     */
+    public void close() {
+        synchronized (pending) {
+            closing = true;
+            pending.notifyAll();
+        }
+        if (writer != null) {
+            try {
+                writer.join(CLOSE_TIMEOUT);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ioe) {
+                myLogger.log(Logger.WARNING, "Error closing journal. ", ioe);
+            }
+            journal = null;
+        }
+    }
+
+    public void clear(boolean clearPlatformInfo) {
+        submit(new Record(CLEAR, null, clearPlatformInfo, null));
+    }
+
+    public void storePlatformInfo(String platformName, String address) {
+        submit(new Record(PLATFORM_INFO, platformName + '@' + address, false, null));
+    }
+
+    public String[] getPlatformInfo() {
+        String tmp;
+        synchronized (state) {
+            tmp = state.platformInfo;
+        }
+        if (tmp != null) {
+            int k = tmp.indexOf('@');
+            if (k > 0) {
+                return new String[]{tmp.substring(0, k), tmp.substring(k + 1)};
+            }
+        }
+        return null;
+    }
+
+    public void storeNode(String name, boolean isChild, byte[] nn) {
+        submit(new Record(STORE_NODE, name, isChild, nn));
+    }
+
+    public void removeNode(String name) {
+        submit(new Record(REMOVE_NODE, name, false, null));
+    }
+
+    public void setUnreachable(String name) {
+        submit(new Record(SET_UNREACHABLE, name, false, null));
+    }
+
+    public void resetUnreachable(String name) {
+        submit(new Record(RESET_UNREACHABLE, name, false, null));
+    }
+
+    public Map<String, Object> getAllNodes(boolean children) {
+        Map<String, Object> nodes = new HashMap<>();
+        synchronized (state) {
+            for (Map.Entry<String, NodeInfo> entry : state.nodes.entrySet()) {
+                NodeInfo info = entry.getValue();
+                if (info.child == children && !info.unreachable) {
+                    nodes.put(entry.getKey(), info.data);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    public byte[] getUnreachableNode(String name) {
+        synchronized (state) {
+            NodeInfo info = state.nodes.get(name);
+            return (info != null && info.unreachable ? info.data : null);
+        }
+    }
+
+    private void submit(Record r) {
+        synchronized (state) {
+            r.apply(state);
+            synchronized (pending) {
+                pending.add(r);
+                pending.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The journal writer: append all records queued since the previous write, then fsync once
+     */
+    public void run() {
+        List<Record> batch = new ArrayList<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        while (true) {
+            boolean last;
+            synchronized (pending) {
+                while (pending.isEmpty() && !closing) {
+                    try {
+                        pending.wait();
+                    } catch (InterruptedException ie) {
+                        // Go on until closed
+                    }
+                }
+                batch.addAll(pending);
+                pending.clear();
+                last = closing;
+            }
+            boolean failed = false;
+            if (!batch.isEmpty()) {
+                long goodLength = -1;
+                try {
+                    buffer.reset();
+                    DataOutputStream out = new DataOutputStream(buffer);
+                    for (Record r : batch) {
+                        r.writeTo(out);
+                    }
+                    FileChannel ch = journal.getChannel();
+                    goodLength = ch.size();
+                    ByteBuffer bb = ByteBuffer.wrap(buffer.toByteArray());
+                    long pos = goodLength;
+                    while (bb.hasRemaining()) {
+                        pos += ch.write(bb, pos);
+                    }
+                    ch.force(false);
+                    journalRecordsCnt += batch.size();
+                } catch (IOException ioe) {
+                    myLogger.log(Logger.SEVERE, "Error writing " + batch.size() + " records to journal. ", ioe);
+                    failed = true;
+                    truncateJournal(goodLength);
+                }
+                for (Record r : batch) {
+                    r.apply(journaledState);
+                }
+                batch.clear();
+            }
+            // If the journal could not be written, save the records of the failed batch in a snapshot
+            if (failed || journalRecordsCnt >= snapshotThreshold || (last && journalRecordsCnt > 0)) {
+                try {
+                    writeSnapshot();
+                } catch (IOException ioe) {
+                    myLogger.log(Logger.SEVERE, "Error compacting journal. ", ioe);
+                }
+            }
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    //////////////////////////////////////////
+    // Snapshot and journal management
+    //////////////////////////////////////////
+
+    /**
+     * Save the journaled state in a new snapshot and restart the journal. The snapshot is written to a temporary
+     * file and then renamed. The new generation number marks previous journal records as obsolete even if
+     * the journal cannot be reset.
+     */
+    private void writeSnapshot() throws IOException {
+        long newGeneration = generation + 1;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeLong(newGeneration);
+        journaledState.writeTo(out);
+        out.flush();
+        byte[] content = buffer.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos));
+            dos.writeInt(SNAPSHOT_MAGIC);
+            dos.writeInt(content.length);
+            dos.writeLong(crc.getValue());
+            dos.write(content);
+            dos.flush();
+            fos.getFD().sync();
+        }
+        try {
+            Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException amnse) {
+            Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        generation = newGeneration;
+        resetJournal();
+        if (myLogger.isLoggable(Logger.FINE)) {
+            myLogger.log(Logger.FINE, "Journal compacted into snapshot (" + journaledState.nodes.size() + " nodes, generation " + generation + ")");
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        generation = 0;
+        if (snapshotFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Wrong snapshot header");
+                }
+                byte[] content = new byte[in.readInt()];
+                long checksum = in.readLong();
+                in.readFully(content);
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                if (crc.getValue() != checksum) {
+                    throw new IOException("Wrong snapshot checksum");
+                }
+                DataInputStream cin = new DataInputStream(new ByteArrayInputStream(content));
+                generation = cin.readLong();
+                journaledState.readFrom(cin);
+            } catch (IOException ioe) {
+                myLogger.log(Logger.SEVERE, "Corrupted persistent storage snapshot " + snapshotFile + ". ", ioe);
+                throw ioe;
+            }
+        }
+    }
+
+    /**
+     * Apply the journal records of the current generation to the journaled state, then truncate
+     * the journal after the last valid record (a crash may leave a partially written one).
+     */
+    private void replayJournal() throws IOException {
+        journalRecordsCnt = 0;
+        long length = journal.length();
+        if (length < JOURNAL_HEADER_SIZE) {
+            resetJournal();
+            return;
+        }
+        byte[] content = new byte[(int) length];
+        journal.seek(0);
+        journal.readFully(content);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        if (in.readInt() != JOURNAL_MAGIC || in.readLong() != generation) {
+            // Records already included in the snapshot (or an unknown file)
+            resetJournal();
+            return;
+        }
+        int validLength = JOURNAL_HEADER_SIZE;
+        while (true) {
+            Record r = Record.readFrom(in, content.length - validLength);
+            if (r == null) {
+                break;
+            }
+            r.apply(journaledState);
+            journalRecordsCnt++;
+            validLength = content.length - in.available();
+        }
+        if (validLength < content.length) {
+            myLogger.log(Logger.WARNING, "Discarding " + (content.length - validLength) + " bytes of incomplete journal records");
+            journal.setLength(validLength);
+        }
+    }
+
+    /**
+     * Remove a partially written batch of records so that records appended later are not
+     * discarded by replayJournal() at the next startup
+     */
+    private void truncateJournal(long goodLength) {
+        if (goodLength >= 0) {
+            try {
+                FileChannel ch = journal.getChannel();
+                ch.truncate(goodLength);
+                ch.force(false);
+            } catch (IOException ioe) {
+                myLogger.log(Logger.SEVERE, "Error truncating journal to " + goodLength + " bytes. ", ioe);
+            }
+        }
+    }
+
+    private void resetJournal() throws IOException {
+        journal.setLength(0);
+        journal.seek(0);
+        journal.writeInt(JOURNAL_MAGIC);
+        journal.writeLong(generation);
+        journal.getChannel().force(false);
+        journalRecordsCnt = 0;
+    }
+
+    private void importFSPersistentStorage(Profile p) {
+        try {
+            FSPersistentStorage fs = new FSPersistentStorage();
+            fs.init(p);
+            String[] platformInfo = fs.getPlatformInfo();
+            Map<String, Object> nodes = fs.getAllNodes(false);
+            Map<String, Object> childNodes = fs.getAllNodes(true);
+            if (platformInfo != null || !nodes.isEmpty() || !childNodes.isEmpty()) {
+                myLogger.log(Logger.INFO, "Importing " + (nodes.size() + childNodes.size()) + " nodes from file system persistent storage");
+                if (platformInfo != null) {
+                    new Record(PLATFORM_INFO, platformInfo[0] + '@' + platformInfo[1], false, null).apply(journaledState);
+                }
+                for (Map.Entry<String, Object> entry : nodes.entrySet()) {
+                    new Record(STORE_NODE, entry.getKey(), false, (byte[]) entry.getValue()).apply(journaledState);
+                }
+                for (Map.Entry<String, Object> entry : childNodes.entrySet()) {
+                    new Record(STORE_NODE, entry.getKey(), true, (byte[]) entry.getValue()).apply(journaledState);
+                }
+                writeSnapshot();
+            }
+            fs.close();
+        } catch (Exception e) {
+            myLogger.log(Logger.WARNING, "Error importing file system persistent storage. ", e);
+        }
+    }
+
+    //////////////////////////////////////////
+    // State and records
+    //////////////////////////////////////////
+
+    private static class NodeInfo {
+        private final boolean child;
+        private final byte[] data;
+        private final boolean unreachable;
+
+        private NodeInfo(boolean child, byte[] data, boolean unreachable) {
+            this.child = child;
+            this.data = data;
+            this.unreachable = unreachable;
+        }
+    }
+
+    private static class State {
+        private String platformInfo;
+        private final Map<String, NodeInfo> nodes = new LinkedHashMap<>();
+
+        private void copy(State s) {
+            platformInfo = s.platformInfo;
+            nodes.clear();
+            nodes.putAll(s.nodes);
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeBoolean(platformInfo != null);
+            if (platformInfo != null) {
+                out.writeUTF(platformInfo);
+            }
+            out.writeInt(nodes.size());
+            for (Map.Entry<String, NodeInfo> entry : nodes.entrySet()) {
+                NodeInfo info = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeBoolean(info.child);
+                out.writeBoolean(info.unreachable);
+                writeBytes(out, info.data);
+            }
+        }
+
+        private void readFrom(DataInputStream in) throws IOException {
+            platformInfo = (in.readBoolean() ? in.readUTF() : null);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String name = in.readUTF();
+                boolean child = in.readBoolean();
+                boolean unreachable = in.readBoolean();
+                nodes.put(name, new NodeInfo(child, readBytes(in), unreachable));
+            }
+        }
+    }
+
+    /**
+     * A modification of the persistent storage. Its effects mirror those of the FSPersistentStorage
+     * (e.g. removeNode() does not remove a node marked as unreachable).
+     */
+    private static class Record {
+        private final byte type;
+        private final String name;
+        private final boolean flag;
+        private final byte[] data;
+
+        private Record(byte type, String name, boolean flag, byte[] data) {
+            this.type = type;
+            this.name = name;
+            this.flag = flag;
+            this.data = data;
+        }
+
+        private void apply(State s) {
+            NodeInfo info;
+            switch (type) {
+                case PLATFORM_INFO:
+                    s.platformInfo = name;
+                    break;
+                case STORE_NODE:
+                    s.nodes.put(name, new NodeInfo(flag, data, false));
+                    break;
+                case REMOVE_NODE:
+                    info = s.nodes.get(name);
+                    if (info != null && !info.unreachable) {
+                        s.nodes.remove(name);
+                    }
+                    break;
+                case SET_UNREACHABLE:
+                    info = s.nodes.get(name);
+                    if (info != null && !info.unreachable) {
+                        s.nodes.put(name, new NodeInfo(info.child, info.data, true));
+                    }
+                    break;
+                case RESET_UNREACHABLE:
+                    info = s.nodes.get(name);
+                    if (info != null && info.unreachable) {
+                        s.nodes.put(name, new NodeInfo(info.child, info.data, false));
+                    }
+                    break;
+                case CLEAR:
+                    s.nodes.clear();
+                    if (flag) {
+                        s.platformInfo = null;
+                    }
+                    break;
+            }
+        }
+
+        /**
+         * Write this record as: payload length, payload CRC, payload
+         */
+        private void writeTo(DataOutputStream out) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(buffer);
+            payload.writeByte(type);
+            payload.writeBoolean(name != null);
+            if (name != null) {
+                payload.writeUTF(name);
+            }
+            payload.writeBoolean(flag);
+            writeBytes(payload, data);
+            payload.flush();
+            byte[] bb = buffer.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bb);
+            out.writeInt(bb.length);
+            out.writeLong(crc.getValue());
+            out.write(bb);
+        }
+
+        /**
+         * @return The next record or null if the input does not hold a complete and valid record
+         */
+        private static Record readFrom(DataInputStream in, int available) {
+            try {
+                if (available < 12) {
+                    return null;
+                }
+                int length = in.readInt();
+                long checksum = in.readLong();
+                if (length <= 0 || length > available - 12) {
+                    return null;
+                }
+                byte[] bb = new byte[length];
+                in.readFully(bb);
+                CRC32 crc = new CRC32();
+                crc.update(bb);
+                if (crc.getValue() != checksum) {
+                    return null;
+                }
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(bb));
+                byte type = payload.readByte();
+                String name = (payload.readBoolean() ? payload.readUTF() : null);
+                boolean flag = payload.readBoolean();
+                return new Record(type, name, flag, readBytes(payload));
+            } catch (IOException ioe) {
+                return null;
+            }
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bb) throws IOException {
+        if (bb != null) {
+            out.writeInt(bb.length);
+            out.write(bb);
+        } else {
+            out.writeInt(-1);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bb = new byte[length];
+        in.readFully(bb);
+        return bb;
+    }
+}
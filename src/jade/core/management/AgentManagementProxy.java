@@ -142,6 +142,29 @@ public class AgentManagementProxy extends SliceProxy implements AgentManagementS
         }
     }
 
+    public Object[] bornAgents(AID[] names, ContainerID cid, Command sourceCmd) throws IMTPException {
+        try {
+            GenericCommand cmd = new GenericCommand(H_BORNAGENTS, AgentManagementSlice.NAME, null);
+            cmd.addParam(names);
+            cmd.addParam(cid);
+            cmd.setPrincipal(sourceCmd.getPrincipal());
+            cmd.setCredentials(sourceCmd.getCredentials());
+
+            Node n = getNode();
+            Object result = n.accept(cmd);
+            if ((result instanceof Throwable)) {
+                if (result instanceof IMTPException) {
+                    throw (IMTPException) result;
+                } else {
+                    throw new IMTPException("An undeclared exception was thrown", (Throwable) result);
+                }
+            }
+            return (Object[]) result;
+        } catch (ServiceException se) {
+            throw new IMTPException("Unable to access remote node", se);
+        }
+    }
+
     public void deadAgent(AID name, Command sourceCmd) throws IMTPException, NotFoundException {
         try {
             GenericCommand cmd = new GenericCommand(H_DEADAGENT, AgentManagementSlice.NAME, null);
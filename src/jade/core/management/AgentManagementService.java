@@ -33,7 +33,16 @@ import jade.util.ObjectManager;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -55,6 +64,13 @@ public class AgentManagementService extends BaseService {
      */
     public static final String AGENTS_PATH = "jade_core_management_AgentManagementService_agentspath";
 
+    /**
+     * The maximum number of agents registered with the main container in a single
+     * interaction when creating agents in bulk (default 500)
+     */
+    public static final String BORN_AGENTS_BATCH_SIZE = "jade_core_management_AgentManagementService_bornagentsbatchsize";
+    private static final int DEFAULT_BORN_AGENTS_BATCH_SIZE = 500;
+
     private static final String[] OWNED_COMMANDS = new String[]{
             AgentManagementSlice.REQUEST_CREATE,
             AgentManagementSlice.REQUEST_KILL,
@@ -77,6 +93,11 @@ public class AgentManagementService extends BaseService {
     //#J2ME_EXCLUDE_BEGIN
     private String agentsPath = null;
     private CodeLocator codeLocator;
+    private int bornAgentsBatchSize = DEFAULT_BORN_AGENTS_BATCH_SIZE;
+    // Agents created in bulk whose instance was created in advance
+    private final Map<AID, Agent> preInstantiatedAgents = new ConcurrentHashMap<>();
+    // Agents created in bulk whose registration with the main container is deferred --> batch they belong to
+    private final Map<AID, List<BornAgent>> deferredRegistrations = new ConcurrentHashMap<>();
 
     public void init(AgentContainer ac, Profile p) throws ProfileException {
         super.init(ac, p);
@@ -112,12 +133,26 @@ public class AgentManagementService extends BaseService {
 
         codeLocator = new CodeLocator();
         //#J2ME_EXCLUDE_END
+
+        try {
+            bornAgentsBatchSize = Integer.parseInt(p.getParameter(BORN_AGENTS_BATCH_SIZE, String.valueOf(DEFAULT_BORN_AGENTS_BATCH_SIZE)));
+        } catch (NumberFormatException nfe) {
+            myLogger.log(Logger.WARNING, "Invalid value for " + BORN_AGENTS_BATCH_SIZE + ". Using default " + DEFAULT_BORN_AGENTS_BATCH_SIZE);
+        }
+        if (bornAgentsBatchSize <= 0) {
+            bornAgentsBatchSize = DEFAULT_BORN_AGENTS_BATCH_SIZE;
+        }
     }
 
     public String getName() {
         return AgentManagementSlice.NAME;
     }
 
+    // No other service is needed at boot time
+    public String[] getDependencies() {
+        return new String[0];
+    }
+
     public Class<AgentManagementSlice> getHorizontalInterface() {
         try {
             return (Class<AgentManagementSlice>) Class.forName(AgentManagementSlice.NAME + "Slice");
@@ -177,6 +212,14 @@ public class AgentManagementService extends BaseService {
             old = null;
         }
 
+        List<BornAgent> batch = deferredRegistrations.remove(target);
+        if (batch != null) {
+            // The agent is being created in bulk: it will be registered with the main container
+            // together with the other agents of its batch
+            batch.add(new BornAgent(target, instance, old, vCmd));
+            return;
+        }
+
         try {
             // Notify the main container through its slice
             AgentManagementSlice mainSlice = (AgentManagementSlice) getSlice(MAIN_SLICE);
@@ -204,6 +247,208 @@ public class AgentManagementService extends BaseService {
         }
     }
 
+    /**
+     * Creates a set of agents in the local container minimizing the interactions with the main container.
+     * Agent instances are created in advance in parallel. Then each agent is created by means of the given
+     * container proxy, i.e. exactly as if it was created individually (the REQUEST_CREATE and INFORM_CREATED
+     * commands pass through all filters and the agent is added to the local container), but its registration
+     * with the main container is deferred: agents are registered in batches of at most
+     *  jade_core_management_AgentManagementService_bornagentsbatchsize   agents.
+     * The failure of an agent creation (e.g. due to a name clash) does not affect the others.
+     * Created agents are not started.
+     *
+     * @param agentIDs The identifiers of the agents to create. Wildcards must be already replaced.
+     * @param specs    The class names and arguments of the agents to create
+     * @param creator  The container proxy used to create each agent
+     * @return For each agent,  null   if it was created successfully or the reason of the failure
+     */
+    public Throwable[] createAgents(AID[] agentIDs, List<Specifier> specs, jade.wrapper.ContainerProxy creator) {
+        int size = agentIDs.length;
+        Throwable[] results = new Throwable[size];
+
+        // Step 1: instantiate all agents in parallel. This does not involve the platform at all.
+        // Instances that cannot be created here are created again (and the failure reported) in step 2.
+        instantiateAgents(agentIDs, specs);
+
+        try {
+            for (int first = 0; first < size; first += bornAgentsBatchSize) {
+                int last = Math.min(first + bornAgentsBatchSize, size);
+
+                // Step 2: create the agents of a batch deferring their registration with the main container
+                List<BornAgent> batch = new ArrayList<>();
+                List<Integer> indexes = new ArrayList<>();
+                for (int i = first; i < last; ++i) {
+                    deferredRegistrations.put(agentIDs[i], batch);
+                    int bornCnt = batch.size();
+                    try {
+                        creator.createAgent(agentIDs[i], specs.get(i).getClassName(), specs.get(i).getArgs());
+                    } catch (Throwable t) {
+                        results[i] = t;
+                    } finally {
+                        deferredRegistrations.remove(agentIDs[i]);
+                        preInstantiatedAgents.remove(agentIDs[i]);
+                    }
+                    if (batch.size() > bornCnt) {
+                        indexes.add(i);
+                    }
+                }
+
+                // Step 3: register the agents of the batch with the main container in a single interaction
+                if (!batch.isEmpty()) {
+                    registerBatch(batch, indexes, results);
+                }
+            }
+        } finally {
+            for (AID agentID : agentIDs) {
+                preInstantiatedAgents.remove(agentID);
+            }
+        }
+        return results;
+    }
+
+    // Creates the instances of a set of agents on a dedicated pool of threads
+    private void instantiateAgents(AID[] agentIDs, List<Specifier> specs) {
+        int poolSize = Math.min(agentIDs.length, java.lang.Runtime.getRuntime().availableProcessors());
+        if (poolSize <= 1) {
+            // Agents will just be created one by one
+            return;
+        }
+        final AtomicInteger cnt = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "AgentInstantiator-" + cnt.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (int i = 0; i < agentIDs.length; ++i) {
+                final AID agentID = agentIDs[i];
+                final Specifier spec = specs.get(i);
+                executor.execute(() -> {
+                    Agent instance = instantiateAgent(spec.getClassName());
+                    if (instance != null) {
+                        preInstantiatedAgents.put(agentID, instance);
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            // Agents not instantiated yet will be created one by one
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Tries to create an agent instance. Failures are ignored: they will be reported when creating the agent.
+    private Agent instantiateAgent(String className) {
+        try {
+            Agent agent = null;
+            //#J2ME_EXCLUDE_BEGIN
+            // Try to load the agent using an agent loader
+            agent = (Agent) ObjectManager.load(className, ObjectManager.AGENT_TYPE);
+            //#J2ME_EXCLUDE_END
+
+            if (agent == null) {
+                agent = (Agent) Class.forName(className).getDeclaredConstructor().newInstance();
+            }
+            return agent;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    // Registers with the main container a batch of agents already added to the local container.
+    // Agents whose registration fails are removed from the local container.
+    private void registerBatch(List<BornAgent> batch, List<Integer> indexes, Throwable[] results) {
+        AID[] names = new AID[batch.size()];
+        for (int k = 0; k < names.length; ++k) {
+            BornAgent ba = batch.get(k);
+            // We propagate the class-name to the main, but we don't want to keep it in the actual agent AID.
+            names[k] = (AID) ba.agentID.clone();
+            names[k].addUserDefinedSlot(AID.AGENT_CLASSNAME, ba.instance.getClass().getName());
+        }
+        // All agents in the batch are created on behalf of the same owner
+        Object[] ret = registerAgents(names, batch.get(0).sourceCmd);
+        for (int k = 0; k < names.length; ++k) {
+            BornAgent ba = batch.get(k);
+            if (ret[k] instanceof Throwable) {
+                removeLocalAgent(ba.agentID);
+                if (ba.old != null) {
+                    myContainer.addLocalAgent(ba.agentID, ba.old);
+                }
+                results[indexes.get(k)] = (Throwable) ret[k];
+            } else {
+                customize(ba.instance);
+            }
+        }
+    }
+
+    // Registers a batch of agents with the main container. Falls back to individual registrations if
+    // the main container does not support batched ones.
+    private Object[] registerAgents(AID[] names, Command sourceCmd) {
+        Object[] ret = null;
+        try {
+            AgentManagementSlice mainSlice = (AgentManagementSlice) getSlice(MAIN_SLICE);
+            try {
+                ret = mainSlice.bornAgents(names, myContainer.getID(), sourceCmd);
+            } catch (IMTPException imtpe) {
+                // Try to get a newer slice and repeat...
+                mainSlice = (AgentManagementSlice) getFreshSlice(MAIN_SLICE);
+                ret = mainSlice.bornAgents(names, myContainer.getID(), sourceCmd);
+            }
+            if (ret == null) {
+                ret = new Object[names.length];
+                for (int k = 0; k < names.length; ++k) {
+                    try {
+                        mainSlice.bornAgent(names[k], myContainer.getID(), sourceCmd);
+                    } catch (Throwable t) {
+                        ret[k] = t;
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            // The main container cannot be reached: all agents in the batch fail
+            ret = new Object[names.length];
+            Arrays.fill(ret, t);
+        }
+        return ret;
+    }
+
+    // An agent created in bulk, already added to the local container, whose registration with the main container is pending
+    private static class BornAgent {
+        final AID agentID;
+        final Agent instance;
+        final Agent old;
+        final Command sourceCmd;
+
+        BornAgent(AID agentID, Agent instance, Agent old, Command sourceCmd) {
+            this.agentID = agentID;
+            this.instance = instance;
+            this.old = old;
+            this.sourceCmd = sourceCmd;
+        }
+    }
+
+    // Serves a batch of agent registrations issuing a BORN_AGENT horizontal command on the local node for each
+    // agent. This way each registration goes through the incoming filters as if it was received individually.
+    private Object[] bornAgents(AID[] names, ContainerID cid, HorizontalCommand sourceCmd) throws IMTPException {
+        Node localNode = getLocalNode();
+        Object[] ret = new Object[names.length];
+        for (int k = 0; k < names.length; ++k) {
+            GenericCommand hCmd = new GenericCommand(AgentManagementSlice.H_BORNAGENT, AgentManagementSlice.NAME, null);
+            hCmd.addParam(names[k]);
+            hCmd.addParam(cid);
+            hCmd.setPrincipal(sourceCmd.getPrincipal());
+            hCmd.setCredentials(sourceCmd.getCredentials());
+            try {
+                ret[k] = localNode.accept(hCmd);
+            } catch (IMTPException imtpe) {
+                ret[k] = imtpe;
+            }
+        }
+        return ret;
+    }
+
     //#J2ME_EXCLUDE_BEGIN
     private boolean isLoadedFromSeparateSpace(Object obj) {
         try {
@@ -585,11 +830,14 @@ public class AgentManagementService extends BaseService {
         }
 
         private void createAgent(AID agentID, String className, Object[] arguments, JADEPrincipal owner, Credentials initialCredentials, boolean startIt) throws IMTPException, NotFoundException, NameClashException, JADESecurityException {
-            Agent agent = null;
+            // The instance may have been created in advance when creating agents in bulk
+            Agent agent = preInstantiatedAgents.remove(agentID);
             try {
                 //#J2ME_EXCLUDE_BEGIN
                 // Try to load the agent using an agent loader
-                agent = (Agent) ObjectManager.load(className, ObjectManager.AGENT_TYPE);
+                if (agent == null) {
+                    agent = (Agent) ObjectManager.load(className, ObjectManager.AGENT_TYPE);
+                }
                 //#J2ME_EXCLUDE_END
 
                 if (agent == null) {
@@ -860,6 +1108,15 @@ public class AgentManagementService extends BaseService {
                         result = gCmd;
                     }
                     case AgentManagementSlice.H_EXITCONTAINER -> result = new GenericCommand(AgentManagementSlice.KILL_CONTAINER, AgentManagementSlice.NAME, null);
+                    case AgentManagementSlice.H_BORNAGENTS -> {
+                        AID[] agentIDs = (AID[]) params[0];
+                        ContainerID cid = (ContainerID) params[1];
+                        if (myLogger.isLoggable(Logger.CONFIG)) {
+                            myLogger.log(Logger.CONFIG, "Local slice processing H-command BORN_AGENTS. " + agentIDs.length + " agents born in container " + cid.getName());
+                        }
+
+                        cmd.setReturnValue(bornAgents(agentIDs, cid, cmd));
+                    }
                 }
 
             } catch (Throwable t) {
@@ -151,6 +151,7 @@ public interface AgentManagementSlice extends Service.Slice {
     String H_SUSPENDEDAGENT = "6";
     String H_RESUMEDAGENT = "7";
     String H_EXITCONTAINER = "8";
+    String H_BORNAGENTS = "9";
 
     void createAgent(AID agentID, String className, Object[] arguments, JADEPrincipal owner, Credentials initialCredentials, boolean startIt, Command sourceCmd) throws IMTPException, NotFoundException, NameClashException, JADESecurityException;
 
@@ -160,6 +161,17 @@ public interface AgentManagementSlice extends Service.Slice {
 
     void bornAgent(AID name, ContainerID cid, Command sourceCmd) throws IMTPException, NameClashException, NotFoundException, JADESecurityException;
 
+    /**
+     * Registers a batch of agents born on a given container in a single interaction.
+     * Each registration is processed exactly as if it was requested by means of the
+     *  bornAgent()   method.
+     *
+     * @return For each agent,  null   if it was registered successfully or the
+     * exception that prevented its registration (typically a  NameClashException  ).
+     * A  null   array indicates that the target slice does not support batched registrations.
+     */
+    Object[] bornAgents(AID[] names, ContainerID cid, Command sourceCmd) throws IMTPException;
+
     void deadAgent(AID name, Command sourceCmd) throws IMTPException, NotFoundException;
 
     void suspendedAgent(AID name) throws IMTPException, NotFoundException;
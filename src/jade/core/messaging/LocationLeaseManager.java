@@ -0,0 +1,187 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.messaging;
+
+import jade.core.AID;
+import jade.core.AgentManager;
+import jade.core.event.MTPEvent;
+import jade.core.event.PlatformEvent;
+import jade.util.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps track, on a main container, of the agent locations leased to peripheral containers
+ * (that cache them) and pushes invalidations to the lease holders when an agent moves or dies.
+ * Invalidations are sent asynchronously and grouped by target container.
+ * Location changes also resume the local deliveries that were deferred because the agent
+ * was not found where it was supposed to be.
+ */
+class LocationLeaseManager implements AgentManager.Listener {
+    // Expired leases are purged every PURGE_PERIOD grants
+    private static final int PURGE_PERIOD = 1000;
+
+    private final Logger myLogger = Logger.getMyLogger(getClass().getName());
+
+    private final MessagingService myService;
+    private final long leaseTime;
+    // Agent --> (Container holding a lease --> lease expiration time)
+    private final Map<AID, Map<String, Long>> leases = new HashMap<>();
+    private Map<String, List<AID>> pendingInvalidations = new HashMap<>();
+    private final ExecutorService invalidator;
+    private int grantCnt = 0;
+
+    LocationLeaseManager(MessagingService service, long leaseTime) {
+        myService = service;
+        this.leaseTime = leaseTime;
+        invalidator = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "MessagingService-LocationInvalidator");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    long getLeaseTime() {
+        return leaseTime;
+    }
+
+    /**
+     * Record that the location of a given agent has been leased to a given container
+     */
+    synchronized void grant(AID agentID, String container) {
+        if (leaseTime <= 0) {
+            // Leases disabled: cached locations are kept until found stale
+            return;
+        }
+        long now = System.currentTimeMillis();
+        leases.computeIfAbsent(agentID, k -> new HashMap<>(2)).put(container, now + leaseTime);
+        if (++grantCnt >= PURGE_PERIOD) {
+            grantCnt = 0;
+            purgeExpired(now);
+        }
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<Map<String, Long>> it = leases.values().iterator();
+        while (it.hasNext()) {
+            Map<String, Long> holders = it.next();
+            holders.values().removeIf(expiration -> expiration < now);
+            if (holders.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    private void invalidate(AID agentID) {
+        boolean schedule;
+        synchronized (this) {
+            Map<String, Long> holders = leases.remove(agentID);
+            if (holders == null) {
+                return;
+            }
+            schedule = pendingInvalidations.isEmpty();
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, Long> e : holders.entrySet()) {
+                if (e.getValue() >= now) {
+                    pendingInvalidations.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).add(agentID);
+                }
+            }
+            schedule = schedule && !pendingInvalidations.isEmpty();
+        }
+        if (schedule) {
+            invalidator.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        Map<String, List<AID>> invalidations;
+        synchronized (this) {
+            invalidations = pendingInvalidations;
+            pendingInvalidations = new HashMap<>();
+        }
+        for (Map.Entry<String, List<AID>> e : invalidations.entrySet()) {
+            try {
+                myService.sendLocationInvalidations(e.getKey(), e.getValue().toArray(new AID[0]));
+            } catch (Exception ex) {
+                // The lease holder will detect the stale location on next delivery anyway
+                myLogger.log(Logger.FINE, "Cannot invalidate cached locations on container " + e.getKey(), ex);
+            }
+        }
+    }
+
+    void shutdown() {
+        invalidator.shutdown();
+    }
+
+    // Listener interface implementation
+    public void deadAgent(PlatformEvent ev) {
+        invalidate(ev.getAgent());
+        myService.resumeDeferredDelivery(ev.getAgent());
+    }
+
+    public void movedAgent(PlatformEvent ev) {
+        invalidate(ev.getAgent());
+        myService.resumeDeferredDelivery(ev.getAgent());
+    }
+
+    public void addedContainer(PlatformEvent ev) {
+    }
+
+    public void removedContainer(PlatformEvent ev) {
+    }
+
+    public void bornAgent(PlatformEvent ev) {
+        myService.resumeDeferredDelivery(ev.getAgent());
+    }
+
+    public void suspendedAgent(PlatformEvent ev) {
+    }
+
+    public void resumedAgent(PlatformEvent ev) {
+    }
+
+    public void frozenAgent(PlatformEvent ev) {
+    }
+
+    public void thawedAgent(PlatformEvent ev) {
+    }
+
+    public void addedMTP(MTPEvent ev) {
+    }
+
+    public void removedMTP(MTPEvent ev) {
+    }
+
+    public void messageIn(MTPEvent ev) {
+    }
+
+    public void messageOut(MTPEvent ev) {
+    }
+}
@@ -335,6 +335,14 @@ class MessageManager {
         }
     }
 
+    /**
+     * Resume the delivery of the messages for a given receiver whose delivery was deferred
+     * (typically because the location of the receiver has changed).
+     */
+    public void resume(AID receiverID) {
+        outBox.resume(receiverID);
+    }
+
     // For debugging purpose
     String[] getQueueStatus() {
         return outBox.getStatus();
@@ -350,6 +358,10 @@ class MessageManager {
         return outBox.getPendingCnt();
     }
 
+    int getParkedCnt() {
+        return outBox.getParkedCnt();
+    }
+
     long getSubmittedCnt() {
         return totSubmittedCnt;
     }
@@ -450,6 +462,8 @@ class MessageManager {
         private final Channel channel;
         private GenericMessage msg;
         private long deadline;
+        // True if the delivery of this message was deferred and it was put back in the OutBox
+        private boolean deferred = false;
 
         public PendingMsg(GenericMessage msg, AID receiverID, Channel channel, long deadline) {
             this.msg = msg;
@@ -481,6 +495,14 @@ class MessageManager {
         public void setDeadline(long deadline) {
             this.deadline = deadline;
         }
+
+        public boolean isDeferred() {
+            return deferred;
+        }
+
+        public void setDeferred(boolean deferred) {
+            this.deferred = deferred;
+        }
     } // END of inner class PendingMsg
 
     /**
@@ -519,6 +541,10 @@ class MessageManager {
                     // See shutdown() method
                     try {
                         ch.deliverNow(msg, receiverID);
+                    } catch (DeliveryDeferred dd) {
+                        // The receiver can't be reached right now. Park its messages and serve other receivers
+                        outBox.park(pm, dd.getRetryDelay());
+                        continue;
                     } catch (Throwable t) {
                         // deliverNow() never throws exception. This is just a last protection since a MessageManager deliverer thread must never die
                         myLogger.log(Logger.WARNING, "MessageManager cannot deliver message " + stringify(msg) + " to agent " + receiverID.getName(), t);
@@ -0,0 +1,49 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+ *****************************************************************/
+
+package jade.core.messaging;
+
+import jade.core.NotFoundException;
+
+/**
+ * Thrown by the target side of the MessagingService when the message queue of the receiver
+ * reached its high-water mark. It extends <code>NotFoundException</code> so that it can travel
+ * back to the sending container through the <code>dispatchLocally()</code> horizontal command.
+ * The sending container defers the delivery and retries it later.
+ */
+public class MessageQueueCongestedException extends NotFoundException {
+
+    private final int acceptedCnt;
+
+    public MessageQueueCongestedException(String msg, int acceptedCnt) {
+        super(msg);
+        this.acceptedCnt = acceptedCnt;
+    }
+
+    /**
+     * @return the number of leading messages of a block that were posted before the receiver queue got congested
+     */
+    public int getAcceptedCnt() {
+        return acceptedCnt;
+    }
+}
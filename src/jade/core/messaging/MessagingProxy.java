@@ -121,6 +121,48 @@ public class MessagingProxy extends SliceProxy implements MessagingSlice {
         }
     }
 
+    public Object[] leaseAgentLocation(AID agentID, String requester) throws IMTPException, NotFoundException {
+        try {
+            GenericCommand cmd = new GenericCommand(H_LEASEAGENTLOCATION, NAME, null);
+            cmd.addParam(agentID);
+            cmd.addParam(requester);
+
+            Node n = getNode();
+            Object result = n.accept(cmd);
+            if ((result instanceof Throwable)) {
+                if (result instanceof IMTPException) {
+                    throw (IMTPException) result;
+                } else if (result instanceof NotFoundException) {
+                    throw (NotFoundException) result;
+                } else {
+                    throw new IMTPException("An undeclared exception was thrown", (Throwable) result);
+                }
+            }
+            return (Object[]) result;
+        } catch (ServiceException se) {
+            throw new IMTPException("Unable to access remote node", se);
+        }
+    }
+
+    public void invalidateAgentLocations(AID[] agentIDs) throws IMTPException {
+        try {
+            GenericCommand cmd = new GenericCommand(H_INVALIDATEAGENTLOCATIONS, NAME, null);
+            cmd.addParam(agentIDs);
+
+            Node n = getNode();
+            Object result = n.accept(cmd);
+            if ((result instanceof Throwable)) {
+                if (result instanceof IMTPException) {
+                    throw (IMTPException) result;
+                } else {
+                    throw new IMTPException("An undeclared exception was thrown", (Throwable) result);
+                }
+            }
+        } catch (ServiceException se) {
+            throw new IMTPException("Unable to access remote node", se);
+        }
+    }
+
     public MTPDescriptor installMTP(String address, String className) throws IMTPException, ServiceException, MTPException {
         try {
             GenericCommand cmd = new GenericCommand(H_INSTALLMTP, NAME, null);
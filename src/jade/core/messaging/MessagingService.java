@@ -52,6 +52,7 @@ import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 import java.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map.Entry;
 
 
@@ -79,6 +80,30 @@ public class MessagingService extends BaseService implements MessageManager.Chan
     public static final String MAX_DELIVERY_RETRY_ATTEMPTS = "jade_core_messaging_MessagingService_maxdeliveryretryattempts";
     public static final int MAX_DELIVERY_RETRY_ATTEMPTS_DEFAULT = 20;
 
+    /**
+     * The time (in ms) after which the delivery to a receiver whose message queue reached its high-water mark
+     * (see <code>jade.core.BoundedMessageQueue</code>) is retried. Such deliveries count as delivery attempts
+     * (see <code>MAX_DELIVERY_RETRY_ATTEMPTS</code>): when these are exhausted a FAILURE is sent back to the sender.
+     */
+    public static final String CONGESTION_RETRY_DELAY = "jade_core_messaging_MessagingService_congestionretrydelay";
+    public static final long CONGESTION_RETRY_DELAY_DEFAULT = 100;
+
+    /**
+     * The time (in ms) a peripheral container can keep in its cache the location of an agent obtained from
+     * a Main Container. Main Containers push invalidations to the lease holders when the agent moves or dies.
+     * This option is meaningful on Main Containers only. A value &lt;= 0 means cached locations are kept
+     * until they are found to be stale.
+     */
+    public static final String LOCATION_LEASE = "jade_core_messaging_MessagingService_locationlease";
+    public static final long LOCATION_LEASE_DEFAULT = 60000;
+
+    /**
+     * When true, peripheral containers spread agent location lookups over the Main Container and its
+     * replicas according to the hash of the agent name. Since agent moves are not notified to Main
+     * Container replicas, retries always go to the master Main Container.
+     */
+    public static final String SHARDED_LOOKUP = "jade_core_messaging_MessagingService_shardedlookup";
+
     //#J2ME_EXCLUDE_BEGIN
     // SAM related configurations
     public static final String DELIVERY_TIME_MEASUREMENT_RATE = "jade_core_messaging_MessagingService_deliverytimemeasurementrate";
@@ -88,6 +113,9 @@ public class MessagingService extends BaseService implements MessageManager.Chan
 
     //#J2ME_EXCLUDE_END
     private final static int EXPECTED_ACLENCODINGS_SIZE = 3;
+    // The time (ms) after which the delivery to a receiver that was not found where expected is retried
+    // if no new location for it is published in the meanwhile
+    private static final long DELIVERY_RETRY_DELAY = 200;
     private static final String[] OWNED_COMMANDS = new String[]{
             MessagingSlice.SEND_MESSAGE,
             MessagingSlice.NOTIFY_FAILURE,
@@ -121,11 +149,22 @@ public class MessagingService extends BaseService implements MessageManager.Chan
     private OutgoingEncodingFilter encOutFilter;
     // The filter for outgoing commands related to ACL encoding
     private IncomingEncodingFilter encInFilter;
-    // The cached AID -> MessagingSlice associations
+    // The cached AID -> CachedLocation associations
     private Map<Object, Object> cachedSlices;
+    // The manager of the locations leased to peripheral containers (Main Container only)
+    private LocationLeaseManager leaseManager;
+    private boolean shardedLookup;
+    // The messaging slices on the Main Container and its replicas (sharded lookup only)
+    private volatile MessagingSlice[] mainSlices;
     // The routing table mapping MTP addresses to their hosting slice
     private RoutingTable routes;
     private int maxDeliveryRetryAttempts;
+    private long congestionRetryDelay;
+    // Deliveries deferred by this container and rejected by this container because the receiver queue was congested
+    private volatile long congestedDeliveryCnt;
+    private volatile long congestedRejectionCnt;
+    // The number of delivery attempts already made for the receivers whose messages are parked
+    private final Map<AID, Integer> retryAttempts = new ConcurrentHashMap<>();
     private Hashtable<Object, AID> globalAliases;
     private List<AliasListener> aliasListeners;
     // The platform ID, to be used in inter-platform dispatching
@@ -182,7 +221,19 @@ public class MessagingService extends BaseService implements MessageManager.Chan
         if (myContainer.getMain() != null) {
             globalAliases = new Hashtable<>();
             aliasListeners = new ArrayList<>();
+
+            long leaseTime = LOCATION_LEASE_DEFAULT;
+            try {
+                leaseTime = Long.parseLong(myProfile.getParameter(LOCATION_LEASE, null));
+            } catch (Exception e) {
+                // Keep default
+            }
+            if (myContainer.getMain() instanceof AgentManager am) {
+                leaseManager = new LocationLeaseManager(this, leaseTime);
+                am.addListener(leaseManager);
+            }
         }
+        shardedLookup = myProfile.getBooleanProperty(SHARDED_LOOKUP, false);
 
         // Look in the profile and check whether we must accept foreign agents
         acceptForeignAgents = myProfile.getBooleanProperty(Profile.ACCEPT_FOREIGN_AGENTS, false);
@@ -193,6 +244,12 @@ public class MessagingService extends BaseService implements MessageManager.Chan
         } catch (Exception e) {
             // Keep default
         }
+        congestionRetryDelay = CONGESTION_RETRY_DELAY_DEFAULT;
+        try {
+            congestionRetryDelay = Long.parseLong(myProfile.getParameter(CONGESTION_RETRY_DELAY, null));
+        } catch (Exception e) {
+            // Keep default
+        }
 
         // Initialize its own ID
         platformID = myContainer.getPlatformID();
@@ -390,6 +447,24 @@ public class MessagingService extends BaseService implements MessageManager.Chan
                         }
                     });
                     samHelper.addEntityMeasureProvider("Message-Manager-avg-msg-count-per-multiple-delivery#" + myContainer.getID().getName(), myMessageManager.getAvgMsgCountPerMultipleDeliveryProvider());
+                    samHelper.addCounterValueProvider("Message-Manager-congested-delivery-count#" + myContainer.getID().getName(), new AbsoluteCounterValueProvider() {
+                        @Override
+                        public long getValue() {
+                            return congestedDeliveryCnt;
+                        }
+                    });
+                    samHelper.addCounterValueProvider("Message-Manager-parked-receivers#" + myContainer.getID().getName(), new AbsoluteCounterValueProvider() {
+                        @Override
+                        public long getValue() {
+                            return myMessageManager.getParkedCnt();
+                        }
+                    });
+                    samHelper.addCounterValueProvider("Congested-mailbox-rejection-count#" + myContainer.getID().getName(), new AbsoluteCounterValueProvider() {
+                        @Override
+                        public long getValue() {
+                            return congestedRejectionCnt;
+                        }
+                    });
                 }
             }
         } catch (ServiceNotActiveException snae) {
@@ -415,6 +490,10 @@ public class MessagingService extends BaseService implements MessageManager.Chan
     // kindly provided by David Bernstein, 15/6/2005
     public void shutdown() {
         stopSAM();
+        if (leaseManager != null) {
+            ((AgentManager) myContainer.getMain()).removeListener(leaseManager);
+            leaseManager.shutdown();
+        }
         // clone addresses (externally because leap list doesn't
         // implement Cloneable) so don't get concurrent modification
         // exception on the list as the MTPs are being uninstalled
@@ -750,6 +829,92 @@ public class MessagingService extends BaseService implements MessageManager.Chan
         }
     }
 
+    private Object[] leaseAgentLocation(AID agentID, String requester) throws IMTPException, NotFoundException {
+        ContainerID cid = getAgentLocation(agentID);
+        long leaseTime = -1;
+        if (leaseManager != null) {
+            leaseManager.grant(agentID, requester);
+            leaseTime = leaseManager.getLeaseTime();
+        }
+        return new Object[]{cid, leaseTime};
+    }
+
+    // Called by the LocationLeaseManager
+    void sendLocationInvalidations(String containerName, AID[] agentIDs) throws ServiceException, IMTPException {
+        MessagingSlice slice = (MessagingSlice) getSlice(containerName);
+        if (slice != null) {
+            slice.invalidateAgentLocations(agentIDs);
+        }
+    }
+
+    private void invalidateAgentLocations(AID[] agentIDs) {
+        for (AID id : agentIDs) {
+            cachedSlices.remove(id);
+            resumeDeferredDelivery(id);
+        }
+        if (myLogger.isLoggable(Logger.FINER)) {
+            myLogger.log(Logger.FINER, "Cached locations of " + agentIDs.length + " agents invalidated");
+        }
+    }
+
+    /**
+     * A new location for a given agent was published (or the agent died): immediately retry
+     * delivering messages whose delivery to that agent was deferred.
+     */
+    void resumeDeferredDelivery(AID agentID) {
+        if (retryAttempts.containsKey(agentID)) {
+            myMessageManager.resume(agentID);
+        }
+    }
+
+    /**
+     * Retrieve the location of an agent from the Main Container (or from one of its replicas if
+     * sharded lookup is active and this is the first attempt) together with the lease on it.
+     */
+    private Object[] lookupAgentLocation(AID receiverID, int attemptsCnt) throws IMTPException, NotFoundException, ServiceException {
+        String requester = myContainer.here().getName();
+        if (shardedLookup && attemptsCnt == 0) {
+            MessagingSlice shard = getShardSlice(receiverID);
+            if (shard != null) {
+                try {
+                    return shard.leaseAgentLocation(receiverID, requester);
+                } catch (IMTPException imtpe) {
+                    // Refresh the list of Main Container slices and fall back to the master Main Container
+                    mainSlices = null;
+                } catch (NotFoundException nfe) {
+                    // The replica may not be up to date yet --> fall back to the master Main Container
+                }
+            }
+        }
+
+        MessagingSlice mainSlice = (MessagingSlice) getSlice(MAIN_SLICE);
+        try {
+            return mainSlice.leaseAgentLocation(receiverID, requester);
+        } catch (IMTPException imtpe) {
+            // Try to get a newer slice and repeat...
+            mainSlice = (MessagingSlice) getFreshSlice(MAIN_SLICE);
+            return mainSlice.leaseAgentLocation(receiverID, requester);
+        }
+    }
+
+    private MessagingSlice getShardSlice(AID receiverID) throws ServiceException {
+        MessagingSlice[] ss = mainSlices;
+        if (ss == null) {
+            List<MessagingSlice> l = new ArrayList<>();
+            for (Slice s : getAllSlices()) {
+                if (s.getNode().hasPlatformManager()) {
+                    l.add((MessagingSlice) s);
+                }
+            }
+            ss = l.toArray(new MessagingSlice[0]);
+            mainSlices = ss;
+        }
+        if (ss.length == 0) {
+            return null;
+        }
+        return ss[(receiverID.hashCode() & 0x7fffffff) % ss.length];
+    }
+
     void stamp(GenericMessage gmsg) {
         //#J2ME_EXCLUDE_BEGIN
         if (samActive) {
@@ -809,6 +974,11 @@ public class MessagingService extends BaseService implements MessageManager.Chan
                     notifyFailureToSender(msg, receiverID, new InternalError(ACLMessage.AMS_FAILURE_FOREIGN_AGENT_NO_ADDRESS));
                 }
             }
+        } catch (MessageQueueCongestedException mqce) {
+            // The receiver queue stayed congested for all delivery attempts --> Send a FAILURE message
+            String id = (msg.getTraceID() != null ? msg.getTraceID() : MessageManager.stringify(msg));
+            myLogger.log(Logger.WARNING, id + " - Receiver " + receiverID.getLocalName() + " congested.");
+            notifyFailureToSender(msg, receiverID, new InternalError(ACLMessage.AMS_FAILURE_AGENT_UNREACHABLE + ": " + mqce.getMessage()));
         } catch (NotFoundException nfe) {
             // The receiver does not exist --> Send a FAILURE message
             if (msg.getTraceID() != null) {
@@ -850,27 +1020,39 @@ public class MessagingService extends BaseService implements MessageManager.Chan
             myLogger.log(Logger.INFO, msg.getTraceID() + " - Activating local-platform delivery");
         }
 
+        // If the delivery to this receiver was previously deferred, go on counting attempts
+        Integer previousAttempts = retryAttempts.remove(receiverID);
+        int attemptsCnt = previousAttempts != null ? previousAttempts : 0;
+        try {
+            deliverInLocalPlatfrom(msg, receiverID, attemptsCnt);
+        } catch (MessageQueueCongestedException mqce) {
+            deferCongestedDelivery(msg, receiverID, attemptsCnt, mqce);
+        }
+    }
+
+    private void deliverInLocalPlatfrom(GenericMessage msg, AID receiverID, int attemptsCnt) throws IMTPException, ServiceException, NotFoundException, JADESecurityException {
         MainContainer impl = myContainer.getMain();
         if (impl != null) {
             // Directly use the GADT on the main container
-            int attemptsCnt = 0;
-            while (true) {
-                ContainerID cid = getAgentLocation(receiverID);
-                MessagingSlice targetSlice = oneShotDeliver(cid, msg, receiverID);
-                if (targetSlice != null) {
-                    // Success --> Done
-                    //#J2ME_EXCLUDE_BEGIN
-                    DeliveryTracing.setTracingInfo("Target-node", targetSlice.getNode().getName());
-                    //#J2ME_EXCLUDE_END
-                    return;
-                }
-                checkRetry(receiverID, cid, attemptsCnt);
-                attemptsCnt++;
+            ContainerID cid = getAgentLocation(receiverID);
+            MessagingSlice targetSlice = oneShotDeliver(cid, msg, receiverID);
+            if (targetSlice != null) {
+                // Success --> Done
+                //#J2ME_EXCLUDE_BEGIN
+                DeliveryTracing.setTracingInfo("Target-node", targetSlice.getNode().getName());
+                //#J2ME_EXCLUDE_END
+                return;
             }
+            checkRetry(receiverID, cid, attemptsCnt);
         } else {
-            // Try first with the cached <AgentID;MessagingSlice> pairs
-            MessagingSlice cachedSlice = (MessagingSlice) cachedSlices.get(receiverID);
-            if (cachedSlice != null) { // Cache hit :-)
+            // Try first with the cached <AgentID;MessagingSlice> pairs whose lease has not expired
+            CachedLocation cached = (CachedLocation) cachedSlices.get(receiverID);
+            if (cached != null && cached.isExpired()) {
+                cachedSlices.remove(receiverID);
+                cached = null;
+            }
+            if (cached != null) { // Cache hit :-)
+                MessagingSlice cachedSlice = cached.slice;
                 try {
                     if (msg.getTraceID() != null) {
                         myLogger.log(Logger.INFO, msg.getTraceID() + " - Delivering message to cached slice " + cachedSlice.getNode().getName());
@@ -887,6 +1069,9 @@ public class MessagingService extends BaseService implements MessageManager.Chan
                     if (msg.getTraceID() != null) {
                         myLogger.log(Logger.INFO, msg.getTraceID() + " - Cached slice for receiver " + receiverID.getName() + " unreachable.");
                     }
+                } catch (MessageQueueCongestedException mqce) {
+                    // The cached location is still valid
+                    throw mqce;
                 } catch (NotFoundException nfe) {
                     if (msg.getTraceID() != null) {
                         myLogger.log(Logger.INFO, msg.getTraceID() + " - Receiver " + receiverID.getName() + " not found on cached slice container.");
@@ -900,7 +1085,7 @@ public class MessagingService extends BaseService implements MessageManager.Chan
             //#J2ME_EXCLUDE_BEGIN
             DeliveryTracing.setTracingInfo("Messaging-cache-miss", true);
             //#J2ME_EXCLUDE_END
-            deliverUntilOK(msg, receiverID);
+            deliverUntilOK(msg, receiverID, attemptsCnt);
         }
     }
 
@@ -909,50 +1094,42 @@ public class MessagingService extends BaseService implements MessageManager.Chan
     // Message delivery
     ///////////////////////////////////////////////
 
-    private void deliverUntilOK(GenericMessage msg, AID receiverID) throws IMTPException, NotFoundException, ServiceException, JADESecurityException {
-        int attemptsCnt = 0;
-        while (true) {
-            ContainerID cid;
-            try {
-                MessagingSlice mainSlice = (MessagingSlice) getSlice(MAIN_SLICE);
-                try {
-                    cid = mainSlice.getAgentLocation(receiverID);
-                } catch (IMTPException imtpe) {
-                    // Try to get a newer slice and repeat...
-                    mainSlice = (MessagingSlice) getFreshSlice(MAIN_SLICE);
-                    cid = mainSlice.getAgentLocation(receiverID);
-                }
-            } catch (ServiceException se) {
-                // This container is no longer able to access the Main --> before propagating the exception
-                // try to see if the receiver lives locally
-                if (myContainer.isLocalAgent(receiverID)) {
-                    MessagingSlice localSlice = (MessagingSlice) getIMTPManager().createSliceProxy(getName(), getHorizontalInterface(), getLocalNode());
-                    localSlice.dispatchLocally(msg.getSender(), msg, receiverID);
-                    //#J2ME_EXCLUDE_BEGIN
-                    DeliveryTracing.setTracingInfo("Target-node", localSlice.getNode().getName());
-                    //#J2ME_EXCLUDE_END
-                    return;
-                } else {
-                    throw se;
-                }
-            }
-
-            MessagingSlice targetSlice = oneShotDeliver(cid, msg, receiverID);
-            if (targetSlice != null) {
-                // Success --> Done
-                // On successful message dispatch, put the slice into the slice cache
-                cachedSlices.put(receiverID, targetSlice);
+    private void deliverUntilOK(GenericMessage msg, AID receiverID, int attemptsCnt) throws IMTPException, NotFoundException, ServiceException, JADESecurityException {
+        ContainerID cid;
+        long leaseTime;
+        try {
+            Object[] location = lookupAgentLocation(receiverID, attemptsCnt);
+            cid = (ContainerID) location[0];
+            leaseTime = (Long) location[1];
+        } catch (ServiceException se) {
+            // This container is no longer able to access the Main --> before propagating the exception
+            // try to see if the receiver lives locally
+            if (myContainer.isLocalAgent(receiverID)) {
+                MessagingSlice localSlice = (MessagingSlice) getIMTPManager().createSliceProxy(getName(), getHorizontalInterface(), getLocalNode());
+                localSlice.dispatchLocally(msg.getSender(), msg, receiverID);
                 //#J2ME_EXCLUDE_BEGIN
-                DeliveryTracing.setTracingInfo("Target-node", targetSlice.getNode().getName());
+                DeliveryTracing.setTracingInfo("Target-node", localSlice.getNode().getName());
                 //#J2ME_EXCLUDE_END
                 return;
+            } else {
+                throw se;
             }
-            checkRetry(receiverID, cid, attemptsCnt);
-            attemptsCnt++;
         }
+
+        MessagingSlice targetSlice = oneShotDeliver(cid, msg, receiverID);
+        if (targetSlice != null) {
+            // Success --> Done
+            // On successful message dispatch, put the slice into the slice cache
+            cachedSlices.put(receiverID, new CachedLocation(targetSlice, leaseTime));
+            //#J2ME_EXCLUDE_BEGIN
+            DeliveryTracing.setTracingInfo("Target-node", targetSlice.getNode().getName());
+            //#J2ME_EXCLUDE_END
+            return;
+        }
+        checkRetry(receiverID, cid, attemptsCnt);
     }
 
-    private MessagingSlice oneShotDeliver(ContainerID cid, GenericMessage msg, AID receiverID) throws IMTPException, ServiceException, JADESecurityException {
+    private MessagingSlice oneShotDeliver(ContainerID cid, GenericMessage msg, AID receiverID) throws IMTPException, ServiceException, JADESecurityException, MessageQueueCongestedException {
         if (msg.getTraceID() != null) {
             myLogger.log(Logger.FINER, msg.getTraceID() + " - Receiver " + receiverID.getLocalName() + " lives on container " + cid.getName());
         }
@@ -981,6 +1158,8 @@ public class MessagingService extends BaseService implements MessageManager.Chan
                 myLogger.log(Logger.INFO, msg.getTraceID() + " - Delivery OK");
             }
             return targetSlice;
+        } catch (MessageQueueCongestedException mqce) {
+            throw mqce;
         } catch (NotFoundException nfe) {
             // The agent was found in the GADT, but not on the container where it is supposed to
             // be. Possibly it moved elsewhere in the meanwhile. ==> Try again.
@@ -1003,11 +1182,32 @@ public class MessagingService extends BaseService implements MessageManager.Chan
         if (maxDeliveryRetryAttempts >= 0 && attemptsCnt >= maxDeliveryRetryAttempts) {
             throw new NotFoundException("Agent " + receiver.getLocalName() + " not found in container " + cid.getName() + " where it was supposed to be");
         }
-        // Wait a bit before enabling next delivery attempt
-        try {
-            Thread.sleep(200);
-        } catch (InterruptedException ie) {
+        // Do not keep the deliverer thread busy waiting for the receiver: let the MessageManager park
+        // the messages for it until its new location is published or the retry delay expires
+        retryAttempts.put(receiver, attemptsCnt + 1);
+        throw new DeliveryDeferred(DELIVERY_RETRY_DELAY);
+    }
+
+    private void deferCongestedDelivery(GenericMessage msg, AID receiver, int attemptsCnt, MessageQueueCongestedException mqce) throws MessageQueueCongestedException {
+        congestedDeliveryCnt++;
+        int acceptedCnt = mqce.getAcceptedCnt();
+        //#J2ME_EXCLUDE_BEGIN
+        if (acceptedCnt > 0 && msg instanceof MultipleGenericMessage) {
+            // Part of the block was posted: only the remaining messages must be retried
+            MultipleGenericMessage mgm = (MultipleGenericMessage) msg;
+            List<GenericMessage> gmm = mgm.getMessages();
+            mgm.setMessages(new ArrayList<>(gmm.subList(acceptedCnt, gmm.size())));
+            // The receiver is consuming messages: do not count this as a failed attempt
+            attemptsCnt = 0;
         }
+        //#J2ME_EXCLUDE_END
+        if (maxDeliveryRetryAttempts >= 0 && attemptsCnt >= maxDeliveryRetryAttempts) {
+            throw mqce;
+        }
+        // Push back on the sender: the MessageManager parks the messages for the congested receiver
+        // and, as its queue fills up, slows down the agents that keep sending
+        retryAttempts.put(receiver, attemptsCnt + 1);
+        throw new DeliveryDeferred(congestionRetryDelay);
     }
 
     private void forwardMessage(GenericMessage msg, AID receiver, String address) throws MTPException {
@@ -1218,6 +1418,7 @@ public class MessagingService extends BaseService implements MessageManager.Chan
     }
 
     protected void clearCachedSlice(String name) {
+        mainSlices = null;
         if (cachedSlices != null) {
             cachedSlices.clear();
             myLogger.log(Logger.CONFIG, "Clearing cache");
@@ -1260,6 +1461,25 @@ public class MessagingService extends BaseService implements MessageManager.Chan
         }
     } // End of UnknownACLEncodingException class
 
+    /**
+     * Inner class CachedLocation.
+     * The slice of the container an agent lives in, as cached by peripheral containers,
+     * along with the expiration time of the lease granted by the Main Container
+     */
+    private static class CachedLocation {
+        private final MessagingSlice slice;
+        private final long expiration;
+
+        CachedLocation(MessagingSlice slice, long leaseTime) {
+            this.slice = slice;
+            expiration = (leaseTime > 0 ? System.currentTimeMillis() + leaseTime : Long.MAX_VALUE);
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiration;
+        }
+    } // END of inner class CachedLocation
+
     /**
      * Inner class CommandSourceSink
      * This inner class handles the messaging commands on the command
@@ -1311,7 +1531,7 @@ public class MessagingService extends BaseService implements MessageManager.Chan
             }
             if (needSynchDelivery(msg)) {
                 // Synchronous delivery: skip the MessageManager
-                deliverNow(msg, dest);
+                deliverSynchronously(msg, dest);
             } else {
                 // Normal (asynchronous) delivery
                 myMessageManager.deliver(msg, dest, MessagingService.this);
@@ -1321,6 +1541,21 @@ public class MessagingService extends BaseService implements MessageManager.Chan
             }
         }
 
+        private void deliverSynchronously(GenericMessage msg, AID dest) {
+            while (true) {
+                try {
+                    deliverNow(msg, dest);
+                    return;
+                } catch (DeliveryDeferred dd) {
+                    // No MessageManager to park the message: wait in the caller thread before retrying
+                    try {
+                        Thread.sleep(dd.getRetryDelay());
+                    } catch (InterruptedException ie) {
+                    }
+                }
+            }
+        }
+
         private void handleNotifyFailure(VerticalCommand cmd) {
             Object[] params = cmd.getParams();
             GenericMessage msg = (GenericMessage) params[0];
@@ -1486,18 +1721,18 @@ public class MessagingService extends BaseService implements MessageManager.Chan
                     k++;
                 }
 
-                boolean found = myContainer.postMessagesBlockToLocalAgent(mm, receiverID);
-                if (!found) {
-                    throw new NotFoundException("Messaging service slice failed to find " + receiverID);
-                }
-
-                for (GenericMessage g : gmm) {
+                // If the receiver queue has a high-water mark, only the messages that fit are posted
+                int acceptedCnt = postAcceptableMessages(gMsg, mm, receiverID);
+                for (GenericMessage g : gmm.subList(0, acceptedCnt)) {
                     postedMessageCounter++;
                     updateDeliveryTimeMeasurement(g);
                     if (g.getTraceID() != null) {
                         myLogger.log(Logger.INFO, g.getTraceID() + " - Message posted");
                     }
                 }
+                if (acceptedCnt < mm.length) {
+                    throw new MessageQueueCongestedException("Message queue of agent " + receiverID.getLocalName() + " congested", acceptedCnt);
+                }
                 return;
             }
             //#J2ME_EXCLUDE_END
@@ -1506,7 +1741,17 @@ public class MessagingService extends BaseService implements MessageManager.Chan
             if (gMsg.getTraceID() != null) {
                 myLogger.log(Logger.INFO, gMsg.getTraceID() + " - MessagingService target sink posting message to receiver " + receiverID.getLocalName());
             }
+            //#J2ME_EXCLUDE_BEGIN
+            // If the receiver queue has a high-water mark, the message is posted only if it fits
+            ACLMessage acl = gMsg.getACLMessage();
+            attachRealSender(senderID, acl);
+            if (postAcceptableMessages(gMsg, new ACLMessage[]{acl}, receiverID) == 0) {
+                throw new MessageQueueCongestedException("Message queue of agent " + receiverID.getLocalName() + " congested", 0);
+            }
+            //#J2ME_EXCLUDE_END
+            /*#J2ME_INCLUDE_BEGIN
             postMessage(senderID, gMsg.getACLMessage(), receiverID);
+            #J2ME_INCLUDE_END*/
             //#J2ME_EXCLUDE_BEGIN
             postedMessageCounter++;
             updateDeliveryTimeMeasurement(gMsg);
@@ -1516,6 +1761,23 @@ public class MessagingService extends BaseService implements MessageManager.Chan
             }
         }
 
+        //#J2ME_EXCLUDE_BEGIN
+        // Post to a local agent the leading messages of a block that fit in its message queue
+        private int postAcceptableMessages(GenericMessage gMsg, ACLMessage[] mm, AID receiverID) throws NotFoundException {
+            int acceptedCnt = myContainer.postAcceptableMessagesToLocalAgent(mm, receiverID);
+            if (acceptedCnt < 0) {
+                throw new NotFoundException("Messaging service slice failed to find " + receiverID);
+            }
+            if (acceptedCnt < mm.length) {
+                congestedRejectionCnt++;
+                if (gMsg.getTraceID() != null) {
+                    myLogger.log(Logger.INFO, gMsg.getTraceID() + " - Message queue of receiver " + receiverID.getLocalName() + " congested. " + (mm.length - acceptedCnt) + " message(s) pushed back");
+                }
+            }
+            return acceptedCnt;
+        }
+        //#J2ME_EXCLUDE_END
+
         private void manageMessage(AID senderID, GenericMessage msg, AID receiverID) throws NotFoundException {
             //#J2ME_EXCLUDE_BEGIN
             // If gmsg represents a MultipleGenericMessage recursively call restore() for each message
@@ -1613,15 +1875,19 @@ public class MessagingService extends BaseService implements MessageManager.Chan
         }
 
         private void postMessage(AID senderID, ACLMessage msg, AID receiverID) throws NotFoundException {
+            attachRealSender(senderID, msg);
+            boolean found = myContainer.postMessageToLocalAgent(msg, receiverID);
+            if (!found) {
+                throw new NotFoundException("Messaging service slice failed to find " + receiverID);
+            }
+        }
+
+        private void attachRealSender(AID senderID, ACLMessage msg) {
             if (!msg.getSender().equals(senderID)) {
                 myLogger.log(Logger.FINE, "Attaching real-sender user defined parameter: " + senderID.getName());
                 // Sender indicated in the message different than the real sender --> store the latter in the REAL_SENDER user defined param
                 msg.addUserDefinedParameter(ACLMessage.REAL_SENDER, senderID.getName());
             }
-            boolean found = myContainer.postMessageToLocalAgent(msg, receiverID);
-            if (!found) {
-                throw new NotFoundException("Messaging service slice failed to find " + receiverID);
-            }
         }
 
         private MTPDescriptor installMTP(String address, String className) throws ServiceException, MTPException {
@@ -1870,6 +2136,12 @@ public class MessagingService extends BaseService implements MessageManager.Chan
                         AID agentID = (AID) params[0];
                         cmd.setReturnValue(getAgentLocation(agentID));
                     }
+                    case MessagingSlice.H_LEASEAGENTLOCATION -> {
+                        AID agentID = (AID) params[0];
+                        String requester = (String) params[1];
+                        cmd.setReturnValue(leaseAgentLocation(agentID, requester));
+                    }
+                    case MessagingSlice.H_INVALIDATEAGENTLOCATIONS -> invalidateAgentLocations((AID[]) params[0]);
                     case MessagingSlice.H_ROUTEOUT -> {
                         Envelope env = (Envelope) params[0];
                         byte[] payload = (byte[]) params[1];
@@ -98,6 +98,8 @@ public interface MessagingSlice extends Service.Slice {
     String H_DEADALIAS = "11";
     String H_CURRENTALIASES = "12";
     String H_TRANSFERLOCALALIASES = "13";
+    String H_LEASEAGENTLOCATION = "14";
+    String H_INVALIDATEAGENTLOCATIONS = "15";
 
     void dispatchLocally(AID senderAID, GenericMessage msg, AID receiverID) throws IMTPException, NotFoundException, JADESecurityException;
 
@@ -105,6 +107,16 @@ public interface MessagingSlice extends Service.Slice {
 
     ContainerID getAgentLocation(AID agentID) throws IMTPException, NotFoundException;
 
+    /**
+     * Retrieve the location of an agent granting the requester container a lease on it.
+     *
+     * @return An array holding the ContainerID of the agent and the lease time in ms
+     * (a value &lt;= 0 means the location can be cached with no time limit)
+     */
+    Object[] leaseAgentLocation(AID agentID, String requester) throws IMTPException, NotFoundException;
+
+    void invalidateAgentLocations(AID[] agentIDs) throws IMTPException;
+
     MTPDescriptor installMTP(String address, String className) throws IMTPException, ServiceException, MTPException;
 
     void uninstallMTP(String address) throws IMTPException, ServiceException, NotFoundException, MTPException;
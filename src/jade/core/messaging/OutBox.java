@@ -149,13 +149,22 @@ class OutBox {
      */
     synchronized final PendingMsg get() {
         Box b = null;
-        // Wait until an idle (i.e. not busy) receiver is found
+        // Wait until an idle (i.e. not busy nor parked) receiver is found
         while ((b = getNextIdle()) == null) {
             try {
                 if (myLogger.isLoggable(Logger.FINER)) {
                     myLogger.log(Logger.FINER, "Deliverer " + Thread.currentThread() + " go to sleep...");
                 }
-                wait();
+                // If some receivers are parked, wake up when the first retry time expires
+                long timeout = getNextRetryTime();
+                if (timeout > 0) {
+                    timeout -= System.currentTimeMillis();
+                    if (timeout > 0) {
+                        wait(timeout);
+                    }
+                } else {
+                    wait();
+                }
                 if (myLogger.isLoggable(Logger.FINER)) {
                     myLogger.log(Logger.FINER, "Deliverer " + Thread.currentThread() + " wake up");
                 }
@@ -165,7 +174,10 @@ class OutBox {
         }
         PendingMsg pm = b.removeFirst();
         int s = pm.getMessage().length();
-        decreaseSize(s);
+        if (!pm.isDeferred()) {
+            // Deferred messages were already removed from the queue size when they were first taken
+            decreaseSize(s);
+        }
         //#J2ME_EXCLUDE_BEGIN
         // Multiple-delivery
         // Activate it if enabled and either there are at least 3 pending messages for the same receiver or we are over the warning size
@@ -175,7 +187,13 @@ class OutBox {
             while (!b.isEmpty() && (mulMessageSize < 100000)) { // Max 100 Kbyte
                 if (mm == null) {
                     mm = new java.util.ArrayList<>();
-                    mm.add(pm.getMessage());
+                    GenericMessage first = pm.getMessage();
+                    if (first instanceof MultipleGenericMessage) {
+                        // A block of messages whose delivery was deferred
+                        mm.addAll(((MultipleGenericMessage) first).getMessages());
+                    } else {
+                        mm.add(first);
+                    }
                 }
                 PendingMsg next = b.removeFirst();
                 GenericMessage g = next.getMessage();
@@ -203,8 +221,18 @@ class OutBox {
      * inside a synchronized block.
      */
     private Box getNextIdle() {
+        long now = -1;
         for (int i = 0; i < messagesByOrder.size(); ++i) {
             Box b = (Box) messagesByOrder.get();
+            if (b.isParked()) {
+                if (now < 0) {
+                    now = System.currentTimeMillis();
+                }
+                if (b.getRetryTime() > now) {
+                    continue;
+                }
+                b.setRetryTime(0);
+            }
             if (!b.isBusy()) {
                 b.setBusy(true);
                 if (myLogger.isLoggable(Logger.FINER))
@@ -240,6 +268,56 @@ class OutBox {
             myLogger.log(Logger.FINER, "Exiting handleServed for " + receiverID.getName());
     }
 
+    /**
+     * @return the earliest time a parked receiver must be retried or 0 if no receiver is parked.
+     * This method does not need to be synchronized as it is only executed
+     * inside a synchronized block.
+     */
+    private long getNextRetryTime() {
+        long next = 0;
+        for (Box b : messagesByReceiver.values()) {
+            if (b.isParked() && (next == 0 || b.getRetryTime() < next)) {
+                next = b.getRetryTime();
+            }
+        }
+        return next;
+    }
+
+    /**
+     * The delivery of a message to the receiver receiverID was deferred.
+     * Put the message back at the head of the Box of messages for that receiver
+     * and park the Box (i.e. no deliverer will serve it) until either the retry delay
+     * expires or resume() is called.
+     * The queue size is not increased: it only accounts for messages inserted by addLast()
+     * and never taken yet.
+     * This is executed by the Deliverer thread that was serving the Box.
+     */
+    synchronized final void park(PendingMsg pm, long retryDelay) {
+        AID receiverID = pm.getReceiver();
+        Box b = messagesByReceiver.get(receiverID);
+        pm.setDeferred(true);
+        b.addFirst(pm);
+        b.setBusy(false);
+        b.setRetryTime(System.currentTimeMillis() + retryDelay);
+        if (myLogger.isLoggable(Logger.FINER))
+            myLogger.log(Logger.FINER, "Parked box for receiver " + receiverID.getName() + " for " + retryDelay + " ms");
+        // Let waiting deliverers take the new retry time into account
+        notifyAll();
+    }
+
+    /**
+     * Resume the delivery of the messages for the receiver receiverID if they were parked
+     */
+    synchronized final void resume(AID receiverID) {
+        Box b = messagesByReceiver.get(receiverID);
+        if (b != null && b.isParked()) {
+            b.setRetryTime(0);
+            if (myLogger.isLoggable(Logger.FINER))
+                myLogger.log(Logger.FINER, "Resumed box for receiver " + receiverID.getName());
+            notifyAll();
+        }
+    }
+
     private void increaseSize(int k) {
         long sleepTime = 0;
         synchronized (this) {
@@ -304,6 +382,19 @@ class OutBox {
         return pendingCnt;
     }
 
+    /**
+     * @return the number of receivers whose deliveries are currently parked
+     */
+    synchronized int getParkedCnt() {
+        int cnt = 0;
+        for (Box b : messagesByReceiver.values()) {
+            if (b.isParked()) {
+                cnt++;
+            }
+        }
+        return cnt;
+    }
+
     /**
      * This class represents a Box of messages to be delivered to
      * a single receiver
@@ -313,6 +404,8 @@ class OutBox {
         private final List<PendingMsg> messages;
         private boolean busy;
         private String owner;
+        // The time the delivery must be retried if this Box is parked, 0 otherwise
+        private long retryTime = 0;
 
         public Box(AID r) {
             receiver = r;
@@ -339,6 +432,22 @@ class OutBox {
             return owner;
         }
 
+        private boolean isParked() {
+            return retryTime > 0;
+        }
+
+        private long getRetryTime() {
+            return retryTime;
+        }
+
+        private void setRetryTime(long retryTime) {
+            this.retryTime = retryTime;
+        }
+
+        private void addFirst(PendingMsg pm) {
+            messages.add(0, pm);
+        }
+
         private void addLast(PendingMsg pm) {
             messages.add(pm);
         }
@@ -357,7 +466,7 @@ class OutBox {
 
         // For debugging purpose
         public String toString() {
-            return "(" + receiver.getName() + " :busy " + busy + (owner != null ? " :owner " + owner : "") + " :message-cnt " + messages.size() + ")";
+            return "(" + receiver.getName() + " :busy " + busy + (retryTime > 0 ? " :parked" : "") + (owner != null ? " :owner " + owner : "") + " :message-cnt " + messages.size() + ")";
         }
     } // END of inner class Box
 }
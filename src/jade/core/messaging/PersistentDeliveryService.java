@@ -120,6 +120,11 @@ public class PersistentDeliveryService extends BaseService {
         return PersistentDeliverySlice.NAME;
     }
 
+    // The delivery channel is the MessagingService
+    public String[] getDependencies() {
+        return new String[]{MessagingSlice.NAME};
+    }
+
     public Class<?> getHorizontalInterface() {
         try {
             return Class.forName(PersistentDeliverySlice.NAME + "Slice");
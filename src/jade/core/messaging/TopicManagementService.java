@@ -76,6 +76,10 @@ public class TopicManagementService extends BaseService {
         return NAME;
     }
 
+    public String[] getDependencies() {
+        return new String[]{MessagingService.NAME};
+    }
+
     public Filter getCommandFilter(boolean direction) {
         if (direction == Filter.INCOMING) {
             return incFilter;
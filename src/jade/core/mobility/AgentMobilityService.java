@@ -120,6 +120,11 @@ public class AgentMobilityService extends BaseService {
         return AgentMobilitySlice.NAME;
     }
 
+    // The MainReplicationService, if any, is only looked up at boot time
+    public String[] getDependencies() {
+        return new String[0];
+    }
+
     public Class<AgentMobilitySlice> getHorizontalInterface() {
         return AgentMobilitySlice.class;
     }
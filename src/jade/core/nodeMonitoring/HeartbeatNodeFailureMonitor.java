@@ -0,0 +1,217 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.nodeMonitoring;
+
+//#J2ME_EXCLUDE_FILE
+
+import jade.core.IMTPException;
+import jade.core.Node;
+import jade.core.NodeEventListener;
+import jade.core.NodeFailureMonitor;
+import jade.util.Logger;
+
+/**
+ * The <code>HeartbeatNodeFailureMonitor</code> class detects node failures on the basis
+ * of the heartbeats periodically sent by the monitored node. It does not own any thread:
+ * all monitors are evaluated by the single <code>HeartbeatScheduler</code> of the
+ * <code>HeartbeatNodeMonitoringService</code>.
+ * <p>
+ * When the phi-accrual suspicion level exceeds the configured threshold the node is
+ * pinged to confirm it is actually unreachable (as the UDP based monitor does). If the
+ * node remains unreachable for more than the unreachable limit it is considered dead.
+ *
+ * @see HeartbeatNodeMonitoringService
+ * @see PhiAccrualFailureDetector
+ */
+class HeartbeatNodeFailureMonitor extends NodeFailureMonitor {
+    static final int STATE_CONNECTED = 0;
+    static final int STATE_UNREACHABLE = 1;
+    static final int STATE_FINAL = 2;
+
+    private final HeartbeatScheduler scheduler;
+    private final HeartbeatNodeMonitoringService service;
+    private final PhiAccrualFailureDetector detector;
+    private final Logger logger = Logger.getMyLogger(this.getClass().getName());
+    private int state = -1;
+    private long unreachableSince = -1;
+    // True while a reachability check for this node is being performed by the scheduler workers
+    private boolean checking = false;
+    private long key = 0;
+
+    HeartbeatNodeFailureMonitor(HeartbeatScheduler scheduler, HeartbeatNodeMonitoringService service, PhiAccrualFailureDetector detector) {
+        this.scheduler = scheduler;
+        this.service = service;
+        this.detector = detector;
+    }
+
+    /**
+     * Start monitoring a given node
+     *
+     * @param n   target node to monitor
+     * @param nel listener to inform about new events
+     */
+    public void start(Node n, NodeEventListener nel) {
+        super.start(n, nel);
+        synchronized (this) {
+            detector.reset(System.currentTimeMillis());
+            setState(STATE_CONNECTED);
+        }
+        // Register before activating so that no heartbeat is lost
+        scheduler.register(this);
+        key = System.currentTimeMillis();
+        service.activateHeartbeat(target, key);
+    }
+
+    public void stop() {
+        scheduler.deregister(this);
+        service.deactivateHeartbeat(target, key);
+    }
+
+    @Override
+    public void dispose() {
+        scheduler.deregister(this);
+    }
+
+    public String requireService() {
+        return HeartbeatNodeMonitoringService.NAME;
+    }
+
+    synchronized int getState() {
+        return state;
+    }
+
+    synchronized double getPhi(long now) {
+        return detector.phi(now);
+    }
+
+    /**
+     * Invoked by the scheduler when a heartbeat from the monitored node is received
+     */
+    synchronized void heartbeatReceived(long now, boolean terminating) {
+        if (state == STATE_FINAL) {
+            return;
+        }
+        if (terminating) {
+            setState(STATE_FINAL);
+            return;
+        }
+        if (state == STATE_UNREACHABLE) {
+            // Do not count the outage as an inter-arrival sample: it would distort the distribution
+            detector.reset(now);
+            setState(STATE_CONNECTED);
+        } else {
+            detector.heartbeat(now);
+        }
+    }
+
+    /**
+     * Invoked periodically by the scheduler thread. This method never blocks: possibly
+     * blocking checks are delegated to the scheduler workers.
+     */
+    synchronized void check(long now, double phiThreshold, long unreachableLimit) {
+        if (checking) {
+            return;
+        }
+        if (state == STATE_CONNECTED) {
+            double phi = detector.phi(now);
+            if (phi > phiThreshold) {
+                if (logger.isLoggable(Logger.FINE)) {
+                    logger.log(Logger.FINE, "Node " + target.getName() + " suspected: phi = " + phi + ", last heartbeat " + (now - detector.getLastHeartbeat()) + " ms ago");
+                }
+                checking = true;
+                scheduler.execute(this::confirmSuspicion);
+            }
+        } else if (state == STATE_UNREACHABLE && now - unreachableSince > unreachableLimit) {
+            checking = true;
+            scheduler.execute(this::confirmDeath);
+        }
+    }
+
+    private void confirmSuspicion() {
+        boolean reachable;
+        try {
+            target.ping(false);
+            reachable = true;
+        } catch (IMTPException imtpe) {
+            reachable = false;
+        }
+        synchronized (this) {
+            checking = false;
+            if (state == STATE_CONNECTED) {
+                if (reachable) {
+                    // For some reason heartbeats are late, but the node is alive and reachable.
+                    // Do not count this as an inter-arrival sample: just restart measuring from now
+                    logger.log(Logger.WARNING, "Missing heartbeats from reachable node " + target.getName());
+                    detector.reset(System.currentTimeMillis());
+                } else {
+                    unreachableSince = System.currentTimeMillis();
+                    setState(STATE_UNREACHABLE);
+                }
+            }
+        }
+    }
+
+    private void confirmDeath() {
+        boolean networkUp = service.isNetworkUp(target.getName());
+        synchronized (this) {
+            checking = false;
+            if (state == STATE_UNREACHABLE) {
+                if (networkUp) {
+                    setState(STATE_FINAL);
+                } else {
+                    // Network down --> do not consider the node dead and check again later
+                    logger.log(Logger.WARNING, "Unreachable limit exceeded for node " + target.getName() + ", however the network appears to be down --> Give the node another chance");
+                    unreachableSince = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+
+    /**
+     * Change the current state and notify the relevant event. Events are notified by the
+     * scheduler notifier thread so that listeners (that may perform remote calls) never
+     * block heartbeat processing or the evaluation of other nodes.
+     */
+    private void setState(int newState) {
+        if (logger.isLoggable(Logger.FINEST)) {
+            logger.log(Logger.FINEST, "Transition to state " + newState + " for node '" + target.getName() + "'");
+        }
+
+        if (state == -1 && newState == STATE_CONNECTED) {
+            // --> CONNECTED
+            scheduler.notify(this::fireNodeAdded);
+        } else if (state == STATE_CONNECTED && newState == STATE_UNREACHABLE) {
+            // CONNECTED --> UNREACHABLE
+            scheduler.notify(this::fireNodeUnreachable);
+        } else if (state == STATE_UNREACHABLE && newState == STATE_CONNECTED) {
+            // UNREACHABLE --> CONNECTED
+            scheduler.notify(this::fireNodeReachable);
+        } else if (newState == STATE_FINAL) {
+            // REMOVED
+            scheduler.deregister(this);
+            scheduler.notify(this::fireNodeRemoved);
+        }
+        state = newState;
+    }
+}
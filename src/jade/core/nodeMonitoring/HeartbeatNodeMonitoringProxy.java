@@ -0,0 +1,74 @@
+package jade.core.nodeMonitoring;
+
+//#J2ME_EXCLUDE_FILE
+//#APIDOC_EXCLUDE_FILE
+
+import jade.core.*;
+
+public class HeartbeatNodeMonitoringProxy extends SliceProxy implements HeartbeatNodeMonitoringSlice {
+    /*
+     * Request a given node to start sending heartbeats
+     */
+    public void activateHeartbeat(String monitoringNode, int period, long key) throws IMTPException, ServiceException {
+        GenericCommand cmd = new GenericCommand(H_ACTIVATEHEARTBEAT, HeartbeatNodeMonitoringService.NAME, null);
+        cmd.addParam(monitoringNode);
+        cmd.addParam(period);
+        cmd.addParam(key);
+
+        Node n = getNode();
+        Object result = n.accept(cmd);
+        if ((result instanceof Throwable)) {
+            if (result instanceof IMTPException) {
+                throw (IMTPException) result;
+            } else {
+                throw new IMTPException("Unexpected exception in remote site.", (Throwable) result);
+            }
+        }
+    }
+
+    /*
+     * Request a given node to stop sending heartbeats
+     */
+    public void deactivateHeartbeat(String monitoringNode, long key) throws IMTPException {
+        try {
+            GenericCommand cmd = new GenericCommand(H_DEACTIVATEHEARTBEAT, HeartbeatNodeMonitoringService.NAME, null);
+            cmd.addParam(monitoringNode);
+            cmd.addParam(key);
+
+            Node n = getNode();
+            Object result = n.accept(cmd);
+            if ((result instanceof Throwable)) {
+                if (result instanceof IMTPException) {
+                    throw (IMTPException) result;
+                } else {
+                    throw new IMTPException("Unexpected exception in remote site.", (Throwable) result);
+                }
+            }
+        } catch (ServiceException se) {
+            throw new IMTPException("Unexpected error contacting remote node.", se);
+        }
+    }
+
+    /*
+     * Notify the monitoring node that the given nodes are alive
+     */
+    public void heartbeat(String[] nodeNames, boolean terminating) throws IMTPException {
+        try {
+            GenericCommand cmd = new GenericCommand(H_HEARTBEAT, HeartbeatNodeMonitoringService.NAME, null);
+            cmd.addParam(nodeNames);
+            cmd.addParam(terminating);
+
+            Node n = getNode();
+            Object result = n.accept(cmd);
+            if ((result instanceof Throwable)) {
+                if (result instanceof IMTPException) {
+                    throw (IMTPException) result;
+                } else {
+                    throw new IMTPException("Unexpected exception in remote site.", (Throwable) result);
+                }
+            }
+        } catch (ServiceException se) {
+            throw new IMTPException("Unexpected error contacting remote node.", se);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.nodeMonitoring;
+
+//#J2ME_EXCLUDE_FILE
+
+import jade.core.*;
+import jade.util.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Heartbeat based implementation of the NodeMonitoringService.
+ * <p>
+ * Unlike the default <code>BlockingNodeFailureMonitor</code>, that requires a thread
+ * per monitored node hanging on a blocking ping, the Main Container uses a single
+ * <code>HeartbeatScheduler</code> to track all monitored nodes. Monitored nodes
+ * periodically send heartbeats to the Main Container slice of this service. Heartbeats
+ * sent by all nodes living in the same JVM to the same Main Container are batched in a single
+ * horizontal command. Instead of a fixed ping-delay-limit, the Main Container
+ * computes a phi-accrual suspicion level from the history of heartbeat inter-arrival times
+ * and suspects a node only when the suspicion level exceeds a configurable threshold. This
+ * adapts to the actual network and load conditions and tolerates occasional GC pauses.
+ * <p>
+ * The service must be installed both in the Main Container and in peripheral containers.
+ * Nodes where the service is not installed are monitored by means of the default
+ * <code>BlockingNodeFailureMonitor</code>.
+ *
+ * @see PhiAccrualFailureDetector
+ */
+public class HeartbeatNodeMonitoringService extends NodeMonitoringService {
+    /**
+     * The name of this service
+     */
+    public static final String NAME = "jade.core.nodeMonitoring.HeartbeatNodeMonitoring";
+    /**
+     * Default time between two heartbeats
+     */
+    public static final int DEFAULT_HEARTBEAT_PERIOD = 1000;
+    /**
+     * Default suspicion level above which a node is considered unreachable
+     */
+    public static final double DEFAULT_PHI_THRESHOLD = 8.0;
+    /**
+     * Default additional pause tolerated on top of the mean heartbeat inter-arrival time
+     */
+    public static final int DEFAULT_ACCEPTABLE_PAUSE = 3000;
+    /**
+     * Default maximum time a node can stay unreachable
+     */
+    public static final int DEFAULT_UNREACHABLE_LIMIT = 10000;
+    /**
+     * Default number of inter-arrival samples kept for each node
+     */
+    public static final int DEFAULT_HISTORY_SIZE = 100;
+    private static final String PREFIX = "jade_core_nodeMonitoring_HeartbeatNodeMonitoringService_";
+    /**
+     * This constant is the name of the property whose value contains an
+     * integer representing the time interval (in milliseconds) in which monitored
+     * nodes send heartbeats to the Main Container.<br>
+     * This property is only meaningful on a main container that communicates it to monitored nodes.
+     */
+    public static final String HEARTBEAT_PERIOD = PREFIX + "heartbeatperiod";
+    /**
+     * This constant is the name of the property whose value contains the
+     * suspicion level (phi) above which a monitored node is considered unreachable.
+     * A threshold of 8 corresponds to a probability of about 10^-8 of wrongly suspecting a node.<br>
+     * This property is only meaningful on a main container.
+     */
+    public static final String PHI_THRESHOLD = PREFIX + "phithreshold";
+    /**
+     * This constant is the name of the property whose value contains an
+     * integer representing a time (in milliseconds) that is tolerated on top of the mean
+     * heartbeat inter-arrival time before the suspicion level starts growing. It should be
+     * larger than the longest expected GC pause.<br>
+     * This property is only meaningful on a main container.
+     */
+    public static final String ACCEPTABLE_PAUSE = PREFIX + "acceptablepause";
+    /**
+     * This constant is the name of the property whose value contains an
+     * integer representing the maximum time (in milliseconds) a node can stay unreachable before it gets
+     * removed from the platform.<br>
+     * This property is only meaningful on a main container.
+     */
+    public static final String UNREACHABLE_LIMIT = PREFIX + "unreachablelimit";
+    /**
+     * This constant is the name of the property whose value contains an
+     * integer representing the number of heartbeat inter-arrival times used to estimate
+     * their distribution.<br>
+     * This property is only meaningful on a main container.
+     */
+    public static final String HISTORY_SIZE = PREFIX + "historysize";
+    /**
+     * This constant is the name of the property whose value contains an
+     * integer representing the number of worker threads used to check the reachability of
+     * suspected nodes (default 2).<br>
+     * This property is only meaningful on a main container.
+     */
+    public static final String WORKERS = PREFIX + "workers";
+    /**
+     * This constants is the name of the property whose value contains the fully qualified
+     * class name of a concrete implementation of the  NetworkChecker   interface.
+     * This has the same meaning as in the UDPNodeMonitoringService.<br>
+     * This property is only meaningful on a main container.
+     *
+     * @see NetworkChecker
+     */
+    public static final String NETWORK_CHECKER = PREFIX + "networkchecker";
+
+    // Heartbeat senders shared by all nodes in this JVM, keyed by the name of the monitoring node
+    private static final Map<String, HeartbeatSender> senders = new HashMap<>();
+
+    private final ServiceComponent localSlice = new ServiceComponent();
+    private final Filter incFilter = new HeartbeatIncomingFilter();
+    private HeartbeatScheduler myScheduler;
+    private NetworkChecker checker;
+    private int heartbeatPeriod;
+    private int historySize;
+    private int acceptablePause;
+
+    private static int getPosIntValue(Profile p, String paramName, int defaultValue) {
+        try {
+            int value = Integer.parseInt(p.getParameter(paramName, "-1"));
+            return value > 0 ? value : defaultValue;
+        } catch (NumberFormatException nfe) {
+            return defaultValue;
+        }
+    }
+
+    public String getName() {
+        return NAME;
+    }
+
+    public void init(AgentContainer ac, Profile p) throws ProfileException {
+        super.init(ac, p);
+
+        if (ac.getMain() != null) {
+            // We are on the main container --> launch the HeartbeatScheduler
+            heartbeatPeriod = getPosIntValue(p, HEARTBEAT_PERIOD, DEFAULT_HEARTBEAT_PERIOD);
+            historySize = getPosIntValue(p, HISTORY_SIZE, DEFAULT_HISTORY_SIZE);
+            acceptablePause = getPosIntValue(p, ACCEPTABLE_PAUSE, DEFAULT_ACCEPTABLE_PAUSE);
+            int unreachLimit = getPosIntValue(p, UNREACHABLE_LIMIT, DEFAULT_UNREACHABLE_LIMIT);
+            int nWorkers = getPosIntValue(p, WORKERS, 2);
+            double phiThreshold = DEFAULT_PHI_THRESHOLD;
+            try {
+                phiThreshold = Double.parseDouble(p.getParameter(PHI_THRESHOLD, null));
+            } catch (Exception e) {
+                // Keep default
+            }
+            checker = initNetworkChecker(p);
+
+            myScheduler = new HeartbeatScheduler(Math.max(heartbeatPeriod / 4, 50), phiThreshold, unreachLimit, nWorkers);
+            myScheduler.start();
+            myLogger.log(Logger.INFO, "HeartbeatScheduler successfully started. heartbeatperiod = " + heartbeatPeriod + " phithreshold = " + phiThreshold + " acceptablepause = " + acceptablePause + " unreachablelimit = " + unreachLimit);
+        }
+    }
+
+    private NetworkChecker initNetworkChecker(Profile p) {
+        NetworkChecker checker = null;
+        String networkCheckerClass = p.getParameter(NETWORK_CHECKER, null);
+        if (networkCheckerClass != null) {
+            try {
+                checker = (NetworkChecker) Class.forName(networkCheckerClass).getDeclaredConstructor().newInstance();
+                checker.initialize(p);
+            } catch (Exception e) {
+                myLogger.log(Logger.WARNING, "NetworkChecker " + networkCheckerClass + " cannot be created, instantiated or initialized.", e);
+            }
+        }
+        return checker;
+    }
+
+    public NodeFailureMonitor getFailureMonitor() {
+        if (myScheduler != null) {
+            // The minimum standard deviation is a fraction of the period to avoid over-sensitivity on very regular networks
+            PhiAccrualFailureDetector detector = new PhiAccrualFailureDetector(historySize, heartbeatPeriod, heartbeatPeriod / 10, acceptablePause);
+            return new HeartbeatNodeFailureMonitor(myScheduler, this, detector);
+        } else {
+            return null;
+        }
+    }
+
+    public void shutdown() {
+        // Stop the scheduler
+        if (myScheduler != null) {
+            myScheduler.stop();
+            myScheduler = null;
+        }
+        // Stop sending heartbeats on behalf of the local node
+        stopAllHeartbeats();
+    }
+
+    public Filter getCommandFilter(boolean direction) {
+        if (direction == Filter.INCOMING) {
+            return incFilter;
+        } else {
+            return null;
+        }
+    }
+
+    public Class<?> getHorizontalInterface() {
+        return HeartbeatNodeMonitoringSlice.class;
+    }
+
+    public Slice getLocalSlice() {
+        return localSlice;
+    }
+
+    boolean isNetworkUp(String nodeID) {
+        return checker == null || checker.isNetworkUp(nodeID);
+    }
+
+    void activateHeartbeat(Node n, long key) {
+        if (myScheduler != null) {
+            myLogger.log(Logger.CONFIG, "Requesting heartbeat activation to node " + n.getName());
+            try {
+                String monitoringNode = getLocalNode().getName();
+                HeartbeatNodeMonitoringSlice slice = (HeartbeatNodeMonitoringSlice) getSlice(n.getName());
+                try {
+                    slice.activateHeartbeat(monitoringNode, heartbeatPeriod, key);
+                } catch (IMTPException imtpe) {
+                    // Get a fresh slice and try again
+                    slice = (HeartbeatNodeMonitoringSlice) getFreshSlice(n.getName());
+                    slice.activateHeartbeat(monitoringNode, heartbeatPeriod, key);
+                }
+            } catch (NullPointerException npe) {
+                // Slice is null --> The HeartbeatNodeMonitoringService is not installed on the node to be monitored
+                myLogger.log(Logger.WARNING, "Can't monitor node " + n.getName() + ". HeartbeatNodeMonitoringService not installed.");
+            } catch (ServiceException se) {
+                myLogger.log(Logger.WARNING, "Can't monitor node " + n.getName() + ". Service error on remote node: " + se.getMessage());
+            } catch (IMTPException imtpe1) {
+                myLogger.log(Logger.WARNING, "Can't monitor node " + n.getName() + ". Node unreachable.");
+            }
+        }
+    }
+
+    void deactivateHeartbeat(Node n, long key) {
+        try {
+            // Ping the node first to avoid using a stale network connection (in case the remote node is dead).
+            n.ping(false);
+            HeartbeatNodeMonitoringSlice slice = (HeartbeatNodeMonitoringSlice) getSlice(n.getName());
+            if (slice != null) {
+                slice.deactivateHeartbeat(getLocalNode().getName(), key);
+            }
+        } catch (Exception e) {
+            // The node is likely dead --> Ignore it.
+        }
+    }
+
+    ///////////////////////////////////////////
+    // Monitored node side
+    ///////////////////////////////////////////
+
+    private void startHeartbeat(String monitoringNode, int period, long key) {
+        synchronized (senders) {
+            HeartbeatSender sender = senders.get(monitoringNode);
+            if (sender == null || !sender.isActive()) {
+                sender = new HeartbeatSender(monitoringNode, period);
+                senders.put(monitoringNode, sender);
+                sender.start();
+            }
+            sender.addNode(this, key);
+        }
+        myLogger.log(Logger.INFO, "Heartbeats towards " + monitoringNode + " successfully started. period = " + period);
+    }
+
+    private void stopHeartbeat(String monitoringNode, long key, boolean sendTerminationFlag) {
+        HeartbeatSender sender;
+        synchronized (senders) {
+            sender = senders.get(monitoringNode);
+            if (sender == null || !sender.removeNode(this, key)) {
+                return;
+            }
+            if (!sender.isActive()) {
+                senders.remove(monitoringNode);
+            }
+        }
+        // The termination heartbeat is a remote call: send it outside the lock shared by all nodes in this JVM
+        if (sendTerminationFlag) {
+            sender.sendTermination(this);
+        }
+        myLogger.log(Logger.INFO, "Heartbeats towards " + monitoringNode + " stopped.");
+    }
+
+    private static String[] getMonitoringNodes() {
+        synchronized (senders) {
+            return senders.keySet().toArray(new String[0]);
+        }
+    }
+
+    private String getLocalNodeName() {
+        try {
+            return getLocalNode().getName();
+        } catch (IMTPException imtpe) {
+            // Should never happen since this is a local call
+            return null;
+        }
+    }
+
+    private void stopAllHeartbeats() {
+        for (String monitoringNode : getMonitoringNodes()) {
+            stopHeartbeat(monitoringNode, -1, true);
+        }
+    }
+
+    /**
+     * Inner class ServiceComponent
+     * A slice is needed to process the H_ACTIVATEHEARTBEAT and H_DEACTIVATEHEARTBEAT horizontal commands
+     * on monitored nodes and the H_HEARTBEAT horizontal command on the Main Container
+     */
+    private class ServiceComponent implements Slice {
+        public Service getService() {
+            return HeartbeatNodeMonitoringService.this;
+        }
+
+        public Node getNode() throws ServiceException {
+            try {
+                return HeartbeatNodeMonitoringService.this.getLocalNode();
+            } catch (IMTPException imtpe) {
+                throw new ServiceException("Problem in contacting the local IMTP Manager", imtpe);
+            }
+        }
+
+        public VerticalCommand serve(HorizontalCommand cmd) {
+            try {
+                String cmdName = cmd.getName();
+                Object[] params = cmd.getParams();
+
+                if (cmdName.equals(HeartbeatNodeMonitoringSlice.H_HEARTBEAT)) {
+                    String[] nodeNames = (String[]) params[0];
+                    boolean terminating = (Boolean) params[1];
+                    HeartbeatScheduler scheduler = myScheduler;
+                    if (scheduler != null) {
+                        scheduler.heartbeatReceived(nodeNames, terminating);
+                    }
+                } else if (cmdName.equals(HeartbeatNodeMonitoringSlice.H_ACTIVATEHEARTBEAT)) {
+                    String monitoringNode = (String) params[0];
+                    int period = (Integer) params[1];
+                    long key = (Long) params[2];
+                    startHeartbeat(monitoringNode, period, key);
+                } else if (cmdName.equals(HeartbeatNodeMonitoringSlice.H_DEACTIVATEHEARTBEAT)) {
+                    String monitoringNode = (String) params[0];
+                    long key = (Long) params[1];
+                    stopHeartbeat(monitoringNode, key, true);
+                }
+            } catch (Throwable t) {
+                cmd.setReturnValue(t);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Inner class HeartbeatSender.
+     * Periodically sends a single heartbeat carrying the names of all nodes living in this JVM
+     * that are monitored by a given monitoring node.
+     */
+    private static class HeartbeatSender extends Thread {
+        private final String monitoringNode;
+        private final int period;
+        // Service instance of each monitored node in this JVM --> activation key.
+        // Node names are resolved at each heartbeat since a node may be renamed when joining the platform
+        private final Map<HeartbeatNodeMonitoringService, Long> nodes = new HashMap<>();
+        private final Logger myLogger = Logger.getMyLogger(getClass().getName());
+        private volatile boolean active = true;
+
+        private HeartbeatSender(String monitoringNode, int period) {
+            super();
+            this.monitoringNode = monitoringNode;
+            this.period = period;
+            setName("HeartbeatSender-" + monitoringNode);
+            setDaemon(true);
+        }
+
+        private boolean isActive() {
+            return active;
+        }
+
+        private synchronized void addNode(HeartbeatNodeMonitoringService service, long key) {
+            nodes.put(service, key);
+        }
+
+        /**
+         * Remove a node. Return true if the node was actually removed (i.e. the key matches or is -1)
+         */
+        private synchronized boolean removeNode(HeartbeatNodeMonitoringService service, long key) {
+            Long currentKey = nodes.get(service);
+            if (currentKey == null || (key != -1 && key != currentKey)) {
+                return false;
+            }
+            nodes.remove(service);
+            if (nodes.isEmpty()) {
+                active = false;
+                interrupt();
+            }
+            return true;
+        }
+
+        /**
+         * Notify the monitoring node that a removed node is terminating
+         */
+        private void sendTermination(HeartbeatNodeMonitoringService service) {
+            send(service, new String[]{service.getLocalNodeName()}, true);
+        }
+
+        public void run() {
+            try {
+                while (active) {
+                    HeartbeatNodeMonitoringService[] services;
+                    synchronized (this) {
+                        services = nodes.keySet().toArray(new HeartbeatNodeMonitoringService[0]);
+                    }
+                    if (services.length > 0) {
+                        String[] names = new String[services.length];
+                        for (int i = 0; i < names.length; ++i) {
+                            names[i] = services[i].getLocalNodeName();
+                        }
+                        send(services[0], names, false);
+                    }
+                    Thread.sleep(period);
+                }
+            } catch (InterruptedException ie) {
+                if (active) {
+                    myLogger.log(Logger.WARNING, "HeartbeatSender towards " + monitoringNode + " unexpectedly interrupted");
+                }
+            }
+        }
+
+        private void send(HeartbeatNodeMonitoringService service, String[] names, boolean terminating) {
+            try {
+                HeartbeatNodeMonitoringSlice slice = (HeartbeatNodeMonitoringSlice) service.getSlice(monitoringNode);
+                if (slice != null) {
+                    try {
+                        slice.heartbeat(names, terminating);
+                    } catch (IMTPException imtpe) {
+                        // Get a fresh slice and try again
+                        slice = (HeartbeatNodeMonitoringSlice) service.getFreshSlice(monitoringNode);
+                        slice.heartbeat(names, terminating);
+                    }
+                }
+            } catch (Exception e) {
+                // The monitoring node may be temporarily unreachable. Just go on: it is up to it to decide
+                if (myLogger.isLoggable(Logger.FINE)) {
+                    myLogger.log(Logger.FINE, "Error sending heartbeat to " + monitoringNode + ". " + e.getMessage());
+                }
+            }
+        }
+    } // END of inner class HeartbeatSender
+
+    /**
+     * Inner class HeartbeatIncomingFilter
+     * An incoming filter is needed to react to failures of main containers
+     * that are monitoring this node by stopping the related heartbeats.
+     */
+    private class HeartbeatIncomingFilter extends Filter {
+        public boolean accept(VerticalCommand cmd) {
+            String name = cmd.getName();
+            if (name.equals(Service.DEAD_PLATFORM_MANAGER) || name.equals(Service.DEAD_REPLICA)) {
+                // Stop sending heartbeats to monitoring nodes whose slice is no longer registered
+                for (String monitoringNode : getMonitoringNodes()) {
+                    try {
+                        if (getFreshSlice(monitoringNode) == null) {
+                            stopHeartbeat(monitoringNode, -1, false);
+                        }
+                    } catch (ServiceException se) {
+                        stopHeartbeat(monitoringNode, -1, false);
+                    }
+                }
+            }
+            // Never veto a command
+            return true;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package jade.core.nodeMonitoring;
+
+import jade.core.IMTPException;
+import jade.core.Service;
+import jade.core.ServiceException;
+
+public interface HeartbeatNodeMonitoringSlice extends Service.Slice {
+    String H_ACTIVATEHEARTBEAT = "H-ACTIVATEHEARTBEAT";
+    String H_DEACTIVATEHEARTBEAT = "H-DEACTIVATEHEARTBEAT";
+    String H_HEARTBEAT = "H-HEARTBEAT";
+
+    /*
+     * Request a given node to start sending heartbeats to the slice of the monitoring node
+     */
+    void activateHeartbeat(String monitoringNode, int period, long key) throws IMTPException, ServiceException;
+
+    /*
+     * Request a given node to stop sending heartbeats to the slice of the monitoring node
+     */
+    void deactivateHeartbeat(String monitoringNode, long key) throws IMTPException;
+
+    /*
+     * Notify the monitoring node that all the given nodes are alive.
+     * The terminating flag indicates that the sender is shutting down.
+     */
+    void heartbeat(String[] nodeNames, boolean terminating) throws IMTPException;
+}
@@ -0,0 +1,168 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.nodeMonitoring;
+
+//#J2ME_EXCLUDE_FILE
+//#APIDOC_EXCLUDE_FILE
+
+import jade.util.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The single scheduler that tracks all nodes monitored by a Main Container through the
+ * <code>HeartbeatNodeMonitoringService</code>.
+ * <p>
+ * The number of threads used is independent of the number of monitored nodes:
+ * <ul>
+ * <li>one scheduler thread periodically evaluates the suspicion level of all nodes in a single pass,</li>
+ * <li>one notifier thread delivers node events to the listeners (i.e. the PlatformManager) in order,</li>
+ * <li>a small bounded pool of workers performs possibly blocking reachability checks on suspected nodes.</li>
+ * </ul>
+ */
+class HeartbeatScheduler implements Runnable {
+    private final Map<String, HeartbeatNodeFailureMonitor> monitors = new ConcurrentHashMap<>();
+    private final Logger myLogger = Logger.getMyLogger(getClass().getName());
+    private final long checkPeriod;
+    private final double phiThreshold;
+    private final long unreachableLimit;
+    private final ExecutorService notifier;
+    private final ExecutorService workers;
+    private Thread myThread;
+    private volatile boolean active;
+
+    HeartbeatScheduler(long checkPeriod, double phiThreshold, long unreachableLimit, int nWorkers) {
+        this.checkPeriod = checkPeriod;
+        this.phiThreshold = phiThreshold;
+        this.unreachableLimit = unreachableLimit;
+        notifier = Executors.newSingleThreadExecutor(r -> createThread(r, "HeartbeatScheduler-Notifier"));
+        AtomicInteger cnt = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(nWorkers, r -> createThread(r, "HeartbeatScheduler-Worker-" + cnt.incrementAndGet()));
+    }
+
+    private static Thread createThread(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    synchronized void start() {
+        active = true;
+        myThread = new Thread(this, "HeartbeatScheduler");
+        myThread.setDaemon(true);
+        myThread.start();
+    }
+
+    synchronized void stop() {
+        active = false;
+        if (myThread != null) {
+            myThread.interrupt();
+            myThread = null;
+        }
+        workers.shutdownNow();
+        notifier.shutdown();
+    }
+
+    void register(HeartbeatNodeFailureMonitor mon) {
+        monitors.put(mon.getNode().getName(), mon);
+    }
+
+    void deregister(HeartbeatNodeFailureMonitor mon) {
+        // Only remove the given monitor: a new monitor may have been registered for the same node
+        monitors.remove(mon.getNode().getName(), mon);
+    }
+
+    int size() {
+        return monitors.size();
+    }
+
+    /**
+     * Process a (possibly batched) heartbeat carrying the names of all nodes that are alive
+     */
+    void heartbeatReceived(String[] nodeNames, boolean terminating) {
+        long now = System.currentTimeMillis();
+        for (String name : nodeNames) {
+            HeartbeatNodeFailureMonitor mon = monitors.get(name);
+            if (mon != null) {
+                mon.heartbeatReceived(now, terminating);
+            } else if (myLogger.isLoggable(Logger.FINE)) {
+                myLogger.log(Logger.FINE, "Heartbeat from un-monitored node " + name + " ignored");
+            }
+        }
+    }
+
+    /**
+     * Execute a possibly blocking check on a worker thread
+     */
+    void execute(Runnable check) {
+        try {
+            workers.execute(check);
+        } catch (RejectedExecutionException ree) {
+            // Scheduler stopped: ignore
+        }
+    }
+
+    /**
+     * Deliver a node event to the listener on the notifier thread
+     */
+    void notify(Runnable event) {
+        try {
+            notifier.execute(() -> {
+                try {
+                    event.run();
+                } catch (Throwable t) {
+                    myLogger.log(Logger.WARNING, "Unexpected error notifying node event", t);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            // Scheduler stopped: ignore
+        }
+    }
+
+    public void run() {
+        myLogger.log(Logger.CONFIG, "HeartbeatScheduler started. Check period = " + checkPeriod + " ms");
+        while (active) {
+            try {
+                Thread.sleep(checkPeriod);
+                long now = System.currentTimeMillis();
+                for (HeartbeatNodeFailureMonitor mon : monitors.values()) {
+                    mon.check(now, phiThreshold, unreachableLimit);
+                }
+            } catch (InterruptedException ie) {
+                if (active) {
+                    myLogger.log(Logger.WARNING, "HeartbeatScheduler thread unexpectedly interrupted");
+                }
+            } catch (Throwable t) {
+                // If we get an uncaught Exception here the scheduler dies and no more nodes are monitored
+                myLogger.log(Logger.WARNING, "Unexpected error evaluating monitored nodes", t);
+            }
+        }
+        myLogger.log(Logger.CONFIG, "HeartbeatScheduler terminated");
+    }
+}
@@ -0,0 +1,146 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.nodeMonitoring;
+
+//#J2ME_EXCLUDE_FILE
+
+/**
+ * Implementation of the Phi Accrual failure detector (Hayashibara et al.).
+ * Instead of a boolean alive/dead indication, the detector provides a suspicion level
+ * <code>phi</code> computed from the history of heartbeat inter-arrival times.
+ * A phi value of 1 means a ~10% probability of making a mistake when suspecting the
+ * node, a value of 2 a ~1%, a value of 3 a ~0.1% and so on.
+ * <p>
+ * Inter-arrival times are assumed to be normally distributed. An <code>acceptablePause</code>
+ * is added to the observed mean so that occasional long pauses (typically GC pauses on either side)
+ * do not immediately raise the suspicion level.
+ * <p>
+ * This class is not thread safe: callers must synchronize.
+ *
+ * @see HeartbeatNodeMonitoringService
+ */
+public class PhiAccrualFailureDetector {
+    private final long[] intervals;
+    private final long minStdDeviation;
+    private final long acceptablePause;
+    private int size = 0;
+    private int next = 0;
+    private double sum = 0;
+    private double squaredSum = 0;
+    private long lastHeartbeat = -1;
+
+    /**
+     * @param historySize          The number of inter-arrival samples used to estimate the distribution
+     * @param firstHeartbeatEstimate The expected inter-arrival time used before real samples are available
+     * @param minStdDeviation      Minimum standard deviation (ms) to avoid over-sensitivity with very regular heartbeats
+     * @param acceptablePause      Additional time (ms) tolerated on top of the mean inter-arrival time
+     */
+    public PhiAccrualFailureDetector(int historySize, long firstHeartbeatEstimate, long minStdDeviation, long acceptablePause) {
+        intervals = new long[Math.max(historySize, 2)];
+        this.minStdDeviation = Math.max(minStdDeviation, 1);
+        this.acceptablePause = acceptablePause;
+        // Bootstrap the history with two samples around the estimate so that the
+        // very first inter-arrival times are evaluated against a sensible distribution
+        long stdDeviationEstimate = firstHeartbeatEstimate / 4;
+        addInterval(firstHeartbeatEstimate - stdDeviationEstimate);
+        addInterval(firstHeartbeatEstimate + stdDeviationEstimate);
+    }
+
+    /**
+     * Record a heartbeat received at the given time
+     */
+    public void heartbeat(long now) {
+        if (lastHeartbeat >= 0) {
+            long interval = now - lastHeartbeat;
+            if (interval >= 0) {
+                addInterval(interval);
+            }
+        }
+        lastHeartbeat = now;
+    }
+
+    /**
+     * Forget the time of the last heartbeat, but keep the inter-arrival history.
+     * The next heartbeat will restart the measurement. Used when monitoring is
+     * (re)started so that the time spent before is not considered an inter-arrival time.
+     */
+    public void reset(long now) {
+        lastHeartbeat = now;
+    }
+
+    /**
+     * Return the suspicion level at the given time
+     */
+    public double phi(long now) {
+        if (lastHeartbeat < 0) {
+            return 0.0;
+        }
+        long timeDiff = now - lastHeartbeat;
+        double mean = sum / size + acceptablePause;
+        double variance = squaredSum / size - (sum / size) * (sum / size);
+        double stdDeviation = Math.max(Math.sqrt(Math.max(variance, 0)), minStdDeviation);
+        return phi(timeDiff, mean, stdDeviation);
+    }
+
+    public long getLastHeartbeat() {
+        return lastHeartbeat;
+    }
+
+    /**
+     * Return the mean of the inter-arrival times currently in the history
+     */
+    public double getMeanInterval() {
+        return sum / size;
+    }
+
+    /**
+     * Compute -log10(1 - F(timeDiff)) where F is the cumulative distribution function of the
+     * normal distribution with the given mean and standard deviation. F is approximated with
+     * a logistic function that does not require erf() and is accurate enough for this purpose.
+     */
+    static double phi(long timeDiff, double mean, double stdDeviation) {
+        double y = (timeDiff - mean) / stdDeviation;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (timeDiff > mean) {
+            return -Math.log10(e / (1.0 + e));
+        } else {
+            return -Math.log10(1.0 - 1.0 / (1.0 + e));
+        }
+    }
+
+    private void addInterval(long interval) {
+        if (size == intervals.length) {
+            // Ring buffer full: the oldest sample is overwritten
+            long old = intervals[next];
+            sum -= old;
+            squaredSum -= ((double) old) * old;
+        } else {
+            size++;
+        }
+        intervals[next] = interval;
+        sum += interval;
+        squaredSum += ((double) interval) * interval;
+        next = (next + 1) % intervals.length;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.profiling;
+
+//#J2ME_EXCLUDE_FILE
+
+import jade.core.behaviours.Behaviour;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects runtime statistics about a single agent: execution time of the
+ * <code>action()</code> method of its (simple) behaviours, overall and per behaviour,
+ * length of the scheduler run queue, depth of the message queue, time messages
+ * wait in the queue before being received and time spent busy vs idle.
+ * <p>
+ * An <code>AgentProfiler</code> is attached to an agent by the
+ * <code>ProfilingService</code>. When no profiler is attached the agent runtime
+ * does not pay any measurement cost.
+ *
+ * @see ProfilingService
+ */
+public class AgentProfiler {
+
+    private final String agentName;
+    private final boolean perBehaviour;
+    private final long startTime = System.nanoTime();
+
+    private final Histogram actionTime = new Histogram(Histogram.TIME_MAGNITUDE);
+    private final Histogram messageWaitTime = new Histogram(Histogram.TIME_MAGNITUDE);
+    private final Histogram messageQueueDepth = new Histogram(Histogram.LENGTH_MAGNITUDE);
+    private final Histogram runQueueLength = new Histogram(Histogram.LENGTH_MAGNITUDE);
+    private final Map<String, Histogram> behaviourTimes = new ConcurrentHashMap<>();
+
+    // Busy and idle times are only updated by the agent thread
+    private volatile long busyTime = 0;
+    private volatile long idleTime = 0;
+    private volatile long idleStart = 0;
+
+    public AgentProfiler(String agentName, boolean perBehaviour) {
+        this.agentName = agentName;
+        this.perBehaviour = perBehaviour;
+    }
+
+    public String getAgentName() {
+        return agentName;
+    }
+
+    /////////////////////////////////////////////
+    // Measurement methods called by the agent runtime
+    /////////////////////////////////////////////
+
+    /**
+     * Called after the action() method of a simple behaviour was executed
+     */
+    public void actionExecuted(Behaviour b, long nanos) {
+        actionTime.record(nanos);
+        if (perBehaviour) {
+            String key = getKey(b);
+            Histogram h = behaviourTimes.get(key);
+            if (h == null) {
+                h = behaviourTimes.computeIfAbsent(key, k -> new Histogram(Histogram.TIME_MAGNITUDE));
+            }
+            h.record(nanos);
+        }
+    }
+
+    /**
+     * Called after a behaviour selected by the scheduler was executed
+     */
+    public void scheduledExecuted(long nanos) {
+        busyTime += nanos;
+    }
+
+    /**
+     * Called when the agent thread starts waiting for a runnable behaviour
+     */
+    public void idleStarted() {
+        idleStart = System.nanoTime();
+    }
+
+    /**
+     * Called when the agent thread wakes up after waiting for a runnable behaviour
+     */
+    public void idleTerminated() {
+        long start = idleStart;
+        if (start != 0) {
+            idleTime += System.nanoTime() - start;
+            idleStart = 0;
+        }
+    }
+
+    /**
+     * Called each time the scheduler selects a behaviour
+     */
+    public void behaviourScheduled(int readyBehaviours) {
+        runQueueLength.record(readyBehaviours);
+    }
+
+    /**
+     * Called each time a message is inserted in the message queue
+     */
+    public void messagePosted(int queueDepth) {
+        messageQueueDepth.record(queueDepth);
+    }
+
+    /**
+     * Called each time a message is extracted from the message queue
+     *
+     * @param waitMillis The time the message spent in the queue
+     */
+    public void messageReceived(long waitMillis) {
+        messageWaitTime.record(waitMillis * 1000000L);
+    }
+
+    /////////////////////////////////////////////
+    // Statistics retrieval methods
+    /////////////////////////////////////////////
+
+    /**
+     * @return the distribution of the execution times (ns) of the action() method of all simple behaviours
+     */
+    public Histogram getActionTime() {
+        return actionTime;
+    }
+
+    /**
+     * @return the distribution of the time (ns, with ms resolution) messages wait in the queue before being received
+     */
+    public Histogram getMessageWaitTime() {
+        return messageWaitTime;
+    }
+
+    public Histogram getMessageQueueDepth() {
+        return messageQueueDepth;
+    }
+
+    public Histogram getRunQueueLength() {
+        return runQueueLength;
+    }
+
+    /**
+     * @return the distribution of the execution times (ns) of the action() method of each behaviour
+     * keyed by behaviour name. This is empty if per-behaviour profiling is disabled.
+     */
+    public Map<String, Histogram> getBehaviourTimes() {
+        return behaviourTimes;
+    }
+
+    /**
+     * @return the overall time (ns) spent executing behaviours
+     */
+    public long getBusyTime() {
+        return busyTime;
+    }
+
+    /**
+     * @return the overall time (ns) spent waiting for a runnable behaviour, including
+     * the current wait if the agent is idle
+     */
+    public long getIdleTime() {
+        long start = idleStart;
+        return idleTime + (start != 0 ? System.nanoTime() - start : 0);
+    }
+
+    /**
+     * @return the time (ns) since this profiler was attached to the agent
+     */
+    public long getProfiledTime() {
+        return System.nanoTime() - startTime;
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder(agentName);
+        sb.append(": busy=").append(getBusyTime() / 1000000).append("ms idle=").append(getIdleTime() / 1000000).append("ms\n");
+        sb.append("  action-time(ns) ").append(actionTime.snapshot()).append('\n');
+        sb.append("  message-wait-time(ns) ").append(messageWaitTime.snapshot()).append('\n');
+        sb.append("  message-queue-depth ").append(messageQueueDepth.snapshot()).append('\n');
+        sb.append("  run-queue-length ").append(runQueueLength.snapshot()).append('\n');
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(behaviourTimes).entrySet()) {
+            sb.append("  behaviour ").append(e.getKey()).append("(ns) ").append(e.getValue().snapshot()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String getKey(Behaviour b) {
+        String name = b.getBehaviourName();
+        // Anonymous behaviours have a numeric default name: use the class name instead
+        if (name == null || name.isEmpty() || Character.isDigit(name.charAt(0))) {
+            name = b.getClass().getName();
+        }
+        return name;
+    }
+}
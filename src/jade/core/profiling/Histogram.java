@@ -0,0 +1,235 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.profiling;
+
+//#J2ME_EXCLUDE_FILE
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative long values with a fixed relative precision
+ * in the style of HdrHistogram. Values smaller than 32 have their own bucket;
+ * larger values are grouped in buckets whose width doubles at each power of two,
+ * each power of two being split into 16 sub-buckets. Reported percentiles are
+ * therefore within about 6% of the actual values.
+ * <p>
+ * Recording a value only requires an atomic increment so that histograms can be
+ * updated by several threads without locks. Statistics are computed on
+ * <code>Snapshot</code>s that can be subtracted to obtain the distribution of the
+ * values recorded in a given interval and added to aggregate several histograms.
+ */
+public class Histogram {
+    /**
+     * Highest power of two tracked by histograms of durations in nanoseconds (about 18 minutes)
+     */
+    public static final int TIME_MAGNITUDE = 40;
+    /**
+     * Highest power of two tracked by histograms of queue lengths
+     */
+    public static final int LENGTH_MAGNITUDE = 20;
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+
+    private final int maxMagnitude;
+    private final AtomicLongArray counts;
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public Histogram(int maxMagnitude) {
+        if (maxMagnitude < SUB_BUCKET_BITS || maxMagnitude > 62) {
+            throw new IllegalArgumentException("Illegal histogram magnitude " + maxMagnitude);
+        }
+        this.maxMagnitude = maxMagnitude;
+        counts = new AtomicLongArray(getBucketCount(maxMagnitude));
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(indexOf(value, maxMagnitude));
+        sum.addAndGet(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * @return a consistent enough copy of the current content of this histogram.
+     * Values recorded while the snapshot is taken may or may not be included.
+     */
+    public Snapshot snapshot() {
+        long[] cc = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < cc.length; ++i) {
+            cc[i] = counts.get(i);
+            total += cc[i];
+        }
+        return new Snapshot(maxMagnitude, cc, total, sum.get(), max.get());
+    }
+
+    private static int getBucketCount(int maxMagnitude) {
+        return SUB_BUCKET_COUNT + (maxMagnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF_COUNT;
+    }
+
+    static int indexOf(long value, int maxMagnitude) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude > maxMagnitude) {
+            return getBucketCount(maxMagnitude) - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS + 1;
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (subBucket - SUB_BUCKET_HALF_COUNT);
+    }
+
+    /**
+     * @return the highest value that falls in the bucket with the given index
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+
+    /**
+     * Inner class Snapshot.
+     * An immutable copy of the content of a histogram
+     */
+    public static class Snapshot {
+        private final int maxMagnitude;
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(int maxMagnitude, long[] counts, long count, long sum, long max) {
+            this.maxMagnitude = maxMagnitude;
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @return an empty snapshot compatible with histograms with the given magnitude
+         */
+        public static Snapshot empty(int maxMagnitude) {
+            return new Snapshot(maxMagnitude, new long[getBucketCount(maxMagnitude)], 0, 0, 0);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public double getMean() {
+            return count > 0 ? ((double) sum) / count : Double.NaN;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @param percentile A value between 0 and 100
+         * @return the highest value among the lowest <code>percentile</code>% of
+         * the recorded values (with the histogram precision) or 0 if no value was recorded.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100.0) / 100.0));
+            long cnt = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                cnt += counts[i];
+                if (cnt >= target) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * @return a snapshot holding the values recorded after the given previous
+         * snapshot of the same histogram (or aggregation of histograms) was taken.
+         * The max of the returned snapshot is estimated from the highest non empty bucket.
+         */
+        public Snapshot since(Snapshot previous) {
+            checkCompatible(previous);
+            long[] cc = new long[counts.length];
+            long total = 0;
+            long m = 0;
+            for (int i = 0; i < cc.length; ++i) {
+                cc[i] = Math.max(0, counts[i] - previous.counts[i]);
+                total += cc[i];
+                if (cc[i] > 0) {
+                    m = Math.min(highestValueOf(i), max);
+                }
+            }
+            return new Snapshot(maxMagnitude, cc, total, Math.max(0, sum - previous.sum), m);
+        }
+
+        /**
+         * @return a snapshot holding the values of both this and the given snapshot
+         */
+        public Snapshot add(Snapshot other) {
+            checkCompatible(other);
+            long[] cc = new long[counts.length];
+            for (int i = 0; i < cc.length; ++i) {
+                cc[i] = counts[i] + other.counts[i];
+            }
+            return new Snapshot(maxMagnitude, cc, count + other.count, sum + other.sum, Math.max(max, other.max));
+        }
+
+        private void checkCompatible(Snapshot other) {
+            if (other.maxMagnitude != maxMagnitude) {
+                throw new IllegalArgumentException("Incompatible histogram snapshots");
+            }
+        }
+
+        public String toString() {
+            return "count=" + count + " mean=" + format(getMean()) + " p50=" + getValueAtPercentile(50) +
+                    " p90=" + getValueAtPercentile(90) + " p99=" + getValueAtPercentile(99) + " max=" + max;
+        }
+
+        private static String format(double d) {
+            return Double.isNaN(d) ? "-" : String.valueOf(Math.round(d));
+        }
+    } // END of inner class Snapshot
+}
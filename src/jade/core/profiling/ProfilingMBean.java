@@ -0,0 +1,68 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.profiling;
+
+//#J2ME_EXCLUDE_FILE
+
+/**
+ * Management interface of the <code>ProfilingService</code> exposed through JMX
+ * (object name <code>jade:type=Profiling,container=&lt;container-name&gt;</code>).
+ * Durations are expressed in nanoseconds.
+ */
+public interface ProfilingMBean {
+
+    String getContainerName();
+
+    /**
+     * @return the local names of the agents currently profiled in this container
+     */
+    String[] getProfiledAgents();
+
+    /**
+     * @return a textual report of all statistics collected for the given agent
+     */
+    String getAgentReport(String agentName);
+
+    /**
+     * @return the <code>n</code> behaviours with the highest 99th percentile of
+     * action() execution time, in the form <code>agent/behaviour: statistics</code>
+     */
+    String[] getSlowestBehaviours(int n);
+
+    /**
+     * @return the <code>n</code> agents with the highest ratio of time spent executing
+     * behaviours, in the form <code>agent: busy-ratio</code>
+     */
+    String[] getBusiestAgents(int n);
+
+    /**
+     * @return the 99th percentile of the action() execution time of all profiled behaviours
+     */
+    long getActionTimeP99();
+
+    /**
+     * @return the 99th percentile of the time messages wait in the queue of all profiled agents
+     */
+    long getMessageWaitTimeP99();
+}
@@ -0,0 +1,486 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.core.profiling;
+
+//#J2ME_EXCLUDE_FILE
+
+import jade.core.*;
+import jade.core.management.AgentManagementSlice;
+import jade.core.sam.AverageMeasure;
+import jade.core.sam.AverageMeasureProvider;
+import jade.core.sam.CounterValueProvider;
+import jade.core.sam.SAMHelper;
+import jade.util.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JADE Kernel service providing built-in low-overhead profiling of the agent runtime.
+ * <p>
+ * An <code>AgentProfiler</code> is attached to each agent born in the local container
+ * (or to the agents matching the <code>jade_core_profiling_ProfilingService_agents</code>
+ * parameter only). It collects histograms of the execution time of the action() method
+ * of each behaviour, of the scheduler run queue length, of the message queue depth and of
+ * the time messages wait in the queue before being received, and accumulates the time
+ * each agent spends busy and idle.
+ * <p>
+ * Statistics are exposed
+ * <ul>
+ * <li>as System Activity Monitoring measures (if the <code>SAMService</code> is installed
+ * before this service), aggregated over all profiled agents of the container and computed
+ * over each SAM polling period. Per agent measures can be enabled by means of the
+ * <code>jade_core_profiling_ProfilingService_samagents</code> parameter.</li>
+ * <li>through the <code>ProfilingMBean</code> JMX interface, that allows finding the slowest
+ * behaviours and the busiest agents of the container.</li>
+ * </ul>
+ * No measurement cost is paid by agents that are not profiled.
+ */
+public class ProfilingService extends BaseService {
+    /**
+     * The name of this service
+     */
+    public static final String NAME = "jade.core.profiling.Profiling";
+
+    private static final String PREFIX = "jade_core_profiling_ProfilingService_";
+    /**
+     * This constant is the name of the property whose value contains the ';' separated list of
+     * the local names of the agents to profile. A trailing '*' matches any suffix. Default: *
+     */
+    public static final String AGENTS = PREFIX + "agents";
+    /**
+     * This constant is the name of the property whose value (true/false) indicates whether the
+     * execution time of each behaviour must be tracked separately. Default: true
+     */
+    public static final String BEHAVIOURS = PREFIX + "behaviours";
+    /**
+     * This constant is the name of the property whose value contains the ';' separated list of
+     * the local names of the agents whose statistics must be exposed as individual SAM measures.
+     * Default: none
+     */
+    public static final String SAM_AGENTS = PREFIX + "samagents";
+    /**
+     * This constant is the name of the property whose value (true/false) indicates whether the
+     * ProfilingMBean must be registered in the platform MBean server. Default: true
+     */
+    public static final String JMX = PREFIX + "jmx";
+
+    private static final int ACTION_TIME = 0;
+    private static final int MESSAGE_WAIT_TIME = 1;
+    private static final int MESSAGE_QUEUE_DEPTH = 2;
+    private static final int RUN_QUEUE_LENGTH = 3;
+    private static final int[] MAGNITUDES = {Histogram.TIME_MAGNITUDE, Histogram.TIME_MAGNITUDE, Histogram.LENGTH_MAGNITUDE, Histogram.LENGTH_MAGNITUDE};
+
+    private final Map<AID, AgentProfiler> profilers = new ConcurrentHashMap<>();
+    // Statistics of the profiled agents that already died
+    private final Histogram.Snapshot[] retired = new Histogram.Snapshot[MAGNITUDES.length];
+    private long retiredBusyTime = 0;
+    private long retiredIdleTime = 0;
+
+    private final Filter outgoingFilter = new ProfilingOutgoingFilter();
+    private AgentContainer myContainer;
+    private List<String> agentPatterns;
+    private List<String> samAgentPatterns;
+    private boolean perBehaviour;
+    private boolean jmx;
+    private ObjectName mBeanName;
+
+    public String getName() {
+        return NAME;
+    }
+
+    // No other service is needed at boot time
+    public String[] getDependencies() {
+        return new String[0];
+    }
+
+    public void init(AgentContainer ac, Profile p) throws ProfileException {
+        super.init(ac, p);
+        myContainer = ac;
+        for (int i = 0; i < MAGNITUDES.length; ++i) {
+            retired[i] = Histogram.Snapshot.empty(MAGNITUDES[i]);
+        }
+        agentPatterns = parsePatterns(p.getParameter(AGENTS, "*"));
+        samAgentPatterns = parsePatterns(p.getParameter(SAM_AGENTS, null));
+        perBehaviour = p.getBooleanProperty(BEHAVIOURS, true);
+        jmx = p.getBooleanProperty(JMX, true);
+    }
+
+    public void boot(Profile p) throws ServiceException {
+        super.boot(p);
+
+        // Profile agents that are already there (if any)
+        AID[] ids = myContainer.agentNames();
+        for (AID id : ids) {
+            Agent a = myContainer.acquireLocalAgent(id);
+            if (a != null) {
+                try {
+                    startProfiling(id, a);
+                } finally {
+                    myContainer.releaseLocalAgent(id);
+                }
+            }
+        }
+
+        initializeSAM();
+        if (jmx) {
+            registerMBean();
+        }
+    }
+
+    public void shutdown() {
+        if (mBeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mBeanName);
+            } catch (Exception e) {
+                myLogger.log(Logger.FINE, "Error unregistering ProfilingMBean", e);
+            }
+        }
+        super.shutdown();
+    }
+
+    public Filter getCommandFilter(boolean direction) {
+        if (direction == Filter.OUTGOING) {
+            return outgoingFilter;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return the profiler attached to the given local agent or null if the agent is not profiled
+     */
+    public AgentProfiler getProfiler(AID id) {
+        return profilers.get(id);
+    }
+
+    private void startProfiling(AID id, Agent a) {
+        if (matches(agentPatterns, id.getLocalName()) && a.getProfiler() == null) {
+            AgentProfiler profiler = new AgentProfiler(id.getLocalName(), perBehaviour);
+            profilers.put(id, profiler);
+            a.setProfiler(profiler);
+            myLogger.log(Logger.FINE, "Profiling agent " + id.getLocalName());
+        }
+    }
+
+    private void stopProfiling(AID id) {
+        AgentProfiler profiler = profilers.remove(id);
+        if (profiler != null) {
+            synchronized (retired) {
+                for (int i = 0; i < retired.length; ++i) {
+                    retired[i] = retired[i].add(getHistogram(profiler, i).snapshot());
+                }
+                retiredBusyTime += profiler.getBusyTime();
+                retiredIdleTime += profiler.getIdleTime();
+            }
+        }
+    }
+
+    private static Histogram getHistogram(AgentProfiler profiler, int metric) {
+        return switch (metric) {
+            case ACTION_TIME -> profiler.getActionTime();
+            case MESSAGE_WAIT_TIME -> profiler.getMessageWaitTime();
+            case MESSAGE_QUEUE_DEPTH -> profiler.getMessageQueueDepth();
+            default -> profiler.getRunQueueLength();
+        };
+    }
+
+    /**
+     * @return the cumulative snapshot of the given metric for the indicated agent or,
+     * if agentName is null, for all agents profiled since this service started
+     */
+    private Histogram.Snapshot getCumulativeSnapshot(int metric, String agentName) {
+        if (agentName != null) {
+            AgentProfiler profiler = findProfiler(agentName);
+            return profiler != null ? getHistogram(profiler, metric).snapshot() : Histogram.Snapshot.empty(MAGNITUDES[metric]);
+        } else {
+            Histogram.Snapshot result;
+            synchronized (retired) {
+                result = retired[metric];
+            }
+            for (AgentProfiler profiler : profilers.values()) {
+                result = result.add(getHistogram(profiler, metric).snapshot());
+            }
+            return result;
+        }
+    }
+
+    private long[] getCumulativeBusyIdleTime(String agentName) {
+        long[] result = new long[2];
+        if (agentName != null) {
+            AgentProfiler profiler = findProfiler(agentName);
+            if (profiler != null) {
+                result[0] = profiler.getBusyTime();
+                result[1] = profiler.getIdleTime();
+            }
+        } else {
+            synchronized (retired) {
+                result[0] = retiredBusyTime;
+                result[1] = retiredIdleTime;
+            }
+            for (AgentProfiler profiler : profilers.values()) {
+                result[0] += profiler.getBusyTime();
+                result[1] += profiler.getIdleTime();
+            }
+        }
+        return result;
+    }
+
+    private AgentProfiler findProfiler(String agentName) {
+        for (AgentProfiler profiler : profilers.values()) {
+            if (profiler.getAgentName().equals(agentName)) {
+                return profiler;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> parsePatterns(String s) {
+        List<String> result = new ArrayList<>();
+        if (s != null) {
+            for (Object o : Specifier.parseList(s, ';')) {
+                String pattern = ((String) o).trim();
+                if (!pattern.isEmpty()) {
+                    result.add(pattern);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(List<String> patterns, String name) {
+        for (String pattern : patterns) {
+            if (pattern.endsWith("*") ? name.startsWith(pattern.substring(0, pattern.length() - 1)) : name.equals(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /////////////////////////////////////////////
+    // System Activity Monitoring
+    /////////////////////////////////////////////
+
+    private void initializeSAM() {
+        try {
+            Service sam = myFinder.findService(SAMHelper.SERVICE_NAME);
+            if (sam != null) {
+                SAMHelper samHelper = (SAMHelper) sam.getHelper(null);
+                addMeasureProviders(samHelper, "", null);
+                samHelper.addCounterValueProvider("Behaviour_Action_Count", new CounterValueProvider() {
+                    public long getValue() {
+                        return getCumulativeSnapshot(ACTION_TIME, null).getCount();
+                    }
+
+                    public boolean isDifferential() {
+                        return false;
+                    }
+                });
+                for (String agentName : samAgentPatterns) {
+                    addMeasureProviders(samHelper, agentName + "_", agentName);
+                }
+            } else {
+                myLogger.log(Logger.CONFIG, "SAMService not installed: profiling statistics only available through JMX");
+            }
+        } catch (Exception e) {
+            myLogger.log(Logger.WARNING, "Error initializing profiling System Activity Monitoring", e);
+        }
+    }
+
+    private void addMeasureProviders(SAMHelper samHelper, String prefix, String agentName) {
+        samHelper.addEntityMeasureProvider(prefix + "Avg_Behaviour_Action_Time", new IntervalMeasureProvider(ACTION_TIME, agentName, -1));
+        samHelper.addEntityMeasureProvider(prefix + "P99_Behaviour_Action_Time", new IntervalMeasureProvider(ACTION_TIME, agentName, 99));
+        samHelper.addEntityMeasureProvider(prefix + "Max_Behaviour_Action_Time", new IntervalMeasureProvider(ACTION_TIME, agentName, 100));
+        samHelper.addEntityMeasureProvider(prefix + "Avg_Message_Wait_Time", new IntervalMeasureProvider(MESSAGE_WAIT_TIME, agentName, -1));
+        samHelper.addEntityMeasureProvider(prefix + "P99_Message_Wait_Time", new IntervalMeasureProvider(MESSAGE_WAIT_TIME, agentName, 99));
+        samHelper.addEntityMeasureProvider(prefix + "Max_Message_Queue_Depth", new IntervalMeasureProvider(MESSAGE_QUEUE_DEPTH, agentName, 100));
+        samHelper.addEntityMeasureProvider(prefix + "Avg_Run_Queue_Length", new IntervalMeasureProvider(RUN_QUEUE_LENGTH, agentName, -1));
+        samHelper.addEntityMeasureProvider(prefix + "Agent_Busy_Ratio", new BusyRatioProvider(agentName));
+    }
+
+    /**
+     * Inner class IntervalMeasureProvider.
+     * Provides a statistic (mean if percentile is negative) of the values of a given metric
+     * recorded since the previous invocation. Durations are provided in ms.
+     */
+    private class IntervalMeasureProvider implements AverageMeasureProvider {
+        private final int metric;
+        private final String agentName;
+        private final double percentile;
+        private Histogram.Snapshot previous;
+
+        IntervalMeasureProvider(int metric, String agentName, double percentile) {
+            this.metric = metric;
+            this.agentName = agentName;
+            this.percentile = percentile;
+            previous = Histogram.Snapshot.empty(MAGNITUDES[metric]);
+        }
+
+        public synchronized AverageMeasure getValue() {
+            Histogram.Snapshot current = getCumulativeSnapshot(metric, agentName);
+            Histogram.Snapshot interval = current.since(previous);
+            previous = current;
+            if (interval.getCount() == 0) {
+                return new AverageMeasure(Double.NaN, 0);
+            }
+            double value = (percentile < 0 ? interval.getMean() : interval.getValueAtPercentile(percentile));
+            if (MAGNITUDES[metric] == Histogram.TIME_MAGNITUDE) {
+                value = value / 1000000.0;
+            }
+            // Means are weighted by the number of samples when aggregated, other statistics are not
+            return new AverageMeasure(value, percentile < 0 ? (int) Math.min(interval.getCount(), Integer.MAX_VALUE) : 1);
+        }
+    } // END of inner class IntervalMeasureProvider
+
+    /**
+     * Inner class BusyRatioProvider.
+     * Provides the fraction of time profiled agents spent executing behaviours since
+     * the previous invocation.
+     */
+    private class BusyRatioProvider implements AverageMeasureProvider {
+        private final String agentName;
+        private long previousBusy = 0;
+        private long previousIdle = 0;
+
+        BusyRatioProvider(String agentName) {
+            this.agentName = agentName;
+        }
+
+        public synchronized AverageMeasure getValue() {
+            long[] current = getCumulativeBusyIdleTime(agentName);
+            long busy = Math.max(0, current[0] - previousBusy);
+            long idle = Math.max(0, current[1] - previousIdle);
+            previousBusy = current[0];
+            previousIdle = current[1];
+            if (busy + idle == 0) {
+                return new AverageMeasure(Double.NaN, 0);
+            }
+            return new AverageMeasure(((double) busy) / (busy + idle), 1);
+        }
+    } // END of inner class BusyRatioProvider
+
+    /////////////////////////////////////////////
+    // JMX
+    /////////////////////////////////////////////
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("jade:type=Profiling,container=" + ObjectName.quote(myContainer.getID().getName()));
+            server.registerMBean(new StandardMBean(new ProfilingMBeanImpl(), ProfilingMBean.class), name);
+            mBeanName = name;
+            myLogger.log(Logger.CONFIG, "ProfilingMBean registered as " + name);
+        } catch (Exception e) {
+            myLogger.log(Logger.WARNING, "Error registering ProfilingMBean", e);
+        }
+    }
+
+    /**
+     * Inner class ProfilingMBeanImpl
+     */
+    private class ProfilingMBeanImpl implements ProfilingMBean {
+
+        public String getContainerName() {
+            return myContainer.getID().getName();
+        }
+
+        public String[] getProfiledAgents() {
+            List<String> names = new ArrayList<>();
+            for (AgentProfiler profiler : profilers.values()) {
+                names.add(profiler.getAgentName());
+            }
+            Collections.sort(names);
+            return names.toArray(new String[0]);
+        }
+
+        public String getAgentReport(String agentName) {
+            AgentProfiler profiler = findProfiler(agentName);
+            return profiler != null ? profiler.report() : "Agent " + agentName + " not profiled";
+        }
+
+        public String[] getSlowestBehaviours(int n) {
+            List<Object[]> all = new ArrayList<>();
+            for (AgentProfiler profiler : profilers.values()) {
+                for (Map.Entry<String, Histogram> e : profiler.getBehaviourTimes().entrySet()) {
+                    Histogram.Snapshot s = e.getValue().snapshot();
+                    all.add(new Object[]{profiler.getAgentName() + "/" + e.getKey(), s});
+                }
+            }
+            all.sort((o1, o2) -> Long.compare(((Histogram.Snapshot) o2[1]).getValueAtPercentile(99), ((Histogram.Snapshot) o1[1]).getValueAtPercentile(99)));
+            String[] result = new String[Math.min(n, all.size())];
+            for (int i = 0; i < result.length; ++i) {
+                result[i] = all.get(i)[0] + ": " + all.get(i)[1];
+            }
+            return result;
+        }
+
+        public String[] getBusiestAgents(int n) {
+            List<AgentProfiler> all = new ArrayList<>(profilers.values());
+            all.sort((p1, p2) -> Double.compare(getBusyRatio(p2), getBusyRatio(p1)));
+            String[] result = new String[Math.min(n, all.size())];
+            for (int i = 0; i < result.length; ++i) {
+                result[i] = all.get(i).getAgentName() + ": " + getBusyRatio(all.get(i));
+            }
+            return result;
+        }
+
+        public long getActionTimeP99() {
+            return getCumulativeSnapshot(ACTION_TIME, null).getValueAtPercentile(99);
+        }
+
+        public long getMessageWaitTimeP99() {
+            return getCumulativeSnapshot(MESSAGE_WAIT_TIME, null).getValueAtPercentile(99);
+        }
+
+        private double getBusyRatio(AgentProfiler profiler) {
+            long busy = profiler.getBusyTime();
+            long total = busy + profiler.getIdleTime();
+            return total > 0 ? ((double) busy) / total : 0.0;
+        }
+    } // END of inner class ProfilingMBeanImpl
+
+    /**
+     * Inner class ProfilingOutgoingFilter.
+     * Attaches a profiler to newly born agents and collects the statistics of dead agents.
+     */
+    private class ProfilingOutgoingFilter extends Filter {
+
+        protected void postProcess(VerticalCommand cmd) {
+            String name = cmd.getName();
+            if (name.equals(AgentManagementSlice.INFORM_CREATED)) {
+                // Only if the agent was actually created
+                if (!(cmd.getReturnValue() instanceof Throwable)) {
+                    Object[] params = cmd.getParams();
+                    startProfiling((AID) params[0], (Agent) params[1]);
+                }
+            } else if (name.equals(AgentManagementSlice.INFORM_KILLED)) {
+                stopProfiling((AID) cmd.getParams()[0]);
+            }
+        }
+    } // END of inner class ProfilingOutgoingFilter
+}
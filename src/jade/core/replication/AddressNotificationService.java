@@ -58,6 +58,11 @@ public class AddressNotificationService extends BaseService {
         return AddressNotificationSlice.NAME;
     }
 
+    // Boot only retrieves the Service Manager addresses from the slices of this service
+    public String[] getDependencies() {
+        return new String[0];
+    }
+
     public Class<AddressNotificationSlice> getHorizontalInterface() {
         try {
             return (Class<AddressNotificationSlice>) Class.forName(AddressNotificationSlice.NAME + "Slice");
@@ -44,6 +44,29 @@ import java.util.*;
 
 public class AgentReplicationService extends BaseService {
     public static final String NAME = AgentReplicationHelper.SERVICE_NAME;
+
+    /**
+     * The policy used to select which replica of a HOT replicated virtual agent a message is
+     * delivered to. Possible values are <code>round-robin</code> (default),
+     * <code>least-loaded</code>, <code>power-of-two</code>, <code>locality-first</code> or the
+     * fully qualified name of a class implementing the <code>ReplicaSelectionPolicy</code> interface.
+     * Load aware policies should be configured consistently in all containers since the load of
+     * replicas is only gossiped by containers where such a policy is active.
+     */
+    public static final String SELECTION_POLICY = "jade_core_replication_AgentReplicationService_selectionpolicy";
+    public static final String SELECTION_POLICY_DEFAULT = "round-robin";
+
+    /**
+     * The period (in ms) at which the load of local replicas is notified to all other
+     * AgentReplicationService slices when a load aware selection policy is active.
+     * A value <= 0 disables the load gossip.
+     */
+    public static final String LOAD_GOSSIP_PERIOD = "jade_core_replication_AgentReplicationService_loadgossipperiod";
+    public static final long LOAD_GOSSIP_PERIOD_DEFAULT = 1000;
+    // Gossiped load information older than this number of periods is considered stale
+    private static final int LOAD_MAX_AGE_PERIODS = 5;
+    // Unchanged load information is gossiped again at least once every this number of periods
+    private static final int LOAD_REFRESH_PERIODS = 3;
     // Map a virtual agent to the set of global information associated to it
     private final Map<AID, GlobalReplicationInfo> globalReplications = new Hashtable<>();
     // Map a replica agent to the related virtual agent
@@ -56,11 +79,21 @@ public class AgentReplicationService extends BaseService {
     private Filter outFilter;
     private Filter incFilter;
     private ServiceComponent localSlice;
+    // null means legacy round-robin selection
+    private ReplicaSelectionPolicy selectionPolicy;
+    private ReplicaLoadTable loadTable;
+    private long loadGossipPeriod;
+    private LoadGossiper loadGossiper;
 
     public String getName() {
         return NAME;
     }
 
+    @Override
+    public String[] getDependencies() {
+        return new String[]{MessagingService.NAME, AgentMobilityService.NAME};
+    }
+
     @Override
     public void init(AgentContainer ac, Profile p) throws ProfileException {
         super.init(ac, p);
@@ -70,6 +103,36 @@ public class AgentReplicationService extends BaseService {
         incFilter = new CommandIncomingFilter();
 
         localSlice = new ServiceComponent();
+
+        selectionPolicy = createSelectionPolicy(p.getParameter(SELECTION_POLICY, SELECTION_POLICY_DEFAULT));
+        loadGossipPeriod = LOAD_GOSSIP_PERIOD_DEFAULT;
+        try {
+            loadGossipPeriod = Long.parseLong(p.getParameter(LOAD_GOSSIP_PERIOD, null));
+        } catch (Exception e) {
+            // Keep default
+        }
+        long maxAge = loadGossipPeriod > 0 ? loadGossipPeriod * LOAD_MAX_AGE_PERIODS : 0;
+        loadTable = new ReplicaLoadTable(ac, maxAge);
+    }
+
+    private ReplicaSelectionPolicy createSelectionPolicy(String policyName) throws ProfileException {
+        switch (policyName) {
+            case "round-robin":
+                return null;
+            case "least-loaded":
+                return new LeastLoadedReplicaPolicy();
+            case "power-of-two":
+                return new PowerOfTwoChoicesReplicaPolicy();
+            case "locality-first":
+                return new LocalityFirstReplicaPolicy();
+            default:
+                try {
+                    myLogger.log(Logger.CONFIG, "Loading ReplicaSelectionPolicy class = " + policyName + "...");
+                    return (ReplicaSelectionPolicy) Class.forName(policyName).getDeclaredConstructor().newInstance();
+                } catch (Exception e) {
+                    throw new ProfileException("Error loading ReplicaSelectionPolicy " + policyName, e);
+                }
+        }
     }
 
     @Override
@@ -91,6 +154,20 @@ public class AgentReplicationService extends BaseService {
             // Should never happen since this is a local call
             throw new ServiceException("Cannot retrieve the local MessagingService.", imtpe);
         }
+
+        if (selectionPolicy != null && loadGossipPeriod > 0) {
+            loadGossiper = new LoadGossiper();
+            loadGossiper.start();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (loadGossiper != null) {
+            loadGossiper.stopGossiping();
+            loadGossiper = null;
+        }
+        super.shutdown();
     }
 
     /**
@@ -389,6 +466,7 @@ public class AgentReplicationService extends BaseService {
 
     private void removeReplica(AID virtualAid, AID replicaAid) {
         removeReplicaVirtualMapping(replicaAid);
+        loadTable.remove(replicaAid);
 
         GlobalReplicationInfo info = globalReplications.get(virtualAid);
         if (info != null) {
@@ -766,7 +844,7 @@ public class AgentReplicationService extends BaseService {
                     GlobalReplicationInfo info = globalReplications.get(receiver);
                     if (info != null) {
                         // Receiver is a virtual AID --> Redirect the SEND_MESSAGE command to one of the implementation replicas
-                        AID replica = info.getReplica();
+                        AID replica = info.getReplica(selectionPolicy, loadTable);
                         AID sender = (AID) cmd.getParam(0);
                         // NOTE that the gMsg cannot be a MultipleGenericMessage since we are in the outgoing chain
                         GenericMessage gMsg = (GenericMessage) cmd.getParam(1);
@@ -799,7 +877,7 @@ public class AgentReplicationService extends BaseService {
 
                             GlobalReplicationInfo info = globalReplications.get(virtualAid);
                             if (info != null) {
-                                AID newReplica = info.getReplica();
+                                AID newReplica = info.getReplica(selectionPolicy, loadTable);
                                 myLogger.log(Logger.FINE, "Redirecting message " + ACLMessage.getPerformative(msg.getPerformative()) + "[" + msg.getContent() + "] from dirty replica " + receiver.getLocalName() + " to new replica " + newReplica.getLocalName());
                                 if (receiver.equals(newReplica)) {
                                     // This may happen in COLD_REPLICATION mode when the master replica
@@ -995,6 +1073,90 @@ public class AgentReplicationService extends BaseService {
         }
     }  // END of inner class ReplicaInfo
 
+    /**
+     * Inner class LoadGossiper.
+     * Periodically notifies all other slices about the message queue size of the replicas of
+     * HOT replicated virtual agents living in the local container. Unchanged information is
+     * only re-notified every LOAD_REFRESH_PERIODS periods to keep the gossip lightweight.
+     */
+    private class LoadGossiper extends Thread {
+        private volatile boolean active = true;
+        private int[] lastQueueSizes;
+        private AID[] lastReplicas;
+        private int periodsSinceLastGossip;
+
+        private LoadGossiper() {
+            super();
+            setName("AgentReplicationService-LoadGossiper");
+            setDaemon(true);
+        }
+
+        private void stopGossiping() {
+            active = false;
+            interrupt();
+        }
+
+        @Override
+        public void run() {
+            myLogger.log(Logger.CONFIG, "Replica load gossip started. Period = " + loadGossipPeriod + " ms");
+            try {
+                while (active) {
+                    Thread.sleep(loadGossipPeriod);
+                    try {
+                        gossip();
+                    } catch (Exception e) {
+                        myLogger.log(Logger.WARNING, "Error gossiping replica load information", e);
+                    }
+                }
+            } catch (InterruptedException ie) {
+                if (active) {
+                    myLogger.log(Logger.WARNING, "Replica load gossip thread unexpectedly interrupted");
+                }
+            }
+            myLogger.log(Logger.CONFIG, "Replica load gossip terminated");
+        }
+
+        private void gossip() throws Exception {
+            List<AID> replicas = new ArrayList<>();
+            List<Integer> queueSizes = new ArrayList<>();
+            AID[] aa = replicaToVirtualMap.keySet().toArray(new AID[0]);
+            for (AID aid : aa) {
+                AID virtualAid = replicaToVirtualMap.get(aid);
+                GlobalReplicationInfo info = virtualAid != null ? globalReplications.get(virtualAid) : null;
+                if (info != null && info.getReplicationMode() == AgentReplicationHelper.HOT_REPLICATION) {
+                    Agent agent = myContainer.acquireLocalAgent(aid);
+                    if (agent != null) {
+                        try {
+                            replicas.add(aid);
+                            queueSizes.add(agent.getCurQueueSize());
+                        } finally {
+                            myContainer.releaseLocalAgent(aid);
+                        }
+                    }
+                }
+            }
+
+            AID[] rr = replicas.toArray(new AID[0]);
+            int[] qq = new int[rr.length];
+            for (int i = 0; i < qq.length; ++i) {
+                qq[i] = queueSizes.get(i);
+            }
+            periodsSinceLastGossip++;
+            boolean changed = !Arrays.equals(rr, lastReplicas) || !Arrays.equals(qq, lastQueueSizes);
+            if (rr.length > 0 && (changed || periodsSinceLastGossip >= LOAD_REFRESH_PERIODS)) {
+                GenericCommand cmd = new GenericCommand(AgentReplicationSlice.H_REPLICALOAD, NAME, null);
+                cmd.addParam(myContainer.getID());
+                cmd.addParam(rr);
+                cmd.addParam(qq);
+                // Do NOT include myself: the load of local replicas is always read directly
+                broadcast(cmd, false);
+                periodsSinceLastGossip = 0;
+            }
+            lastReplicas = rr;
+            lastQueueSizes = qq;
+        }
+    }  // END of inner class LoadGossiper
+
     /**
      * Inner class ServiceComponent
      */
@@ -1068,9 +1230,19 @@ public class AgentReplicationService extends BaseService {
                     }
                     case AgentReplicationSlice.H_VIRTUALAGENTDEAD -> {
                         AID virtualAid = (AID) cmd.getParam(0);
-                        globalReplications.remove(virtualAid);
+                        GlobalReplicationInfo info = globalReplications.remove(virtualAid);
+                        if (info != null) {
+                            for (AID replicaAid : info.getAllReplicas()) {
+                                loadTable.remove(replicaAid);
+                            }
+                        }
                         myLogger.log(Logger.CONFIG, "Virtual agent " + virtualAid.getLocalName() + " removed");
                     }
+                    case AgentReplicationSlice.H_REPLICALOAD -> {
+                        AID[] replicas = (AID[]) cmd.getParam(1);
+                        int[] queueSizes = (int[]) cmd.getParam(2);
+                        loadTable.update(replicas, queueSizes);
+                    }
                     case AgentReplicationSlice.H_NOTIFYBECOMEMASTER -> {
                         AID newMasterAid = (AID) cmd.getParam(0);
                         localNotifyBecomeMasterToMaster(newMasterAid);
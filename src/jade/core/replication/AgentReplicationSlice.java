@@ -43,6 +43,8 @@ public interface AgentReplicationSlice extends Slice {
     String H_ADDREPLICA = "A";
     String H_MASTERREPLICACHANGED = "M";
     String H_VIRTUALAGENTDEAD = "V";
+    // Periodic load information about the replicas living in the sending container
+    String H_REPLICALOAD = "L";
 
 
     void invokeAgentMethod(AID aid, String methodName, Object[] arguments) throws IMTPException, ServiceException, NotFoundException;
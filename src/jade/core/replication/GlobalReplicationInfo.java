@@ -34,12 +34,15 @@ class GlobalReplicationInfo implements Serializable {
     private final RoundList allReplicas = new RoundList();
     private final Logger myLogger = Logger.getJADELogger(getClass().getName());
     private AID masterAid;
+    // Snapshot of allReplicas passed to the ReplicaSelectionPolicy. Rebuilt only when replicas change
+    private AID[] replicasArray;
 
     GlobalReplicationInfo(AID virtual, AID master, int replicationMode) {
         this.virtualAid = virtual;
         this.masterAid = master;
         this.replicationMode = replicationMode;
         allReplicas.add(master);
+        replicasArray = new AID[]{master};
     }
 
     AID getVirtual() {
@@ -58,11 +61,13 @@ class GlobalReplicationInfo implements Serializable {
         if (!allReplicas.contains(replicaAid)) {
             myLogger.log(Logger.CONFIG, "Adding replica " + replicaAid.getLocalName() + " to global replication information of virtual agent " + virtualAid.getLocalName());
             allReplicas.add(replicaAid);
+            replicasArray = null;
         }
     }
 
     synchronized void removeReplica(AID replicaAid) {
         if (allReplicas.remove(replicaAid)) {
+            replicasArray = null;
             myLogger.log(Logger.CONFIG, "Removing replica " + replicaAid.getLocalName() + " from global replication information of virtual agent " + virtualAid.getLocalName());
         }
     }
@@ -77,13 +82,37 @@ class GlobalReplicationInfo implements Serializable {
         }
     }
 
+    /**
+     * Select a replica by means of the given policy. If policy is null or it
+     * does not make any choice, fall back to round-robin selection.
+     */
+    AID getReplica(ReplicaSelectionPolicy policy, ReplicaSelectionPolicy.LoadProvider loads) {
+        if (policy != null && replicationMode == AgentReplicationHelper.HOT_REPLICATION) {
+            AID[] replicas = getReplicasSnapshot();
+            if (replicas.length > 0) {
+                AID selected = policy.selectReplica(replicas, loads);
+                if (selected != null) {
+                    return selected;
+                }
+            }
+        }
+        return getReplica();
+    }
+
     synchronized AID[] getAllReplicas() {
-        Object[] oo = allReplicas.toArray();
-        AID[] aids = new AID[oo.length];
-        for (int i = 0; i < oo.length; ++i) {
-            aids[i] = (AID) oo[i];
+        return getReplicasSnapshot().clone();
+    }
+
+    private synchronized AID[] getReplicasSnapshot() {
+        if (replicasArray == null) {
+            Object[] oo = allReplicas.toArray();
+            AID[] aids = new AID[oo.length];
+            for (int i = 0; i < oo.length; ++i) {
+                aids[i] = (AID) oo[i];
+            }
+            replicasArray = aids;
         }
-        return aids;
+        return replicasArray;
     }
 
     /**
@@ -0,0 +1,63 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+package jade.core.replication;
+
+//#J2ME_EXCLUDE_FILE
+
+import jade.core.AID;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replica selection policy that always selects the replica with the smallest
+ * message queue. Replicas whose load is unknown are considered idle so that newly
+ * created replicas immediately start receiving messages.
+ * Ties are broken randomly to avoid all senders converging on the same replica between
+ * two load updates.
+ */
+public class LeastLoadedReplicaPolicy implements ReplicaSelectionPolicy {
+
+    public AID selectReplica(AID[] replicas, LoadProvider loads) {
+        int n = replicas.length;
+        int start = n > 1 ? ThreadLocalRandom.current().nextInt(n) : 0;
+        AID selected = null;
+        int minLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < n; ++i) {
+            AID r = replicas[(start + i) % n];
+            int load = effectiveLoad(loads.getQueueSize(r));
+            if (load < minLoad) {
+                minLoad = load;
+                selected = r;
+                if (load == 0) {
+                    // Cannot do better than an empty queue
+                    break;
+                }
+            }
+        }
+        return selected;
+    }
+
+    static int effectiveLoad(int queueSize) {
+        return queueSize == LoadProvider.UNKNOWN ? 0 : queueSize;
+    }
+}
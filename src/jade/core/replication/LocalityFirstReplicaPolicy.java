@@ -0,0 +1,67 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+package jade.core.replication;
+
+//#J2ME_EXCLUDE_FILE
+
+import jade.core.AID;
+
+/**
+ * Replica selection policy that prefers replicas living in the same container as the
+ * sender, thus avoiding a network hop. Among local replicas the least loaded one is
+ * selected. If no replica lives in the local container or all local replicas have more
+ * than <code>maxLocalQueueSize</code> queued messages, the selection is delegated to
+ * the <code>PowerOfTwoChoicesReplicaPolicy</code>.
+ */
+public class LocalityFirstReplicaPolicy implements ReplicaSelectionPolicy {
+    public static final int DEFAULT_MAX_LOCAL_QUEUE_SIZE = 100;
+
+    private final int maxLocalQueueSize;
+    private final ReplicaSelectionPolicy fallback = new PowerOfTwoChoicesReplicaPolicy();
+
+    public LocalityFirstReplicaPolicy() {
+        this(DEFAULT_MAX_LOCAL_QUEUE_SIZE);
+    }
+
+    public LocalityFirstReplicaPolicy(int maxLocalQueueSize) {
+        this.maxLocalQueueSize = maxLocalQueueSize;
+    }
+
+    public AID selectReplica(AID[] replicas, LoadProvider loads) {
+        AID selected = null;
+        int minLoad = Integer.MAX_VALUE;
+        for (AID r : replicas) {
+            if (loads.isLocal(r)) {
+                int load = LeastLoadedReplicaPolicy.effectiveLoad(loads.getQueueSize(r));
+                if (load < minLoad) {
+                    minLoad = load;
+                    selected = r;
+                }
+            }
+        }
+        if (selected != null && minLoad <= maxLocalQueueSize) {
+            return selected;
+        }
+        return fallback.selectReplica(replicas, loads);
+    }
+}
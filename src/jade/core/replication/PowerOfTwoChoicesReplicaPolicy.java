@@ -0,0 +1,56 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+package jade.core.replication;
+
+//#J2ME_EXCLUDE_FILE
+
+import jade.core.AID;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replica selection policy implementing the "power of two choices" scheme: two
+ * replicas are picked at random and the less loaded one is selected.
+ * Compared to the <code>LeastLoadedReplicaPolicy</code> this avoids the herd effect
+ * where all senders pick the same replica on the basis of stale load information,
+ * while costing two load lookups only regardless of the number of replicas.
+ */
+public class PowerOfTwoChoicesReplicaPolicy implements ReplicaSelectionPolicy {
+
+    public AID selectReplica(AID[] replicas, LoadProvider loads) {
+        int n = replicas.length;
+        if (n == 1) {
+            return replicas[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(n);
+        // Pick a second, different, replica
+        int j = random.nextInt(n - 1);
+        if (j >= i) {
+            j++;
+        }
+        int loadI = LeastLoadedReplicaPolicy.effectiveLoad(loads.getQueueSize(replicas[i]));
+        int loadJ = LeastLoadedReplicaPolicy.effectiveLoad(loads.getQueueSize(replicas[j]));
+        return loadJ < loadI ? replicas[j] : replicas[i];
+    }
+}
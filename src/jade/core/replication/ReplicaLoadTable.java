@@ -0,0 +1,102 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+package jade.core.replication;
+
+//#J2ME_EXCLUDE_FILE
+//#APIDOC_EXCLUDE_FILE
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.AgentContainer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The load information about implementation replicas known by the local container.
+ * The load of local replicas is read directly from the agents, while the load of
+ * remote replicas is the one received by means of the load gossip among
+ * AgentReplicationService slices. Remote information older than maxAge is
+ * considered stale and reported as UNKNOWN.
+ */
+class ReplicaLoadTable implements ReplicaSelectionPolicy.LoadProvider {
+    private final Map<AID, LoadEntry> remoteLoads = new ConcurrentHashMap<>();
+    private final AgentContainer myContainer;
+    private final long maxAge;
+
+    ReplicaLoadTable(AgentContainer container, long maxAge) {
+        myContainer = container;
+        this.maxAge = maxAge;
+    }
+
+    public int getQueueSize(AID replica) {
+        // Reading the queue size does not need exclusive access: do not serialize the routing
+        // with the deliveries to the replica
+        Agent agent = myContainer.acquireLocalAgentShared(replica);
+        if (agent != null) {
+            try {
+                return agent.getCurQueueSize();
+            } finally {
+                myContainer.releaseLocalAgentShared(replica);
+            }
+        }
+        // Not a local agent (or removed in the meanwhile): rely on the gossiped load, if any
+        LoadEntry e = remoteLoads.get(replica);
+        if (e != null && System.currentTimeMillis() - e.timestamp <= maxAge) {
+            return e.queueSize;
+        }
+        return UNKNOWN;
+    }
+
+    public boolean isLocal(AID replica) {
+        return myContainer.isLocalAgent(replica);
+    }
+
+    void update(AID[] replicas, int[] queueSizes) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < replicas.length; ++i) {
+            remoteLoads.put(replicas[i], new LoadEntry(queueSizes[i], now));
+        }
+    }
+
+    void remove(AID replica) {
+        remoteLoads.remove(replica);
+    }
+
+    int size() {
+        return remoteLoads.size();
+    }
+
+    /**
+     * Inner class LoadEntry
+     */
+    private static class LoadEntry {
+        private final int queueSize;
+        private final long timestamp;
+
+        private LoadEntry(int queueSize, long timestamp) {
+            this.queueSize = queueSize;
+            this.timestamp = timestamp;
+        }
+    } // END of inner class LoadEntry
+}
@@ -0,0 +1,189 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+package jade.core.replication;
+
+//#J2ME_EXCLUDE_FILE
+//#APIDOC_EXCLUDE_FILE
+
+import jade.core.AID;
+
+import java.util.Random;
+
+/**
+ * Offline benchmark comparing replica selection policies on a HOT replicated virtual agent
+ * whose replicas have skewed processing capacity (e.g. some of them live on overloaded containers).
+ * Replica queues are simulated in discrete ticks: at each tick a number of messages is routed
+ * by the policy under test and each replica consumes messages according to its capacity.
+ * As in the real platform, policies see the load of remote replicas through a snapshot that
+ * is refreshed every gossip period only, while local replicas are always up to date.
+ * <p>
+ * Usage: <code>java jade.core.replication.ReplicaRoutingBenchmark [-replicas N] [-slow N] [-ticks N]
+ * [-arrivals N] [-gossip N] [-local N]</code>
+ * <ul>
+ * <li>replicas: number of replicas (default 8)</li>
+ * <li>slow: number of replicas living on overloaded containers (default 2). These process messages 5 times slower</li>
+ * <li>ticks: number of simulated ticks (default 20000)</li>
+ * <li>arrivals: messages routed at each tick (default 36, i.e. ~90% of the overall capacity)</li>
+ * <li>gossip: number of ticks between two load information refreshes (default 10)</li>
+ * <li>local: number of replicas living in the sender container (default 1)</li>
+ * </ul>
+ */
+public class ReplicaRoutingBenchmark {
+    private static final int FAST_CAPACITY = 5;
+    private static final int SLOW_CAPACITY = 1;
+
+    private final int nReplicas;
+    private final int nSlow;
+    private final int nTicks;
+    private final int arrivals;
+    private final int gossipPeriod;
+    private final int nLocal;
+
+    private ReplicaRoutingBenchmark(int nReplicas, int nSlow, int nTicks, int arrivals, int gossipPeriod, int nLocal) {
+        this.nReplicas = nReplicas;
+        this.nSlow = nSlow;
+        this.nTicks = nTicks;
+        this.arrivals = arrivals;
+        this.gossipPeriod = gossipPeriod;
+        this.nLocal = nLocal;
+    }
+
+    public static void main(String[] args) {
+        int nReplicas = 8;
+        int nSlow = 2;
+        int nTicks = 20000;
+        int arrivals = -1;
+        int gossipPeriod = 10;
+        int nLocal = 1;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "-replicas" -> nReplicas = value;
+                case "-slow" -> nSlow = value;
+                case "-ticks" -> nTicks = value;
+                case "-arrivals" -> arrivals = value;
+                case "-gossip" -> gossipPeriod = value;
+                case "-local" -> nLocal = value;
+                default -> System.out.println("Unknown option " + args[i] + " ignored");
+            }
+        }
+        if (arrivals < 0) {
+            // Default to 90% of the overall capacity
+            arrivals = (int) (0.9 * ((nReplicas - nSlow) * FAST_CAPACITY + nSlow * SLOW_CAPACITY));
+        }
+
+        ReplicaRoutingBenchmark b = new ReplicaRoutingBenchmark(nReplicas, nSlow, nTicks, arrivals, gossipPeriod, nLocal);
+        System.out.println("Replicas=" + nReplicas + " (slow=" + nSlow + ", local=" + nLocal + "), ticks=" + nTicks + ", arrivals/tick=" + arrivals + ", gossip period=" + gossipPeriod + " ticks");
+        System.out.println(String.format("%-16s %12s %12s %14s %12s", "policy", "avg-queue", "max-queue", "slow-share(%)", "ns/select"));
+        b.run("round-robin", null);
+        b.run("least-loaded", new LeastLoadedReplicaPolicy());
+        b.run("power-of-two", new PowerOfTwoChoicesReplicaPolicy());
+        b.run("locality-first", new LocalityFirstReplicaPolicy());
+    }
+
+    private void run(String name, ReplicaSelectionPolicy policy) {
+        AID[] replicas = new AID[nReplicas];
+        for (int i = 0; i < nReplicas; ++i) {
+            replicas[i] = new AID("replica" + i + "@bench", AID.ISGUID);
+        }
+        GlobalReplicationInfo info = new GlobalReplicationInfo(new AID("virtual@bench", AID.ISGUID), replicas[0], AgentReplicationHelper.HOT_REPLICATION);
+        for (int i = 1; i < nReplicas; ++i) {
+            info.addReplica(replicas[i]);
+        }
+        SimulatedLoads loads = new SimulatedLoads(replicas);
+
+        long totalQueued = 0;
+        int maxQueue = 0;
+        long toSlow = 0;
+        long selectionTime = 0;
+        for (int t = 0; t < nTicks; ++t) {
+            if (t % gossipPeriod == 0) {
+                loads.gossip();
+            }
+            long start = System.nanoTime();
+            for (int m = 0; m < arrivals; ++m) {
+                int index = loads.indexOf(info.getReplica(policy, loads));
+                loads.queues[index]++;
+                if (index < nSlow) {
+                    toSlow++;
+                }
+            }
+            selectionTime += System.nanoTime() - start;
+            for (int i = 0; i < nReplicas; ++i) {
+                int capacity = i < nSlow ? SLOW_CAPACITY : FAST_CAPACITY;
+                loads.queues[i] = Math.max(0, loads.queues[i] - capacity);
+                totalQueued += loads.queues[i];
+                maxQueue = Math.max(maxQueue, loads.queues[i]);
+            }
+        }
+        long nMessages = (long) nTicks * arrivals;
+        System.out.println(String.format("%-16s %12.1f %12d %14.1f %12.1f", name,
+                ((double) totalQueued) / ((long) nTicks * nReplicas), maxQueue,
+                100.0 * toSlow / nMessages, ((double) selectionTime) / nMessages));
+    }
+
+    /**
+     * Inner class SimulatedLoads.
+     * Local replicas (the last nLocal ones) expose their actual queue, while remote ones
+     * expose the value captured at the last gossip.
+     */
+    private class SimulatedLoads implements ReplicaSelectionPolicy.LoadProvider {
+        private final AID[] replicas;
+        private final int[] queues;
+        private final int[] gossiped;
+        private final Random random = new Random(17);
+
+        private SimulatedLoads(AID[] replicas) {
+            this.replicas = replicas;
+            queues = new int[replicas.length];
+            gossiped = new int[replicas.length];
+        }
+
+        private void gossip() {
+            System.arraycopy(queues, 0, gossiped, 0, queues.length);
+        }
+
+        private int indexOf(AID replica) {
+            for (int i = 0; i < replicas.length; ++i) {
+                if (replicas[i] == replica) {
+                    return i;
+                }
+            }
+            // Should never happen
+            return random.nextInt(replicas.length);
+        }
+
+        public int getQueueSize(AID replica) {
+            int i = indexOf(replica);
+            return isLocal(i) ? queues[i] : gossiped[i];
+        }
+
+        public boolean isLocal(AID replica) {
+            return isLocal(indexOf(replica));
+        }
+
+        private boolean isLocal(int index) {
+            return index >= replicas.length - nLocal;
+        }
+    } // END of inner class SimulatedLoads
+}
@@ -0,0 +1,78 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+package jade.core.replication;
+
+//#J2ME_EXCLUDE_FILE
+
+import jade.core.AID;
+
+/**
+ * The interface to be implemented by classes that select which implementation replica
+ * of a HOT replicated virtual agent a message must be delivered to.
+ * The policy to be used is specified by means of the
+ * <code>jade_core_replication_AgentReplicationService_selectionpolicy</code> option.
+ * COLD replicated virtual agents are not affected: messages are always delivered to
+ * the master replica.
+ *
+ * @see AgentReplicationService#SELECTION_POLICY
+ */
+public interface ReplicaSelectionPolicy {
+    /**
+     * Select the replica a message directed to a virtual agent must be delivered to.
+     * This method is invoked for each message, possibly by several threads in parallel,
+     * and must therefore be fast and thread safe.
+     *
+     * @param replicas The currently known replicas of the virtual agent. It is never empty
+     *                 and must not be modified.
+     * @param loads    Load information about the replicas as known by the local container
+     * @return The selected replica or null to fall back to round-robin selection
+     */
+    AID selectReplica(AID[] replicas, LoadProvider loads);
+
+    /**
+     * The interface providing load information about implementation replicas to
+     * a <code>ReplicaSelectionPolicy</code>
+     */
+    interface LoadProvider {
+        /**
+         * The value returned by <code>getQueueSize()</code> when no (fresh) load
+         * information is available for a replica
+         */
+        int UNKNOWN = -1;
+
+        /**
+         * Return the number of messages currently queued by a replica or UNKNOWN
+         * if no fresh information is available.
+         * For replicas living in the local container the value is always up to date;
+         * for other replicas it is the last value received by means of the load gossip
+         * among AgentReplicationService slices.
+         */
+        int getQueueSize(AID replica);
+
+        /**
+         * Return true if the given replica lives in the local container (i.e. the container
+         * of the agent that is sending the message)
+         */
+        boolean isLocal(AID replica);
+    }
+}
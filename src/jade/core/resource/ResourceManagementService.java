@@ -73,6 +73,11 @@ public class ResourceManagementService extends BaseService {
         return NAME;
     }
 
+    @Override
+    public String[] getDependencies() {
+        return new String[0];
+    }
+
     @Override
     public Class<?> getHorizontalInterface() {
         return ResourceManagementSlice.class;
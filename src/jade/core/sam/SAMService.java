@@ -60,6 +60,11 @@ public class SAMService extends BaseService {
         return SAMHelper.SERVICE_NAME;
     }
 
+    @Override
+    public String[] getDependencies() {
+        return new String[0];
+    }
+
     @Override
     public void init(AgentContainer ac, Profile p) throws ProfileException {
         super.init(ac, p);
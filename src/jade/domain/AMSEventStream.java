@@ -0,0 +1,352 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.domain;
+
+import jade.content.ContentElementList;
+import jade.core.AID;
+import jade.core.ContainerID;
+import jade.domain.introspection.*;
+import jade.lang.acl.ACLMessage;
+
+import java.util.*;
+
+/**
+ * The platform event stream the AMS delivers to a tool that subscribed in stream mode
+ * (see  AMSSubscriber.setStreamMode()  ).
+ * Events are buffered and periodically flushed as lists of  Occurred   predicates
+ * (at most  chunkSize   per message). Within a flush window, events cancelling each
+ * other are coalesced: e.g. an agent that is born and dies in the same window is not
+ * notified at all and a resumption following a suspension cancels it.
+ * Events can be filtered by container and by agent name prefix.
+ */
+class AMSEventStream {
+    private final AID subscriber;
+    private final String conversationId;
+    private final Set<String> containers;
+    private final String agentPrefix;
+    private final long flushPeriod;
+    private final int chunkSize;
+
+    // Pending events in notification order. Cancelled events are replaced by null
+    private final List<EventRecord> pending = new ArrayList<>();
+    // Positions in the pending list of the events related to each agent
+    private final Map<String, List<Integer>> agentEvents = new HashMap<>();
+    // Positions in the pending list of AddedContainer events
+    private final Map<String, Integer> addedContainers = new HashMap<>();
+    private boolean snapshotCompleted = false;
+    private boolean closed = false;
+    private long coalescedCnt = 0;
+
+    AMSEventStream(ACLMessage subscription, long defaultFlushPeriod, int defaultChunkSize) {
+        subscriber = subscription.getSender();
+        conversationId = subscription.getConversationId();
+
+        String s = subscription.getUserDefinedParameter(AMSSubscriber.STREAM_CONTAINERS);
+        if (s != null && !s.isBlank()) {
+            containers = new HashSet<>();
+            for (String c : s.split(",")) {
+                if (!c.isBlank()) {
+                    containers.add(c.trim());
+                }
+            }
+        } else {
+            containers = null;
+        }
+        s = subscription.getUserDefinedParameter(AMSSubscriber.STREAM_AGENT_PREFIX);
+        agentPrefix = (s != null && !s.isEmpty() ? s : null);
+        flushPeriod = parsePositive(subscription.getUserDefinedParameter(AMSSubscriber.STREAM_FLUSH_PERIOD), defaultFlushPeriod);
+        chunkSize = (int) parsePositive(subscription.getUserDefinedParameter(AMSSubscriber.STREAM_CHUNK_SIZE), defaultChunkSize);
+    }
+
+    private static long parsePositive(String s, long defaultValue) {
+        try {
+            long l = Long.parseLong(s);
+            return l > 0 ? l : defaultValue;
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
+    AID getSubscriber() {
+        return subscriber;
+    }
+
+    long getFlushPeriod() {
+        return flushPeriod;
+    }
+
+    long getCoalescedCnt() {
+        return coalescedCnt;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    synchronized void close() {
+        closed = true;
+        clear();
+    }
+
+    /**
+     * Prepare the message used to deliver a chunk of events to the subscriber
+     */
+    ACLMessage createNotification() {
+        ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+        msg.addReceiver(subscriber);
+        msg.setLanguage(FIPANames.ContentLanguage.FIPA_SL0);
+        msg.setOntology(IntrospectionOntology.NAME);
+        msg.setInReplyTo(AMSSubscriber.AMS_STREAM_SUBSCRIPTION);
+        msg.setConversationId(conversationId);
+        return msg;
+    }
+
+    /**
+     * Split a list of events (typically the platform snapshot) into chunks, dropping those
+     * filtered out by this stream.
+     */
+    List<ContentElementList> toChunks(List<EventRecord> records) {
+        List<ContentElementList> chunks = new ArrayList<>();
+        ContentElementList chunk = null;
+        for (EventRecord er : records) {
+            if (er != null && accept(er.getWhat())) {
+                if (chunk == null || chunk.size() >= chunkSize) {
+                    chunk = new ContentElementList();
+                    chunks.add(chunk);
+                }
+                Occurred o = new Occurred();
+                o.setWhat(er);
+                chunk.add(o);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Mark the snapshot as delivered. From now on pending events can be flushed.
+     */
+    synchronized void snapshotCompleted() {
+        snapshotCompleted = true;
+    }
+
+    /**
+     * Retrieve and clear the pending events, split into chunks.
+     * Nothing is returned until the snapshot has been completely delivered.
+     */
+    synchronized List<ContentElementList> flush() {
+        if (!snapshotCompleted || pending.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ContentElementList> chunks = toChunks(pending);
+        clear();
+        return chunks;
+    }
+
+    private void clear() {
+        pending.clear();
+        agentEvents.clear();
+        addedContainers.clear();
+    }
+
+    /**
+     * Add an event to the stream, possibly coalescing it with pending events
+     */
+    synchronized void add(EventRecord er) {
+        Event ev = er.getWhat();
+        if (closed || !accept(ev)) {
+            return;
+        }
+
+        AID agent = getAgent(ev);
+        if (agent != null) {
+            List<Integer> positions = agentEvents.computeIfAbsent(agent.getName(), k -> new ArrayList<>());
+            if (coalesce(ev, positions)) {
+                if (positions.isEmpty()) {
+                    agentEvents.remove(agent.getName());
+                }
+                return;
+            }
+            positions.add(pending.size());
+        } else if (ev instanceof RemovedContainer rc) {
+            Integer i = addedContainers.remove(rc.getContainer().getName());
+            if (i != null) {
+                // The container appeared and disappeared in the same window
+                pending.set(i, null);
+                coalescedCnt += 2;
+                return;
+            }
+        } else if (ev instanceof AddedContainer ac) {
+            addedContainers.put(ac.getContainer().getName(), pending.size());
+        }
+        pending.add(er);
+    }
+
+    // Return true if the new event was absorbed by the pending events of the same agent
+    private boolean coalesce(Event ev, List<Integer> positions) {
+        if (positions.isEmpty()) {
+            return false;
+        }
+        int lastPos = positions.get(positions.size() - 1);
+        EventRecord lastRecord = pending.get(lastPos);
+        Event last = lastRecord.getWhat();
+        if (ev instanceof DeadAgent) {
+            int born = positions.size() - 1;
+            while (born >= 0 && !(pending.get(positions.get(born)).getWhat() instanceof BornAgent)) {
+                born--;
+            }
+            if (born >= 0) {
+                // The agent was born and died in the same window: nothing to notify since its last birth.
+                // Events preceding it (e.g. the death of a previous agent with the same name) are kept.
+                cancelFrom(positions, born);
+                coalescedCnt++;
+                return true;
+            }
+        } else if ((ev instanceof ResumedAgent && last instanceof SuspendedAgent) || (ev instanceof ThawedAgent && last instanceof FrozenAgent)) {
+            cancelLast(positions);
+            coalescedCnt += 2;
+            return true;
+        } else if (ev instanceof MovedAgent ma) {
+            // Event records are shared among all streams: never modify them, replace them
+            if (last instanceof BornAgent ba) {
+                BornAgent merged = new BornAgent();
+                merged.setAgent(ba.getAgent());
+                merged.setWhere(ma.getTo());
+                merged.setState(ba.getState());
+                merged.setOwnership(ba.getOwnership());
+                merged.setClassName(ba.getClassName());
+                replace(lastPos, lastRecord, merged);
+                coalescedCnt++;
+                return true;
+            } else if (last instanceof MovedAgent previous) {
+                MovedAgent merged = new MovedAgent();
+                merged.setAgent(previous.getAgent());
+                merged.setFrom(previous.getFrom());
+                merged.setTo(ma.getTo());
+                replace(lastPos, lastRecord, merged);
+                coalescedCnt++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void replace(int pos, EventRecord old, Event ev) {
+        EventRecord er = new EventRecord(ev, old.getWhere());
+        er.setWhen(old.getWhen());
+        pending.set(pos, er);
+    }
+
+    private void cancelFrom(List<Integer> positions, int from) {
+        List<Integer> cancelled = positions.subList(from, positions.size());
+        for (int i : cancelled) {
+            pending.set(i, null);
+        }
+        coalescedCnt += cancelled.size();
+        cancelled.clear();
+    }
+
+    private void cancelLast(List<Integer> positions) {
+        pending.set(positions.remove(positions.size() - 1), null);
+    }
+
+    private static AID getAgent(Event ev) {
+        if (ev instanceof BornAgent e) {
+            return e.getAgent();
+        } else if (ev instanceof DeadAgent e) {
+            return e.getAgent();
+        } else if (ev instanceof SuspendedAgent e) {
+            return e.getAgent();
+        } else if (ev instanceof ResumedAgent e) {
+            return e.getAgent();
+        } else if (ev instanceof FrozenAgent e) {
+            return e.getAgent();
+        } else if (ev instanceof ThawedAgent e) {
+            return e.getAgent();
+        } else if (ev instanceof MovedAgent e) {
+            return e.getAgent();
+        } else if (ev instanceof ChangedAgentOwnership e) {
+            return e.getAgent();
+        }
+        return null;
+    }
+
+    private static ContainerID[] getContainers(Event ev) {
+        if (ev instanceof BornAgent e) {
+            return new ContainerID[]{e.getWhere()};
+        } else if (ev instanceof DeadAgent e) {
+            return new ContainerID[]{e.getWhere()};
+        } else if (ev instanceof SuspendedAgent e) {
+            return new ContainerID[]{e.getWhere()};
+        } else if (ev instanceof ResumedAgent e) {
+            return new ContainerID[]{e.getWhere()};
+        } else if (ev instanceof FrozenAgent e) {
+            return new ContainerID[]{e.getWhere()};
+        } else if (ev instanceof ThawedAgent e) {
+            return new ContainerID[]{e.getWhere()};
+        } else if (ev instanceof MovedAgent e) {
+            return new ContainerID[]{e.getFrom(), e.getTo()};
+        } else if (ev instanceof ChangedAgentOwnership e) {
+            return new ContainerID[]{e.getWhere()};
+        } else if (ev instanceof AddedContainer e) {
+            return new ContainerID[]{e.getContainer()};
+        } else if (ev instanceof RemovedContainer e) {
+            return new ContainerID[]{e.getContainer()};
+        } else if (ev instanceof AddedMTP e) {
+            return new ContainerID[]{e.getWhere()};
+        } else if (ev instanceof RemovedMTP e) {
+            return new ContainerID[]{e.getWhere()};
+        }
+        return null;
+    }
+
+    /**
+     * Check whether an event passes the container and agent name filters of this stream.
+     * Platform-wide events (e.g. ResetEvents) always pass.
+     */
+    boolean accept(Event ev) {
+        if (containers != null) {
+            ContainerID[] cids = getContainers(ev);
+            if (cids != null) {
+                boolean found = false;
+                for (ContainerID cid : cids) {
+                    if (cid != null && containers.contains(cid.getName())) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+        }
+        if (agentPrefix != null) {
+            AID agent = getAgent(ev);
+            if (agent != null) {
+                String name = agent.getLocalName();
+                return name != null && name.regionMatches(true, 0, agentPrefix, 0, agentPrefix.length());
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+package jade.domain;
+
+//#J2ME_EXCLUDE_FILE
+//#APIDOC_EXCLUDE_FILE
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.behaviours.OneShotBehaviour;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.SearchConstraints;
+import jade.domain.FIPAAgentManagement.ServiceDescription;
+import jade.wrapper.AgentContainer;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark measuring the throughput of the default DF under a mixed register/search workload.
+ * A main container is started in the local JVM and the DF catalogue is preloaded with a number of
+ * registrations. Then a set of searcher agents perform heavy searches (i.e. searches that must scan
+ * the whole catalogue since they match no registration), while a set of registrar agents repeatedly
+ * register, search and deregister their own descriptions. The overall throughput and the latency of
+ * registrations are printed at the end.
+ * <p>
+ * Usage: <code>java jade.domain.DFBenchmark [-poolsize N] [-searchers N] [-registrars N] [-ops N]
+ * [-preload N] [-port N]</code>
+ * <ul>
+ * <li>poolsize: value of the jade_domain_df_search-poolsize parameter (default: DF default)</li>
+ * <li>searchers: number of searcher agents (default 8)</li>
+ * <li>registrars: number of registrar agents (default 4)</li>
+ * <li>ops: number of iterations performed by each agent (default 200)</li>
+ * <li>preload: number of registrations loaded before the measure starts (default 10000)</li>
+ * <li>port: the main container port (default 1099)</li>
+ * </ul>
+ */
+public class DFBenchmark {
+    private static final String SERVICE_TYPE = "bench-preloaded";
+
+    private static int nOps;
+    private static int nPreload;
+    private static CountDownLatch completed;
+    private static final ConcurrentLinkedQueue<Long> registrationTimes = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger errorCnt = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        String poolSize = null;
+        int nSearchers = 8;
+        int nRegistrars = 4;
+        nOps = 200;
+        nPreload = 10000;
+        String port = "1099";
+        for (int i = 0; i < args.length - 1; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-poolsize" -> poolSize = value;
+                case "-searchers" -> nSearchers = Integer.parseInt(value);
+                case "-registrars" -> nRegistrars = Integer.parseInt(value);
+                case "-ops" -> nOps = Integer.parseInt(value);
+                case "-preload" -> nPreload = Integer.parseInt(value);
+                case "-port" -> port = value;
+                default -> System.out.println("Unknown option " + args[i] + " ignored");
+            }
+        }
+
+        jade.core.Runtime rt = jade.core.Runtime.instance();
+        Profile p = new ProfileImpl();
+        p.setParameter(Profile.LOCAL_PORT, port);
+        p.setParameter(Profile.MAIN_PORT, port);
+        if (poolSize != null) {
+            p.setParameter("jade_domain_df_search-poolsize", poolSize);
+        }
+        AgentContainer mc = rt.createMainContainer(p);
+
+        completed = new CountDownLatch(1);
+        mc.createNewAgent("bench-preloader", Preloader.class.getName(), null).start();
+        completed.await();
+
+        completed = new CountDownLatch(nSearchers + nRegistrars);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < nSearchers; ++i) {
+            mc.createNewAgent("bench-searcher-" + i, Searcher.class.getName(), null).start();
+        }
+        for (int i = 0; i < nRegistrars; ++i) {
+            mc.createNewAgent("bench-registrar-" + i, Registrar.class.getName(), null).start();
+        }
+        completed.await();
+        long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+
+        long[] times = registrationTimes.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(times);
+        int nRequests = (nSearchers + 3 * nRegistrars) * nOps;
+        System.out.println("Search pool size=" + (poolSize != null ? poolSize : "default") + ", searchers=" + nSearchers + ", registrars=" + nRegistrars + ", ops=" + nOps + ", preload=" + nPreload);
+        System.out.println(String.format("%d requests in %d ms: %.0f requests/s", nRequests, elapsed, nRequests * 1000.0 / elapsed));
+        if (times.length > 0) {
+            System.out.println(String.format("Registration time (ms): p50=%.1f p90=%.1f p99=%.1f max=%.1f",
+                    percentile(times, 0.5), percentile(times, 0.9), percentile(times, 0.99), times[times.length - 1] / 1e6));
+        }
+        System.out.println("Errors: " + errorCnt.get());
+        System.exit(0);
+    }
+
+    private static double percentile(long[] sortedTimes, double p) {
+        return sortedTimes[Math.min((int) (sortedTimes.length * p), sortedTimes.length - 1)] / 1e6;
+    }
+
+    private static DFAgentDescription createDescription(AID id, String type) {
+        DFAgentDescription dfd = new DFAgentDescription();
+        dfd.setName(id);
+        ServiceDescription sd = new ServiceDescription();
+        sd.setName(id.getLocalName());
+        sd.setType(type);
+        dfd.addServices(sd);
+        return dfd;
+    }
+
+    /**
+     * Base class for the benchmark agents: execute a task once and notify its completion
+     */
+    private abstract static class BenchmarkAgent extends Agent {
+        protected void setup() {
+            addBehaviour(new OneShotBehaviour(this) {
+                public void action() {
+                    try {
+                        execute();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        errorCnt.incrementAndGet();
+                    }
+                    completed.countDown();
+                }
+            });
+        }
+
+        protected abstract void execute() throws Exception;
+    }
+
+    public static class Preloader extends BenchmarkAgent {
+        protected void execute() throws Exception {
+            for (int i = 0; i < nPreload; ++i) {
+                DFService.register(this, createDescription(new AID("bench-item-" + i, AID.ISLOCALNAME), SERVICE_TYPE));
+            }
+        }
+    }
+
+    public static class Searcher extends BenchmarkAgent {
+        protected void execute() throws Exception {
+            DFAgentDescription template = new DFAgentDescription();
+            ServiceDescription sd = new ServiceDescription();
+            sd.setType("bench-unknown");
+            template.addServices(sd);
+            SearchConstraints sc = new SearchConstraints();
+            sc.setMaxResults(-1L);
+            for (int i = 0; i < nOps; ++i) {
+                if (DFService.search(this, template, sc).length != 0) {
+                    errorCnt.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public static class Registrar extends BenchmarkAgent {
+        protected void execute() throws Exception {
+            for (int i = 0; i < nOps; ++i) {
+                DFAgentDescription dfd = createDescription(new AID(getLocalName() + "-" + i, AID.ISLOCALNAME), "bench-registered");
+                long start = System.nanoTime();
+                DFService.register(this, dfd);
+                registrationTimes.add(System.nanoTime() - start);
+
+                // A registration must be immediately visible to the registering agent
+                DFAgentDescription template = new DFAgentDescription();
+                template.setName(dfd.getName());
+                if (DFService.search(this, template).length != 1) {
+                    errorCnt.incrementAndGet();
+                }
+                DFService.deregister(this, dfd);
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.domain;
+
+//#MIDP_EXCLUDE_FILE
+//#PJAVA_EXCLUDE_FILE
+
+import jade.content.ContentManager;
+import jade.content.lang.Codec;
+import jade.content.lang.sl.SLCodec;
+import jade.content.onto.basic.Action;
+import jade.content.onto.basic.Result;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.FIPAManagementOntology;
+import jade.domain.FIPAAgentManagement.Search;
+import jade.domain.FIPAAgentManagement.SearchConstraints;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import jade.util.Logger;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This behaviour serves the actions of the FIPA management ontology
+ * supported by the DF when the DF knowledge base supports concurrent searches.
+ * Requests are decoded by a pool of worker threads (each one using its own
+ * ContentManager) that also serve local searches directly and send back the results.
+ * All other actions (registrations, deregistrations, modifications and searches
+ * that may be propagated to federated DFs) are handed back to the agent thread and
+ * served by a DFFipaAgentManagementBehaviour in the same order requests were received.
+ */
+class DFConcurrentRequestBehaviour extends CyclicBehaviour {
+
+    private final df theDF;
+    private final MessageTemplate template;
+    // The responder serving the actions that must be performed by the agent thread
+    private final DFFipaAgentManagementBehaviour responder;
+    private final ExecutorService workers;
+    private final ThreadLocal<ContentManager> contentManagers = ThreadLocal.withInitial(this::createContentManager);
+    // Requests processed by the workers, still to be served (or skipped) by the agent thread
+    private final ConcurrentLinkedQueue<DecodedRequest> decodedRequests = new ConcurrentLinkedQueue<>();
+    // Decoded requests waiting for the completion of requests received before them
+    private final HashMap<Long, DecodedRequest> readyRequests = new HashMap<>();
+    private long receivedCnt = 0;
+    private long nextToServe = 0;
+    private final Logger myLogger;
+
+    DFConcurrentRequestBehaviour(df a, MessageTemplate mt, int poolSize) {
+        super(a);
+        theDF = a;
+        template = mt;
+        responder = new DFFipaAgentManagementBehaviour(a, mt);
+        myLogger = Logger.getMyLogger(a.getLocalName());
+        final String prefix = a.getLocalName() + "-Worker-";
+        final AtomicInteger threadCnt = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, prefix + threadCnt.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void onStart() {
+        responder.onStart();
+    }
+
+    public void action() {
+        // Hand new requests to the workers
+        ACLMessage request;
+        while ((request = myAgent.receive(template)) != null) {
+            final long seq = receivedCnt++;
+            final ACLMessage r = request;
+            try {
+                workers.execute(() -> process(seq, r));
+            } catch (RejectedExecutionException ree) {
+                // The DF is terminating
+                return;
+            }
+        }
+
+        // Serve decoded requests in the order they were received
+        DecodedRequest d;
+        while ((d = decodedRequests.poll()) != null) {
+            readyRequests.put(d.seq, d);
+        }
+        while ((d = readyRequests.remove(nextToServe)) != null) {
+            nextToServe++;
+            if (d.slAction != null) {
+                sendReplies(responder.serveRequest(d.request, d.slAction));
+            }
+        }
+        block();
+    }
+
+    /**
+     * Stop the worker threads. Requests not yet processed are discarded.
+     */
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Executed by a worker thread: decode a request and serve it if it is
+     * a local search. Otherwise leave it to the agent thread.
+     */
+    private void process(long seq, ACLMessage request) {
+        ACLMessage[] replies = null;
+        Action slAction = null;
+        try {
+            ContentManager cm = contentManagers.get();
+            Action a = responder.extractAction(request, cm);
+            if (isLocalSearch(a)) {
+                replies = serveLocalSearch(request, a, cm);
+            } else {
+                slAction = a;
+            }
+        } catch (Throwable t) {
+            replies = responder.prepareErrorReplies(request, t);
+        }
+
+        if (replies != null) {
+            sendReplies(replies);
+        }
+        decodedRequests.add(new DecodedRequest(seq, request, slAction));
+        restart();
+    }
+
+    /**
+     * @return true if the given action is a search that does not require checking
+     * the search-id nor propagating the search to federated DFs
+     */
+    private boolean isLocalSearch(Action slAction) {
+        if (slAction.getAction() instanceof Search s) {
+            SearchConstraints constraints = s.getConstraints();
+            if (constraints != null && constraints.getSearchId() == null) {
+                Long maxDepth = constraints.getMaxDepth();
+                return maxDepth == null || maxDepth.intValue() <= 0;
+            }
+        }
+        return false;
+    }
+
+    private ACLMessage[] serveLocalSearch(ACLMessage request, Action slAction, ContentManager cm) throws Exception {
+        List<DFAgentDescription> result = theDF.localSearchAction((Search) slAction.getAction(), request.getSender());
+
+        ACLMessage notification = request.createReply();
+        notification.setPerformative(ACLMessage.INFORM);
+        cm.fillContent(notification, new Result(slAction, result));
+        responder.addServeTimeSample(request);
+        return new ACLMessage[]{null, notification};
+    }
+
+    /**
+     * Send the response (if any) and, unless the response is a refusal, the result notification
+     * (if any) as the FIPA-request protocol requires.
+     */
+    private void sendReplies(ACLMessage[] replies) {
+        try {
+            ACLMessage response = replies[0];
+            if (response != null) {
+                myAgent.send(response);
+                if (response.getPerformative() != ACLMessage.AGREE) {
+                    return;
+                }
+            }
+            if (replies[1] != null) {
+                myAgent.send(replies[1]);
+            }
+        } catch (Exception e) {
+            myLogger.log(Logger.WARNING, "Agent " + myAgent.getLocalName() + " - Error sending reply", e);
+        }
+    }
+
+    private ContentManager createContentManager() {
+        ContentManager cm = new ContentManager();
+        Codec codec = new SLCodec();
+        cm.registerLanguage(codec, FIPANames.ContentLanguage.FIPA_SL0);
+        cm.registerLanguage(codec, FIPANames.ContentLanguage.FIPA_SL1);
+        cm.registerLanguage(codec, FIPANames.ContentLanguage.FIPA_SL2);
+        cm.registerLanguage(codec, FIPANames.ContentLanguage.FIPA_SL);
+        cm.registerOntology(FIPAManagementOntology.getInstance());
+        cm.setValidationMode(theDF.getContentManager().getValidationMode());
+        return cm;
+    }
+
+    /**
+     * Inner class DecodedRequest
+     */
+    private static class DecodedRequest {
+        private final long seq;
+        private final ACLMessage request;
+        // Null if the request was already served by a worker thread
+        private final Action slAction;
+
+        private DecodedRequest(long seq, ACLMessage request, Action slAction) {
+            this.seq = seq;
+            this.request = request;
+            this.slAction = slAction;
+        }
+    }
+}
@@ -78,8 +78,6 @@ public class DFDBKB extends DBKB {
      * Default data type for very long strings
      */
     protected String DEFAULT_LONGVARCHAR_TYPE = "LONGVARCHAR";
-    // Number of registrations after the last lease-time-cleanup
-    private int regsCnt = 0;
     private boolean tablesReady = false;
     // This is used to generate unique IDs
     private String localIPAddress;
@@ -747,13 +745,6 @@ public class DFDBKB extends DBKB {
             // Services
             saveServices(descrId, dfd.getAllServices().iterator());
 
-            regsCnt++;
-            // clear outdated entries after a certain number of new registrations
-            if (regsCnt > MAX_REGISTER_WITHOUT_CLEAN) {
-                regsCnt = 0;
-                clean();
-            }
-
             conn.commit();
         } catch (SQLException sqle) {
             // Rollback the transaction
@@ -1436,12 +1427,11 @@ public class DFDBKB extends DBKB {
     /**
      * Removes DF registrations and subscriptions whose lease time
      * has expired.
-     * This method is called at startup and each MAX_REGISTER_WITHOUT_CLEAN
-     * registrations.
+     * This method is called at startup. Later on registrations and subscriptions
+     * whose lease time expires are removed by the DF by means of the removeExpired() method.
      */
     private void clean() {
         cleanExpiredRegistrations();
-        cleanExpiredSubscriptions();
     }
 
     ////////////////////////////////////////
@@ -1452,16 +1442,40 @@ public class DFDBKB extends DBKB {
      * Removes DF registrations whose lease time has expired.
      */
     private void cleanExpiredRegistrations() {
+        removeExpired(-1);
+    }
 
+    /**
+     * Removes DF registrations and subscriptions whose lease time has expired. Expired
+     * registrations are retrieved by means of the index on the lease column, so that only
+     * expired rows are visited.
+     */
+    public List<DFAgentDescription> removeExpired(int maxRemovals) {
+        List<DFAgentDescription> expired = new ArrayList<>();
+        if (maxRemovals == 0) {
+            return expired;
+        }
+        cleanExpiredSubscriptions();
         ResultSet rs = null;
         long currTime = System.currentTimeMillis();
         try {
             PreparedStatements pss = getPreparedStatements();
             pss.stm_selExpiredDescr.setString(1, String.valueOf(currTime));
+            pss.stm_selExpiredDescr.setMaxRows(Math.max(maxRemovals, 0));
             rs = pss.stm_selExpiredDescr.executeQuery();
-
+            List<String> names = new ArrayList<>();
             while (rs.next()) {
-                remove(rs.getString("aid"));
+                names.add(rs.getString("aid"));
+            }
+            closeResultSet(rs);
+            rs = null;
+
+            for (String name : names) {
+                DFAgentDescription dfd = getDFD(name);
+                if (dfd != null) {
+                    remove(name);
+                    expired.add(dfd);
+                }
             }
         } catch (SQLException se) {
             if (logger.isLoggable(Logger.WARNING))
@@ -1470,6 +1484,7 @@ public class DFDBKB extends DBKB {
         } finally {
             closeResultSet(rs);
         }
+        return expired;
     }
 
     /**
@@ -132,14 +132,7 @@ class DFFipaAgentManagementBehaviour extends RequestManagementBehaviour {
                 e.printStackTrace();
             }
 
-            //#PJAVA_EXCLUDE_BEGIN
-            //#DOTNET_EXCLUDE_BEGIN
-            long serveTime = System.currentTimeMillis() - request.getPostTimeStamp();
-            if (serveRequestTimeProvider != null) {
-                serveRequestTimeProvider.addSample(serveTime);
-            }
-            //#DOTNET_EXCLUDE_END
-            //#PJAVA_EXCLUDE_END
+            addServeTimeSample(request);
 
             return notification;
         } else {
@@ -147,4 +140,19 @@ class DFFipaAgentManagementBehaviour extends RequestManagementBehaviour {
             return null;
         }
     }
+
+    /**
+     * Record the time elapsed since a request was posted.
+     * This method can be invoked by any thread.
+     */
+    void addServeTimeSample(ACLMessage request) {
+        //#PJAVA_EXCLUDE_BEGIN
+        //#DOTNET_EXCLUDE_BEGIN
+        long serveTime = System.currentTimeMillis() - request.getPostTimeStamp();
+        if (serveRequestTimeProvider != null) {
+            serveRequestTimeProvider.addSample(serveTime);
+        }
+        //#DOTNET_EXCLUDE_END
+        //#PJAVA_EXCLUDE_END
+    }
 }
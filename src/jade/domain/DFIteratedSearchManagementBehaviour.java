@@ -27,7 +27,9 @@ import jade.content.lang.Codec.CodecException;
 import jade.content.onto.OntologyException;
 import jade.content.onto.basic.Action;
 import jade.content.onto.basic.Result;
+import jade.core.AID;
 import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.SimpleBehaviour;
 import jade.domain.FIPAAgentManagement.*;
 import jade.domain.KBManagement.KBIterator;
 import jade.lang.acl.ACLMessage;
@@ -37,11 +39,18 @@ import jade.proto.SSIteratedAchieveREResponder;
 import jade.util.Logger;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * This behaviour serves search requests according to the iterated-fipa-request
  * protocol.
+ * When the search must be propagated to federated DFs (i.e. its max-depth is greater than 0),
+ * results found locally are sent back first. Then results received from federated DFs are
+ * streamed back as soon as they are available, each REQUEST being served when at least one
+ * new result is available or the federated search completed.
  *
  * @author Giovanni Caire - TILAB
  */
@@ -67,113 +76,210 @@ class DFIteratedSearchManagementBehaviour extends CyclicBehaviour {
             if (logger.isLoggable(Logger.FINE)) {
                 logger.log(Logger.FINE, "DF " + myAgent.getName() + ": Iterated-search request received from " + msg.getSender().getName() + ". Conv-ID = " + msg.getConversationId());
             }
-            theDF.addBehaviour(new SSIteratedAchieveREResponder(theDF, msg) {
-                private KBIterator iterator = null;
-                private String myConversationId = null;
-                private int cnt = 0; // Only for debugging purposes
-
-                protected ACLMessage handleRequest(ACLMessage request) throws RefuseException, FailureException, NotUnderstoodException {
-                    ACLMessage reply = null;
+            theDF.addBehaviour(new IteratedSearchSession(msg));
+        } else {
+            block();
+        }
+    }
 
-                    if (logger.isLoggable(Logger.FINE)) {
-                        logger.log(Logger.FINE, "DF " + myAgent.getName() + ": Iterated-search " + request.getConversationId() + ". Serving request # " + cnt);
-                    }
-                    cnt++;
-                    try {
-                        // Parse the request content
-                        Action aExpr = (Action) theDF.getContentManager().extractContent(request);
-                        Search search = (Search) aExpr.getAction();
-                        SearchConstraints constraints = search.getConstraints();
-                        int maxResult = theDF.getActualMaxResults(constraints);
-
-                        // If this is the first REQUEST, create the Iterator
-                        if (iterator == null) {
-                            if (logger.isLoggable(Logger.FINER)) {
-                                logger.log(Logger.FINER, "DF " + myAgent.getName() + ": Iterated-search " + request.getConversationId() + ". Initializing KBIterator");
-                            }
-                            iterator = theDF.iteratedSearchAction(search, request.getSender());
-                            if (logger.isLoggable(Logger.FINEST)) {
-                                logger.log(Logger.FINEST, "DF " + myAgent.getName() + ": Iterated-search " + request.getConversationId() + ". KBIterator correctly initialized");
-                            }
-                        }
 
-                        // Get the requested number of results
-                        List<Object> ll = new ArrayList<>();
-                        for (int i = 0; i < maxResult; ++i) {
-                            if (iterator.hasNext()) {
-                                ll.add(iterator.next());
-                            } else {
-                                if (logger.isLoggable(Logger.FINER)) {
-                                    logger.log(Logger.FINER, "DF " + myAgent.getName() + ": Iterated-search " + request.getConversationId() + ". Closing KBIterator");
-                                }
-                                iterator.close();
-                                // FIXME: properly handle recursive search
-                                closeSessionOnNextReply();
-                                break;
-                            }
-                        }
-                        if (logger.isLoggable(Logger.FINE)) {
-                            logger.log(Logger.FINE, "DF " + myAgent.getName() + ": Iterated-search " + request.getConversationId() + ". Sending back " + ll.size() + " results");
-                        }
+    /**
+     * Inner class IteratedSearchSession.
+     * This behaviour serves all REQUESTs of an iterated-search session.
+     */
+    private class IteratedSearchSession extends SSIteratedAchieveREResponder implements df.FederatedSearchListener {
+        private KBIterator iterator = null;
+        // Results received from federated DFs and not yet sent back
+        private final LinkedList<DFAgentDescription> federatedResults = new LinkedList<>();
+        // Names of the results already sent back. Only used when the search is propagated to federated DFs
+        private Set<AID> sentResults = null;
+        private boolean federatedSearchRunning = false;
+        private boolean terminated = false;
+        private String myConversationId = null;
+        private int cnt = 0; // Only for debugging purposes
+        private final RequestServer requestServer;
 
-                        // Fill the reply
-                        reply = request.createReply();
-                        try {
-                            Result result = new Result(aExpr, ll);
-                            theDF.getContentManager().fillContent(reply, result);
-                            reply.setPerformative(ACLMessage.INFORM);
-                        } catch (Exception e) {
-                            // Unexpected error encoding the reply
-                            e.printStackTrace();
-                            throw new FailureException(ExceptionVocabulary.INTERNALERROR + " \"" + e.getMessage() + "\"");
-                        }
-                    } catch (OntologyException | CodecException oe) {
-                        throw new NotUnderstoodException(ExceptionVocabulary.UNRECOGNISEDVALUE + " content");
-                    } catch (FailureException fe) {
-                        throw fe;
-                    } catch (Throwable t) {
-                        // Unexpected error
-                        t.printStackTrace();
-                        throw new FailureException(ExceptionVocabulary.INTERNALERROR + " \"" + t.getMessage() + "\"");
-                    }
+        private IteratedSearchSession(ACLMessage request) {
+            super(theDF, request);
+            requestServer = new RequestServer();
+            registerHandleRequest(requestServer);
+        }
 
-                    return reply;
-                }
+        /**
+         * Prepare the reply to a REQUEST.
+         *
+         * @return the reply or null if the REQUEST cannot be served until more results are received
+         * from federated DFs
+         */
+        private ACLMessage serveRequest(ACLMessage request, Action aExpr) throws FIPAException {
+            try {
+                Search search = (Search) aExpr.getAction();
+                SearchConstraints constraints = search.getConstraints();
+                int maxResult = theDF.getActualMaxResults(constraints);
 
-                protected void handleCancel(ACLMessage cancel) {
-                    if (logger.isLoggable(Logger.FINE)) {
-                        logger.log(Logger.FINE, "DF " + myAgent.getName() + ": Iterated-search " + cancel.getConversationId() + ". Serving cancel");
+                // If this is the first REQUEST, create the Iterator and propagate the search if necessary
+                if (iterator == null) {
+                    if (logger.isLoggable(Logger.FINER)) {
+                        logger.log(Logger.FINER, "DF " + myAgent.getName() + ": Iterated-search " + request.getConversationId() + ". Initializing KBIterator");
                     }
-                    if (iterator != null) {
-                        if (logger.isLoggable(Logger.FINER)) {
-                            logger.log(Logger.FINER, "DF " + myAgent.getName() + ": Iterated-search " + cancel.getConversationId() + ". Closing KBIterator");
-                        }
-                        iterator.close();
+                    iterator = theDF.iteratedSearchAction(search, request.getSender());
+                    if (logger.isLoggable(Logger.FINEST)) {
+                        logger.log(Logger.FINEST, "DF " + myAgent.getName() + ": Iterated-search " + request.getConversationId() + ". KBIterator correctly initialized");
+                    }
+                    federatedSearchRunning = theDF.iteratedFederatedSearchAction(search, request, this);
+                    if (federatedSearchRunning) {
+                        sentResults = new HashSet<>();
                     }
                 }
 
-                /**
-                 Avoid conflicts between the main MessageTemplate and that used
-                 internally by this IteratedFipaRequestResponder.
-                 */
-                protected void afterReply(ACLMessage reply) {
-                    if (reply != null) {
-                        myConversationId = reply.getConversationId();
-                        conversations.registerConversation(myConversationId);
+                // Get the requested number of results: local ones first
+                List<Object> ll = new ArrayList<>();
+                while (ll.size() < maxResult && iterator.hasNext()) {
+                    addResult(ll, iterator.next());
+                }
+                while (ll.size() < maxResult && !federatedResults.isEmpty()) {
+                    addResult(ll, federatedResults.removeFirst());
+                }
+                boolean exhausted = !iterator.hasNext() && federatedResults.isEmpty() && !federatedSearchRunning;
+                if (ll.isEmpty() && !exhausted) {
+                    // Wait for results from federated DFs
+                    return null;
+                }
+                if (exhausted) {
+                    if (logger.isLoggable(Logger.FINER)) {
+                        logger.log(Logger.FINER, "DF " + myAgent.getName() + ": Iterated-search " + request.getConversationId() + ". Closing KBIterator");
                     }
+                    iterator.close();
+                    closeSessionOnNextReply();
+                }
+                if (logger.isLoggable(Logger.FINE)) {
+                    logger.log(Logger.FINE, "DF " + myAgent.getName() + ": Iterated-search " + request.getConversationId() + ". Sending back " + ll.size() + " results");
                 }
 
-                /**
-                 When the protocol terminates, deregister the conversation
-                 */
-                public int onEnd() {
-                    conversations.deregisterConversation(myConversationId);
-                    return super.onEnd();
+                // Fill the reply
+                ACLMessage reply = request.createReply();
+                try {
+                    Result result = new Result(aExpr, ll);
+                    theDF.getContentManager().fillContent(reply, result);
+                    reply.setPerformative(ACLMessage.INFORM);
+                } catch (Exception e) {
+                    // Unexpected error encoding the reply
+                    e.printStackTrace();
+                    throw new FailureException(ExceptionVocabulary.INTERNALERROR + " \"" + e.getMessage() + "\"");
                 }
-            });
-        } else {
-            block();
+                return reply;
+            } catch (FailureException fe) {
+                throw fe;
+            } catch (Throwable t) {
+                // Unexpected error
+                t.printStackTrace();
+                throw new FailureException(ExceptionVocabulary.INTERNALERROR + " \"" + t.getMessage() + "\"");
+            }
         }
-    }
-}
 
+        private void addResult(List<Object> ll, Object item) {
+            // Filter duplicates among local results and results received from federated DFs
+            if (sentResults == null || sentResults.add(((DFAgentDescription) item).getName())) {
+                ll.add(item);
+            }
+        }
+
+        public void resultsReceived(List<DFAgentDescription> newResults) {
+            if (!terminated) {
+                federatedResults.addAll(newResults);
+                requestServer.restart();
+            }
+        }
+
+        public void searchCompleted(List<DFAgentDescription> results) {
+            federatedSearchRunning = false;
+            requestServer.restart();
+        }
+
+        protected void handleCancel(ACLMessage cancel) {
+            if (logger.isLoggable(Logger.FINE)) {
+                logger.log(Logger.FINE, "DF " + myAgent.getName() + ": Iterated-search " + (cancel != null ? cancel.getConversationId() : myConversationId) + ". Serving cancel");
+            }
+            if (iterator != null) {
+                if (logger.isLoggable(Logger.FINER)) {
+                    logger.log(Logger.FINER, "DF " + myAgent.getName() + ": Iterated-search " + myConversationId + ". Closing KBIterator");
+                }
+                iterator.close();
+            }
+        }
+
+        /**
+         Avoid conflicts between the main MessageTemplate and that used
+         internally by this IteratedFipaRequestResponder.
+         */
+        protected void afterReply(ACLMessage reply) {
+            if (reply != null) {
+                myConversationId = reply.getConversationId();
+                conversations.registerConversation(myConversationId);
+            }
+        }
+
+        /**
+         When the protocol terminates, deregister the conversation
+         */
+        public int onEnd() {
+            terminated = true;
+            federatedResults.clear();
+            conversations.deregisterConversation(myConversationId);
+            return super.onEnd();
+        }
+
+
+        /**
+         * Inner class RequestServer.
+         * The behaviour handling REQUESTs in the HANDLE_REQUEST state. It blocks as long as
+         * the current REQUEST cannot be served because results from federated DFs are awaited.
+         */
+        private class RequestServer extends SimpleBehaviour {
+            private ACLMessage request = null;
+            private Action aExpr = null;
+            private boolean finished = false;
+
+            private RequestServer() {
+                super(theDF);
+            }
+
+            public void action() {
+                ACLMessage current = getMapMessages().get(REQUEST_KEY);
+                ACLMessage reply;
+                try {
+                    if (current != request) {
+                        request = current;
+                        aExpr = null;
+                        if (logger.isLoggable(Logger.FINE)) {
+                            logger.log(Logger.FINE, "DF " + myAgent.getName() + ": Iterated-search " + request.getConversationId() + ". Serving request # " + cnt);
+                        }
+                        cnt++;
+                        // Parse the request content
+                        aExpr = (Action) theDF.getContentManager().extractContent(request);
+                    }
+                    reply = serveRequest(request, aExpr);
+                    if (reply == null) {
+                        block();
+                        return;
+                    }
+                } catch (OntologyException | CodecException oe) {
+                    reply = new NotUnderstoodException(ExceptionVocabulary.UNRECOGNISEDVALUE + " content").getACLMessage();
+                } catch (FIPAException fe) {
+                    reply = fe.getACLMessage();
+                }
+                getMapMessages().put(REPLY_KEY, reply);
+                finished = true;
+            }
+
+            public boolean done() {
+                return finished;
+            }
+
+            public void reset() {
+                finished = false;
+                super.reset();
+            }
+        } // End of inner class RequestServer
+    } // End of inner class IteratedSearchSession
+}
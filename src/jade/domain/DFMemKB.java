@@ -31,15 +31,20 @@ import jade.domain.FIPAAgentManagement.Property;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
 import jade.domain.KBManagement.MemKB;
 
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.*;
 
 /**
  * @author Elisabetta Cortese - TILab
  */
 public class DFMemKB extends MemKB {
 
-    boolean entriesToDelete = false; // gets true if there's at least one entry to delete for the method clean
+    // The lease of each registration with a finite lease time
+    private final Map<Object, Lease> leases = new HashMap<>();
+    // The registrations whose lease is expected to expire at a given time, ordered by time.
+    // A renewal only updates the registration Lease: the registration is moved to its new
+    // expiration slot only when the old slot is reached, so that the several renewals
+    // occurring within a lease period cost a single update of the index.
+    private final TreeMap<Long, List<Object>> expirations = new TreeMap<>();
 
     /**
      * Constructor
@@ -52,13 +57,15 @@ public class DFMemKB extends MemKB {
     }
 
     public static boolean compare(DFAgentDescription template, DFAgentDescription fact) {
+        // We must not return facts whose lease time has expired (no
+        // matter if they match)
+        return !fact.checkLeaseTimeExpired() && compareIgnoringLease(template, fact);
+    }
 
-        try {
-            // We must not return facts whose lease time has expired (no
-            // matter if they match)
-            if (fact.checkLeaseTimeExpired())
-                return false;
+    // Helper method to match a template against a fact no matter of the fact lease time
+    static boolean compareIgnoringLease(DFAgentDescription template, DFAgentDescription fact) {
 
+        try {
             // Match name
             AID id1 = template.getName();
             if (id1 != null) {
@@ -218,34 +225,97 @@ public class DFMemKB extends MemKB {
     }
 
     protected Object insert(Object name, Object fact) {
-        DFAgentDescription desc = (DFAgentDescription) fact;
-        if (desc.getLeaseTime() != null) {
-            entriesToDelete = true;
+        Date leaseTime = ((DFAgentDescription) fact).getLeaseTime();
+        if (leaseTime != null) {
+            long expiration = leaseTime.getTime();
+            Lease lease = leases.get(name);
+            if (lease == null) {
+                lease = new Lease();
+                leases.put(name, lease);
+                schedule(name, lease, expiration);
+            } else if (expiration < lease.slot) {
+                // The lease was shortened: the registration must be moved to an earlier slot
+                schedule(name, lease, expiration);
+            }
+            lease.expiration = expiration;
+        } else {
+            leases.remove(name);
         }
         return super.insert(name, fact);
     }
 
+    protected Object remove(Object name) {
+        leases.remove(name);
+        return super.remove(name);
+    }
+
+    private void schedule(Object name, Lease lease, long slot) {
+        lease.slot = slot;
+        expirations.computeIfAbsent(slot, k -> new ArrayList<>()).add(name);
+    }
+
     /**
-     * Scan the facts and remove those whose lease time has expired.
+     * Remove the registrations whose lease time has expired. Only the expiration slots
+     * that have been reached are visited.
      */
-    protected void clean() {
-
-        if (entriesToDelete) {
-            ArrayList<AID> toBeRemoved = new ArrayList<>();
-            for (Object o : facts.values()) {
-                DFAgentDescription dfd = (DFAgentDescription) o;
-                if (dfd.checkLeaseTimeExpired()) {
-                    toBeRemoved.add(dfd.getName());
+    public List<DFAgentDescription> removeExpired(int maxRemovals) {
+        List<DFAgentDescription> expired = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        while (!expirations.isEmpty() && (maxRemovals < 0 || expired.size() < maxRemovals)) {
+            Map.Entry<Long, List<Object>> first = expirations.firstEntry();
+            long slot = first.getKey();
+            if (slot > now) {
+                break;
+            }
+            List<Object> names = first.getValue();
+            while (!names.isEmpty() && (maxRemovals < 0 || expired.size() < maxRemovals)) {
+                Object name = names.remove(names.size() - 1);
+                Lease lease = leases.get(name);
+                if (lease == null || lease.slot != slot) {
+                    // Deregistered, registered again with an infinite lease or moved to an earlier slot
+                    continue;
+                }
+                if (lease.expiration > now) {
+                    // Renewed
+                    schedule(name, lease, lease.expiration);
+                } else {
+                    leases.remove(name);
+                    Object fact = facts.remove(name);
+                    if (fact != null) {
+                        expired.add((DFAgentDescription) fact);
+                    }
                 }
             }
-            for (AID aid : toBeRemoved) {
-                facts.remove(aid);
+            if (names.isEmpty()) {
+                expirations.remove(slot);
             }
         }
+        return expired;
+    }
+
+    public long getNextExpiration() {
+        return expirations.isEmpty() ? -1 : expirations.firstKey();
+    }
+
+    /**
+     * Expired registrations are not removed here, but by means of the <code>removeExpired()</code>
+     * method, that the DF calls as soon as lease times expire in order to notify subscribers.
+     * Meanwhile expired registrations are ignored by searches.
+     */
+    protected void clean() {
     }
 
     // match
     public final boolean match(DFAgentDescription template, DFAgentDescription fact) {
         return compare(template, fact);
     }
+
+    /**
+     * The lease of a registration: the current expiration time and the time slot where the
+     * registration is currently indexed (which may precede the expiration time if the lease was renewed).
+     */
+    private static class Lease {
+        private long expiration;
+        private long slot;
+    }
 }
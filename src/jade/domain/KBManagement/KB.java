@@ -30,6 +30,7 @@ import jade.domain.FIPAAgentManagement.NotUnderstoodException;
 import jade.proto.SubscriptionResponder;
 import jade.util.Logger;
 
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 
@@ -97,8 +98,39 @@ public abstract class KB {
 
     public abstract List<DFAgentDescription> search(DFAgentDescription template, int maxResult);
 
+    /**
+     * @return true if the search() method can be invoked by several threads concurrently
+     * with each other and with the operations modifying this KB. The default implementation
+     * returns false.
+     */
+    public boolean supportsConcurrentSearch() {
+        return false;
+    }
+
     public abstract KBIterator iterator(Object template);
 
+    /**
+     * Remove the facts whose lease time has expired.
+     * The default implementation does nothing and returns an empty list: in this case
+     * expired facts are expected to be removed by the KB itself.
+     *
+     * @param maxRemovals The maximum number of facts to be removed. A negative value means all
+     *                    facts whose lease time has expired.
+     * @return The removed facts
+     */
+    public List<DFAgentDescription> removeExpired(int maxRemovals) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return the time (in milliseconds) when the lease time of a fact may expire next, or
+     * -1 if this is not known. This is used to schedule the next invocation of
+     * <code>removeExpired()</code>. The default implementation returns -1.
+     */
+    public long getNextExpiration() {
+        return -1;
+    }
+
     public abstract void subscribe(Object template, SubscriptionResponder.Subscription s) throws NotUnderstoodException;
 
     public abstract Enumeration<?> getSubscriptions();
@@ -35,6 +35,7 @@ import jade.proto.SubscriptionResponder;
 import jade.util.Logger;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Common base class for AMS and DF Knowledge Base
@@ -45,7 +46,8 @@ public abstract class MemKB extends KB {
 
     protected final static int MAX_REGISTER_WITHOUT_CLEAN = 100;
     private final Logger logger = Logger.getMyLogger(this.getClass().getName());
-    protected Map<Object, Object> facts = new HashMap<>();
+    // Facts are modified by the owner agent thread only, but can be searched by other threads too
+    protected Map<Object, Object> facts = new ConcurrentHashMap<>();
     protected Hashtable<DFAgentDescription, SubscriptionResponder.Subscription> subscriptions = new Hashtable<>();
     protected LeaseManager lm;
     protected int currentReg = 0;
@@ -142,11 +144,30 @@ public abstract class MemKB extends KB {
     }
 
     /**
-     * Iterated search is only supported in a DB-based KB.
-     * Throw a RuntimeException. The requester will get back a FAILURE
+     * Searches iterate over a concurrent map and can therefore run in parallel with
+     * each other and with insertions and removals.
+     */
+    public boolean supportsConcurrentSearch() {
+        return true;
+    }
+
+    /**
+     * Iterate over the facts matching the given template at the time this method is called.
      */
     public KBIterator iterator(Object template) {
-        throw new RuntimeException("Iterated search non supported");
+        final Iterator<DFAgentDescription> it = search((DFAgentDescription) template, -1).iterator();
+        return new KBIterator() {
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public Object next() {
+                return it.next();
+            }
+
+            public void close() {
+            }
+        };
     }
 
     //
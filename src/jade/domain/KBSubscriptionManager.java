@@ -146,13 +146,7 @@ class KBSubscriptionManager implements SubscriptionResponder.SubscriptionManager
      * --> This is the reason for the synchronized blocks
      */
     void handleChange(DFAgentDescription dfd, DFAgentDescription oldDfd) {
-        synchronized (subscriptionsCache) {
-            if (subscriptions == null) {
-                subscriptionsCache = loadSubscriptionsCache();
-                subscriptions = toArray(subscriptionsCache);
-            }
-        }
-        for (SubscriptionInfo info : subscriptions) {
+        for (SubscriptionInfo info : getSubscriptionInfos()) {
             DFAgentDescription template = info.getTemplate();
             if (DFMemKB.compare(template, dfd) || ((oldDfd != null) && DFMemKB.compare(template, oldDfd))) {
                 // This subscriber must be notified
@@ -167,6 +161,43 @@ class KBSubscriptionManager implements SubscriptionResponder.SubscriptionManager
         }
     }
 
+    /**
+     * Handle registrations whose lease time has expired by notifying subscribed
+     * agents if necessary. Each subscribed agent receives a single notification listing
+     * all expired registrations matching its template, each one with no services
+     * as it happens for deregistrations.
+     */
+    void handleExpirations(List<DFAgentDescription> expired) {
+        for (SubscriptionInfo info : getSubscriptionInfos()) {
+            DFAgentDescription template = info.getTemplate();
+            List<DFAgentDescription> results = new ArrayList<>();
+            for (DFAgentDescription oldDfd : expired) {
+                if (DFMemKB.compareIgnoringLease(template, oldDfd)) {
+                    DFAgentDescription dfd = new DFAgentDescription();
+                    dfd.setName(oldDfd.getName());
+                    results.add(dfd);
+                }
+            }
+            if (!results.isEmpty()) {
+                if (myLogger.isLoggable(Logger.FINE)) {
+                    ACLMessage subMessage = info.getSubscription().getMessage();
+                    myLogger.log(Logger.FINE, "Notifying subscribed agent " + subMessage.getSender().getName() + " [" + subMessage.getConversationId() + "] of " + results.size() + " expired registrations");
+                }
+                notify(info.getSubscription(), results, info.getAbsIota());
+            }
+        }
+    }
+
+    private SubscriptionInfo[] getSubscriptionInfos() {
+        synchronized (subscriptionsCache) {
+            if (subscriptions == null) {
+                subscriptionsCache = loadSubscriptionsCache();
+                subscriptions = toArray(subscriptionsCache);
+            }
+            return subscriptions;
+        }
+    }
+
     private Map<String, SubscriptionInfo> loadSubscriptionsCache() {
         Map<String, SubscriptionInfo> m = new HashMap<>();
         Enumeration<?> e = kBase.getSubscriptions();
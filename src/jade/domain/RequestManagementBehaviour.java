@@ -23,6 +23,7 @@ Boston, MA  02111-1307, USA.
 
 package jade.domain;
 
+import jade.content.ContentManager;
 import jade.content.lang.Codec.CodecException;
 import jade.content.onto.OntologyException;
 import jade.content.onto.basic.Action;
@@ -71,19 +72,56 @@ public abstract class RequestManagementBehaviour extends SimpleAchieveREResponde
      * otherwise.
      */
     protected ACLMessage prepareResponse(ACLMessage request) throws NotUnderstoodException, RefuseException {
-        ACLMessage response = null;
-        Throwable t = null;
-        try {
-            // Check the language is SL0, SL1, SL2 or SL.
-            isAnSLRequest(request);
+        ACLMessage[] replies = serveRequest(request, null);
+        notification = replies[1];
+        return replies[0];
+    }
 
-            // Extract the content
-            Action slAction = (Action) myAgent.getContentManager().extractContent(request);
+    /**
+     * Serve a request whose content may have been already extracted (possibly by a thread
+     * other than the agent thread): perform the requested action and prepare the replies.
+     *
+     * @param slAction The action extracted from the request content or null if the content must be extracted
+     * @return A two elements array holding the response (null when the AGREE message can be skipped)
+     * and the result notification (null if it will be sent at a later time)
+     */
+    ACLMessage[] serveRequest(ACLMessage request, Action slAction) {
+        try {
+            if (slAction == null) {
+                slAction = extractAction(request, myAgent.getContentManager());
+            }
 
             // Perform the action
-            notification = performAction(slAction, request);
+            return new ACLMessage[]{null, performAction(slAction, request)};
+        } catch (Throwable t) {
+            return prepareErrorReplies(request, t);
+        }
+    }
 
-            // Action OK
+    /**
+     * Check the language of a request and extract the requested action by means of a given ContentManager.
+     * This method does not access the state of this behaviour and can be invoked by any thread.
+     */
+    Action extractAction(ACLMessage request, ContentManager cm) throws FIPAException, CodecException, OntologyException {
+        // Check the language is SL0, SL1, SL2 or SL.
+        isAnSLRequest(request);
+
+        // Extract the content
+        return (Action) cm.extractContent(request);
+    }
+
+    /**
+     * Prepare the replies to a request whose processing failed.
+     * This method does not access the state of this behaviour and can be invoked by any thread.
+     *
+     * @return A two elements array holding the response and the result notification (only one of them is not null)
+     */
+    ACLMessage[] prepareErrorReplies(ACLMessage request, Throwable error) {
+        ACLMessage response = null;
+        ACLMessage notification = null;
+        Throwable t = null;
+        try {
+            throw error;
         } catch (OntologyException | CodecException oe) {
             // Error decoding request --> NOT_UNDERSTOOD
             response = request.createReply();
@@ -119,7 +157,7 @@ public abstract class RequestManagementBehaviour extends SimpleAchieveREResponde
         if (t != null) {
             myLogger.log(Logger.WARNING, "Agent " + myAgent.getLocalName() + " - Error handling request", t);
         }
-        return response;
+        return new ACLMessage[]{response, notification};
     }
 
     /**
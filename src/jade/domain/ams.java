@@ -70,6 +70,8 @@ public class ams extends Agent /*implements AgentManager.Listener*/ {
     public static final String PERIODIC_LOG_DELAY = "jade_domain_ams_periodiclogdelay";
     public static final String MAX_RESULTS = "jade_domain_ams_maxresult";
     public static final String KEEP_NOTIFY_ON_SHUTDOWN = "jade_domain_ams_keepnotifyonshutdown";
+    public static final String STREAM_FLUSH_PERIOD = "jade_domain_ams_streamflushperiod";
+    public static final String STREAM_CHUNK_SIZE = "jade_domain_ams_streamchunksize";
 
     // Limit of searchConstraints.maxresult
     // FIPA Agent Management Specification doc num: SC00023J (6.1.4 Search Constraints)
@@ -77,6 +79,8 @@ public class ams extends Agent /*implements AgentManager.Listener*/ {
     // all available results
     private static final int DEFAULT_MAX_RESULTS = 100;
     private static final int DEFAULT_PERIODIC_LOG_DELAY = -1;
+    private static final long DEFAULT_STREAM_FLUSH_PERIOD = 500;
+    private static final int DEFAULT_STREAM_CHUNK_SIZE = 200;
 
     private int amsMaxResults = DEFAULT_MAX_RESULTS;
 
@@ -92,6 +96,11 @@ public class ams extends Agent /*implements AgentManager.Listener*/ {
     private final ACLMessage toolNotification = new ACLMessage(ACLMessage.INFORM);
     private boolean keepNotifyOnShutdown = false;
 
+    // Tools subscribed in stream mode
+    private final Map<AID, AMSEventStream> eventStreams = new HashMap<>();
+    private long streamFlushPeriod = DEFAULT_STREAM_FLUSH_PERIOD;
+    private int streamChunkSize = DEFAULT_STREAM_CHUNK_SIZE;
+
     // Buffer for AgentPlatform notifications
     private InputQueue eventQueue = new InputQueue();
 
@@ -150,6 +159,15 @@ public class ams extends Agent /*implements AgentManager.Listener*/ {
             logger.log(Logger.WARNING, "Wrong max result limit " + sMaxResults + ". It must be an integer value.");
         }
 
+        String sStreamFlushPeriod = getProperty(STREAM_FLUSH_PERIOD, String.valueOf(DEFAULT_STREAM_FLUSH_PERIOD));
+        String sStreamChunkSize = getProperty(STREAM_CHUNK_SIZE, String.valueOf(DEFAULT_STREAM_CHUNK_SIZE));
+        try {
+            streamFlushPeriod = Long.parseLong(sStreamFlushPeriod);
+            streamChunkSize = Integer.parseInt(sStreamChunkSize);
+        } catch (Exception e) {
+            logger.log(Logger.WARNING, "Wrong event stream flush period " + sStreamFlushPeriod + " or chunk size " + sStreamChunkSize + ". They must be integer values.");
+        }
+
         // Register the supported ontologies
         getContentManager().registerOntology(FIPAManagementOntology.getInstance());
         getContentManager().registerOntology(JADEManagementOntology.getInstance());
@@ -688,7 +706,7 @@ public class ams extends Agent /*implements AgentManager.Listener*/ {
             MessageTemplate mt2 = MessageTemplate.MatchOntology(IntrospectionOntology.NAME);
             MessageTemplate mt12 = MessageTemplate.and(mt1, mt2);
 
-            mt1 = MessageTemplate.MatchReplyWith("tool-subscription");
+            mt1 = MessageTemplate.or(MessageTemplate.MatchReplyWith(AMSSubscriber.AMS_SUBSCRIPTION), MessageTemplate.MatchReplyWith(AMSSubscriber.AMS_STREAM_SUBSCRIPTION));
             mt2 = MessageTemplate.MatchPerformative(ACLMessage.SUBSCRIBE);
             subscriptionTemplate = MessageTemplate.and(mt1, mt2);
             subscriptionTemplate = MessageTemplate.and(subscriptionTemplate, mt12);
@@ -703,34 +721,21 @@ public class ams extends Agent /*implements AgentManager.Listener*/ {
 
                 // FIXME: Should parse 'iota ?x ...'
 
+                if (AMSSubscriber.AMS_STREAM_SUBSCRIPTION.equals(current.getReplyWith())) {
+                    registerEventStream(current);
+                    return;
+                }
+
                 // Get new tool name from subscription message
                 AID newTool = current.getSender();
                 toolNotification.clearAllReceiver();
                 toolNotification.addReceiver(newTool);
 
                 try {
-                    // Send a 'Reset' meta-event
-                    ResetEvents re = new ResetEvents();
-                    EventRecord er = new EventRecord(re, here());
-                    Occurred o = new Occurred();
-                    o.setWhat(er);
-
-                    try {
-                        getContentManager().fillContent(toolNotification, o);
-                        send(toolNotification);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-
-                    // Send back the whole container list.
-                    ContainerID[] ids = myPlatform.containerIDs();
-                    for (ContainerID cid : ids) {
-                        AddedContainer ac = new AddedContainer();
-                        ac.setContainer(cid);
-                        ac.setOwnership(getContainerOwnership(cid));
-
-                        er = new EventRecord(ac, here());
-                        o = new Occurred();
+                    // Send back a 'Reset' meta-event, the whole container list (along with the MTPs
+                    // installed on each container), all agent names and the APDescription
+                    for (EventRecord er : getPlatformSnapshot()) {
+                        Occurred o = new Occurred();
                         o.setWhat(er);
 
                         try {
@@ -739,85 +744,169 @@ public class ams extends Agent /*implements AgentManager.Listener*/ {
                         } catch (Exception e) {
                             e.printStackTrace();
                         }
-
-                        // Send the list of the MTPs installed on this container
-                        for (MTPDescriptor mtpDescriptor : myPlatform.containerMTPs(cid)) {
-                            AddedMTP amtp = new AddedMTP();
-                            amtp.setAddress(mtpDescriptor.getAddresses()[0]);
-                            amtp.setWhere(cid);
-
-                            er = new EventRecord(amtp, here());
-                            o = new Occurred();
-                            o.setWhat(er);
-
-                            try {
-                                getContentManager().fillContent(toolNotification, o);
-                                send(toolNotification);
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
-                        }
                     }
 
-                    // Send all agent names, along with their container name.
-                    AID[] agents = myPlatform.agentNames();
-                    for (AID agentName : agents) {
-
-                        ContainerID cid = myPlatform.getContainerID(agentName);
-                        AMSAgentDescription amsd = myPlatform.getAMSDescription(agentName);
+                    myPlatform.addTool(newTool);
 
-                        BornAgent ba = new BornAgent();
-                        // Note that "agentName" may not include agent addresses
-                        AID id = agentName;
-                        if (amsd != null) {
-                            if (amsd.getName() != null) {
-                                id = amsd.getName();
-                            }
-                            ba.setState(amsd.getState());
-                            ba.setOwnership(amsd.getOwnership());
-                            ba.setClassName(id.getAllUserDefinedSlot().getProperty(AID.AGENT_CLASSNAME));
-                        }
-                        ba.setAgent(id);
-                        ba.setWhere(cid);
+                } catch (Exception nfe) {
+                    nfe.printStackTrace();
+                }
+            } else
+                block();
 
-                        er = new EventRecord(ba, here());
-                        o = new Occurred();
-                        o.setWhat(er);
+        }
 
-                        try {
-                            getContentManager().fillContent(toolNotification, o);
-                            send(toolNotification);
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
-                    }
+    } // End of RegisterToolBehaviour inner class
 
-                    // Notification of the APDescription
-                    PlatformDescription ap = new PlatformDescription();
-                    ap.setPlatform(getDescriptionAction(null));
+    /**
+     * Collect the events describing the current state of the platform: a 'Reset' meta-event,
+     * the containers along with their MTPs, the agents and the platform description.
+     */
+    private List<EventRecord> getPlatformSnapshot() throws NotFoundException {
+        List<EventRecord> records = new ArrayList<>();
+        records.add(new EventRecord(new ResetEvents(), here()));
 
-                    er = new EventRecord(ap, here());
-                    o = new Occurred();
-                    o.setWhat(er);
+        ContainerID[] ids = myPlatform.containerIDs();
+        for (ContainerID cid : ids) {
+            AddedContainer ac = new AddedContainer();
+            ac.setContainer(cid);
+            ac.setOwnership(getContainerOwnership(cid));
+            records.add(new EventRecord(ac, here()));
+
+            for (MTPDescriptor mtpDescriptor : myPlatform.containerMTPs(cid)) {
+                AddedMTP amtp = new AddedMTP();
+                amtp.setAddress(mtpDescriptor.getAddresses()[0]);
+                amtp.setWhere(cid);
+                records.add(new EventRecord(amtp, here()));
+            }
+        }
 
-                    try {
-                        getContentManager().fillContent(toolNotification, o);
-                        send(toolNotification);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
+        AID[] agents = myPlatform.agentNames();
+        for (AID agentName : agents) {
 
-                    myPlatform.addTool(newTool);
+            ContainerID cid = myPlatform.getContainerID(agentName);
+            AMSAgentDescription amsd = myPlatform.getAMSDescription(agentName);
 
-                } catch (Exception nfe) {
-                    nfe.printStackTrace();
+            BornAgent ba = new BornAgent();
+            // Note that "agentName" may not include agent addresses
+            AID id = agentName;
+            if (amsd != null) {
+                if (amsd.getName() != null) {
+                    id = amsd.getName();
                 }
-            } else
-                block();
+                ba.setState(amsd.getState());
+                ba.setOwnership(amsd.getOwnership());
+                ba.setClassName(id.getAllUserDefinedSlot().getProperty(AID.AGENT_CLASSNAME));
+            }
+            ba.setAgent(id);
+            ba.setWhere(cid);
+            records.add(new EventRecord(ba, here()));
+        }
+
+        PlatformDescription ap = new PlatformDescription();
+        ap.setPlatform(getDescriptionAction(null));
+        records.add(new EventRecord(ap, here()));
+        return records;
+    }
 
+    /**
+     * Register a tool subscribed in stream mode. The platform snapshot is sent in chunks, then
+     * the coalesced platform events are periodically flushed to the tool.
+     */
+    private void registerEventStream(ACLMessage subscription) {
+        AMSEventStream oldStream = eventStreams.remove(subscription.getSender());
+        if (oldStream != null) {
+            oldStream.close();
         }
+        try {
+            AMSEventStream stream = new AMSEventStream(subscription, streamFlushPeriod, streamChunkSize);
+            List<ContentElementList> snapshot = stream.toChunks(getPlatformSnapshot());
+            // Events occurring from now on are buffered until the snapshot is completely delivered
+            eventStreams.put(stream.getSubscriber(), stream);
+            addBehaviour(new EventStreamSnapshotSender(stream, snapshot));
+            if (logger.isLoggable(Logger.CONFIG)) {
+                logger.log(Logger.CONFIG, "Tool " + stream.getSubscriber().getName() + " subscribed in stream mode. Snapshot size = " + snapshot.size() + " chunks");
+            }
+        } catch (Exception e) {
+            logger.log(Logger.WARNING, "Error registering event stream for tool " + subscription.getSender().getName(), e);
+        }
+    }
 
-    } // End of RegisterToolBehaviour inner class
+    private void sendEventChunk(AMSEventStream stream, ContentElementList chunk, boolean lastSnapshotChunk) {
+        ACLMessage notification = stream.createNotification();
+        if (lastSnapshotChunk) {
+            notification.addUserDefinedParameter(AMSSubscriber.STREAM_SNAPSHOT_COMPLETED, "true");
+        }
+        try {
+            getContentManager().fillContent(notification, chunk);
+            send(notification);
+        } catch (Exception e) {
+            logger.log(Logger.WARNING, "Error notifying events to tool " + stream.getSubscriber().getName(), e);
+        }
+    }
+
+    /**
+     * Inner class EventStreamSnapshotSender.
+     * Sends one chunk of the platform snapshot to a tool subscribed in stream mode
+     * at each round so that the AMS keeps serving other requests in the meanwhile.
+     * When done, it activates the periodic delivery of platform events.
+     */
+    private class EventStreamSnapshotSender extends SimpleBehaviour {
+        private final AMSEventStream stream;
+        private final List<ContentElementList> chunks;
+        private int next = 0;
+
+        EventStreamSnapshotSender(AMSEventStream stream, List<ContentElementList> chunks) {
+            super(ams.this);
+            this.stream = stream;
+            this.chunks = chunks;
+        }
+
+        public void action() {
+            if (!stream.isClosed() && next < chunks.size()) {
+                sendEventChunk(stream, chunks.get(next), next == chunks.size() - 1);
+                next++;
+            }
+        }
+
+        public boolean done() {
+            return stream.isClosed() || next >= chunks.size();
+        }
+
+        public int onEnd() {
+            if (!stream.isClosed()) {
+                stream.snapshotCompleted();
+                addBehaviour(new EventStreamFlusher(stream));
+            }
+            return 0;
+        }
+    } // END of EventStreamSnapshotSender inner class
+
+    /**
+     * Inner class EventStreamFlusher.
+     * Periodically delivers the coalesced platform events to a tool subscribed in stream mode.
+     */
+    private class EventStreamFlusher extends TickerBehaviour {
+        private final AMSEventStream stream;
+
+        EventStreamFlusher(AMSEventStream stream) {
+            super(ams.this, stream.getFlushPeriod());
+            this.stream = stream;
+        }
+
+        protected void onTick() {
+            if (stream.isClosed()) {
+                stop();
+                return;
+            }
+            // Unless explicitly instructed to do so, avoid notifying tools when the platform is shutting down
+            if (!shuttingDown || keepNotifyOnShutdown) {
+                for (ContentElementList chunk : stream.flush()) {
+                    sendEventChunk(stream, chunk, false);
+                }
+            }
+        }
+    } // END of EventStreamFlusher inner class
 
     /**
      * Inner calss DeregisterToolBehaviour.
@@ -849,6 +938,10 @@ public class ams extends Agent /*implements AgentManager.Listener*/ {
 
                 // Remove this tool from tools agent group.
                 myPlatform.removeTool(current.getSender());
+                AMSEventStream stream = eventStreams.remove(current.getSender());
+                if (stream != null) {
+                    stream.close();
+                }
 
             } else
                 block();
@@ -898,6 +991,11 @@ public class ams extends Agent /*implements AgentManager.Listener*/ {
                 if (notification != null) {
                     send(notification);
                 }
+                // If the dead agent was a tool subscribed in stream mode, drop its stream
+                AMSEventStream stream = eventStreams.remove(agentID);
+                if (stream != null) {
+                    stream.close();
+                }
             });
             handlers.put(MovedAgent.NAME, ev -> {
                 // If this event was forced by an action requested by
@@ -944,6 +1042,9 @@ public class ams extends Agent /*implements AgentManager.Listener*/ {
 
                     // Notify all tools about the event
                     notifyTools(er);
+                    for (AMSEventStream stream : eventStreams.values()) {
+                        stream.add(er);
+                    }
                 } else {
                     block();
                 }
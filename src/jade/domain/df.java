@@ -36,6 +36,7 @@ import jade.content.onto.basic.Done;
 import jade.content.onto.basic.Result;
 import jade.core.AID;
 import jade.core.behaviours.Behaviour;
+import jade.core.behaviours.CyclicBehaviour;
 import jade.core.behaviours.ThreadedBehaviourFactory;
 import jade.domain.DFGUIManagement.GetDescription;
 import jade.domain.DFGUIManagement.*;
@@ -197,6 +198,43 @@ import java.util.*;
  * volatile (in-memory) knowledge base.
  * </td>
  * </tr>
+ * <tr>
+ * <td>
+ *  jade_domain_df_search-poolsize  
+ * </td>
+ * <td>
+ * The dimension of the pool of threads dedicated to decoding FIPA management requests and serving
+ * local (i.e. non federated) searches when the knowledge base supports concurrent searches
+ * (this is the case of the volatile (in-memory) knowledge base). Registrations, deregistrations,
+ * modifications and federated searches are still served by the df agent Thread in the order they are
+ * received. If  0   is specified all requests are served by the df agent Thread. This parameter
+ * is ignored if  jade_domain_df_poolsize   is specified or if a subclass of the df redefines the
+ *  searchAction()   or  DFSearch()   methods. The default is the number of available
+ * processors, at most  4  , or  0   on single processor hosts.
+ * </td>
+ * </tr>
+ * <tr>
+ * <td>
+ *  jade_domain_df_search-timeout  
+ * </td>
+ * <td>
+ * The time (in milliseconds) granted to a search propagated to federated DFs when the search request
+ * does not specify a  reply-by   deadline (defaults to 300000, i.e. 5 minutes). Federated DFs
+ * are asked to reply within a fraction of the time left, so that their results can be merged and
+ * sent back before the deadline even if some of them do not reply.
+ * </td>
+ * </tr>
+ * <tr>
+ * <td>
+ *  jade_domain_df_lease-check-period  
+ * </td>
+ * <td>
+ * The maximum time (in milliseconds) between two checks for registrations whose lease time has
+ * expired (defaults to 10000, i.e. 10 seconds). Expired registrations are removed and agents
+ * subscribed to them are notified as if they were deregistered. When using a volatile (in-memory)
+ * knowledge base registrations are removed as soon as their lease time expires.
+ * </td>
+ * </tr>
  * </table>
  * <p>
  * p>
@@ -231,6 +269,9 @@ public class df extends GuiAgent implements DFGUIAdapter {
     // Configuration parameter keys
     private static final String AUTOCLEANUP = "jade_domain_df_autocleanup";
     private static final String POOLSIZE = "jade_domain_df_poolsize";
+    private static final String SEARCH_POOLSIZE = "jade_domain_df_search-poolsize";
+    private static final String SEARCH_TIMEOUT = "jade_domain_df_search-timeout";
+    private static final String LEASE_CHECK_PERIOD = "jade_domain_df_lease-check-period";
     private static final String MAX_LEASE_TIME = "jade_domain_df_maxleasetime";
     private static final String MAX_RESULTS = "jade_domain_df_maxresult";
     private static final String DISABLE_VALIDATION = "jade_domain_df_disablevalidation";
@@ -248,6 +289,18 @@ public class df extends GuiAgent implements DFGUIAdapter {
     // a negative value of maxresults indicates that the sender agent is willing to receive
     // all available results
     private static final String DEFAULT_MAX_RESULTS = "100";
+    // On single processor hosts handing requests over to other threads only adds context switches
+    private static final int MAX_DEFAULT_SEARCH_POOLSIZE = 4;
+    private static final long DEFAULT_SEARCH_TIMEOUT = 300000; // 5 minutes
+    // Fraction of the time left before the deadline of a search that is granted to federated DFs.
+    // The rest is kept to merge their results and reply in time.
+    private static final double FEDERATED_DEADLINE_RATIO = 0.8;
+    // Minimum time granted to federated DFs. This also ensures a reply-by in the past is never set
+    private static final long MIN_FEDERATED_SEARCH_TIME = 1000;
+    private static final long DEFAULT_LEASE_CHECK_PERIOD = 10000; // 10 seconds
+    // Maximum number of expired registrations removed at once, so that other behaviours
+    // are not delayed too much when a lot of registrations expire together
+    private static final int MAX_EXPIRATIONS_PER_ROUND = 100;
     private final jade.util.HashCache searchIdCache = new jade.util.HashCache(SEARCH_ID_CACHE_SIZE);
     // The DF federated with this DF
     private final List<AID> children = new ArrayList<>();
@@ -268,6 +321,8 @@ public class df extends GuiAgent implements DFGUIAdapter {
     //#PJAVA_EXCLUDE_BEGIN
     // This is used in case a pool-size != 0 is specified to serve FIPA requests
     private ThreadedBehaviourFactory tbf;
+    // This is used in case the KB supports concurrent searches and a search-pool-size != 0 is specified
+    private DFConcurrentRequestBehaviour concurrentRequestResponder;
     private AMSSubscriber amsSubscriber;
     /*
      * This is the actual value for the limit on the maximum number of results to be
@@ -276,6 +331,9 @@ public class df extends GuiAgent implements DFGUIAdapter {
      */
     private int maxResultLimit = Integer.parseInt(DEFAULT_MAX_RESULTS);
     private Date maxLeaseTime = null;
+    private long searchTimeout = DEFAULT_SEARCH_TIMEOUT;
+    private long leaseCheckPeriod = DEFAULT_LEASE_CHECK_PERIOD;
+    private LeaseExpiryBehaviour leaseExpiryBehaviour;
 
     private KB agentDescriptions = null;
     private KBSubscriptionManager subManager = null;
@@ -311,8 +369,12 @@ public class df extends GuiAgent implements DFGUIAdapter {
         // both are specified.
         String sAutocleanup = getProperty(AUTOCLEANUP, null);
         String sPoolsize = getProperty(POOLSIZE, null);
+        int processors = Runtime.getRuntime().availableProcessors();
+        String sSearchPoolsize = getProperty(SEARCH_POOLSIZE, String.valueOf(processors > 1 ? Math.min(processors, MAX_DEFAULT_SEARCH_POOLSIZE) : 0));
         String sMaxLeaseTime = getProperty(MAX_LEASE_TIME, null);
         String sMaxResults = getProperty(MAX_RESULTS, DEFAULT_MAX_RESULTS);
+        String sSearchTimeout = getProperty(SEARCH_TIMEOUT, null);
+        String sLeaseCheckPeriod = getProperty(LEASE_CHECK_PERIOD, null);
         String dbUrl = getProperty(DB_URL, null);
         String dbDriver = getProperty(DB_DRIVER, null);
         String dbUsername = getProperty(DB_USERNAME, null);
@@ -330,8 +392,11 @@ public class df extends GuiAgent implements DFGUIAdapter {
                 p.load(targetReader);
                 sAutocleanup = p.getProperty(AUTOCLEANUP, sAutocleanup);
                 sPoolsize = p.getProperty(POOLSIZE, sPoolsize);
+                sSearchPoolsize = p.getProperty(SEARCH_POOLSIZE, sSearchPoolsize);
                 sMaxLeaseTime = p.getProperty(MAX_LEASE_TIME, sMaxLeaseTime);
                 sMaxResults = p.getProperty(MAX_RESULTS, sMaxResults);
+                sSearchTimeout = p.getProperty(SEARCH_TIMEOUT, sSearchTimeout);
+                sLeaseCheckPeriod = p.getProperty(LEASE_CHECK_PERIOD, sLeaseCheckPeriod);
                 sDisableValidation = p.getProperty(DISABLE_VALIDATION, sDisableValidation);
                 dbUrl = p.getProperty(DB_URL, dbUrl);
                 dbDriver = p.getProperty(DB_DRIVER, dbDriver);
@@ -368,6 +433,26 @@ public class df extends GuiAgent implements DFGUIAdapter {
         }
         logger.log(Logger.CONFIG, "Agent " + getLocalName() + " - Max search result = " + maxResultLimit);
 
+        // ---------- Federated search timeout ----------
+        try {
+            if (sSearchTimeout != null) {
+                searchTimeout = Long.parseLong(sSearchTimeout);
+            }
+        } catch (Exception e) {
+            // Keep default
+        }
+        logger.log(Logger.CONFIG, "Agent " + getLocalName() + " - Federated search timeout = " + searchTimeout);
+
+        // ---------- Lease check period ----------
+        try {
+            if (sLeaseCheckPeriod != null && Long.parseLong(sLeaseCheckPeriod) > 0) {
+                leaseCheckPeriod = Long.parseLong(sLeaseCheckPeriod);
+            }
+        } catch (Exception e) {
+            // Keep default
+        }
+        logger.log(Logger.CONFIG, "Agent " + getLocalName() + " - Lease check period = " + leaseCheckPeriod);
+
         // ---------- Knowledge Base ----------
         StringBuilder sb = new StringBuilder("DF KB configuration:\n");
 
@@ -483,7 +568,12 @@ public class df extends GuiAgent implements DFGUIAdapter {
         mt1 = MessageTemplate.and(mt1, MessageTemplate.not(MessageTemplate.MatchProtocol(FIPANames.InteractionProtocol.ITERATED_FIPA_REQUEST)));
         //#PJAVA_EXCLUDE_BEGIN
         int poolSize = getIntegerProperty(sPoolsize, POOLSIZE);
-        if (poolSize == 0) {
+        int searchPoolSize = getIntegerProperty(sSearchPoolsize, SEARCH_POOLSIZE);
+        if (poolSize == 0 && searchPoolSize > 0 && agentDescriptions.supportsConcurrentSearch() && !isSearchOverridden()) {
+            logger.log(Logger.CONFIG, "Agent " + getLocalName() + " - FIPA request search-pool-size = " + searchPoolSize);
+            concurrentRequestResponder = new DFConcurrentRequestBehaviour(this, mt1, searchPoolSize);
+            addBehaviour(concurrentRequestResponder);
+        } else if (poolSize == 0) {
             DFFipaAgentManagementBehaviour fipaRequestResponder = new DFFipaAgentManagementBehaviour(this, mt1);
             addBehaviour(fipaRequestResponder);
         } else {
@@ -582,6 +672,10 @@ public class df extends GuiAgent implements DFGUIAdapter {
             }
         });
 
+        // Behaviour removing registrations whose lease time has expired
+        leaseExpiryBehaviour = new LeaseExpiryBehaviour();
+        addBehaviour(leaseExpiryBehaviour);
+
         // Prepare the default description of this DF (used for federations)
         myDescription = getDefaultDescription();
 
@@ -685,6 +779,10 @@ public class df extends GuiAgent implements DFGUIAdapter {
         if (tbf != null) {
             tbf.interrupt();
         }
+
+        if (concurrentRequestResponder != null) {
+            concurrentRequestResponder.shutdown();
+        }
         //#PJAVA_EXCLUDE_END
 
         if (gui != null) {
@@ -712,16 +810,61 @@ public class df extends GuiAgent implements DFGUIAdapter {
      * the new search_id is stored into searchIdCache
      * for later check (i.e. to avoid search loops).
      */
-    private void performRecursiveSearch(List<DFAgentDescription> localResults, DFAgentDescription dfd, SearchConstraints constraints, Search action) {
+    private void performRecursiveSearch(List<DFAgentDescription> localResults, DFAgentDescription dfd, SearchConstraints constraints, final Search action) {
         int maxRes = getActualMaxResults(constraints);
-        int maxDep = constraints.getMaxDepth().intValue();
+        int maxExpected = maxRes - localResults.size();
+        SearchConstraints newConstr = createFederatedSearchConstraints(constraints, maxExpected);
 
-        // Create the new SearchConstraints.
+        if (logger.isLoggable(Logger.CONFIG))
+            logger.log(Logger.CONFIG, "Agent " + getLocalName() + " - Activating recursive search: " + localResults.size() + " item(s) found locally. " + maxRes + " expected. Search depth is " + constraints.getMaxDepth() + ". Search ID is " + newConstr.getSearchId() + ". Propagating search to " + children.size() + " federated DF(s)");
+
+        // Add the behaviour handling the search on federated DFs
+        long deadline = getSearchDeadline(pendingRequests.get(action));
+        addBehaviour(new RecursiveSearchHandler(localResults, dfd, newConstr, maxExpected, deadline, new FederatedSearchListener() {
+            public void resultsReceived(List<DFAgentDescription> newResults) {
+            }
+
+            public void searchCompleted(List<DFAgentDescription> results) {
+                sendPendingNotification(action, results);
+            }
+        }));
+    }
+
+    /**
+     * Propagate a search served according to the iterated-fipa-request protocol to
+     * federated DFs. Results are passed to the given listener as soon as they are received.
+     * Package scoped since it is called by DFIteratedSearchManagementBehaviour.
+     *
+     * @return true if the search was propagated, false if it does not need to be
+     */
+    boolean iteratedFederatedSearchAction(Search s, ACLMessage request, FederatedSearchListener listener) throws FIPAException {
+        SearchConstraints constraints = s.getConstraints();
+        Long maxDepth = constraints.getMaxDepth();
+        if (children.isEmpty() || maxDepth == null || maxDepth.intValue() <= 0) {
+            return false;
+        }
+
+        // Avoid loops in searching on federated DFs
+        checkSearchId(constraints.getSearchId());
+
+        // Each federated DF can provide up to the max number of results allowed by this DF
+        SearchConstraints newConstr = createFederatedSearchConstraints(constraints, maxResultLimit);
+        if (logger.isLoggable(Logger.CONFIG))
+            logger.log(Logger.CONFIG, "Agent " + getLocalName() + " - Activating recursive iterated search. Search depth is " + maxDepth + ". Search ID is " + newConstr.getSearchId() + ". Propagating search to " + children.size() + " federated DF(s)");
+
+        addBehaviour(new RecursiveSearchHandler(new ArrayList<>(), (DFAgentDescription) s.getDescription(), newConstr, -1, getSearchDeadline(request), listener));
+        return true;
+    }
+
+    /**
+     * Create the constraints of a search to be propagated to federated DFs:
+     * max-depth decreased by 1 and a globally unique search-id unless already present.
+     */
+    private SearchConstraints createFederatedSearchConstraints(SearchConstraints constraints, int maxResults) {
         SearchConstraints newConstr = new SearchConstraints();
         // Max-depth decreased by 1
-        newConstr.setMaxDepth((long) (maxDep - 1));
-        // Max-results decreased by the number of items found locally
-        newConstr.setMaxResults((long) (maxRes - localResults.size()));
+        newConstr.setMaxDepth((long) (constraints.getMaxDepth().intValue() - 1));
+        newConstr.setMaxResults((long) maxResults);
         // New globally unique search-id unless already present
         String searchId = constraints.getSearchId();
         if (searchId == null) {
@@ -732,12 +875,16 @@ public class df extends GuiAgent implements DFGUIAdapter {
             searchIdCache.add(searchId);
         }
         newConstr.setSearchId(searchId);
+        return newConstr;
+    }
 
-        if (logger.isLoggable(Logger.CONFIG))
-            logger.log(Logger.CONFIG, "Agent " + getLocalName() + " - Activating recursive search: " + localResults.size() + " item(s) found locally. " + maxRes + " expected. Search depth is " + maxDep + ". Search ID is " + searchId + ". Propagating search to " + children.size() + " federated DF(s)");
-
-        // Add the behaviour handling the search on federated DFs
-        addBehaviour(new RecursiveSearchHandler(localResults, dfd, newConstr, action));
+    /**
+     * @return the time by which the results of a search must be sent back, i.e. the reply-by
+     * deadline of the search request or, if not specified, the search timeout of this DF from now
+     */
+    private long getSearchDeadline(ACLMessage request) {
+        Date replyBy = (request != null ? request.getReplyByDate() : null);
+        return (replyBy != null ? replyBy.getTime() : System.currentTimeMillis() + searchTimeout);
     }
 
     protected void DFRegister(DFAgentDescription dfd) throws AlreadyRegistered {
@@ -756,6 +903,8 @@ public class df extends GuiAgent implements DFGUIAdapter {
             } catch (Exception ignored) {
             }
         }
+        // for lease expiration
+        leaseExpiryBehaviour.leaseGranted(dfd.getLeaseTime());
         // for subscriptions
         subManager.handleChange(dfd, null);
 
@@ -808,6 +957,8 @@ public class df extends GuiAgent implements DFGUIAdapter {
             agentDescriptions.deregister(dfd.getName());
             throw new NotRegistered();
         }
+        // for lease expiration
+        leaseExpiryBehaviour.leaseGranted(dfd.getLeaseTime());
         // for subscription
         subManager.handleChange(dfd, (DFAgentDescription) old);
         try {
@@ -816,6 +967,31 @@ public class df extends GuiAgent implements DFGUIAdapter {
             gui.showStatusMsg("Modify of agent: " + dfd.getName().getName() + " done.");
         } catch (Exception ignored) {
         }
+    }
+
+    // Called by the LeaseExpiryBehaviour when the lease time of some registrations has expired
+    private void DFExpire(List<DFAgentDescription> expired) {
+        for (DFAgentDescription dfd : expired) {
+            if (children.remove(dfd.getName())) {
+                try {
+                    gui.removeChildren(dfd.getName());
+                } catch (Exception ignored) {
+                }
+            }
+            try {
+                gui.removeAgentDesc(dfd.getName(), df.this.getAID());
+            } catch (Exception ignored) {
+            }
+        }
+        if (logger.isLoggable(Logger.FINE))
+            logger.log(Logger.FINE, "Agent " + getLocalName() + " - Lease time of " + expired.size() + " registrations expired");
+
+        // for subscriptions
+        subManager.handleExpirations(expired);
+        try {
+            gui.showStatusMsg("Lease time of " + expired.size() + " registrations expired.");
+        } catch (Exception ignored) {
+        }
 
     }
 
@@ -923,6 +1099,41 @@ public class df extends GuiAgent implements DFGUIAdapter {
         return result;
     }
 
+    /**
+     * @return true if a subclass redefines the way searches are served. In that case searches
+     * must go through <code>searchAction()</code> in the agent thread as usual.
+     */
+    private boolean isSearchOverridden() {
+        for (Class<?> c = getClass(); c != df.class; c = c.getSuperclass()) {
+            for (java.lang.reflect.Method m : c.getDeclaredMethods()) {
+                String name = m.getName();
+                if (name.equals("searchAction") || name.equals("DFSearch")) {
+                    logger.log(Logger.CONFIG, "Agent " + getLocalName() + " - " + c.getName() + "." + name + "() redefined: concurrent search disabled");
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Serve a Search action of the FIPA management ontology that does not
+     * require propagation to federated DFs.
+     * Package scoped since it is called by DFConcurrentRequestBehaviour,
+     * possibly by a thread other than the agent thread.
+     *
+     * @return the List of descriptions matching the template specified
+     * in the Search action.
+     */
+    List<DFAgentDescription> localSearchAction(Search s, AID requester) {
+        DFAgentDescription dfd = (DFAgentDescription) s.getDescription();
+
+        if (logger.isLoggable(Logger.CONFIG))
+            logger.log(Logger.CONFIG, "Agent " + getLocalName() + " - Agent " + requester.getName() + " requesting action Search");
+
+        return DFSearch(dfd, getActualMaxResults(s.getConstraints()));
+    }
+
     /**
      * Serve a Search action of the FIPA management ontology requested
      * using an iterated-fipa-request protocol.
@@ -1512,40 +1723,72 @@ public class df extends GuiAgent implements DFGUIAdapter {
         }
     }
 
+    /**
+     * Interface FederatedSearchListener.
+     * This is notified about the progress of a search propagated to federated DFs.
+     * Methods are invoked by the agent thread.
+     */
+    interface FederatedSearchListener {
+        /**
+         * Called each time new (i.e. not duplicated) results are received from a federated DF
+         */
+        void resultsReceived(List<DFAgentDescription> newResults);
+
+        /**
+         * Called once, when the expected number of results is reached, all federated DFs
+         * replied or the deadline granted to federated DFs expired.
+         *
+         * @param results All results collected so far, including the initial ones
+         */
+        void searchCompleted(List<DFAgentDescription> results);
+    }
+
     /**
      * Inner class RecursiveSearchHandler.
      * This is a behaviour handling recursive searches i.e. searches that
      * must be propagated to children (federated) DFs.
+     * The search REQUEST is sent to all children in parallel with a reply-by
+     * deadline that leaves room to merge results before the overall deadline.
+     * Results are merged as soon as they are received and the search completes
+     * as soon as the expected number of results is reached.
      */
     private class RecursiveSearchHandler extends AchieveREInitiator {
-        private static final long DEFAULTTIMEOUT = 300000; // 5 minutes
-
         private final List<DFAgentDescription> results;
+        // Names of the collected results, used to filter duplicates
+        private final Set<AID> resultNames = new HashSet<>();
         private final DFAgentDescription template;
         private final SearchConstraints constraints;
-        private final Search action;
         private final int maxExpectedResults;
+        private final long deadline;
+        private final FederatedSearchListener listener;
         private int receivedResults;
+        private boolean completed;
 
         /**
          * Construct a new RecursiveSearchHandler.
          *
-         * @param results     The search results. Initially this includes the items found
-         *                    locally.
-         * @param template    The DFAgentDescription used as tamplate for the search.
-         * @param constraints The constraints for the search to be propagated.
-         * @param action      The original Search action. This is used as a key to retrieve
-         *                    the incoming REQUEST message.
+         * @param results            The search results. Initially this includes the items found
+         *                           locally.
+         * @param template           The DFAgentDescription used as tamplate for the search.
+         * @param constraints        The constraints for the search to be propagated.
+         * @param maxExpectedResults The number of results to be collected from federated DFs or -1
+         *                           to wait for all federated DFs.
+         * @param deadline           The time by which the results must be sent back to the requester.
+         * @param listener           The listener to be notified about the search progress.
          */
-        private RecursiveSearchHandler(List<DFAgentDescription> results, DFAgentDescription template, SearchConstraints constraints, Search action) {
+        private RecursiveSearchHandler(List<DFAgentDescription> results, DFAgentDescription template, SearchConstraints constraints, int maxExpectedResults, long deadline, FederatedSearchListener listener) {
             super(df.this, null);
 
             this.results = results;
             this.template = template;
             this.constraints = constraints;
-            this.action = action;
+            this.maxExpectedResults = maxExpectedResults;
+            this.deadline = deadline;
+            this.listener = listener;
 
-            maxExpectedResults = constraints.getMaxResults().intValue();
+            for (DFAgentDescription dfd : results) {
+                resultNames.add(dfd.getName());
+            }
             receivedResults = 0;
         }
 
@@ -1553,45 +1796,48 @@ public class df extends GuiAgent implements DFGUIAdapter {
          * We broadcast the search REQUEST to all children (federated) DFs in parallel.
          */
         protected Vector<ACLMessage> prepareRequests(ACLMessage request) {
-            Vector<ACLMessage> requests = null;
-            ACLMessage incomingRequest = pendingRequests.get(action);
-            if (incomingRequest != null) {
-                Date deadline = incomingRequest.getReplyByDate();
-                if (deadline == null) {
-                    deadline = new Date(System.currentTimeMillis() + DEFAULTTIMEOUT);
-                }
-                requests = new Vector<>(children.size());
-                for (AID childDF : children) {
-                    ACLMessage msg = DFService.createRequestMessage(myAgent, childDF, FIPAManagementVocabulary.SEARCH, template, constraints);
-                    msg.setReplyByDate(deadline);
-                    requests.addElement(msg);
-                }
+            long now = System.currentTimeMillis();
+            Date childDeadline = new Date(now + Math.max((long) ((deadline - now) * FEDERATED_DEADLINE_RATIO), MIN_FEDERATED_SEARCH_TIME));
+            Vector<ACLMessage> requests = new Vector<>(children.size());
+            for (AID childDF : children) {
+                ACLMessage msg = DFService.createRequestMessage(myAgent, childDF, FIPAManagementVocabulary.SEARCH, template, constraints);
+                msg.setReplyByDate(childDeadline);
+                requests.addElement(msg);
             }
             return requests;
         }
 
         /**
          * As long as we receive the replies we update the results. If we reach the
-         * max-results we send back the notification to the requester and discard
-         * successive replies.
+         * max-results we notify the listener (that sends back the notification to the
+         * requester) and discard successive replies.
          */
         protected void handleInform(ACLMessage inform) {
             if (logger.isLoggable(Logger.CONFIG))
                 logger.log(Logger.CONFIG, "Agent " + getLocalName() + " - Recursive search result received from " + inform.getSender().getName() + ".");
             int cnt = 0;
-            if (receivedResults < maxExpectedResults) {
+            if (!completed) {
                 try {
                     DFAgentDescription[] dfds = DFService.decodeResult(inform.getContent());
+                    List<DFAgentDescription> newResults = new ArrayList<>(dfds.length);
                     for (DFAgentDescription dfd : dfds) {
                         // We add the item only if not already present
-                        if (addResult(dfd)) {
+                        if (resultNames.add(dfd.getName())) {
+                            results.add(dfd);
+                            newResults.add(dfd);
                             receivedResults++;
                             cnt++;
-                            if (receivedResults >= maxExpectedResults) {
-                                sendPendingNotification(action, results);
+                            if (maxExpectedResults >= 0 && receivedResults >= maxExpectedResults) {
+                                break;
                             }
                         }
                     }
+                    if (cnt > 0) {
+                        listener.resultsReceived(newResults);
+                    }
+                    if (maxExpectedResults >= 0 && receivedResults >= maxExpectedResults) {
+                        complete();
+                    }
                 } catch (Exception e) {
                     if (logger.isLoggable(Logger.SEVERE))
                         logger.log(Logger.SEVERE, "Agent " + getLocalName() + " - Error decoding reply from federated DF " + inform.getSender().getName() + " during recursive search [" + e + "].");
@@ -1624,23 +1870,69 @@ public class df extends GuiAgent implements DFGUIAdapter {
         }
 
         public int onEnd() {
-            // Send back the notification to the originator of the
-            // search (unless already sent)
-            if (receivedResults < maxExpectedResults) {
-                sendPendingNotification(action, results);
-            }
+            // All federated DFs replied or the deadline expired: complete the
+            // search (unless already completed)
+            complete();
             return super.onEnd();
         }
 
-        private boolean addResult(DFAgentDescription newDfd) {
-            for (DFAgentDescription result : results) {
-                if (result.getName().equals(newDfd.getName())) {
-                    return false;
-                }
+        private void complete() {
+            if (!completed) {
+                completed = true;
+                listener.searchCompleted(results);
             }
-            results.add(newDfd);
-            return true;
         }
     } // END of inner class RecursiveSearchHandler
+
+    /**
+     * Inner class LeaseExpiryBehaviour.
+     * This behaviour removes the registrations whose lease time has expired and
+     * notifies subscribed agents. It wakes up when the next lease time is expected
+     * to expire according to the KB, or at most every lease-check-period ms.
+     * Expired registrations are removed in rounds of at most MAX_EXPIRATIONS_PER_ROUND
+     * to let other behaviours run in between.
+     */
+    private class LeaseExpiryBehaviour extends CyclicBehaviour {
+        // Updated by the threads serving FIPA requests too when a pool-size is specified
+        private volatile long nextCheck = 0;
+
+        private LeaseExpiryBehaviour() {
+            super(df.this);
+        }
+
+        public void action() {
+            long now = System.currentTimeMillis();
+            if (now < nextCheck) {
+                // Woken up by a message or by a lease granted before the scheduled check
+                block(nextCheck - now);
+                return;
+            }
+
+            List<DFAgentDescription> expired = agentDescriptions.removeExpired(MAX_EXPIRATIONS_PER_ROUND);
+            if (!expired.isEmpty()) {
+                DFExpire(expired);
+            }
+            if (expired.size() < MAX_EXPIRATIONS_PER_ROUND) {
+                now = System.currentTimeMillis();
+                long next = agentDescriptions.getNextExpiration();
+                nextCheck = now + leaseCheckPeriod;
+                if (next >= 0 && next < nextCheck) {
+                    nextCheck = Math.max(next, now + 1);
+                }
+                block(nextCheck - now);
+            }
+            // Else more registrations may have expired: go on at next round
+        }
+
+        /**
+         * Make sure a lease time granted to a registration is checked when it expires
+         */
+        void leaseGranted(Date lease) {
+            if (lease != null && lease.getTime() < nextCheck) {
+                nextCheck = lease.getTime();
+                restart();
+            }
+        }
+    } // END of inner class LeaseExpiryBehaviour
     //#APIDOC_EXCLUDE_END
 }
@@ -23,6 +23,8 @@
 
 package jade.domain.introspection;
 
+import jade.content.ContentElement;
+import jade.content.ContentElementList;
 import jade.content.lang.sl.SLCodec;
 import jade.core.AID;
 import jade.core.behaviours.SimpleBehaviour;
@@ -48,6 +50,18 @@ public abstract class AMSSubscriber extends SimpleBehaviour {
     public static final String AMS_SUBSCRIPTION = "tool-subscription";
     public static final String AMS_CANCELLATION = "tool-cancellation";
     public static final String PLATFORM_EVENTS = "platform-events";
+    /**
+     * Subscription key used in stream mode: the AMS sends the platform snapshot in chunks
+     * and then periodically delivers the coalesced platform events.
+     */
+    public static final String AMS_STREAM_SUBSCRIPTION = "tool-stream-subscription";
+    // User defined parameters of a stream mode subscription
+    public static final String STREAM_CONTAINERS = "containers";
+    public static final String STREAM_AGENT_PREFIX = "agent-prefix";
+    public static final String STREAM_FLUSH_PERIOD = "flush-period";
+    public static final String STREAM_CHUNK_SIZE = "chunk-size";
+    // User defined parameter marking the last chunk of the platform snapshot
+    public static final String STREAM_SNAPSHOT_COMPLETED = "snapshot-completed";
     private final ACLMessage AMSSubscription = new ACLMessage(ACLMessage.SUBSCRIBE);
     private final ACLMessage AMSCancellation = new ACLMessage(ACLMessage.CANCEL);
     // Ignore case for event names
@@ -56,6 +70,10 @@ public abstract class AMSSubscriber extends SimpleBehaviour {
     private AID ams = null;
     private MessageTemplate listenTemplate;
     private boolean active = true;
+    private boolean streamMode = false;
+    private long streamFlushPeriod = -1;
+    private String streamAgentPrefix = null;
+    private String[] streamContainers = null;
     //#DOTNET_EXCLUDE_END
 	/*#DOTNET_INCLUDE_BEGIN
 	 private Map handlers = new TreeMap(new CaseInsensitiveComparator() );
@@ -94,6 +112,24 @@ public abstract class AMSSubscriber extends SimpleBehaviour {
         this.ams = ams;
     }
 
+    /**
+     * Make this behaviour subscribe in stream mode: the AMS sends the initial platform snapshot
+     * in chunks and then delivers batches of platform events every <code>flushPeriod</code> ms,
+     * where events cancelling each other (e.g. an agent born and dead within the same period)
+     * are coalesced. Handlers are invoked exactly as in the per-event mode.
+     * This method must be called before the behaviour is added to the agent.
+     *
+     * @param flushPeriod The event delivery period in ms. A value &lt;= 0 means the AMS default
+     * @param agentPrefix If not null, only events related to agents whose local name starts with this prefix are notified
+     * @param containers  If not empty, only events related to these containers are notified
+     */
+    public void setStreamMode(long flushPeriod, String agentPrefix, String... containers) {
+        streamMode = true;
+        streamFlushPeriod = flushPeriod;
+        streamAgentPrefix = agentPrefix;
+        streamContainers = containers;
+    }
+
     public void onStart() {
         if (ams == null) {
             ams = myAgent.getAMS();
@@ -112,6 +148,21 @@ public abstract class AMSSubscriber extends SimpleBehaviour {
         AMSSubscription.setReplyWith(AMS_SUBSCRIPTION);
         AMSSubscription.setConversationId(myAgent.getLocalName());
         AMSSubscription.setContent(PLATFORM_EVENTS);
+        if (streamMode) {
+            AMSSubscription.setReplyWith(AMS_STREAM_SUBSCRIPTION);
+            if (streamFlushPeriod > 0) {
+                AMSSubscription.addUserDefinedParameter(STREAM_FLUSH_PERIOD, String.valueOf(streamFlushPeriod));
+            }
+            if (streamAgentPrefix != null) {
+                AMSSubscription.addUserDefinedParameter(STREAM_AGENT_PREFIX, streamAgentPrefix);
+            }
+            if (streamContainers != null && streamContainers.length > 0) {
+                AMSSubscription.addUserDefinedParameter(STREAM_CONTAINERS, String.join(",", streamContainers));
+            }
+            listenTemplate = MessageTemplate.and(
+                    MessageTemplate.and(MessageTemplate.MatchInReplyTo(AMS_STREAM_SUBSCRIPTION), MessageTemplate.MatchPerformative(ACLMessage.INFORM)),
+                    MessageTemplate.and(MessageTemplate.MatchLanguage(FIPANames.ContentLanguage.FIPA_SL0), MessageTemplate.MatchOntology(IntrospectionOntology.NAME)));
+        }
 
         // Fill the cancellation message
         AMSCancellation.addReceiver(ams);
@@ -143,13 +194,15 @@ public abstract class AMSSubscriber extends SimpleBehaviour {
             if (current != null) {
                 // Handle 'inform' messages from the AMS
                 try {
-                    Occurred o = (Occurred) myAgent.getContentManager().extractContent(current);
-                    EventRecord er = o.getWhat();
-                    Event ev = er.getWhat();
-                    String eventName = ev.getName();
-                    EventHandler h = handlers.get(eventName);
-                    if (h != null) {
-                        h.handle(ev);
+                    ContentElement ce = myAgent.getContentManager().extractContent(current);
+                    if (ce instanceof ContentElementList) {
+                        // Stream mode: a batch of events
+                        ContentElementList cel = (ContentElementList) ce;
+                        for (int i = 0; i < cel.size(); i++) {
+                            handle((Occurred) cel.get(i));
+                        }
+                    } else {
+                        handle((Occurred) ce);
                     }
                 } catch (Exception cce) {
                     cce.printStackTrace();
@@ -160,6 +213,16 @@ public abstract class AMSSubscriber extends SimpleBehaviour {
         }
     }
 
+    private void handle(Occurred o) {
+        EventRecord er = o.getWhat();
+        Event ev = er.getWhat();
+        String eventName = ev.getName();
+        EventHandler h = handlers.get(eventName);
+        if (h != null) {
+            h.handle(ev);
+        }
+    }
+
     public final boolean done() {
         return !active;
     }
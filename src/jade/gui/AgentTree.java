@@ -60,6 +60,9 @@ public class AgentTree extends JPanel {
     public static final String REMOTE_PLATFORMS_FOLDER_NAME = "RemotePlatforms";
     public static final String FROZEN_AGENTS_FOLDER_NAME = "Frozen Agents";
     private final Map<String, NodeDescriptor> mapDescriptor;
+    private final LocalPlatformFolderNode localPlatformFolder;
+    // Node icons are shared by all nodes of the same type
+    private final Map<String, Icon> iconCache = new HashMap<>();
     public JTree tree;
     private String localPlatformName = DAFAULT_LOCAL_PLATFORM_NAME;
 
@@ -94,8 +97,8 @@ public class AgentTree extends JPanel {
         // Add localPlatform folder.
         AgentTreeModel model = getModel();
         MutableTreeNode root = (MutableTreeNode) model.getRoot();
-        LocalPlatformFolderNode localAP = new LocalPlatformFolderNode(localPlatformName);
-        model.insertNodeInto(localAP, root, root.getChildCount());
+        localPlatformFolder = new LocalPlatformFolderNode(localPlatformName);
+        model.insertNodeInto(localPlatformFolder, root, root.getChildCount());
 
         ToolTipManager.sharedInstance().registerComponent(tree);
         tree.setShowsRootHandles(true);
@@ -167,16 +170,7 @@ public class AgentTree extends JPanel {
         node.setAddress(addr);
 
         AgentTreeModel model = getModel();
-        MutableTreeNode root = (MutableTreeNode) model.getRoot();
-        Enumeration<? extends TreeNode> folders = root.children();
-        while (folders.hasMoreElements()) {
-            Node folderNode = (Node) folders.nextElement();
-            String folderName = folderNode.getName();
-            if (folderName.equalsIgnoreCase(localPlatformName)) {
-                model.insertNodeInto(node, folderNode, folderNode.getChildCount());
-                return;
-            }
-        }
+        model.insertNodeInto(node, localPlatformFolder, localPlatformFolder.getChildCount());
     }
 
     /**
@@ -199,23 +193,9 @@ public class AgentTree extends JPanel {
     }
 
     public void removeContainerNode(String nameNode) {
-        AgentTreeModel model = getModel();
-        MutableTreeNode root = (MutableTreeNode) model.getRoot();
-        Enumeration<? extends TreeNode> folders = root.children();
-        while (folders.hasMoreElements()) {
-            Node folderNode = (Node) folders.nextElement();
-            String folderName = folderNode.getName();
-            if (folderName.equalsIgnoreCase(localPlatformName)) {//found the localplatform folder
-                Enumeration<TreeNode> containers = folderNode.children();
-                while (containers.hasMoreElements()) {
-                    Node node = (Node) containers.nextElement();
-                    String nodeName = node.getName();
-                    if (nodeName.equalsIgnoreCase(nameNode)) {
-                        model.removeNodeFromParent(node);
-                        return;
-                    }
-                }
-            }
+        Node node = findContainerNode(nameNode);
+        if (node != null) {
+            getModel().removeNodeFromParent(node);
         }
     }
 
@@ -253,27 +233,23 @@ public class AgentTree extends JPanel {
         node.setAddress(agentAddress);
         node.setState(agentState);
         node.setOwnership(ownership);
+        addAgentNodes(containerName, Collections.singletonList(node));
+    }
 
-        AgentTreeModel model = getModel();
-        MutableTreeNode root = (MutableTreeNode) model.getRoot();
-
-        // Search for the folder of the local Platform
-        Enumeration<? extends TreeNode> folders = root.children();
-        while (folders.hasMoreElements()) {
-            Node folderNode = (Node) folders.nextElement();
-            String folderName = folderNode.getName();
-            if (folderName.equalsIgnoreCase(localPlatformName)) {
-                // Search for the agent container 'containerName'
-                Enumeration<TreeNode> containers = folderNode.children();
-                while (containers.hasMoreElements()) {
-                    Node containerNode = (Node) containers.nextElement();
-                    String contName = containerNode.getName();
-                    if (contName.equalsIgnoreCase(containerName)) {
-                        // Add this new agent to this container and return
-                        int position = getPosition(node, containerNode);
-                        model.insertNodeInto(node, containerNode, position);
-                        return;
-                    }
+    /**
+     * Add a group of agents to a container of the local platform, firing a single model event.
+     * If the container has never been expanded (or otherwise inspected), agent nodes are
+     * inserted among its children only when they are first accessed.
+     */
+    public void addAgentNodes(String containerName, List<? extends AgentNode> nodes) {
+        Node container = findContainerNode(containerName);
+        if (container != null && !nodes.isEmpty()) {
+            if (container instanceof ContainerNode) {
+                ((ContainerNode) container).addAgents(nodes);
+            } else {
+                AgentTreeModel model = getModel();
+                for (AgentNode node : nodes) {
+                    model.insertNodeInto(node, container, getPosition(node, container));
                 }
             }
         }
@@ -349,35 +325,19 @@ public class AgentTree extends JPanel {
     }
 
     public void modifyAgentNode(String containerName, String agentName, String address, String state, String ownership) {
-        AgentTreeModel model = getModel();
-        MutableTreeNode root = (MutableTreeNode) model.getRoot();
-        //search for the folder of the local Platform
-        Enumeration<? extends TreeNode> folders = root.children();
-        while (folders.hasMoreElements()) {
-            Node folderNode = (Node) folders.nextElement();
-            String folderName = folderNode.getName();
-            if (folderName.equalsIgnoreCase(localPlatformName)) {
-                // Search for the agent container 'containerName'
-                Enumeration<TreeNode> containers = folderNode.children();
-                while (containers.hasMoreElements()) {
-                    Node container = (Node) containers.nextElement();
-                    String contName = container.getName();
-                    if (contName.equalsIgnoreCase(containerName)) {
-                        Enumeration<TreeNode> agents = container.children();
-                        while (agents.hasMoreElements()) {
-                            Node agent = (Node) agents.nextElement();
-
-                            if (agent.getName().equalsIgnoreCase(agentName)) {
-                                if (state != null)
-                                    agent.setState(state);
-                                if (ownership != null)
-                                    agent.setOwnership(ownership);
-                                agent.changeIcon(state);
-                                model.nodeChanged(agent);
-                                return;
-                            }
-                        }
-                    }
+        Node container = findContainerNode(containerName);
+        if (container != null) {
+            Node agent = findAgentNode(container, agentName);
+            if (agent != null) {
+                if (state != null) {
+                    agent.setState(state);
+                    agent.changeIcon(state);
+                }
+                if (ownership != null)
+                    agent.setOwnership(ownership);
+                // Agents not yet materialized are not known to the JTree
+                if (!(container instanceof ContainerNode) || ((ContainerNode) container).isMaterialized()) {
+                    getModel().nodeChanged(agent);
                 }
             }
         }
@@ -445,23 +405,41 @@ public class AgentTree extends JPanel {
     }
 
     public void removeAgentNode(String containerName, String agentName) {
+        removeAgentNodes(containerName, Collections.singletonList(agentName));
+    }
+
+    /**
+     * Remove a group of agents from a container of the local platform, firing a single model event
+     */
+    public void removeAgentNodes(String containerName, Collection<String> agentNames) {
         AgentTreeModel model = getModel();
         Node container = findContainerNode(containerName);
         if (container != null) {
-            Node agent = findAgentNode(container, agentName);
+            List<Node> toRemove = new ArrayList<>(agentNames.size());
+            for (String agentName : agentNames) {
+                Node agent = findAgentNode(container, agentName);
 
-            if (agent != null) {
-                model.removeNodeFromParent(agent);
+                if (agent != null) {
+                    toRemove.add(agent);
+                } else {
+                    // It can be a frozen agent
+                    Node frozenAgents = findFrozenAgentsFolder(container, FROZEN_AGENTS_FOLDER_NAME);
+                    if (frozenAgents != null) {
+                        agent = findAgentNode(frozenAgents, agentName);
+                        if (agent != null) {
+                            model.removeNodeFromParent(agent);
+                            if (frozenAgents.isLeaf()) {
+                                model.removeNodeFromParent(frozenAgents);
+                            }
+                        }
+                    }
+                }
+            }
+            if (container instanceof ContainerNode) {
+                ((ContainerNode) container).removeAgents(toRemove);
             } else {
-                // It can be a frozen agent
-                Node frozenAgents = findFrozenAgentsFolder(container, FROZEN_AGENTS_FOLDER_NAME);
-                if (frozenAgents != null) {
-                    agent = findAgentNode(frozenAgents, agentName);
-
+                for (Node agent : toRemove) {
                     model.removeNodeFromParent(agent);
-                    if (frozenAgents.isLeaf()) {
-                        model.removeNodeFromParent(frozenAgents);
-                    }
                 }
             }
         }
@@ -630,6 +608,7 @@ public class AgentTree extends JPanel {
     public void register(String key, JPopupMenu popmenu, String pathImage) {
         NodeDescriptor nDescriptor = new NodeDescriptor(popmenu, pathImage);
         mapDescriptor.put(key, nDescriptor);
+        iconCache.clear();
     }
 
     public JPopupMenu getPopupMenu(String key) {
@@ -650,6 +629,9 @@ public class AgentTree extends JPanel {
     }
 
     private Node findAgentNode(Node container, String name) {
+        if (container instanceof ContainerNode) {
+            return ((ContainerNode) container).getAgent(name);
+        }
 
         Enumeration<TreeNode> agents = container.children();
         while (agents.hasMoreElements()) {
@@ -663,31 +645,15 @@ public class AgentTree extends JPanel {
     }
 
     private Node findContainerNode(String name) {
-        AgentTreeModel model = getModel();
-        MutableTreeNode root = (MutableTreeNode) model.getRoot();
-        //search for the folder of the local Platform
-        Enumeration<? extends TreeNode> folders = root.children();
-        while (folders.hasMoreElements()) {
-            Node folderNode = (Node) folders.nextElement();
-            String folderName = folderNode.getName();
-            if (folderName.equalsIgnoreCase(localPlatformName)) {
-                // Search for the agent container 'name'
-                Enumeration<TreeNode> containers = folderNode.children();
-                while (containers.hasMoreElements()) {
-                    Node container = (Node) containers.nextElement();
-                    String contName = container.getName();
-                    if (contName.equalsIgnoreCase(name)) {
-                        return container;
-                    }
-                }
-            }
-        }
-
-        return null;
-
+        return localPlatformFolder.getContainer(name);
     }
 
     private Node findFrozenAgentsFolder(Node container, String name) {
+        if (container instanceof ContainerNode) {
+            Node child = ((ContainerNode) container).getFolder(name);
+            return (child != null && child.getType().equalsIgnoreCase(FROZEN_CONTAINER_TYPE) ? child : null);
+        }
+
         Enumeration<TreeNode> agents = container.children();
         while (agents.hasMoreElements()) {
             Node child = (Node) agents.nextElement();
@@ -699,6 +665,11 @@ public class AgentTree extends JPanel {
         return null;
     }
 
+    // Node names are compared ignoring case
+    private static String indexKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Inner class Node
      * Common base class for all AgentTree nodes
@@ -716,13 +687,15 @@ public class AgentTree extends JPanel {
         }
 
         public Icon getIcon(String typeAgent) {
-            Image image = getToolkit().getImage(getClass().getResource(getIconAgent(typeAgent)));
-            if (greyOut) {
-                ImageFilter colorfilter = new MyFilterImage();
-                Image imageFiltered = createImage(new FilteredImageSource(image.getSource(), colorfilter));
-                return new ImageIcon(imageFiltered);
-            } else
-                return new ImageIcon(image);
+            return iconCache.computeIfAbsent((greyOut ? "grey-" : "") + typeAgent, k -> {
+                Image image = getToolkit().getImage(getClass().getResource(getIconAgent(typeAgent)));
+                if (greyOut) {
+                    ImageFilter colorfilter = new MyFilterImage();
+                    Image imageFiltered = createImage(new FilteredImageSource(image.getSource(), colorfilter));
+                    return new ImageIcon(imageFiltered);
+                } else
+                    return new ImageIcon(image);
+            });
         }
 
         public String getName() {
@@ -811,17 +784,187 @@ public class AgentTree extends JPanel {
     }  // END of inner class AgentNode
 
     /**
-     * Inner class ContainerNode
+     * Inner class ContainerNode.
+     * Child nodes are indexed by name. Agents added by means of <code>addAgents()</code> to a container
+     * whose children have never been accessed (typically because it has never been expanded) are kept
+     * aside and inserted among the children, in a single step, only when the children are first accessed.
      */
     public class ContainerNode extends Node {
         private InetAddress addressmachine;
         private String containerType;
+        private final Map<String, Node> agents = new HashMap<>();
+        private final Map<String, Node> folders = new HashMap<>();
+        private final Set<Node> lazyAgents = new LinkedHashSet<>();
+        private boolean materialized = false;
 
         public ContainerNode(String name) {
             super(name);
             containerType = CONTAINER_TYPE;
         }
 
+        /**
+         * @return true if the children of this container have already been accessed
+         */
+        public boolean isMaterialized() {
+            return materialized;
+        }
+
+        Node getAgent(String name) {
+            return agents.get(indexKey(name));
+        }
+
+        Node getFolder(String name) {
+            return folders.get(indexKey(name));
+        }
+
+        /**
+         * Add a group of agents in name order firing a single model event
+         */
+        void addAgents(List<? extends Node> nodes) {
+            AgentTreeModel model = getModel();
+            if (!materialized) {
+                boolean wasLeaf = isLeaf();
+                for (Node node : nodes) {
+                    node.setParent(this);
+                    index(node);
+                    lazyAgents.add(node);
+                }
+                if (wasLeaf && model != null) {
+                    // Let the JTree show the expand handle
+                    model.nodeChanged(this);
+                }
+            } else {
+                int[] indices = merge(new ArrayList<>(nodes));
+                if (model != null) {
+                    model.nodesWereInserted(this, indices);
+                }
+            }
+        }
+
+        /**
+         * Remove a group of child agents firing a single model event
+         */
+        void removeAgents(Collection<Node> nodes) {
+            Set<Node> toRemove = new HashSet<>();
+            for (Node node : nodes) {
+                if (lazyAgents.remove(node)) {
+                    unindex(node);
+                    node.setParent(null);
+                } else {
+                    toRemove.add(node);
+                }
+            }
+            if (toRemove.isEmpty() || children == null) {
+                return;
+            }
+            Vector<TreeNode> kept = new Vector<>(Math.max(children.size() - toRemove.size(), 10));
+            int[] indices = new int[toRemove.size()];
+            Object[] removed = new Object[toRemove.size()];
+            int k = 0;
+            for (int i = 0; i < children.size(); i++) {
+                TreeNode child = children.get(i);
+                if (toRemove.contains(child)) {
+                    indices[k] = i;
+                    removed[k++] = child;
+                    ((Node) child).setParent(null);
+                    unindex((Node) child);
+                } else {
+                    kept.add(child);
+                }
+            }
+            children = kept;
+            AgentTreeModel model = getModel();
+            if (k > 0 && model != null) {
+                model.nodesWereRemoved(this, Arrays.copyOf(indices, k), Arrays.copyOf(removed, k));
+            }
+        }
+
+        /**
+         * Merge the given nodes, once sorted, with the current children in a single pass
+         *
+         * @return The indices of the inserted nodes
+         */
+        private int[] merge(List<Node> nodes) {
+            nodes.sort(Node::compareTo);
+            int size = (children != null ? children.size() : 0);
+            Vector<TreeNode> merged = new Vector<>(size + nodes.size());
+            int[] indices = new int[nodes.size()];
+            int i = 0;
+            int j = 0;
+            while (j < nodes.size()) {
+                Node node = nodes.get(j);
+                if (i < size && node.compareTo((Node) children.get(i)) >= 0) {
+                    merged.add(children.get(i++));
+                } else {
+                    node.setParent(this);
+                    index(node);
+                    indices[j++] = merged.size();
+                    merged.add(node);
+                }
+            }
+            while (i < size) {
+                merged.add(children.get(i++));
+            }
+            children = merged;
+            return indices;
+        }
+
+        private void materialize() {
+            if (!materialized) {
+                materialized = true;
+                if (!lazyAgents.isEmpty()) {
+                    List<Node> nodes = new ArrayList<>(lazyAgents);
+                    lazyAgents.clear();
+                    merge(nodes);
+                }
+            }
+        }
+
+        private void index(Node node) {
+            (node instanceof ContainerNode ? folders : agents).put(indexKey(node.getName()), node);
+        }
+
+        private void unindex(Node node) {
+            (node instanceof ContainerNode ? folders : agents).remove(indexKey(node.getName()), node);
+        }
+
+        public boolean isLeaf() {
+            return (children == null || children.isEmpty()) && lazyAgents.isEmpty();
+        }
+
+        public int getChildCount() {
+            materialize();
+            return super.getChildCount();
+        }
+
+        public TreeNode getChildAt(int index) {
+            materialize();
+            return super.getChildAt(index);
+        }
+
+        public int getIndex(TreeNode child) {
+            materialize();
+            return super.getIndex(child);
+        }
+
+        public Enumeration<TreeNode> children() {
+            materialize();
+            return super.children();
+        }
+
+        public void insert(MutableTreeNode child, int index) {
+            materialize();
+            super.insert(child, index);
+            index((Node) child);
+        }
+
+        public void remove(int index) {
+            materialize();
+            Node child = (Node) getChildAt(index);
+            super.remove(index);
+            unindex(child);
+        }
+
         public void setAddress(InetAddress addr) {
             addressmachine = addr;
         }
@@ -888,11 +1031,28 @@ public class AgentTree extends JPanel {
      * Inner class localPlatformFolderNode
      */
     public class LocalPlatformFolderNode extends Node {
+        // Containers indexed by name
+        private final Map<String, Node> containers = new HashMap<>();
 
         public LocalPlatformFolderNode(String name) {
             super(name);
         }
 
+        Node getContainer(String name) {
+            return containers.get(indexKey(name));
+        }
+
+        public void insert(MutableTreeNode child, int index) {
+            super.insert(child, index);
+            containers.put(indexKey(((Node) child).getName()), (Node) child);
+        }
+
+        public void remove(int index) {
+            Node child = (Node) getChildAt(index);
+            super.remove(index);
+            containers.remove(indexKey(child.getName()), child);
+        }
+
         public String getToolTipText() {
             return ("Local JADE Platform");
         }
@@ -0,0 +1,291 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.gui;
+
+//#APIDOC_EXCLUDE_FILE
+//#J2ME_EXCLUDE_FILE
+
+import javax.swing.*;
+import javax.swing.tree.TreeNode;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Headless check and benchmark of the agent tree model used by the RMA.
+ * No window is ever shown: the <code>AgentTree</code> is only manipulated at the model level.
+ * <ul>
+ * <li>Check: a random mix of born, dead, modified, moved, frozen and thawed agent events is applied both
+ * directly to an agent tree and through an <code>AgentTreeUpdater</code> to another one. The content of both
+ * trees is compared with a reference model of the platform.</li>
+ * <li>Benchmark: a number of born agent events, then the corresponding dead agent events, are replayed
+ * through an <code>AgentTreeUpdater</code>. For each phase, the time to submit and apply the events and the
+ * maximum time the Event Dispatch Thread was not responsive are printed.</li>
+ * </ul>
+ * In both cases the agent tree has a number of containers and the first one is expanded.
+ * <p>
+ * Usage: <code>java -Djava.awt.headless=true jade.gui.AgentTreeBenchmark [-agents N] [-containers N]
+ * [-check-events N]</code>
+ * <ul>
+ * <li>agents: number of born agent events replayed by the benchmark (default 100000)</li>
+ * <li>containers: number of containers (default 10)</li>
+ * <li>check-events: number of events applied by the check. 0 skips the check (default 20000)</li>
+ * </ul>
+ */
+public class AgentTreeBenchmark {
+    private static final String[] STATES = {"active", "suspended", "waiting", "idle"};
+
+    private static int nContainers = 10;
+
+    public static void main(String[] args) throws Exception {
+        int nAgents = 100000;
+        int nCheckEvents = 20000;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-agents" -> nAgents = Integer.parseInt(value);
+                case "-containers" -> nContainers = Integer.parseInt(value);
+                case "-check-events" -> nCheckEvents = Integer.parseInt(value);
+                default -> {
+                    System.out.println("Unknown option " + args[i]);
+                    System.exit(1);
+                }
+            }
+        }
+
+        boolean ok = true;
+        if (nCheckEvents > 0) {
+            ok = check(nCheckEvents);
+        }
+        replay(nAgents);
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static AgentTree createTree() throws Exception {
+        AgentTree[] tree = new AgentTree[1];
+        SwingUtilities.invokeAndWait(() -> {
+            tree[0] = new AgentTree();
+            tree[0].tree.expandRow(0);
+            for (int i = 0; i < nContainers; ++i) {
+                tree[0].addContainerNode(containerName(i), null);
+            }
+            // Expand the local platform folder and the first container
+            tree[0].tree.expandRow(1);
+            tree[0].tree.expandRow(2);
+        });
+        return tree[0];
+    }
+
+    private static String containerName(int i) {
+        return "Container-" + i;
+    }
+
+    private static void waitApplied(AgentTreeUpdater updater) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        updater.invoke(latch::countDown);
+        latch.await();
+    }
+
+    ///////////////////////////////
+    // Check
+    ///////////////////////////////
+    private static boolean check(int nEvents) throws Exception {
+        AgentTree direct = createTree();
+        AgentTree batched = createTree();
+        AgentTreeUpdater updater = new AgentTreeUpdater(batched);
+
+        // Reference model: agent name --> container and state. Frozen agents are tracked separately
+        Map<String, String[]> running = new HashMap<>();
+        Map<String, String[]> frozen = new HashMap<>();
+        List<String> runningNames = new ArrayList<>();
+        List<String> frozenNames = new ArrayList<>();
+        List<Runnable> directEvents = new ArrayList<>(nEvents);
+
+        Random random = new Random(7);
+        for (int i = 0; i < nEvents; ++i) {
+            String container = containerName(random.nextInt(nContainers));
+            int kind = runningNames.isEmpty() ? 0 : random.nextInt(10);
+            if (kind < 4) {
+                // Born
+                String name = "agent" + i + "@Platform";
+                running.put(name, new String[]{container, "active"});
+                runningNames.add(name);
+                directEvents.add(() -> direct.addAgentNode(name, "http://localhost:7778/acc", container, "active", null));
+                updater.agentBorn(container, name, "http://localhost:7778/acc", "active", null);
+            } else if (kind < 6) {
+                // Dead
+                String name = removeRandom(runningNames, random);
+                String from = running.remove(name)[0];
+                directEvents.add(() -> direct.removeAgentNode(from, name));
+                updater.agentDead(from, name);
+            } else if (kind < 8) {
+                // Modified
+                String name = runningNames.get(random.nextInt(runningNames.size()));
+                String[] info = running.get(name);
+                String where = info[0];
+                String state = STATES[random.nextInt(STATES.length)];
+                info[1] = state;
+                directEvents.add(() -> direct.modifyAgentNode(where, name, null, state, null));
+                updater.agentModified(where, name, state, null);
+            } else if (kind < 9 || frozenNames.isEmpty()) {
+                if (random.nextBoolean()) {
+                    // Moved
+                    String name = runningNames.get(random.nextInt(runningNames.size()));
+                    String[] info = running.get(name);
+                    String from = info[0];
+                    info[0] = container;
+                    directEvents.add(() -> direct.moveAgentNode(from, container, name));
+                    updater.invoke(() -> batched.moveAgentNode(from, container, name));
+                } else {
+                    // Frozen
+                    String name = removeRandom(runningNames, random);
+                    String from = running.remove(name)[0];
+                    frozen.put(name, new String[]{container, "frozen"});
+                    frozenNames.add(name);
+                    directEvents.add(() -> direct.freezeAgentNode(from, container, name));
+                    updater.invoke(() -> batched.freezeAgentNode(from, container, name));
+                }
+            } else {
+                // Thawed
+                String name = removeRandom(frozenNames, random);
+                String from = frozen.remove(name)[0];
+                running.put(name, new String[]{container, "active"});
+                runningNames.add(name);
+                directEvents.add(() -> direct.thawAgentNode(from, container, name));
+                updater.invoke(() -> batched.thawAgentNode(from, container, name));
+            }
+        }
+        SwingUtilities.invokeAndWait(() -> directEvents.forEach(Runnable::run));
+        waitApplied(updater);
+
+        Set<String> expected = new TreeSet<>();
+        running.forEach((name, info) -> expected.add(info[0] + "/" + name + "=" + info[1]));
+        frozen.forEach((name, info) -> expected.add(info[0] + "/" + AgentTree.FROZEN_AGENTS_FOLDER_NAME + "/" + name + "=" + info[1]));
+        Set<String> directContent = dump(direct);
+        Set<String> batchedContent = dump(batched);
+        boolean ok = expected.equals(directContent) && expected.equals(batchedContent);
+        System.out.println("Check (" + nEvents + " events, " + expected.size() + " agents): direct " + (expected.equals(directContent) ? "OK" : "FAILED") + ", batched " + (expected.equals(batchedContent) ? "OK" : "FAILED"));
+        return ok;
+    }
+
+    private static String removeRandom(List<String> l, Random random) {
+        int i = random.nextInt(l.size());
+        String s = l.get(i);
+        l.set(i, l.get(l.size() - 1));
+        l.remove(l.size() - 1);
+        return s;
+    }
+
+    private static Set<String> dump(AgentTree agentTree) throws Exception {
+        Set<String> content = new TreeSet<>();
+        SwingUtilities.invokeAndWait(() -> {
+            TreeNode root = (TreeNode) agentTree.getModel().getRoot();
+            TreeNode platform = root.getChildAt(0);
+            for (int i = 0; i < platform.getChildCount(); ++i) {
+                AgentTree.Node container = (AgentTree.Node) platform.getChildAt(i);
+                dump(container, container.getName(), content);
+            }
+        });
+        return content;
+    }
+
+    private static void dump(TreeNode parent, String path, Set<String> content) {
+        for (int i = 0; i < parent.getChildCount(); ++i) {
+            AgentTree.Node child = (AgentTree.Node) parent.getChildAt(i);
+            if (child instanceof AgentTree.AgentNode) {
+                content.add(path + "/" + child.getName() + "=" + child.getState());
+            } else {
+                dump(child, path + "/" + child.getName(), content);
+            }
+        }
+    }
+
+    ///////////////////////////////
+    // Benchmark
+    ///////////////////////////////
+    private static void replay(int nAgents) throws Exception {
+        AgentTree agentTree = createTree();
+        AgentTreeUpdater updater = new AgentTreeUpdater(agentTree);
+        String[] names = new String[nAgents];
+        Random random = new Random(7);
+        for (int i = 0; i < nAgents; ++i) {
+            names[i] = "agent" + random.nextInt(1 << 30) + "-" + i + "@Platform";
+        }
+
+        EDTProbe probe = new EDTProbe();
+        probe.start();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < nAgents; ++i) {
+            updater.agentBorn(containerName(i % nContainers), names[i], "http://localhost:7778/acc", "active", null);
+        }
+        long submitted = System.currentTimeMillis();
+        waitApplied(updater);
+        long applied = System.currentTimeMillis();
+        System.out.println(nAgents + " born agent events: submitted in " + (submitted - start) + " ms, applied in " + (applied - start) + " ms, max EDT stall " + probe.reset() + " ms");
+
+        start = System.currentTimeMillis();
+        for (int i = 0; i < nAgents; ++i) {
+            updater.agentDead(containerName(i % nContainers), names[i]);
+        }
+        submitted = System.currentTimeMillis();
+        waitApplied(updater);
+        applied = System.currentTimeMillis();
+        System.out.println(nAgents + " dead agent events: submitted in " + (submitted - start) + " ms, applied in " + (applied - start) + " ms, max EDT stall " + probe.reset() + " ms");
+        probe.interrupt();
+    }
+
+    /**
+     * Inner class EDTProbe.
+     * Periodically measures how long the Event Dispatch Thread takes to run an empty task
+     */
+    private static class EDTProbe extends Thread {
+        private long maxStall = 0;
+
+        EDTProbe() {
+            setDaemon(true);
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    long start = System.currentTimeMillis();
+                    SwingUtilities.invokeAndWait(() -> {
+                    });
+                    long stall = System.currentTimeMillis() - start;
+                    synchronized (this) {
+                        maxStall = Math.max(maxStall, stall);
+                    }
+                    Thread.sleep(5);
+                }
+            } catch (Exception e) {
+                // Interrupted: just terminate
+            }
+        }
+
+        synchronized long reset() {
+            long ret = maxStall;
+            maxStall = 0;
+            return ret;
+        }
+    } // END of inner class EDTProbe
+}
@@ -0,0 +1,260 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.gui;
+
+//#APIDOC_EXCLUDE_FILE
+//#J2ME_EXCLUDE_FILE
+
+import jade.util.Logger;
+
+import javax.swing.*;
+import java.util.*;
+
+/**
+ * Applies updates to an <code>AgentTree</code> on the Event Dispatch Thread in batches.
+ * Updates can be submitted by any thread and are applied in submission order.
+ * While waiting, updates related to the same agent are coalesced (e.g. an agent born and
+ * dead before the GUI is refreshed is never shown) and consecutive agent updates are applied
+ * as a whole, with a single model event per container.
+ * Updates are applied in slices of at most <code>timeSlice</code> ms, so that the GUI
+ * keeps responding while a large number of events (e.g. those describing a platform with
+ * many agents) is processed.
+ */
+public class AgentTreeUpdater {
+    public static final long DEFAULT_TIME_SLICE = 50;
+    // The maximum number of updates applied between two checks of the time slice
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private static final int BORN = 0;
+    private static final int DEAD = 1;
+    private static final int MODIFIED = 2;
+
+    private final Logger myLogger = Logger.getMyLogger(getClass().getName());
+
+    private final AgentTree agentTree;
+    private final long timeSlice;
+
+    // Updates submitted and not yet taken by the Event Dispatch Thread
+    private List<Object> pending = new ArrayList<>();
+    // Pending agent updates that can still be coalesced, indexed by container and agent name
+    private final Map<String, AgentUpdate> coalescable = new HashMap<>();
+    private boolean scheduled = false;
+    // Updates being applied. Only accessed by the Event Dispatch Thread
+    private final ArrayDeque<Object> applying = new ArrayDeque<>();
+
+    public AgentTreeUpdater(AgentTree agentTree) {
+        this(agentTree, DEFAULT_TIME_SLICE);
+    }
+
+    public AgentTreeUpdater(AgentTree agentTree, long timeSlice) {
+        this.agentTree = agentTree;
+        this.timeSlice = timeSlice;
+    }
+
+    public void agentBorn(String containerName, String agentName, String agentAddress, String agentState, String ownership) {
+        AgentUpdate u = new AgentUpdate(BORN, containerName, agentName);
+        u.address = agentAddress;
+        u.state = agentState;
+        u.ownership = ownership;
+        submit(u);
+    }
+
+    public void agentDead(String containerName, String agentName) {
+        submit(new AgentUpdate(DEAD, containerName, agentName));
+    }
+
+    public void agentModified(String containerName, String agentName, String agentState, String ownership) {
+        AgentUpdate u = new AgentUpdate(MODIFIED, containerName, agentName);
+        u.state = agentState;
+        u.ownership = ownership;
+        submit(u);
+    }
+
+    /**
+     * Schedule a generic update of the agent tree (or of any other GUI element) to be
+     * executed on the Event Dispatch Thread after all updates submitted so far
+     */
+    public synchronized void invoke(Runnable r) {
+        pending.add(r);
+        // Do not coalesce updates across a generic one
+        coalescable.clear();
+        schedule();
+    }
+
+    private synchronized void submit(AgentUpdate u) {
+        String key = u.key();
+        AgentUpdate previous = coalescable.get(key);
+        if (previous != null) {
+            if (u.kind == MODIFIED && previous.kind != DEAD) {
+                previous.merge(u);
+                return;
+            } else if (u.kind == DEAD && previous.kind != DEAD) {
+                previous.cancelled = true;
+                if (previous.kind == BORN) {
+                    // The agent was never shown
+                    coalescable.remove(key);
+                    return;
+                }
+            }
+        }
+        pending.add(u);
+        coalescable.put(key, u);
+        schedule();
+    }
+
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            SwingUtilities.invokeLater(this::flush);
+        }
+    }
+
+    /**
+     * Apply pending updates for at most a time slice, then yield the Event Dispatch Thread
+     */
+    private void flush() {
+        long deadline = System.currentTimeMillis() + timeSlice;
+        do {
+            if (applying.isEmpty()) {
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        scheduled = false;
+                        return;
+                    }
+                    applying.addAll(pending);
+                    pending = new ArrayList<>();
+                    coalescable.clear();
+                }
+            }
+            applyBatch();
+        } while (System.currentTimeMillis() < deadline);
+        SwingUtilities.invokeLater(this::flush);
+    }
+
+    private void applyBatch() {
+        int cnt = 0;
+        while (cnt < MAX_BATCH_SIZE && !applying.isEmpty()) {
+            Object first = applying.poll();
+            cnt++;
+            if (first instanceof Runnable) {
+                try {
+                    ((Runnable) first).run();
+                } catch (Exception e) {
+                    myLogger.log(Logger.WARNING, "Error updating agent tree", e);
+                }
+                continue;
+            }
+
+            // Group consecutive agent updates of the same kind by container
+            int kind = ((AgentUpdate) first).kind;
+            Map<String, List<AgentUpdate>> updates = new LinkedHashMap<>();
+            AgentUpdate u = (AgentUpdate) first;
+            while (true) {
+                if (!u.cancelled) {
+                    updates.computeIfAbsent(u.container, k -> new ArrayList<>()).add(u);
+                }
+                Object next = applying.peek();
+                if (cnt >= MAX_BATCH_SIZE || !(next instanceof AgentUpdate) || ((AgentUpdate) next).kind != kind) {
+                    break;
+                }
+                u = (AgentUpdate) applying.poll();
+                cnt++;
+            }
+            for (Map.Entry<String, List<AgentUpdate>> entry : updates.entrySet()) {
+                try {
+                    apply(kind, entry.getKey(), entry.getValue());
+                } catch (Exception e) {
+                    myLogger.log(Logger.WARNING, "Error updating agents of container " + entry.getKey() + " in agent tree", e);
+                }
+            }
+        }
+    }
+
+    private void apply(int kind, String containerName, List<AgentUpdate> updates) {
+        switch (kind) {
+            case BORN:
+                List<AgentTree.AgentNode> nodes = new ArrayList<>(updates.size());
+                for (AgentUpdate u : updates) {
+                    AgentTree.AgentNode node = agentTree.createAgentNode(u.name);
+                    node.setAddress(u.address);
+                    node.setState(u.state);
+                    node.setOwnership(u.ownership);
+                    if (u.changedState != null) {
+                        node.changeIcon(u.changedState);
+                    }
+                    nodes.add(node);
+                }
+                agentTree.addAgentNodes(containerName, nodes);
+                break;
+            case DEAD:
+                List<String> names = new ArrayList<>(updates.size());
+                for (AgentUpdate u : updates) {
+                    names.add(u.name);
+                }
+                agentTree.removeAgentNodes(containerName, names);
+                break;
+            default:
+                for (AgentUpdate u : updates) {
+                    agentTree.modifyAgentNode(containerName, u.name, null, u.state, u.ownership);
+                }
+        }
+    }
+
+    /**
+     * Inner class AgentUpdate
+     */
+    private static class AgentUpdate {
+        private final int kind;
+        private final String container;
+        private final String name;
+        private String address;
+        private String state;
+        private String ownership;
+        // The state set by modifications coalesced into a born update
+        private String changedState;
+        private boolean cancelled = false;
+
+        private AgentUpdate(int kind, String container, String name) {
+            this.kind = kind;
+            this.container = container;
+            this.name = name;
+        }
+
+        private String key() {
+            return container.toLowerCase(Locale.ROOT) + '/' + name.toLowerCase(Locale.ROOT);
+        }
+
+        private void merge(AgentUpdate u) {
+            if (u.state != null) {
+                state = u.state;
+                if (kind == BORN) {
+                    changedState = u.state;
+                }
+            }
+            if (u.ownership != null) {
+                ownership = u.ownership;
+            }
+        }
+    } // END of inner class AgentUpdate
+}
@@ -189,6 +189,19 @@ public class Command {
         }
     }
 
+    /**
+     * Remove the parameter at the specified index of this command object.
+     *
+     * @param index the parameter index
+     */
+    void removeParamAt(int index) {
+        if (commandParameters == null) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        } else {
+            commandParameters.removeElementAt(index);
+        }
+    }
+
     boolean getRequireFreshConnection() {
         return requireFreshConnection;
     }
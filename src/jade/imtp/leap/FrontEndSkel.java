@@ -41,6 +41,7 @@ public class FrontEndSkel extends MicroSkeleton {
     static final int MESSAGE_IN = 14;
     static final int EXIT = 15;
     static final int SYNCH = 16;
+    static final int MESSAGES_IN = 17;
 
     private final FrontEnd myFrontEnd;
 
@@ -61,6 +62,9 @@ public class FrontEndSkel extends MicroSkeleton {
                 case RESUME_AGENT -> myFrontEnd.resumeAgent((String) c.getParamAt(0));
                 case EXIT -> myFrontEnd.exit((Boolean) c.getParamAt(0));
                 case SYNCH -> myFrontEnd.synch();
+                case MESSAGES_IN -> {
+                    return messagesIn(c);
+                }
                 default -> throw new IMTPException("Unsupported command " + c.getCode());
             }
             c.reset(Command.OK);
@@ -70,5 +74,24 @@ public class FrontEndSkel extends MicroSkeleton {
 
         return c;
     }
+
+    /**
+     * Deliver a batch of messages. Parameters are (message, receiver) pairs.
+     * The OK response carries an (index, error-message) pair for each
+     * message that could not be delivered.
+     */
+    private Command messagesIn(Command c) {
+        int cnt = c.getParamCnt() / 2;
+        Command r = new Command(Command.OK);
+        for (int i = 0; i < cnt; ++i) {
+            try {
+                myFrontEnd.messageIn((ACLMessage) c.getParamAt(2 * i), (String) c.getParamAt(2 * i + 1));
+            } catch (NotFoundException | IMTPException e) {
+                r.addParam(i);
+                r.addParam(e.getMessage());
+            }
+        }
+        return r;
+    }
 }
 
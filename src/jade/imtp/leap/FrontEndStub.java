@@ -37,10 +37,33 @@ import java.util.*;
  */
 public class FrontEndStub extends MicroStub implements FrontEnd {
 
+    // Messages waiting to be packed into a MESSAGES_IN command
+    private final LinkedList<BatchedMessage> batchQueue = new LinkedList<>();
+    private int maxBatchSize = 1;
+    private int maxBatchSenders = 1;
+    private int batchSenders = 0;
+
     public FrontEndStub(Dispatcher d) {
         super(d);
     }
 
+    /**
+     * Allow this stub to pack up to  maxBatchSize  messages into a
+     * single command. Messages are packed only when they are delivered
+     * concurrently, so that a message never waits for a batch to fill up.
+     * At most  maxSenders  batches are in progress at the same time:
+     * this is typically the number of commands the underlying dispatcher
+     * can deliver without waiting for the related responses.
+     * This must only be enabled if the remote FrontEnd supports the
+     * MESSAGES_IN command.
+     */
+    public void setBatching(int maxBatchSize, int maxSenders) {
+        synchronized (batchQueue) {
+            this.maxBatchSize = Math.max(maxBatchSize, 1);
+            maxBatchSenders = Math.max(maxSenders, 1);
+        }
+    }
+
     public static final String encodeCreateMediatorResponse(Properties pp) {
         StringBuffer sb = new StringBuffer();
         appendProp(sb, Profile.PLATFORM_ID, pp);
@@ -163,6 +186,10 @@ public class FrontEndStub extends MicroStub implements FrontEnd {
      *
      */
     public void messageIn(ACLMessage msg, String receiver) throws NotFoundException, IMTPException {
+        if (maxBatchSize > 1) {
+            batchedMessageIn(new BatchedMessage(msg, receiver));
+            return;
+        }
         Command c = new Command(FrontEndSkel.MESSAGE_IN);
         c.addParam(msg);
         c.addParam(receiver);
@@ -176,6 +203,124 @@ public class FrontEndStub extends MicroStub implements FrontEnd {
         }
     }
 
+    /**
+     * Deliver a block of messages for the same receiver preserving their order.
+     * Messages are packed into as few commands as allowed by the max batch size.
+     * If some messages could not be delivered, the first error is thrown once
+     * all the others have been delivered.
+     *
+     * @param delivered If not null, this is filled with the delivery outcome of each message:
+     *                  entries of delivered messages are set to true even if an error is then thrown.
+     */
+    public void messagesIn(ACLMessage[] mm, String receiver, boolean[] delivered) throws NotFoundException, IMTPException {
+        NotFoundException nfe = null;
+        int batchSize = maxBatchSize;
+        for (int i = 0; i < mm.length; i += batchSize) {
+            List<BatchedMessage> batch = new ArrayList<>();
+            for (int j = i; j < mm.length && j < i + batchSize; ++j) {
+                batch.add(new BatchedMessage(mm[j], receiver));
+            }
+            sendBatch(batch);
+            for (int j = 0; j < batch.size(); ++j) {
+                BatchedMessage bm = batch.get(j);
+                if (bm.imtpException != null) {
+                    throw bm.imtpException;
+                }
+                if (bm.notFoundException == null) {
+                    if (delivered != null) {
+                        delivered[i + j] = true;
+                    }
+                } else if (nfe == null) {
+                    nfe = bm.notFoundException;
+                }
+            }
+        }
+        if (nfe != null) {
+            throw nfe;
+        }
+    }
+
+    private void batchedMessageIn(BatchedMessage bm) throws NotFoundException, IMTPException {
+        synchronized (batchQueue) {
+            batchQueue.addLast(bm);
+        }
+        while (true) {
+            List<BatchedMessage> batch = new ArrayList<>();
+            synchronized (batchQueue) {
+                while (!bm.done && (batchSenders >= maxBatchSenders || batchQueue.isEmpty())) {
+                    try {
+                        batchQueue.wait();
+                    } catch (InterruptedException ie) {
+                        // Keep waiting: the message is already in the queue
+                    }
+                }
+                if (bm.done) {
+                    break;
+                }
+                // Become a sender and take as many queued messages (not necessarily including ours) as possible
+                batchSenders++;
+                while (!batchQueue.isEmpty() && batch.size() < maxBatchSize) {
+                    batch.add(batchQueue.removeFirst());
+                }
+            }
+            try {
+                sendBatch(batch);
+            } finally {
+                synchronized (batchQueue) {
+                    batchSenders--;
+                    batchQueue.notifyAll();
+                }
+            }
+        }
+
+        if (bm.imtpException != null) {
+            throw bm.imtpException;
+        }
+        if (bm.notFoundException != null) {
+            throw bm.notFoundException;
+        }
+    }
+
+    private void sendBatch(List<BatchedMessage> batch) {
+        Command c;
+        if (batch.size() == 1) {
+            c = new Command(FrontEndSkel.MESSAGE_IN);
+        } else {
+            c = new Command(FrontEndSkel.MESSAGES_IN);
+        }
+        for (BatchedMessage bm : batch) {
+            c.addParam(bm.msg);
+            c.addParam(bm.receiver);
+        }
+        try {
+            Command r = executeRemotely(c, -1);
+            // As for single messages, a postponed batch (null response) is transparent to the rest of the platform.
+            if (r != null) {
+                if (r.getCode() == Command.ERROR) {
+                    for (BatchedMessage bm : batch) {
+                        bm.notFoundException = new NotFoundException((String) r.getParamAt(2));
+                    }
+                } else {
+                    for (int i = 0; i + 1 < r.getParamCnt(); i += 2) {
+                        BatchedMessage bm = batch.get((Integer) r.getParamAt(i));
+                        bm.notFoundException = new NotFoundException((String) r.getParamAt(i + 1));
+                    }
+                }
+            }
+        } catch (IMTPException imtpe) {
+            for (BatchedMessage bm : batch) {
+                bm.imtpException = imtpe;
+            }
+        } finally {
+            synchronized (batchQueue) {
+                for (BatchedMessage bm : batch) {
+                    bm.done = true;
+                }
+                batchQueue.notifyAll();
+            }
+        }
+    }
+
     /**
      *
      */
@@ -198,7 +343,7 @@ public class FrontEndStub extends MicroStub implements FrontEnd {
     public List<Object[]> removePendingMessages(MessageTemplate template) {
         synchronized (pendingCommands) {
             List<Object[]> messages = new ArrayList<>();
-            List<Command> commands = new ArrayList<>();
+            List<PostponedCommand> commands = new ArrayList<>();
             Enumeration<PostponedCommand> e = pendingCommands.elements();
             while (e.hasMoreElements()) {
                 PostponedCommand pc = e.nextElement();
@@ -208,18 +353,50 @@ public class FrontEndStub extends MicroStub implements FrontEnd {
                     if (template.match(msg)) {
                         Object[] oo = new Object[]{msg, c.getParamAt(1)};
                         messages.add(oo);
-                        commands.add(c);
+                        commands.add(pc);
+                    }
+                } else if (c.getCode() == FrontEndSkel.MESSAGES_IN) {
+                    // Strip matching messages from the batch (in order) and drop the batch if nothing is left
+                    int i = 0;
+                    while (i + 1 < c.getParamCnt()) {
+                        ACLMessage msg = (ACLMessage) c.getParamAt(i);
+                        if (template.match(msg)) {
+                            messages.add(new Object[]{msg, c.getParamAt(i + 1)});
+                            c.removeParamAt(i + 1);
+                            c.removeParamAt(i);
+                        } else {
+                            i += 2;
+                        }
+                    }
+                    if (c.getParamCnt() == 0) {
+                        commands.add(pc);
                     }
                 }
             }
             // Remove all the commands carrying matching messages
-            for (Object command : commands) {
-                pendingCommands.remove(command);
+            for (PostponedCommand pc : commands) {
+                pendingCommands.remove(pc);
             }
 
             // Return the list of matching messages
             return messages;
         }
     }
+
+    /**
+     * A message waiting to be delivered as part of a batch
+     */
+    private static class BatchedMessage {
+        private final ACLMessage msg;
+        private final String receiver;
+        private boolean done = false;
+        private NotFoundException notFoundException;
+        private IMTPException imtpException;
+
+        private BatchedMessage(ACLMessage msg, String receiver) {
+            this.msg = msg;
+            this.receiver = receiver;
+        }
+    }
 }
 
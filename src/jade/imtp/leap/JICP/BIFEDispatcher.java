@@ -28,6 +28,7 @@ import jade.mtp.TransportAddress;
 import jade.util.Logger;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.Vector;
 
@@ -74,7 +75,10 @@ public class BIFEDispatcher implements FEConnectionManager, Dispatcher, TimerLis
     // These variables are only used within the InputManager class,
     // but are declared externally since they must "survive" when
     // an InputManager is replaced
-    private JICPPacket lastResponse = null;
+    // Responses to the most recently served commands indexed by SID. Since the BE may
+    // deliver several commands without waiting for the responses, any of them (not just the
+    // last one) may be re-delivered after a disconnection.
+    private final JICPPacket[] recentResponses = new JICPPacket[16];
     private int cnt = 0;
 
     /**
@@ -240,6 +244,10 @@ public class BIFEDispatcher implements FEConnectionManager, Dispatcher, TimerLis
             BackEndStub.appendProp(sb, "outcnt", String.valueOf(outCnt));
             BackEndStub.appendProp(sb, "lastsid", String.valueOf(lastSid));
         }
+        // Tell the BE how many commands it can deliver without waiting for the responses
+        // and how many messages it can pack into a single command
+        BackEndStub.appendProp(sb, JICPProtocol.PIPELINE_WINDOW_KEY, props.getProperty(JICPProtocol.PIPELINE_WINDOW_KEY, String.valueOf(JICPProtocol.DEFAULT_PIPELINE_WINDOW)));
+        BackEndStub.appendProp(sb, JICPProtocol.MAX_BATCH_SIZE_KEY, props.getProperty(JICPProtocol.MAX_BATCH_SIZE_KEY, String.valueOf(JICPProtocol.DEFAULT_MAX_BATCH_SIZE)));
         JICPPacket pkt = new JICPPacket(JICPProtocol.CREATE_MEDIATOR_TYPE, JICPProtocol.DEFAULT_INFO, null, sb.toString().getBytes());
 
         // Try first with the current transport address, then with the various backup addresses
@@ -271,6 +279,8 @@ public class BIFEDispatcher implements FEConnectionManager, Dispatcher, TimerLis
                     // Complete the mediator address with the mediator ID
                     mediatorTA = new JICPAddress(mediatorTA.getHost(), mediatorTA.getPort(), myMediatorID, null);
                     myLogger.log(Logger.INFO, "BackEnd OK: mediator-id = " + myMediatorID);
+                    // A new BE never re-delivers commands of the previous one
+                    Arrays.fill(recentResponses, null);
                     // The BE has just been created --> refresh the INP connection too
                     refreshInp();
                     return con;
@@ -937,12 +947,12 @@ public class BIFEDispatcher implements FEConnectionManager, Dispatcher, TimerLis
                     }
                     status = 1;
                     byte sid = pkt.getSessionID();
-                    if (sid == lastSid) {
+                    if (sid >= 0 && recentResponses[sid] != null) {
                         // Duplicated packet
                         if (myLogger.isLoggable(Logger.WARNING)) {
                             myLogger.log(Logger.WARNING, "Duplicated packet from BE: pkt-type=" + pkt.getType() + " info=" + pkt.getInfo() + " SID=" + sid);
                         }
-                        pkt = lastResponse;
+                        pkt = recentResponses[sid];
                     } else {
                         if (pkt.getType() == JICPProtocol.KEEP_ALIVE_TYPE) {
                             // Keep-alive
@@ -964,7 +974,12 @@ public class BIFEDispatcher implements FEConnectionManager, Dispatcher, TimerLis
                             pkt.setTerminatedInfo(true);
                         }
                         lastSid = sid;
-                        lastResponse = pkt;
+                        if (sid >= 0) {
+                            recentResponses[sid] = pkt;
+                            // The BE re-uses a SID only after the commands in the preceding window have been
+                            // acknowledged --> the response kept for the SID one window ahead is stale
+                            recentResponses[(sid + JICPProtocol.MAX_PIPELINE_WINDOW) & 0x0f] = null;
+                        }
                     }
                     status = 2;
                     writePacket(pkt, myConnection);
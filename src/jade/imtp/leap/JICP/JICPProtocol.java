@@ -133,6 +133,12 @@ public class JICPProtocol extends TransportProtocol {
     // Default timeout when waiting for the response to a given packet
     public static final long DEFAULT_RESPONSE_TIMEOUT_OFFSET = 30000;  // 30 sec
     public static final double DEFAULT_RESPONSE_TIMEOUT_MULTIPLICATIVE_FACTOR = ((double) 1000) / (5 * 1024);  // 1 sec more every 5Kbyte
+    // Max number of commands the BackEnd can deliver to the FrontEnd without waiting for the related responses.
+    // Session IDs are 4 bits wide: a window larger than half the SID space would make duplicates undetectable
+    public static final int MAX_PIPELINE_WINDOW = 8;
+    public static final int DEFAULT_PIPELINE_WINDOW = MAX_PIPELINE_WINDOW;
+    // Default max number of ACL messages the BackEnd can pack into a single command to the FrontEnd
+    public static final int DEFAULT_MAX_BATCH_SIZE = 32;
 
     /**
      * Keys
@@ -155,6 +161,9 @@ public class JICPProtocol extends TransportProtocol {
     public static final String CONNECTION_TIMEOUT_KEY = "connection-timeout";
     public static final String RESPONSE_TIMEOUT_OFFSET_KEY = "response-timeout-offset";
     public static final String RESPONSE_TIMEOUT_MULTIPLICATIVE_FACTOR_KEY = "response-timeout-multiplicative-factor";
+    // Passed in the CREATE_MEDIATOR request by FrontEnds able to serve pipelined (and batched) commands from the BackEnd
+    public static final String PIPELINE_WINDOW_KEY = "pipeline-window";
+    public static final String MAX_BATCH_SIZE_KEY = "max-batch-size";
 
     // The property to be specified among FE startup properties to activate server time synchronization
     // If set to true this property is also passed in the CREATE_MEDIATOR request to tell the server that a GET_SERVER_TIME will be sent immediately after mediator creation completion
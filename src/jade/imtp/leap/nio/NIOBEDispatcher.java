@@ -10,6 +10,9 @@ import jade.util.Logger;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -104,8 +107,28 @@ public class NIOBEDispatcher implements NIOMediator, BEConnectionManager, Dispat
             // Keep default
         }*/
 
+        // Pipelining and batching of commands to the FE are only enabled if the FE declared it supports them
+        int window = 1;
+        try {
+            window = Math.min(Integer.parseInt(props.getProperty(JICPProtocol.PIPELINE_WINDOW_KEY)), JICPProtocol.MAX_PIPELINE_WINDOW);
+        } catch (Exception e) {
+            // Keep default
+        }
+        int maxBatchSize = 1;
+        try {
+            maxBatchSize = Integer.parseInt(props.getProperty(JICPProtocol.MAX_BATCH_SIZE_KEY));
+        } catch (Exception e) {
+            // Keep default
+        }
+
         FrontEndStub st = new FrontEndStub(this);
-        inpManager = new InputManager(inpCnt, st);
+        if (window > 1) {
+            st.setBatching(maxBatchSize, window);
+            if (myLogger.isLoggable(Logger.CONFIG)) {
+                myLogger.log(Logger.CONFIG, myID + ": Pipeline window = " + window + ", max batch size = " + maxBatchSize);
+            }
+        }
+        inpManager = new InputManager(inpCnt, st, window);
 
         BackEndSkel sk = startBackEndContainer(props);
         outManager = new OutputManager(0x0f, sk, maxDisconnectionTime);
@@ -481,10 +504,17 @@ public class NIOBEDispatcher implements NIOMediator, BEConnectionManager, Dispat
         private long readStartTime = -1;
         private JICPPacket currentReply;
         private int inpCnt;
-
-        InputManager(int c, FrontEndStub s) {
+        // Max number of commands delivered to the FE and still waiting for a response
+        private final int window;
+        // Pipelined commands waiting to be written and already written to the FE
+        private final LinkedList<PendingCommand> queued = new LinkedList<>();
+        private final LinkedList<PendingCommand> inFlight = new LinkedList<>();
+        private boolean pumping = false;
+
+        InputManager(int c, FrontEndStub s, int window) {
             inpCnt = c;
             myStub = s;
+            this.window = Math.max(window, 1);
         }
 
         FrontEndStub getStub() {
@@ -529,6 +559,11 @@ public class NIOBEDispatcher implements NIOMediator, BEConnectionManager, Dispat
         final boolean isEmpty() {
             // We are empty if we are not dispatching a JICPPacket and our stub
             // has no postponed commands waiting to be delivered.
+            synchronized (this) {
+                if (!(queued.isEmpty() && inFlight.isEmpty())) {
+                    return false;
+                }
+            }
             return (!dispatching) && myStub.isEmpty();
         }
 
@@ -543,6 +578,9 @@ public class NIOBEDispatcher implements NIOMediator, BEConnectionManager, Dispat
          * blocking read operation --> It can't just be declared synchronized.
          */
         final JICPPacket dispatch(JICPPacket pkt, boolean flush, int oldSessionId) throws ICPException {
+            if (window > 1) {
+                return pipelinedDispatch(pkt, flush, oldSessionId);
+            }
             synchronized (dispatchLock) {
                 dispatching = true;
                 try {
@@ -619,6 +657,197 @@ public class NIOBEDispatcher implements NIOMediator, BEConnectionManager, Dispat
             }
         }
 
+        /**
+         * Dispatch a JICP command to the FE without waiting for the responses to
+         * previously dispatched commands, as long as no more than  window  of
+         * them are outstanding.
+         * The FE serves commands in order: responses come back in the order
+         * commands were written and each one acknowledges the oldest outstanding
+         * command. Reads and writes on the (blocking) INP connection are performed
+         * by one dispatching thread at a time (the pumping thread) on behalf of all
+         * the others.
+         * If the connection breaks, outstanding commands fail with their session-id
+         * so that, once flushed, the FE can recognize those it already served.
+         */
+        private JICPPacket pipelinedDispatch(JICPPacket pkt, boolean flush, int oldSessionId) throws ICPException {
+            PendingCommand pc = new PendingCommand(pkt, flush ? oldSessionId : -1);
+            synchronized (this) {
+                if ((!active) || (myConnection == null) || (waitingForFlush && (!flush))) {
+                    throw new ICPException("Unreachable");
+                }
+                waitingForFlush = false;
+                connectionRefreshed = false;
+                queued.addLast(pc);
+            }
+
+            while (true) {
+                NIOJICPConnection c;
+                synchronized (this) {
+                    while (!pc.done && pumping) {
+                        try {
+                            wait();
+                        } catch (InterruptedException ie) {
+                            // Keep waiting: the command is already queued
+                        }
+                    }
+                    if (pc.done) {
+                        break;
+                    }
+                    pumping = true;
+                    c = myConnection;
+                }
+                try {
+                    pump(c, pc);
+                } finally {
+                    synchronized (this) {
+                        pumping = false;
+                        notifyAll();
+                    }
+                }
+            }
+
+            if (pc.exception != null) {
+                throw pc.exception;
+            }
+            if ((pc.reply.getInfo() & JICPProtocol.TERMINATED_INFO) != 0) {
+                // This is the response to an exit command --> Suicide, without
+                // killing the above container since it is already dying.
+                NIOBEDispatcher.this.shutdown();
+            }
+            return pc.reply;
+        }
+
+        /**
+         * Write queued commands while the window allows it and read responses
+         * until the command of the pumping thread is completed.
+         */
+        private void pump(NIOJICPConnection c, PendingCommand mine) {
+            if (c == null) {
+                synchronized (this) {
+                    failAll(null, true);
+                }
+                return;
+            }
+            try {
+                while (!mine.done) {
+                    List<PendingCommand> toWrite = new ArrayList<>();
+                    PendingCommand head;
+                    synchronized (this) {
+                        if (c != myConnection) {
+                            throw new IOException("Connection refreshed");
+                        }
+                        while (inFlight.size() < window && !queued.isEmpty()) {
+                            PendingCommand pc = queued.removeFirst();
+                            if (pc.oldSessionId != -1) {
+                                // Postponed command whose previous dispatch failed --> use the old
+                                // sessionId so that the FE recognizes it if it was already served
+                                pc.sid = pc.oldSessionId;
+                            } else {
+                                pc.sid = inpCnt;
+                                inpCnt = (inpCnt + 1) & 0x0f;
+                            }
+                            pc.packet.setSessionID((byte) pc.sid);
+                            inFlight.addLast(pc);
+                            toWrite.add(pc);
+                        }
+                        head = inFlight.getFirst();
+                    }
+
+                    for (PendingCommand pc : toWrite) {
+                        if (myLogger.isLoggable(Logger.FINE)) {
+                            myLogger.log(Logger.FINE, myID + ": Sending command " + pc.sid + " to FE");
+                        }
+                        pc.writeTime = System.currentTimeMillis();
+                        c.writePacket(pc.packet);
+                    }
+
+                    readStartTime = head.writeTime;
+                    JICPPacket reply = readReply(c);
+                    readStartTime = -1;
+                    checkTerminatedInfo(reply);
+                    lastReceivedTime = System.currentTimeMillis();
+                    synchronized (this) {
+                        handleReply(reply);
+                    }
+                }
+            } catch (IOException ioe) {
+                readStartTime = -1;
+                synchronized (this) {
+                    if (myConnection != null && myConnection == c) {
+                        // There was an IO exception writing/reading data to/from the connection
+                        // --> reset the connection.
+                        myLogger.log(Logger.WARNING, myID + ": IOException IC. " + ioe);
+                        resetConnection();
+                    }
+                    // If a new connection is already in place, queued commands will be written there
+                    failAll(ioe, myConnection == null);
+                }
+            }
+        }
+
+        private JICPPacket readReply(NIOJICPConnection c) throws IOException {
+            while (true) {
+                try {
+                    return c.readPacket();
+                } catch (PacketIncompleteException pie) {
+                    // The response was split across several network reads --> go on reading
+                }
+            }
+        }
+
+        /**
+         * Match a response from the FE against the outstanding commands.
+         * Mutual exclusion with other InputManager methods must be ensured by the caller.
+         */
+        private void handleReply(JICPPacket reply) {
+            int sid = reply.getSessionID();
+            boolean expected = false;
+            for (PendingCommand pc : inFlight) {
+                if (pc.sid == sid) {
+                    expected = true;
+                    break;
+                }
+            }
+            if (!expected) {
+                myLogger.log(Logger.WARNING, myID + ": Unexpected response from FE. SID = " + sid);
+                return;
+            }
+            // Responses come in order: commands before the acknowledged one did not get their response
+            PendingCommand pc = inFlight.removeFirst();
+            while (pc.sid != sid) {
+                pc.complete(null, new ICPDispatchException("Missing response", pc.sid));
+                pc = inFlight.removeFirst();
+            }
+            if (myLogger.isLoggable(Logger.FINER)) {
+                myLogger.log(Logger.FINER, myID + ": Received response " + sid + " from FE");
+            }
+            if (reply.getType() == JICPProtocol.ERROR_TYPE) {
+                // Communication OK, but there was a JICP error on the peer
+                pc.complete(null, new ICPException(new String(reply.getData())));
+            } else {
+                pc.complete(reply, null);
+            }
+            notifyAll();
+        }
+
+        /**
+         * Make all outstanding (and possibly queued) commands fail.
+         * Mutual exclusion with other InputManager methods must be ensured by the caller.
+         */
+        private void failAll(IOException ioe, boolean includeQueued) {
+            for (PendingCommand pc : inFlight) {
+                pc.complete(null, new ICPDispatchException("Dispatching error.", ioe, pc.sid));
+            }
+            inFlight.clear();
+            if (includeQueued) {
+                for (PendingCommand pc : queued) {
+                    pc.complete(null, new ICPException("Connection reset."));
+                }
+                queued.clear();
+            }
+            notifyAll();
+        }
+
         public final void checkResponseTime(long currentTime) {
             if (readStartTime > 0 && (currentTime - readStartTime) > RESPONSE_TIMEOUT) {
                 myLogger.log(Logger.WARNING, myID + ": Response timeout expired.");
@@ -665,6 +894,31 @@ public class NIOBEDispatcher implements NIOMediator, BEConnectionManager, Dispat
         }*/
     } // END of inner class InputManager
 
+    /**
+     * A command delivered (or to be delivered) to the FE by means of a
+     * pipelined InputManager
+     */
+    private static class PendingCommand {
+        private final JICPPacket packet;
+        private final int oldSessionId;
+        private int sid = -1;
+        private long writeTime;
+        private boolean done = false;
+        private JICPPacket reply;
+        private ICPException exception;
+
+        private PendingCommand(JICPPacket packet, int oldSessionId) {
+            this.packet = packet;
+            this.oldSessionId = oldSessionId;
+        }
+
+        private void complete(JICPPacket reply, ICPException exception) {
+            this.reply = reply;
+            this.exception = exception;
+            done = true;
+        }
+    }
+
     /**
      * Inner class OutputManager
      * This class manages the reception of commands and keep-alive
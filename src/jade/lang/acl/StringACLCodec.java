@@ -358,10 +358,11 @@ public class StringACLCodec implements ACLCodec {
 
     /**
      * see ACLCodec#decode(byte[] data)
+     * The message is decoded by the <code>StringACLParser</code> of the calling thread.
      */
     public ACLMessage decode(byte[] data, String charset) throws CodecException {
         try {
-            ACLMessage msg = ACLParser.create().parse(new InputStreamReader(new ByteArrayInputStream(data), charset));
+            ACLMessage msg = StringACLParser.getInstance().parse(data, 0, data.length, charset);
             checkBase64Encoding(msg);
             return msg;
         } catch (TokenMgrError e1) {
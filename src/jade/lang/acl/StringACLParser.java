@@ -0,0 +1,786 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.lang.acl;
+
+//#MIDP_EXCLUDE_FILE
+
+import jade.core.AID;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Hand-written, single pass parser for the FIPA String representation of ACL messages.
+ * Unlike the JavaCC generated <code>ACLParser</code> it works directly on the encoded bytes
+ * (no <code>Reader</code> and no per-token objects are involved) and it can be reused for any
+ * number of messages: <code>getInstance()</code> returns a parser bound to the calling thread.
+ * <br>
+ * Only ASCII compatible charsets (US-ASCII, ISO-8859-1 and UTF-8) are decoded natively.
+ * Whenever the input uses a different charset or a construct this parser does not handle
+ * (e.g. tokens glued to each other, numbers where a word is expected or syntax errors), the
+ * message is parsed again by the <code>ACLParser</code>. Results and errors are therefore
+ * exactly those of the JavaCC parser.
+ * <br>
+ * Instances are not thread safe.
+ *
+ * @see StringACLCodec
+ */
+public class StringACLParser {
+
+    private static final ThreadLocal<StringACLParser> instances = ThreadLocal.withInitial(StringACLParser::new);
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    // Charsets decoded natively
+    private static final int US_ASCII = 1;
+    private static final int ISO_8859_1 = 2;
+    private static final int UTF_8 = 3;
+
+    // Kinds of the tokens that can follow a message parameter
+    private static final int WORD = 1;
+    private static final int STRING = 2;
+    private static final int BYTE_LENGTH_STRING = 3;
+    private static final int NUMBER = 4;
+    private static final int DATETIME = 5;
+    private static final int LBRACE = 6;
+
+    private static final byte[][] PERFORMATIVES;
+
+    private static final byte[] SENDER = keyword(":sender");
+    private static final byte[] RECEIVER = keyword(":receiver");
+    private static final byte[] CONTENT = keyword(":content");
+    private static final byte[] REPLY_WITH = keyword(":reply-with");
+    private static final byte[] REPLY_BY = keyword(":reply-by");
+    private static final byte[] IN_REPLY_TO = keyword(":in-reply-to");
+    private static final byte[] REPLY_TO = keyword(":reply-to");
+    private static final byte[] ENCODING = keyword(":encoding");
+    private static final byte[] LANGUAGE = keyword(":language");
+    private static final byte[] ONTOLOGY = keyword(":ontology");
+    private static final byte[] PROTOCOL = keyword(":protocol");
+    private static final byte[] CONVERSATION_ID = keyword(":conversation-id");
+    private static final byte[] SET = keyword("set");
+    private static final byte[] SEQUENCE = keyword("sequence");
+    private static final byte[] AGENT_IDENTIFIER = keyword("agent-identifier");
+    private static final byte[] NAME = keyword(":name");
+    private static final byte[] ADDRESSES = keyword(":addresses");
+    private static final byte[] RESOLVERS = keyword(":resolvers");
+
+    static {
+        String[] names = ACLMessage.getAllPerformativeNames();
+        PERFORMATIVES = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            PERFORMATIVES[i] = keyword(names[i].toLowerCase());
+        }
+    }
+
+    /**
+     * Thrown (without stack trace) when the input must be handed over to the ACLParser
+     */
+    private static final class Unsupported extends Exception {
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final Unsupported UNSUPPORTED = new Unsupported();
+
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private int mode;
+    private final StringBuilder sb = new StringBuilder(256);
+
+    // Boundaries and kind of the last token read by scanToken()
+    private int tokStart;
+    private int tokEnd;
+
+    // Charset lookup cache
+    private String charsetName;
+    private Charset charset;
+    private int charsetMode;
+
+    // Stream mode only
+    private InputStream in;
+    private ACLParser delegate;
+
+    /**
+     * Create a parser for messages held in byte arrays.
+     *
+     * @see #getInstance()
+     */
+    public StringACLParser() {
+    }
+
+    /**
+     * Create a parser reading a sequence of messages from a stream.
+     * No byte following the closing parenthesis of a message is read before the next message is requested.
+     *
+     * @param in The stream messages are read from
+     * @param cs The charset messages are encoded with
+     * @see #next()
+     */
+    public StringACLParser(InputStream in, Charset cs) {
+        this.in = in;
+        charset = cs;
+        mode = modeOf(cs);
+        if (mode == 0) {
+            delegate = new ACLParser(new InputStreamReader(in, cs));
+        } else {
+            buf = new byte[INITIAL_BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * @return The parser bound to the calling thread
+     */
+    public static StringACLParser getInstance() {
+        return instances.get();
+    }
+
+    /**
+     * Parse a message encoded in a portion of a byte array.
+     *
+     * @param data        The encoded message
+     * @param off         The offset of the message in <code>data</code>
+     * @param len         The number of bytes of the encoded message
+     * @param charsetName The charset the message is encoded with
+     * @return The parsed message
+     * @throws ParseException               If the message is malformed
+     * @throws UnsupportedEncodingException If <code>charsetName</code> is not supported
+     */
+    public ACLMessage parse(byte[] data, int off, int len, String charsetName) throws ParseException, UnsupportedEncodingException {
+        if (in != null) {
+            throw new IllegalStateException("Parser bound to a stream");
+        }
+        if (!charsetName.equals(this.charsetName)) {
+            lookupCharset(charsetName);
+        }
+        if (charsetMode != 0) {
+            buf = data;
+            pos = off;
+            limit = off + len;
+            mode = charsetMode;
+            try {
+                return message();
+            } catch (Unsupported u) {
+                // Fall back to the ACLParser below
+            } finally {
+                buf = null;
+                sb.setLength(0);
+            }
+        }
+        return ACLParser.create().parse(new InputStreamReader(new ByteArrayInputStream(data, off, len), charsetName));
+    }
+
+    /**
+     * Read the next message from the stream this parser was created with.
+     * As for the <code>ACLParser</code>, an error reading the stream is handled as its end.
+     *
+     * @return The parsed message
+     * @throws ParseException If the message is malformed or the end of the stream is reached
+     */
+    public ACLMessage next() throws ParseException {
+        if (delegate != null) {
+            return delegate.Message();
+        }
+        if (in == null) {
+            throw new IllegalStateException("Parser not bound to a stream");
+        }
+        // Drop the bytes of previous messages
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        try {
+            return message();
+        } catch (Unsupported u) {
+            // From now on the ACLParser takes over, starting with the bytes of this message
+            delegate = new ACLParser(new InputStreamReader(new SequenceInputStream(new ByteArrayInputStream(buf, 0, limit), in), charset));
+            buf = null;
+            return delegate.Message();
+        } finally {
+            sb.setLength(0);
+        }
+    }
+
+    private void lookupCharset(String name) {
+        Charset cs = null;
+        try {
+            cs = Charset.forName(name);
+        } catch (Exception e) {
+            // Let the ACLParser report the problem
+        }
+        charsetName = name;
+        charset = cs;
+        charsetMode = modeOf(cs);
+    }
+
+    private static int modeOf(Charset cs) {
+        if (StandardCharsets.US_ASCII.equals(cs)) {
+            return US_ASCII;
+        } else if (StandardCharsets.ISO_8859_1.equals(cs)) {
+            return ISO_8859_1;
+        } else if (StandardCharsets.UTF_8.equals(cs)) {
+            return UTF_8;
+        }
+        return 0;
+    }
+
+    private static byte[] keyword(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    //////////////////////////////////////////////
+    // Grammar
+    //////////////////////////////////////////////
+
+    private ACLMessage message() throws Unsupported {
+        if (skipBlanks() != '(') {
+            throw UNSUPPORTED;
+        }
+        pos++;
+        skipBlanks();
+        int start = pos;
+        int end = scanRun(':');
+        int perf = -1;
+        for (int i = 0; i < PERFORMATIVES.length; i++) {
+            if (matches(start, end, PERFORMATIVES[i])) {
+                perf = i;
+                break;
+            }
+        }
+        if (perf < 0) {
+            throw UNSUPPORTED;
+        }
+
+        ACLMessage msg = new ACLMessage(perf);
+        while (true) {
+            int c = skipBlanks();
+            if (c == ')') {
+                pos++;
+                return msg;
+            }
+            if (c != ':') {
+                throw UNSUPPORTED;
+            }
+            start = pos;
+            end = scanRun();
+            if (matches(start, end, SENDER)) {
+                msg.setSender(agentIdentifier());
+            } else if (matches(start, end, RECEIVER)) {
+                msg.clearAllReceiver();
+                openList(SET);
+                while (skipBlanks() != ')') {
+                    msg.addReceiver(agentIdentifier());
+                }
+                pos++;
+            } else if (matches(start, end, CONTENT)) {
+                msg.setContent(content());
+            } else if (matches(start, end, REPLY_WITH)) {
+                msg.setReplyWith(expression());
+            } else if (matches(start, end, REPLY_BY)) {
+                if (scanToken() != DATETIME) {
+                    throw UNSUPPORTED;
+                }
+                try {
+                    msg.setReplyByDate(ISO8601.toDate(text(tokStart, tokEnd)));
+                } catch (Exception e) {
+                    // Ignore a malformed date as the ACLParser does
+                }
+            } else if (matches(start, end, IN_REPLY_TO)) {
+                msg.setInReplyTo(expression());
+            } else if (matches(start, end, REPLY_TO)) {
+                msg.clearAllReplyTo();
+                openList(SET);
+                while (skipBlanks() != ')') {
+                    msg.addReplyTo(agentIdentifier());
+                }
+                pos++;
+            } else if (matches(start, end, ENCODING)) {
+                msg.setEncoding(expression());
+            } else if (matches(start, end, LANGUAGE)) {
+                msg.setLanguage(expression());
+            } else if (matches(start, end, ONTOLOGY)) {
+                msg.setOntology(expression());
+            } else if (matches(start, end, PROTOCOL)) {
+                msg.setProtocol(word());
+            } else if (matches(start, end, CONVERSATION_ID)) {
+                msg.setConversationId(expression());
+            } else if (isUserDefined(start, end)) {
+                String key = text(start + 3, end);
+                msg.addUserDefinedParameter(key, expression());
+            } else {
+                throw UNSUPPORTED;
+            }
+        }
+    }
+
+    private AID agentIdentifier() throws Unsupported {
+        openList(AGENT_IDENTIFIER);
+        AID cur = new AID();
+        boolean empty = true;
+        while (true) {
+            int c = skipBlanks();
+            if (c == ')') {
+                if (empty) {
+                    throw UNSUPPORTED;
+                }
+                pos++;
+                return cur;
+            }
+            int start = pos;
+            int end = scanRun();
+            if (matches(start, end, NAME)) {
+                cur.setName(content());
+            } else if (matches(start, end, ADDRESSES)) {
+                openList(SEQUENCE);
+                while (skipBlanks() != ')') {
+                    cur.addAddresses(word());
+                }
+                pos++;
+            } else if (matches(start, end, RESOLVERS)) {
+                openList(SEQUENCE);
+                while (skipBlanks() != ')') {
+                    cur.addResolvers(agentIdentifier());
+                }
+                pos++;
+            } else if (isUserDefined(start, end)) {
+                String key = text(start + 3, end);
+                cur.addUserDefinedSlot(key, expression());
+            } else {
+                throw UNSUPPORTED;
+            }
+            empty = false;
+        }
+    }
+
+    /**
+     * Read a '(' followed by the given keyword
+     */
+    private void openList(byte[] kw) throws Unsupported {
+        if (skipBlanks() != '(') {
+            throw UNSUPPORTED;
+        }
+        pos++;
+        skipBlanks();
+        int start = pos;
+        if (!matches(start, scanRun(), kw)) {
+            throw UNSUPPORTED;
+        }
+    }
+
+    private String content() throws Unsupported {
+        int kind = scanToken();
+        if (kind == WORD || kind == STRING) {
+            return unquote(tokStart, tokEnd);
+        } else if (kind == BYTE_LENGTH_STRING) {
+            return text(tokStart, tokEnd);
+        }
+        throw UNSUPPORTED;
+    }
+
+    private String word() throws Unsupported {
+        if (scanToken() != WORD) {
+            throw UNSUPPORTED;
+        }
+        return unquote(tokStart, tokEnd);
+    }
+
+    private String expression() throws Unsupported {
+        int kind = scanToken();
+        if (kind == LBRACE) {
+            sb.setLength(0);
+            appendList();
+            return sb.toString();
+        }
+        return atom(kind);
+    }
+
+    private String atom(int kind) throws Unsupported {
+        switch (kind) {
+            case WORD:
+            case STRING:
+                return unquote(tokStart, tokEnd);
+            case BYTE_LENGTH_STRING:
+            case NUMBER:
+            case DATETIME:
+                return text(tokStart, tokEnd);
+            default:
+                throw UNSUPPORTED;
+        }
+    }
+
+    /**
+     * Append a list expression, whose '(' was just read, as the ACLParser
+     * renders it: each element followed by a blank
+     */
+    private void appendList() throws Unsupported {
+        sb.append('(');
+        while (true) {
+            if (skipBlanks() == ')') {
+                pos++;
+                sb.append(')');
+                return;
+            }
+            int kind = scanToken();
+            if (kind == LBRACE) {
+                appendList();
+            } else {
+                sb.append(atom(kind));
+            }
+            sb.append(' ');
+        }
+    }
+
+    //////////////////////////////////////////////
+    // Lexer
+    //////////////////////////////////////////////
+
+    /**
+     * Read the token following a message parameter (or an element of a list expression)
+     * reproducing the longest match rule of the ACLParser lexer.
+     *
+     * @return The kind of the token
+     */
+    private int scanToken() throws Unsupported {
+        int c = skipBlanks();
+        int start = pos;
+        int kind;
+        int end;
+        if (c == '(') {
+            pos++;
+            return LBRACE;
+        } else if (c == '"') {
+            // Both a word and a string literal may start here: the longest wins, the word on a tie.
+            // A string literal ends at the first quote not preceded by a backslash or, if the input
+            // ends before, at the last quote
+            int wordEnd = wordEnd(start + 1);
+            int stringEnd = start + 1;
+            int lastQuoteEnd = -1;
+            while (true) {
+                int b = at(stringEnd);
+                if (b == -1) {
+                    stringEnd = lastQuoteEnd;
+                    break;
+                }
+                stringEnd++;
+                if (b == '"') {
+                    if (buf[stringEnd - 2] != '\\') {
+                        break;
+                    }
+                    lastQuoteEnd = stringEnd;
+                }
+            }
+            if (stringEnd > wordEnd) {
+                kind = STRING;
+                end = stringEnd;
+            } else {
+                kind = WORD;
+                end = wordEnd;
+            }
+        } else if (c == '#') {
+            kind = BYTE_LENGTH_STRING;
+            int p = start + 1;
+            int b = at(p);
+            if (b == '+') {
+                b = at(++p);
+            }
+            long n = 0;
+            int digitsStart = p;
+            while (b >= '0' && b <= '9') {
+                n = n * 10 + (b - '0');
+                if (n > Integer.MAX_VALUE) {
+                    throw UNSUPPORTED;
+                }
+                b = at(++p);
+            }
+            if (p == digitsStart || b != '"') {
+                throw UNSUPPORTED;
+            }
+            start = p + 1;
+            end = start + (int) n;
+            if (end < start || (n > 0 && at(end - 1) == -1)) {
+                throw UNSUPPORTED;
+            }
+            if (mode == UTF_8) {
+                // The length counts characters: accept only plain ASCII
+                for (int i = start; i < end; i++) {
+                    if (buf[i] < 0) {
+                        throw UNSUPPORTED;
+                    }
+                }
+            }
+        } else if ((c >= '0' && c <= '9') || c == '-') {
+            end = numberEnd(start);
+            kind = (end < 0 ? DATETIME : NUMBER);
+            if (end < 0) {
+                end = -end;
+            }
+        } else if (c == '!' || (c >= '$' && c <= '\'') || (c >= '*' && c <= '/' && c != '-') || (c >= ':' && c <= '~')) {
+            kind = WORD;
+            end = wordEnd(start + 1);
+            // Numbers are also words when signed with '+' or starting with '.'. On a tie
+            // the ACLParser prefers the word, except for a date-time
+            if (c == '+') {
+                int b = at(start + 1);
+                if (b >= '0' && b <= '9' && numberEnd(start) == -end) {
+                    kind = DATETIME;
+                }
+            }
+        } else {
+            throw UNSUPPORTED;
+        }
+        tokStart = start;
+        tokEnd = end;
+        pos = end;
+        return kind;
+    }
+
+    /**
+     * @return The end of the run of word characters starting at <code>p</code>
+     */
+    private int wordEnd(int p) {
+        while (true) {
+            int b = at(p);
+            if (b < '!' || b > '~' || b == '(' || b == ')') {
+                return p;
+            }
+            p++;
+        }
+    }
+
+    /**
+     * Match the longest of the integer, float and date-time tokens starting at <code>p</code>.
+     *
+     * @return The end of the token, negated if it is a date-time
+     */
+    private int numberEnd(int p) throws Unsupported {
+        int b = at(p);
+        if (b == '-' || b == '+') {
+            p++;
+        }
+        int intEnd = digitsEnd(p);
+        boolean hasInt = intEnd > p;
+        b = at(intEnd);
+        if (b == '.') {
+            int fracEnd = digitsEnd(intEnd + 1);
+            if (hasInt || fracEnd > intEnd + 1) {
+                return exponentEnd(fracEnd);
+            }
+        } else if (hasInt) {
+            int expEnd = exponentEnd(intEnd);
+            if (expEnd > intEnd) {
+                return expEnd;
+            }
+            if (intEnd - p == 8 && (b == 'T' || b == 't') && digitsEnd(intEnd + 1) - intEnd - 1 >= 9) {
+                int end = intEnd + 10;
+                b = at(end);
+                if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z')) {
+                    end++;
+                }
+                return -end;
+            }
+        }
+        if (!hasInt) {
+            throw UNSUPPORTED;
+        }
+        return intEnd;
+    }
+
+    private int digitsEnd(int p) {
+        int b = at(p);
+        while (b >= '0' && b <= '9') {
+            b = at(++p);
+        }
+        return p;
+    }
+
+    private int exponentEnd(int p) {
+        int b = at(p);
+        if (b != 'e' && b != 'E') {
+            return p;
+        }
+        int q = p + 1;
+        b = at(q);
+        if (b == '+' || b == '-') {
+            q++;
+        }
+        int end = digitsEnd(q);
+        return end > q ? end : p;
+    }
+
+    /**
+     * Read a keyword: a run of characters up to the first blank, control character or parenthesis.
+     *
+     * @return The end of the run
+     */
+    private int scanRun() {
+        return scanRun(-1);
+    }
+
+    /**
+     * Read a keyword that also ends at the given character
+     */
+    private int scanRun(int stop) {
+        while (true) {
+            int b = at(pos);
+            if ((b >= 0 && b <= ' ') || b == '(' || b == ')' || b == stop || b == -1) {
+                return pos;
+            }
+            pos++;
+        }
+    }
+
+    private boolean matches(int start, int end, byte[] kw) {
+        if (end - start != kw.length) {
+            return false;
+        }
+        for (int i = 0; i < kw.length; i++) {
+            int b = buf[start + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != kw[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isUserDefined(int start, int end) {
+        if (end - start > 3 && buf[start + 2] == '-') {
+            int b = buf[start + 1];
+            return b == 'x' || b == 'X';
+        }
+        return false;
+    }
+
+    /**
+     * Skip blanks, reading more bytes from the stream if necessary.
+     *
+     * @return The next byte or -1 at the end of the input
+     */
+    private int skipBlanks() {
+        while (pos < limit || fill()) {
+            int b = buf[pos];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return b & 0xff;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return The byte at position <code>p</code> (bytes beyond 0x7F are returned as
+     * negative values), or -1 at the end of the input
+     */
+    private int at(int p) {
+        while (p >= limit) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        int b = buf[p];
+        // Keep -1 for the end of the input
+        return b == -1 ? -2 : b;
+    }
+
+    private boolean fill() {
+        if (in == null) {
+            return false;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int n;
+        try {
+            n = in.read(buf, limit, buf.length - limit);
+        } catch (IOException ioe) {
+            return false;
+        }
+        if (n <= 0) {
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    //////////////////////////////////////////////
+    // Values
+    //////////////////////////////////////////////
+
+    /**
+     * Strip the enclosing quotes (if any) and unescape the \" sequences as the ACLParser does for words and strings
+     */
+    private String unquote(int start, int end) throws Unsupported {
+        if (buf[start] == '"' && buf[end - 1] == '"') {
+            if (end - start < 2) {
+                throw UNSUPPORTED;
+            }
+            start++;
+            end--;
+        }
+        for (int i = start; i < end - 1; i++) {
+            if (buf[i] == '\\' && buf[i + 1] == '"') {
+                return unescape(text(start, end));
+            }
+        }
+        return text(start, end);
+    }
+
+    private static String unescape(String s) {
+        StringBuilder result = new StringBuilder(s.length());
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < len && s.charAt(i + 1) == '"') {
+                result.append('"');
+                i++;
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private String text(int start, int end) {
+        if (mode != ISO_8859_1) {
+            for (int i = start; i < end; i++) {
+                if (buf[i] < 0) {
+                    return new String(buf, start, end - start, charset);
+                }
+            }
+        }
+        return new String(buf, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,377 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+ *****************************************************************/
+package jade.lang.acl;
+
+//#J2ME_EXCLUDE_FILE
+//#APIDOC_EXCLUDE_FILE
+
+import jade.core.AID;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Differential check and benchmark of the <code>StringACLParser</code> against the JavaCC
+ * generated <code>ACLParser</code>.
+ * <ul>
+ * <li>Check: messages encoded by the <code>StringACLCodec</code> (round trip), randomly generated
+ * messages and randomly mutated messages are parsed by both parsers in all supported charsets.
+ * The resulting messages (or the classes of the thrown exceptions) must be identical.
+ * Then sequences of concatenated messages are read in stream mode from a stream returning
+ * chunks of random size: the two parsers must produce the same sequence of messages.</li>
+ * <li>Benchmark: typical codec encoded messages are decoded by both parsers and the throughput
+ * of each one is printed at the end of each round.</li>
+ * </ul>
+ * The exit status is 1 if any mismatch is detected.
+ * <p>
+ * Usage: <code>java jade.lang.acl.StringACLParserBenchmark [-messages N] [-streams N] [-rounds N] [-seed N]</code>
+ * <ul>
+ * <li>messages: number of random messages of the check (default 100000)</li>
+ * <li>streams: number of message sequences read in stream mode (default 300)</li>
+ * <li>rounds: number of benchmark rounds. The first ones just warm up the JVM (default 5)</li>
+ * <li>seed: seed of the random generator (default 42)</li>
+ * </ul>
+ */
+public class StringACLParserBenchmark {
+    private static final String[] CHARSETS = {"US-ASCII", "ISO-8859-1", "UTF-8"};
+    private static final int ROUND_TRIP_MESSAGES = 3000;
+    private static final int MESSAGES_PER_STREAM = 200;
+    private static final int BENCHMARK_MESSAGES = 1000;
+    private static final int BENCHMARK_REPETITIONS = 200;
+    private static final int MAX_REPORTED_MISMATCHES = 10;
+
+    // Values, well formed or not, placed wherever the grammar expects a word, a string or an expression
+    private static final String[] ATOMS = {"abc", "\"a b\"", "\"a\\\"b\"", "12", "-3.5e2", "+7", ".5",
+            "20201019T101112133Z", "20201019T101112133", "#3\"xyz", "#0\"", "(x (y 12) \"q r\")", "\"\"",
+            "\"x\"y", "a\\\"b", "'q", "x:y@p", "http://h:7778/acc", "\"\\\\\"", "é", "\"é ü\"",
+            "-", "#-1\"a", "1.", "1e", "1.2.3", "+abc", "\"abc", ")", "(", "::", "\"a\nb\"", "a\tb", "\u0001"};
+    // The first WELL_FORMED_ATOMS atoms are valid in any position
+    private static final int WELL_FORMED_ATOMS = 21;
+    private static final String[] PARAMETERS = {":sender", ":receiver", ":content", ":reply-with", ":reply-by",
+            ":in-reply-to", ":reply-to", ":encoding", ":language", ":ontology", ":protocol", ":conversation-id",
+            ":X-foo", ":x-bar", ":X-é", ":CONTENT", ":x-"};
+    private static final String MUTATIONS = " ()\":#\\ax1-";
+
+    private final Random rnd;
+    private int checked = 0;
+    private int mismatches = 0;
+
+    private StringACLParserBenchmark(long seed) {
+        rnd = new Random(seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int nMessages = 100000;
+        int nStreams = 300;
+        int nRounds = 5;
+        long seed = 42;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-messages" -> nMessages = Integer.parseInt(value);
+                case "-streams" -> nStreams = Integer.parseInt(value);
+                case "-rounds" -> nRounds = Integer.parseInt(value);
+                case "-seed" -> seed = Long.parseLong(value);
+                default -> {
+                    System.out.println("Unknown option " + args[i]);
+                    System.exit(1);
+                }
+            }
+        }
+
+        StringACLParserBenchmark b = new StringACLParserBenchmark(seed);
+        b.checkRoundTrip();
+        b.checkRandom(nMessages);
+        b.checkStreams(nStreams);
+        System.out.println("Checked " + b.checked + " messages/streams: " + b.mismatches + " mismatches");
+
+        b.benchmark(nRounds);
+        System.exit(b.mismatches > 0 ? 1 : 0);
+    }
+
+    /**
+     * Messages encoded by the StringACLCodec, including non ASCII content, byte sequence
+     * content and UTF-16 (always handled by the ACLParser)
+     */
+    private void checkRoundTrip() {
+        StringACLCodec codec = new StringACLCodec();
+        for (int i = 0; i < ROUND_TRIP_MESSAGES; ++i) {
+            ACLMessage msg = new ACLMessage(rnd.nextInt(ACLMessage.getAllPerformativeNames().length));
+            AID sender = new AID("s" + i + "@p", AID.ISGUID);
+            sender.addAddresses("http://h:7778/acc");
+            msg.setSender(sender);
+            msg.addReceiver(new AID("r \"x\" " + i, AID.ISGUID));
+            msg.setContent(i % 3 == 0 ? "((action x \"y\" 12))" : "hé \"quoted\" (" + i);
+            msg.setConversationId("c-" + i);
+            msg.setReplyWith(i % 2 == 0 ? "rw" + i : "12.5");
+            msg.setOntology("o n");
+            msg.setLanguage("fipa-sl");
+            msg.setProtocol("fipa-request");
+            msg.setReplyByDate(new Date(1600000000000L + i));
+            msg.addUserDefinedParameter("k" + i, "v " + i);
+            if (i % 5 == 0) {
+                msg.setByteSequenceContent(new byte[]{1, 2, (byte) 200});
+            }
+            for (String cs : CHARSETS) {
+                check(codec.encode(msg, cs), cs);
+            }
+            check(codec.encode(msg, "UTF-16"), "UTF-16");
+        }
+    }
+
+    /**
+     * Random messages, half of them mutated at random positions, parsed in all charsets
+     */
+    private void checkRandom(int nMessages) {
+        for (int i = 0; i < nMessages; ++i) {
+            String s = randomMessage(i % 4 == 0 ? WELL_FORMED_ATOMS : ATOMS.length, PARAMETERS.length);
+            if (i % 2 == 1) {
+                s = mutate(s);
+            }
+            byte[] data = s.getBytes(StandardCharsets.UTF_8);
+            for (String cs : CHARSETS) {
+                check(data, cs);
+            }
+        }
+    }
+
+    private void check(byte[] data, String cs) {
+        checked++;
+        String expected;
+        try {
+            expected = dump(ACLParser.create().parse(new InputStreamReader(new ByteArrayInputStream(data), cs)));
+        } catch (Throwable t) {
+            expected = "ERROR " + t.getClass().getName();
+        }
+        String actual;
+        try {
+            actual = dump(StringACLParser.getInstance().parse(data, 0, data.length, cs));
+        } catch (Throwable t) {
+            actual = "ERROR " + t.getClass().getName();
+        }
+        if (!expected.equals(actual)) {
+            mismatch("Mismatch in " + cs + "\n  input:            " + new String(data, StandardCharsets.ISO_8859_1) + "\n  ACLParser:       " + expected + "\n  StringACLParser: " + actual);
+        }
+    }
+
+    /**
+     * Sequences of messages (a limited vocabulary in half of them so that most sequences are
+     * decoded natively to the end) read from a stream returning chunks of random size
+     */
+    private void checkStreams(int nStreams) {
+        for (int t = 0; t < nStreams; ++t) {
+            int nAtoms = ATOMS.length;
+            int nParameters = PARAMETERS.length;
+            if (t % 2 == 0) {
+                nAtoms = 1;
+                nParameters = 3;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < MESSAGES_PER_STREAM; ++i) {
+                sb.append(randomMessage(nAtoms, nParameters)).append(i % 3 == 0 ? "\n" : " ");
+            }
+            byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+            List<String> expected = readAll(new ACLParser(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8)), null);
+            List<String> actual = readAll(null, new StringACLParser(new ChunkedInputStream(data, rnd.nextLong()), StandardCharsets.UTF_8));
+            checked++;
+            if (!expected.equals(actual)) {
+                mismatch("Mismatch in stream " + t + ": ACLParser read " + expected.size() + " messages, StringACLParser read " + actual.size() + " messages");
+            }
+        }
+    }
+
+    private static List<String> readAll(ACLParser reference, StringACLParser parser) {
+        List<String> l = new ArrayList<>();
+        while (true) {
+            try {
+                l.add(dump(reference != null ? reference.Message() : parser.next()));
+            } catch (Throwable t) {
+                // The end of the stream is reported as an error too
+                l.add("ERROR " + t.getClass().getName());
+                return l;
+            }
+        }
+    }
+
+    private void benchmark(int nRounds) throws Exception {
+        StringACLCodec codec = new StringACLCodec();
+        byte[][] messages = new byte[BENCHMARK_MESSAGES][];
+        for (int i = 0; i < messages.length; ++i) {
+            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+            AID sender = new AID("sender" + i + "@host:1099/JADE", AID.ISGUID);
+            sender.addAddresses("http://host:7778/acc");
+            msg.setSender(sender);
+            AID receiver = new AID("receiver" + i + "@host:1099/JADE", AID.ISGUID);
+            receiver.addAddresses("http://host:7778/acc");
+            msg.addReceiver(receiver);
+            msg.setContent("((result (action (agent-identifier :name x@p) (get-price \"item " + i + "\")) " + (i * 1.5) + "))");
+            msg.setLanguage("fipa-sl");
+            msg.setOntology("shop-ontology");
+            msg.setProtocol("fipa-request");
+            msg.setConversationId("C" + i + "_" + System.nanoTime());
+            msg.setInReplyTo("R" + i);
+            msg.setReplyByDate(new Date());
+            messages[i] = codec.encode(msg, "US-ASCII");
+        }
+        System.out.println("Average message size = " + messages[0].length + " bytes");
+
+        long nDecoded = (long) BENCHMARK_REPETITIONS * messages.length;
+        for (int round = 1; round <= nRounds; ++round) {
+            long start = System.nanoTime();
+            for (int k = 0; k < BENCHMARK_REPETITIONS; ++k) {
+                for (byte[] data : messages) {
+                    ACLParser.create().parse(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.US_ASCII));
+                }
+            }
+            long referenceTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int k = 0; k < BENCHMARK_REPETITIONS; ++k) {
+                for (byte[] data : messages) {
+                    StringACLParser.getInstance().parse(data, 0, data.length, "US-ASCII");
+                }
+            }
+            long time = System.nanoTime() - start;
+
+            System.out.println("Round " + round + ": ACLParser = " + nDecoded * 1000000000L / referenceTime + " msg/s, StringACLParser = " + nDecoded * 1000000000L / time + " msg/s (x" + Math.round(10.0 * referenceTime / time) / 10.0 + ")");
+        }
+    }
+
+    private void mismatch(String description) {
+        if (++mismatches <= MAX_REPORTED_MISMATCHES) {
+            System.out.println(description);
+        }
+    }
+
+    private String randomMessage(int nAtoms, int nParameters) {
+        StringBuilder sb = new StringBuilder("(");
+        String[] performatives = ACLMessage.getAllPerformativeNames();
+        String p = performatives[rnd.nextInt(performatives.length)];
+        sb.append(rnd.nextBoolean() ? p.toLowerCase() : p);
+        int n = rnd.nextInt(8);
+        for (int i = 0; i < n; ++i) {
+            String param = PARAMETERS[rnd.nextInt(nParameters)];
+            // Sometimes glue the parameter to the previous token
+            sb.append(rnd.nextInt(10) == 0 ? "" : " ").append(param).append(' ');
+            switch (param) {
+                case ":sender" -> sb.append(randomAID(nAtoms, 0));
+                case ":receiver", ":reply-to" -> sb.append("(set ").append(randomAID(nAtoms, 0)).append(' ').append(randomAID(nAtoms, 0)).append(')');
+                default -> sb.append(randomAtom(nAtoms));
+            }
+        }
+        // Sometimes omit the closing parenthesis
+        if (rnd.nextInt(20) != 0) {
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    private String randomAID(int nAtoms, int depth) {
+        StringBuilder sb = new StringBuilder("(agent-identifier :name ").append(randomAtom(nAtoms));
+        if (rnd.nextBoolean()) {
+            sb.append(" :addresses (sequence ").append(randomAtom(nAtoms)).append(' ').append(randomAtom(nAtoms)).append(')');
+        }
+        if (depth < 2 && rnd.nextInt(4) == 0) {
+            sb.append(" :resolvers (sequence ").append(randomAID(nAtoms, depth + 1)).append(')');
+        }
+        if (rnd.nextInt(3) == 0) {
+            sb.append(" :X-slot").append(rnd.nextInt(3)).append(' ').append(randomAtom(nAtoms));
+        }
+        return sb.append(')').toString();
+    }
+
+    private String randomAtom(int nAtoms) {
+        return ATOMS[rnd.nextInt(nAtoms)];
+    }
+
+    private String mutate(String s) {
+        char[] c = s.toCharArray();
+        int n = rnd.nextInt(3);
+        for (int i = 0; i < n; ++i) {
+            c[rnd.nextInt(c.length)] = MUTATIONS.charAt(rnd.nextInt(MUTATIONS.length()));
+        }
+        return new String(c);
+    }
+
+    // A textual representation of all the fields of a message, used to compare parsing results
+    private static String dump(ACLMessage msg) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(msg.getPerformative()).append(dump(msg.getSender())).append(" R[");
+        for (Iterator<AID> it = msg.getAllReceiver(); it.hasNext(); ) {
+            sb.append(dump(it.next()));
+        }
+        sb.append("] RT[");
+        for (Iterator<AID> it = msg.getAllReplyTo(); it.hasNext(); ) {
+            sb.append(dump(it.next()));
+        }
+        sb.append("] C=").append(msg.hasByteSequenceContent() ? Arrays.toString(msg.getByteSequenceContent()) : msg.getContent());
+        sb.append(" RW=").append(msg.getReplyWith()).append(" IRT=").append(msg.getInReplyTo());
+        sb.append(" E=").append(msg.getEncoding()).append(" L=").append(msg.getLanguage());
+        sb.append(" O=").append(msg.getOntology()).append(" RB=").append(msg.getReplyByDate());
+        sb.append(" P=").append(msg.getProtocol()).append(" CID=").append(msg.getConversationId());
+        sb.append(" U=").append(new TreeMap<>(msg.getAllUserDefinedParameters()));
+        return sb.toString();
+    }
+
+    private static String dump(AID id) {
+        if (id == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("{").append(id.getName()).append('|');
+        for (Iterator<String> it = id.getAllAddresses(); it.hasNext(); ) {
+            sb.append(it.next()).append(',');
+        }
+        sb.append('|');
+        for (Iterator<AID> it = id.getAllResolvers(); it.hasNext(); ) {
+            sb.append(dump(it.next()));
+        }
+        return sb.append('|').append(new TreeMap<>(id.getAllUserDefinedSlot())).append('}').toString();
+    }
+
+    /**
+     * Inner class ChunkedInputStream.
+     * Returns the given bytes in chunks of random size (at most 40 bytes), as a socket may do
+     */
+    private static class ChunkedInputStream extends FilterInputStream {
+        private final Random chunks;
+
+        ChunkedInputStream(byte[] data, long seed) {
+            super(new ByteArrayInputStream(data));
+            chunks = new Random(seed);
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1 + chunks.nextInt(40)));
+        }
+    } // END of inner class ChunkedInputStream
+}
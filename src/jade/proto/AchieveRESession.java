@@ -0,0 +1,241 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.proto;
+
+import jade.lang.acl.ACLMessage;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A lightweight counterpart of <code>AchieveREInitiator</code> to be executed by a
+ * <code>ConversationDispatcher</code>. It supports the same FIPA-Request-like protocols and
+ * the same callback methods, but is not a behaviour and therefore cannot register
+ * behaviours as protocol state handlers.
+ *
+ * @see AchieveREInitiator
+ * @see ConversationDispatcher
+ */
+public class AchieveRESession extends ConversationSession {
+    @Serial
+    private static final long serialVersionUID = -1387201652480114526L;
+
+    // Responder states
+    private static final int INIT = 0;
+    private static final int POSITIVE_RESPONSE_RECEIVED = 1;
+    private static final int NEGATIVE_RESPONSE_RECEIVED = 2;
+    private static final int RESULT_NOTIFICATION_RECEIVED = 3;
+
+    private final ACLMessage request;
+    // Created only when needed to keep the session compact
+    private List<ACLMessage> responses;
+    private List<ACLMessage> resultNotifications;
+    private boolean allResponsesReceived = false;
+
+    /**
+     * @param request The message that must be used to initiate the protocol.
+     *                The value of the <code>:reply-with</code> slot is ignored and a different value
+     *                is assigned automatically for each receiver.
+     */
+    public AchieveRESession(ACLMessage request) {
+        this.request = request;
+    }
+
+    public final ACLMessage getRequest() {
+        return request;
+    }
+
+    protected final List<ACLMessage> prepareInitiations() {
+        return prepareRequests(request);
+    }
+
+    protected void handleReply(ACLMessage reply, int responderIndex) {
+        int perf = reply.getPerformative();
+        if (responderIndex < 0 || !update(responderIndex, perf)) {
+            handleOutOfSequence(reply);
+            return;
+        }
+        switch (perf) {
+            case ACLMessage.AGREE -> handleAgree(reply);
+            case ACLMessage.REFUSE -> handleRefuse(reply);
+            case ACLMessage.NOT_UNDERSTOOD -> handleNotUnderstood(reply);
+            case ACLMessage.INFORM -> handleInform(reply);
+            case ACLMessage.FAILURE -> handleFailure(reply);
+        }
+        if (getResponderState(responderIndex) == RESULT_NOTIFICATION_RECEIVED) {
+            if (resultNotifications == null) {
+                resultNotifications = new ArrayList<>(getRespondersCnt());
+            }
+            resultNotifications.add(reply);
+        } else {
+            if (responses == null) {
+                responses = new ArrayList<>(getRespondersCnt());
+            }
+            responses.add(reply);
+        }
+        checkSessions();
+    }
+
+    protected void handleTimeout() {
+        if (!allResponsesReceived) {
+            // Stop waiting for responders that did not reply at all
+            for (int i = 0; i < getRespondersCnt(); i++) {
+                if (getResponderState(i) == INIT) {
+                    setResponderState(i, DROPPED);
+                }
+            }
+            checkSessions();
+        }
+    }
+
+    /**
+     * Return true if the received performative is valid with respect to
+     * the current state of the given responder.
+     */
+    private boolean update(int index, int perf) {
+        switch (getResponderState(index)) {
+            case INIT:
+                switch (perf) {
+                    case ACLMessage.AGREE:
+                        setResponderState(index, POSITIVE_RESPONSE_RECEIVED);
+                        return true;
+                    case ACLMessage.REFUSE:
+                    case ACLMessage.NOT_UNDERSTOOD:
+                        setResponderState(index, NEGATIVE_RESPONSE_RECEIVED);
+                        return true;
+                    case ACLMessage.INFORM:
+                    case ACLMessage.FAILURE:
+                        setResponderState(index, RESULT_NOTIFICATION_RECEIVED);
+                        return true;
+                    default:
+                        return false;
+                }
+            case POSITIVE_RESPONSE_RECEIVED:
+                switch (perf) {
+                    case ACLMessage.INFORM:
+                    case ACLMessage.FAILURE:
+                        setResponderState(index, RESULT_NOTIFICATION_RECEIVED);
+                        return true;
+                    default:
+                        return false;
+                }
+            default:
+                return false;
+        }
+    }
+
+    private void checkSessions() {
+        if (!allResponsesReceived && countResponders(INIT) == 0) {
+            allResponsesReceived = true;
+            // As in AchieveREInitiator, result notifications are waited for with no timeout
+            setDeadline(-1);
+            handleAllResponses(responses != null ? responses : Collections.emptyList());
+        }
+        if (allResponsesReceived && countResponders(POSITIVE_RESPONSE_RECEIVED) == 0) {
+            handleAllResultNotifications(resultNotifications != null ? resultNotifications : Collections.emptyList());
+            end();
+        }
+    }
+
+    /**
+     * This method must return the list of ACLMessage objects to be sent.
+     * This default implementation just returns the ACLMessage object passed in the constructor.
+     *
+     * @see AchieveREInitiator#prepareRequests(ACLMessage)
+     */
+    protected List<ACLMessage> prepareRequests(ACLMessage request) {
+        List<ACLMessage> l = new ArrayList<>(1);
+        l.add(request);
+        return l;
+    }
+
+    /**
+     * This method is called every time an <code>agree</code> message is received,
+     * which is not out-of-sequence according to the protocol rules.
+     * This default implementation does nothing.
+     */
+    protected void handleAgree(ACLMessage agree) {
+    }
+
+    /**
+     * This method is called every time a <code>refuse</code> message is received,
+     * which is not out-of-sequence according to the protocol rules.
+     * This default implementation does nothing.
+     */
+    protected void handleRefuse(ACLMessage refuse) {
+    }
+
+    /**
+     * This method is called every time a <code>not-understood</code> message is received,
+     * which is not out-of-sequence according to the protocol rules.
+     * This default implementation does nothing.
+     */
+    protected void handleNotUnderstood(ACLMessage notUnderstood) {
+    }
+
+    /**
+     * This method is called every time an <code>inform</code> message is received,
+     * which is not out-of-sequence according to the protocol rules.
+     * This default implementation does nothing.
+     */
+    protected void handleInform(ACLMessage inform) {
+    }
+
+    /**
+     * This method is called every time a <code>failure</code> message is received,
+     * which is not out-of-sequence according to the protocol rules.
+     * This default implementation does nothing.
+     */
+    protected void handleFailure(ACLMessage failure) {
+    }
+
+    /**
+     * This method is called every time a message is received, which is out-of-sequence
+     * according to the protocol rules.
+     * This default implementation does nothing.
+     */
+    protected void handleOutOfSequence(ACLMessage msg) {
+    }
+
+    /**
+     * This method is called when all the responses have been collected or when the timeout
+     * (i.e. the minimum <code>:reply-by</code> of the sent messages) is expired.
+     * This default implementation does nothing.
+     *
+     * @see AchieveREInitiator#handleAllResponses(List)
+     */
+    protected void handleAllResponses(List<ACLMessage> responses) {
+    }
+
+    /**
+     * This method is called when all the result notification messages have been collected.
+     * This default implementation does nothing.
+     *
+     * @see AchieveREInitiator#handleAllResultNotifications(List)
+     */
+    protected void handleAllResultNotifications(List<ACLMessage> resultNotifications) {
+    }
+}
@@ -443,6 +443,8 @@ public class ContractNetInitiator extends Initiator {
     protected int checkSessions(ACLMessage reply) {
         if (skipNextRespFlag) {
             mapSessions.clear();
+            // Only skip the responses of the current step: result notifications must still be collected
+            skipNextRespFlag = false;
         }
 
         int ret = (step == 1 ? ALL_RESPONSES_RECEIVED : ALL_RESULT_NOTIFICATIONS_RECEIVED);
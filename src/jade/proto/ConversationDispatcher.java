@@ -0,0 +1,345 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.proto;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+import java.io.Serial;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A behaviour that drives any number of concurrent initiator-side protocol sessions
+ * (see <code>ConversationSession</code>) on behalf of its agent. Compared to running an
+ * <code>Initiator</code> based behaviour per conversation this
+ * <ul>
+ * <li>receives replies once for all sessions and routes them to the proper session by means
+ * of the <code>:in-reply-to</code> slot (or the <code>:conversation-id</code> slot if the
+ * conversation identifier was generated) through a hash index</li>
+ * <li>keeps per-session state in a single compact object instead of a whole FSM</li>
+ * <li>manages all session timeouts by means of a single timer wheel</li>
+ * </ul>
+ * Typical usage:
+ * <pre>
+ * ConversationDispatcher dispatcher = new ConversationDispatcher(this);
+ * addBehaviour(dispatcher);
+ * ...
+ * dispatcher.start(new AchieveRESession(request) {
+ *     protected void handleInform(ACLMessage inform) {
+ *         ...
+ *     }
+ * });
+ * </pre>
+ * The dispatcher and its sessions must be accessed by the agent thread only. The only exception
+ * is the wakeup template, which any thread posting a message to the agent evaluates. It only
+ * reads the session index.
+ *
+ * @see AchieveRESession
+ */
+public class ConversationDispatcher extends CyclicBehaviour {
+    @Serial
+    private static final long serialVersionUID = -3960171618716049233L;
+
+    private static final char RESPONDER_SEPARATOR = '#';
+    private static final long DEFAULT_TICK_DURATION = 100;
+    private static final int WHEEL_SIZE = 512;
+    // Maximum number of replies dispatched in a single action() so that other behaviours are not starved
+    private static final int MAX_DISPATCHED_PER_ACTION = 100;
+
+    // Also read by the threads posting messages to the agent, that evaluate the wakeup template
+    private final Map<String, ConversationSession> sessions = new ConcurrentHashMap<>();
+    private final MessageTemplate template;
+    private final long tickDuration;
+    private long cnt = 0;
+
+    // The timer wheel: each slot is the head of a doubly linked list of sessions whose
+    // deadline falls in a tick mapped to that slot
+    private final ConversationSession[] wheel = new ConversationSession[WHEEL_SIZE];
+    private long currentTick = -1;
+    private int timersCnt = 0;
+
+    public ConversationDispatcher(Agent a) {
+        this(a, DEFAULT_TICK_DURATION);
+    }
+
+    /**
+     * @param a            The agent this dispatcher belongs to
+     * @param tickDuration The resolution (ms) of session deadlines
+     */
+    public ConversationDispatcher(Agent a, long tickDuration) {
+        super(a);
+        this.tickDuration = tickDuration > 0 ? tickDuration : DEFAULT_TICK_DURATION;
+        template = new MessageTemplate((MessageTemplate.MatchExpression) this::isReply);
+        // Do not wake up at the arrival of messages that are not replies for any session
+        setWakeupTemplate(template);
+    }
+
+    /**
+     * Start a new session: send its initiation messages and route the replies to it.
+     *
+     * @return the number of responders the initiation messages were sent to.
+     * If 0 the session is immediately terminated.
+     */
+    public int start(ConversationSession s) {
+        List<ACLMessage> initiations = s.prepareInitiations();
+        long now = System.currentTimeMillis();
+        String key = "D" + hashCode() + "_" + myAgent.getLocalName() + "_" + (cnt++);
+        String convId = null;
+        if (initiations != null && !initiations.isEmpty() && initiations.get(0) != null) {
+            convId = initiations.get(0).getConversationId();
+        }
+        s.dispatcher = this;
+        s.key = key;
+        s.generatedConversationId = (convId == null);
+        s.conversationId = (convId != null ? convId : key);
+
+        List<AID> responders = new ArrayList<>();
+        List<ACLMessage> toSend = new ArrayList<>();
+        long deadline = -1;
+        if (initiations != null) {
+            for (ACLMessage initiation : initiations) {
+                if (initiation != null) {
+                    for (Iterator<AID> receivers = initiation.getAllReceiver(); receivers.hasNext(); ) {
+                        ACLMessage m = (ACLMessage) initiation.clone();
+                        m.setConversationId(s.conversationId);
+                        m.clearAllReceiver();
+                        m.addReceiver(receivers.next());
+                        m.setReplyWith(key + RESPONDER_SEPARATOR + responders.size());
+                        responders.add(m.getAllReceiver().next());
+                        toSend.add(m);
+                    }
+                    Date d = initiation.getReplyByDate();
+                    if (d != null && d.getTime() > now && (deadline <= 0 || d.getTime() < deadline)) {
+                        deadline = d.getTime();
+                    }
+                }
+            }
+        }
+        s.setResponders(responders.toArray(new AID[0]));
+        if (responders.isEmpty()) {
+            s.end();
+            return 0;
+        }
+        sessions.put(key, s);
+        s.deadline = deadline;
+        reschedule(s);
+        for (ACLMessage m : toSend) {
+            myAgent.send(m);
+        }
+        // Take the new deadline (if any) into account
+        restart();
+        return responders.size();
+    }
+
+    /**
+     * @return the number of active sessions
+     */
+    public int getSessionsCnt() {
+        return sessions.size();
+    }
+
+    public void action() {
+        int k = 0;
+        ACLMessage msg;
+        while (k < MAX_DISPATCHED_PER_ACTION && (msg = myAgent.receive(template)) != null) {
+            dispatch(msg);
+            k++;
+        }
+        long now = System.currentTimeMillis();
+        expireTimers(now);
+        if (k == MAX_DISPATCHED_PER_ACTION) {
+            // There may be other replies: do not block
+            return;
+        }
+        long next = getNextTimerTime(now);
+        if (next > 0) {
+            block(Math.max(next - now, 1));
+        } else {
+            block();
+        }
+    }
+
+    private void dispatch(ACLMessage msg) {
+        String inReplyTo = msg.getInReplyTo();
+        ConversationSession s = lookup(msg);
+        if (s != null) {
+            int index = -1;
+            int sep = inReplyTo != null ? inReplyTo.lastIndexOf(RESPONDER_SEPARATOR) : -1;
+            if (sep > 0 && inReplyTo.startsWith(s.key)) {
+                try {
+                    index = Integer.parseInt(inReplyTo.substring(sep + 1));
+                } catch (NumberFormatException nfe) {
+                    // Just ignore it
+                }
+            } else {
+                index = s.getResponderIndex(msg.getSender());
+            }
+            if (index >= s.getRespondersCnt()) {
+                index = -1;
+            }
+            s.handleReply(msg, index);
+        }
+    }
+
+    private ConversationSession lookup(ACLMessage msg) {
+        ConversationSession s = null;
+        String inReplyTo = msg.getInReplyTo();
+        if (inReplyTo != null) {
+            int sep = inReplyTo.lastIndexOf(RESPONDER_SEPARATOR);
+            if (sep > 0) {
+                s = sessions.get(inReplyTo.substring(0, sep));
+            }
+        } else {
+            String convId = msg.getConversationId();
+            if (convId != null) {
+                s = sessions.get(convId);
+                if (s != null && (!s.generatedConversationId || convId.equals(stripResponder(msg.getReplyWith())))) {
+                    // Either the conversation-id is not ours or this is one of our initiations (sent to ourselves)
+                    s = null;
+                }
+            }
+        }
+        return s;
+    }
+
+    private static String stripResponder(String replyWith) {
+        if (replyWith != null) {
+            int sep = replyWith.lastIndexOf(RESPONDER_SEPARATOR);
+            if (sep > 0) {
+                return replyWith.substring(0, sep);
+            }
+        }
+        return null;
+    }
+
+    private boolean isReply(ACLMessage msg) {
+        return lookup(msg) != null;
+    }
+
+    void remove(ConversationSession s) {
+        sessions.remove(s.key);
+        cancelTimer(s);
+    }
+
+    ///////////////////////////////////
+    // Timer wheel
+    ///////////////////////////////////
+
+    void reschedule(ConversationSession s) {
+        cancelTimer(s);
+        if (s.deadline > 0 && sessions.containsKey(s.key)) {
+            long tick = s.deadline / tickDuration;
+            if (currentTick >= 0 && tick < currentTick) {
+                tick = currentTick;
+            }
+            int slot = (int) (tick % WHEEL_SIZE);
+            s.timerSlot = slot;
+            s.prevTimer = null;
+            s.nextTimer = wheel[slot];
+            if (wheel[slot] != null) {
+                wheel[slot].prevTimer = s;
+            }
+            wheel[slot] = s;
+            timersCnt++;
+        }
+    }
+
+    private void cancelTimer(ConversationSession s) {
+        if (s.timerSlot >= 0) {
+            if (s.prevTimer != null) {
+                s.prevTimer.nextTimer = s.nextTimer;
+            } else {
+                wheel[s.timerSlot] = s.nextTimer;
+            }
+            if (s.nextTimer != null) {
+                s.nextTimer.prevTimer = s.prevTimer;
+            }
+            s.timerSlot = -1;
+            s.prevTimer = null;
+            s.nextTimer = null;
+            timersCnt--;
+        }
+    }
+
+    private void expireTimers(long now) {
+        long nowTick = now / tickDuration;
+        if (currentTick < 0 || timersCnt == 0) {
+            currentTick = nowTick;
+            if (timersCnt == 0) {
+                return;
+            }
+        }
+        List<ConversationSession> expired = null;
+        long ticks = Math.min(nowTick - currentTick, WHEEL_SIZE - 1);
+        for (long t = nowTick - ticks; t <= nowTick; t++) {
+            for (ConversationSession s = wheel[(int) (t % WHEEL_SIZE)]; s != null; s = s.nextTimer) {
+                if (s.deadline <= now) {
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add(s);
+                }
+            }
+        }
+        currentTick = nowTick;
+        if (expired != null) {
+            for (ConversationSession s : expired) {
+                // A previous handler may have ended the session or moved its deadline
+                if (s.timerSlot >= 0 && s.deadline <= now) {
+                    cancelTimer(s);
+                    s.deadline = -1;
+                    s.handleTimeout();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the time the next timer may expire at (possibly earlier) or -1 if there are no timers
+     */
+    private long getNextTimerTime(long now) {
+        if (timersCnt == 0) {
+            return -1;
+        }
+        // Sessions in the current slot may expire within the current tick or in later rounds
+        long next = -1;
+        for (ConversationSession s = wheel[(int) (currentTick % WHEEL_SIZE)]; s != null; s = s.nextTimer) {
+            if (next < 0 || s.deadline < next) {
+                next = s.deadline;
+            }
+        }
+        for (int i = 1; i < WHEEL_SIZE; i++) {
+            long t = currentTick + i;
+            if (wheel[(int) (t % WHEEL_SIZE)] != null) {
+                long slotTime = t * tickDuration;
+                return next < 0 ? slotTime : Math.min(next, slotTime);
+            }
+        }
+        return next;
+    }
+}
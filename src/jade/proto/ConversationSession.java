@@ -0,0 +1,188 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.proto;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The compact state of an interaction protocol played by the initiator side and driven by a
+ * <code>ConversationDispatcher</code>. Unlike the <code>Initiator</code> based behaviours, a session is
+ * not a behaviour: it does not receive messages by itself, but is passed the replies that the
+ * dispatcher routes to it on the basis of their <code>:in-reply-to</code> slot.
+ * <p>
+ * The state of the protocol with respect to each responder is kept as an integer whose meaning is
+ * defined by concrete subclasses (initially 0). Responders are identified by their index in the order the initiation
+ * messages were sent.
+ *
+ * @see ConversationDispatcher
+ * @see AchieveRESession
+ */
+public abstract class ConversationSession implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 4301838209137706311L;
+
+    // Responder state meaning that no reply is expected any longer from a responder
+    protected static final int DROPPED = -1;
+
+    // Dispatcher bookkeeping
+    ConversationDispatcher dispatcher;
+    String key;
+    String conversationId;
+    boolean generatedConversationId;
+    long deadline = -1;
+    // Timer wheel links
+    int timerSlot = -1;
+    ConversationSession prevTimer;
+    ConversationSession nextTimer;
+
+    private AID[] responders;
+    private int[] states;
+    private boolean ended = false;
+
+    /**
+     * This method must return the list of messages to be sent to start the protocol.
+     * The values of the <code>:reply-with</code> slot are ignored and a different value
+     * is assigned automatically for each receiver. If the first message has a non-empty
+     * <code>:conversation-id</code> slot, its value is used, else a new conversation
+     * identifier is generated. The minimum <code>:reply-by</code> of the messages, if any,
+     * is used as the initial session deadline.
+     */
+    protected abstract List<ACLMessage> prepareInitiations();
+
+    /**
+     * This method is called by the dispatcher each time a reply for this session is received
+     *
+     * @param reply          The reply
+     * @param responderIndex The index of the responder the reply refers to, or -1 if it cannot be determined
+     */
+    protected abstract void handleReply(ACLMessage reply, int responderIndex);
+
+    /**
+     * This method is called by the dispatcher when the session deadline expires
+     */
+    protected abstract void handleTimeout();
+
+    /**
+     * This method is called once when the session ends.
+     * This default implementation does nothing.
+     */
+    public void onEnd() {
+    }
+
+    public final String getConversationId() {
+        return conversationId;
+    }
+
+    public final ConversationDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public final Agent getAgent() {
+        return dispatcher != null ? dispatcher.getAgent() : null;
+    }
+
+    public final boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * Set the time (ms since the epoch) at which the <code>handleTimeout()</code> method must be called.
+     * A value &lt;= 0 removes the deadline.
+     */
+    protected final void setDeadline(long deadline) {
+        this.deadline = deadline;
+        if (dispatcher != null && !ended) {
+            dispatcher.reschedule(this);
+        }
+    }
+
+    public final long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Terminate this session: no more replies are routed to it.
+     */
+    protected final void end() {
+        if (!ended) {
+            ended = true;
+            if (dispatcher != null) {
+                dispatcher.remove(this);
+            }
+            onEnd();
+        }
+    }
+
+    protected final int getRespondersCnt() {
+        return responders != null ? responders.length : 0;
+    }
+
+    protected final AID getResponder(int index) {
+        return responders[index];
+    }
+
+    protected final int getResponderState(int index) {
+        return states[index];
+    }
+
+    protected final void setResponderState(int index, int state) {
+        states[index] = state;
+    }
+
+    /**
+     * @return the number of responders whose state is the given one
+     */
+    protected final int countResponders(int state) {
+        int cnt = 0;
+        for (int i = 0; i < getRespondersCnt(); i++) {
+            if (states[i] == state) {
+                cnt++;
+            }
+        }
+        return cnt;
+    }
+
+    int getResponderIndex(AID sender) {
+        for (int i = 0; i < getRespondersCnt(); i++) {
+            if (responders[i].equals(sender)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Called by the dispatcher before sending the initiation messages
+     */
+    void setResponders(AID[] rr) {
+        responders = rr;
+        states = new int[rr.length];
+    }
+}
@@ -195,6 +195,7 @@ public class SSIteratedAchieveREResponder extends SSResponder {
     public void registerHandleRequest(Behaviour b) {
         registerFirstState(b, HANDLE_REQUEST);
         b.setMapMessagesList(getMapMessagesList());
+        b.setMapMessages(getMapMessages());
     }
 
     /**
@@ -38,6 +38,10 @@ public abstract class SSResponderDispatcher extends CyclicBehaviour {
         return "C-" + name + '-' + System.currentTimeMillis() + '-' + (cnt++);
     }
 
+    public MessageTemplate getWakeupTemplate() {
+        return template;
+    }
+
     public final void action() {
         ACLMessage msg = myAgent.receive(template);
         if (msg != null) {
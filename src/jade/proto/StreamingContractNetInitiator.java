@@ -0,0 +1,450 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.proto;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+import jade.util.Logger;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A <code>ContractNetInitiator</code> meant for calls for proposals addressed to a large number of
+ * responders. Instead of collecting all responses and evaluating them in
+ * <code>handleAllResponses()</code>, each <code>PROPOSE</code> is scored as soon as it is received
+ * (see the <code>evaluate()</code> method) and only the best <code>k</code> proposals are kept.
+ * The award (i.e. the transmission of the <code>ACCEPT_PROPOSAL</code> messages) takes place
+ * <ul>
+ * <li>when all responders replied or the <code>:reply-by</code> deadline expired, as in the
+ * <code>ContractNetInitiator</code>, or</li>
+ * <li>as soon as a quorum of responses was received (see <code>setQuorum()</code>), or</li>
+ * <li>as soon as <code>k</code> proposals scoring at least a given threshold were received
+ * (see <code>setQualityThreshold()</code>).</li>
+ * </ul>
+ * At award time all other responders, including those that did not reply yet, are sent
+ * <code>REJECT_PROPOSAL</code> messages in batches (one message with many receivers for each batch).
+ * Responses received after an early award are handled as out of sequence.
+ * <p>
+ * For each round statistics about the response times of the responders and the award latency are
+ * collected (see <code>handleRoundCompleted()</code>).
+ * <p>
+ * Since responses are not kept, the <code>handlePropose()</code> and <code>handleAllResponses()</code>
+ * methods cannot be redefined and the Iterated-Contract-Net protocol is not supported.
+ *
+ * @see ContractNetInitiator
+ */
+public abstract class StreamingContractNetInitiator extends ContractNetInitiator {
+    @Serial
+    private static final long serialVersionUID = -2179584325367950301L;
+
+    /**
+     * Default maximum number of receivers of a single batched REJECT_PROPOSAL message
+     */
+    public static final int DEFAULT_REJECT_BATCH_SIZE = 500;
+
+    private final int k;
+    private int quorum = 0;
+    private double qualityThreshold = Double.NaN;
+    private int rejectBatchSize = DEFAULT_REJECT_BATCH_SIZE;
+
+    // The best k proposals so far: the worst of them is at the head
+    private final PriorityQueue<ScoredProposal> topK;
+    // Responders whose proposal has already been discarded (or that did not propose)
+    private final List<AID> discarded = new ArrayList<>();
+    private final Set<AID> replied = new HashSet<>();
+    private int qualifiedCnt;
+    private RoundStats currentRound;
+    private RoundStats lastRound;
+    private final Logger myLogger = Logger.getJADELogger(getClass().getName());
+
+    /**
+     * @param a   The agent performing the protocol
+     * @param cfp The message that must be used to initiate the protocol
+     * @param k   The maximum number of proposals to be accepted
+     */
+    public StreamingContractNetInitiator(Agent a, ACLMessage cfp, int k) {
+        super(a, cfp);
+        if (k <= 0) {
+            throw new IllegalArgumentException("Invalid number of proposals to accept " + k);
+        }
+        this.k = k;
+        topK = new PriorityQueue<>(k + 1);
+    }
+
+    /**
+     * Award as soon as the given number of responses (of any kind) has been received.
+     * 0 (default) means wait for all responses.
+     */
+    public void setQuorum(int quorum) {
+        this.quorum = quorum;
+    }
+
+    /**
+     * Award as soon as <code>k</code> proposals scoring at least the given value have been received.
+     * <code>Double.NaN</code> (default) disables this check.
+     */
+    public void setQualityThreshold(double qualityThreshold) {
+        this.qualityThreshold = qualityThreshold;
+    }
+
+    /**
+     * Set the maximum number of receivers of a single batched REJECT_PROPOSAL message
+     */
+    public void setRejectBatchSize(int rejectBatchSize) {
+        this.rejectBatchSize = Math.max(rejectBatchSize, 1);
+    }
+
+    /**
+     * This method is called each time a <code>PROPOSE</code> message is received to score it.
+     * Proposals with higher scores are preferred.
+     *
+     * @param propose The received proposal
+     * @return the score of the proposal or <code>Double.NaN</code> if the proposal is unacceptable
+     */
+    protected abstract double evaluate(ACLMessage propose);
+
+    /**
+     * This method is called at award time for each of the (at most <code>k</code>) best proposals to create
+     * the message to be sent back. This default implementation returns a reply of type ACCEPT_PROPOSAL.
+     *
+     * @param propose The proposal
+     * @param score   The score assigned to the proposal by the <code>evaluate()</code> method
+     */
+    protected ACLMessage prepareAcceptance(ACLMessage propose, double score) {
+        ACLMessage accept = propose.createReply();
+        accept.setPerformative(ACLMessage.ACCEPT_PROPOSAL);
+        return accept;
+    }
+
+    /**
+     * This method is called at the end of each round, i.e. when the acceptances are about to be sent.
+     * This default implementation just logs the round statistics at FINE level.
+     */
+    protected void handleRoundCompleted(RoundStats stats) {
+        if (myLogger.isLoggable(Logger.FINE)) {
+            myLogger.log(Logger.FINE, "Agent " + myAgent.getLocalName() + " - Contract-net round completed: " + stats);
+        }
+    }
+
+    /**
+     * @return the statistics of the last completed round or null if no round was completed yet
+     */
+    public RoundStats getLastRoundStats() {
+        return lastRound;
+    }
+
+    protected void sendInitiations(List<ACLMessage> initiations) {
+        if (currentRound == null && initiations != null && !initiations.isEmpty()
+                && initiations.get(0) != null && initiations.get(0).getPerformative() == ACLMessage.CFP) {
+            currentRound = new RoundStats(lastRound != null ? lastRound.round + 1 : 1);
+        }
+        super.sendInitiations(initiations);
+        if (currentRound != null && currentRound.cfpCnt == 0) {
+            currentRound.cfpCnt = mapSessions.size();
+        }
+    }
+
+    protected boolean checkInSequence(ACLMessage reply) {
+        boolean ret = super.checkInSequence(reply);
+        if (ret && currentRound != null) {
+            // Do not keep responses in memory
+            List<ACLMessage> responses = getMapMessagesList().get(ALL_RESPONSES_KEY);
+            if (!responses.isEmpty() && responses.get(responses.size() - 1) == reply) {
+                responses.remove(responses.size() - 1);
+                replied.add(reply.getSender());
+                currentRound.addResponse(reply.getPerformative());
+                if (reply.getPerformative() != ACLMessage.PROPOSE) {
+                    discarded.add(reply.getSender());
+                    checkEarlyAward();
+                }
+            }
+        }
+        return ret;
+    }
+
+    protected final void handlePropose(ACLMessage propose, List<ACLMessage> acceptances) {
+        double score = evaluate(propose);
+        if (Double.isNaN(score)) {
+            discarded.add(propose.getSender());
+        } else {
+            topK.add(new ScoredProposal(propose, score));
+            if (!Double.isNaN(qualityThreshold) && score >= qualityThreshold) {
+                qualifiedCnt++;
+            }
+            if (topK.size() > k) {
+                ScoredProposal worst = topK.poll();
+                if (!Double.isNaN(qualityThreshold) && worst.score >= qualityThreshold) {
+                    qualifiedCnt--;
+                }
+                discarded.add(worst.propose.getSender());
+            }
+        }
+        checkEarlyAward();
+    }
+
+    private void checkEarlyAward() {
+        if (currentRound == null || currentRound.early) {
+            return;
+        }
+        boolean quorumReached = quorum > 0 && currentRound.getResponsesCnt() >= quorum;
+        boolean qualityReached = !Double.isNaN(qualityThreshold) && qualifiedCnt >= k;
+        if ((quorumReached || qualityReached) && currentRound.getResponsesCnt() < currentRound.cfpCnt) {
+            currentRound.early = true;
+            skipNextResponses();
+        }
+    }
+
+    protected final void handleAllResponses(List<ACLMessage> responses, List<ACLMessage> acceptances) {
+        if (currentRound == null) {
+            return;
+        }
+        // Accept the best proposals (best first)
+        List<ScoredProposal> winners = new ArrayList<>(topK);
+        winners.sort(Collections.reverseOrder());
+        for (ScoredProposal sp : winners) {
+            acceptances.add(prepareAcceptance(sp.propose, sp.score));
+        }
+        topK.clear();
+        qualifiedCnt = 0;
+
+        // Reject all other responders (including those that did not reply yet) in batches
+        List<AID> toReject = discarded;
+        List<ACLMessage> cfps = getMapMessagesList().get(ALL_CFPS_KEY);
+        if (cfps != null) {
+            for (ACLMessage cfp : cfps) {
+                for (Iterator<AID> it = cfp.getAllReceiver(); it.hasNext(); ) {
+                    AID r = it.next();
+                    if (!replied.contains(r)) {
+                        toReject.add(r);
+                        currentRound.outstandingCnt++;
+                    }
+                }
+            }
+        }
+        ACLMessage batch = null;
+        int batchCnt = 0;
+        for (AID r : toReject) {
+            if (batch == null) {
+                batch = new ACLMessage(ACLMessage.REJECT_PROPOSAL);
+                batch.setConversationId(cfps != null && !cfps.isEmpty() ? cfps.get(0).getConversationId() : null);
+                batch.setProtocol(cfps != null && !cfps.isEmpty() ? cfps.get(0).getProtocol() : null);
+                acceptances.add(batch);
+            }
+            batch.addReceiver(r);
+            if (++batchCnt >= rejectBatchSize) {
+                batch = null;
+                batchCnt = 0;
+            }
+        }
+        currentRound.acceptedCnt = winners.size();
+        currentRound.rejectedCnt = toReject.size();
+        currentRound.awardLatency = System.currentTimeMillis() - currentRound.startTime;
+        discarded.clear();
+        replied.clear();
+        lastRound = currentRound;
+        currentRound = null;
+        handleRoundCompleted(lastRound);
+    }
+
+    protected void reinit() {
+        topK.clear();
+        discarded.clear();
+        replied.clear();
+        qualifiedCnt = 0;
+        currentRound = null;
+        super.reinit();
+    }
+
+    /**
+     * A proposal together with its score
+     */
+    private static class ScoredProposal implements Comparable<ScoredProposal>, Serializable {
+        private final ACLMessage propose;
+        private final double score;
+
+        private ScoredProposal(ACLMessage propose, double score) {
+            this.propose = propose;
+            this.score = score;
+        }
+
+        public int compareTo(ScoredProposal sp) {
+            return Double.compare(score, sp.score);
+        }
+    }
+
+    /**
+     * The statistics of a contract-net round: number of responses by type, response time
+     * distribution and award latency
+     */
+    public static class RoundStats implements Serializable {
+        // Response times (ms) are counted in buckets: each power of 2 interval is split into 8 sub-buckets
+        private static final int SUB_BUCKETS = 8;
+        private static final int BUCKETS = SUB_BUCKETS * 40;
+
+        private final int round;
+        private final long startTime = System.currentTimeMillis();
+        private int cfpCnt;
+        private int proposeCnt;
+        private int refuseCnt;
+        private int otherCnt;
+        private int outstandingCnt;
+        private int acceptedCnt;
+        private int rejectedCnt;
+        private boolean early;
+        private long awardLatency = -1;
+        private long minResponseTime = Long.MAX_VALUE;
+        private long maxResponseTime = 0;
+        private long totResponseTime = 0;
+        private final int[] histogram = new int[BUCKETS];
+
+        private RoundStats(int round) {
+            this.round = round;
+        }
+
+        private void addResponse(int perf) {
+            switch (perf) {
+                case ACLMessage.PROPOSE -> proposeCnt++;
+                case ACLMessage.REFUSE -> refuseCnt++;
+                default -> otherCnt++;
+            }
+            long t = System.currentTimeMillis() - startTime;
+            minResponseTime = Math.min(minResponseTime, t);
+            maxResponseTime = Math.max(maxResponseTime, t);
+            totResponseTime += t;
+            histogram[bucket(t)]++;
+        }
+
+        private static int bucket(long t) {
+            if (t < SUB_BUCKETS) {
+                return (int) Math.max(t, 0);
+            }
+            int log = 63 - Long.numberOfLeadingZeros(t);
+            int sub = (int) ((t >> (log - 3)) & (SUB_BUCKETS - 1));
+            return Math.min((log - 2) * SUB_BUCKETS + sub, BUCKETS - 1);
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int log = bucket / SUB_BUCKETS + 2;
+            int sub = bucket % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (log - 3)) - 1;
+        }
+
+        public int getRound() {
+            return round;
+        }
+
+        public int getCfpCnt() {
+            return cfpCnt;
+        }
+
+        public int getResponsesCnt() {
+            return proposeCnt + refuseCnt + otherCnt;
+        }
+
+        public int getProposeCnt() {
+            return proposeCnt;
+        }
+
+        public int getRefuseCnt() {
+            return refuseCnt;
+        }
+
+        /**
+         * @return the number of responders that did not reply before the award
+         */
+        public int getOutstandingCnt() {
+            return outstandingCnt;
+        }
+
+        public int getAcceptedCnt() {
+            return acceptedCnt;
+        }
+
+        public int getRejectedCnt() {
+            return rejectedCnt;
+        }
+
+        /**
+         * @return true if the award took place before all responses were received
+         * because the quorum or the quality threshold was reached
+         */
+        public boolean isEarlyAward() {
+            return early;
+        }
+
+        /**
+         * @return the time (ms) elapsed between the transmission of the CFPs and the award
+         */
+        public long getAwardLatency() {
+            return awardLatency;
+        }
+
+        public long getMinResponseTime() {
+            return getResponsesCnt() > 0 ? minResponseTime : -1;
+        }
+
+        public long getMaxResponseTime() {
+            return getResponsesCnt() > 0 ? maxResponseTime : -1;
+        }
+
+        public double getAvgResponseTime() {
+            int n = getResponsesCnt();
+            return n > 0 ? (double) totResponseTime / n : -1;
+        }
+
+        /**
+         * @param p A value in the range [0, 1]
+         * @return an upper bound (with a relative error below 12.5%) of the given percentile of the response times (ms)
+         */
+        public long getResponseTimePercentile(double p) {
+            int n = getResponsesCnt();
+            if (n == 0) {
+                return -1;
+            }
+            long threshold = (long) Math.ceil(p * n);
+            long cnt = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                cnt += histogram[i];
+                if (cnt >= threshold && cnt > 0) {
+                    return Math.min(upperBound(i), maxResponseTime);
+                }
+            }
+            return maxResponseTime;
+        }
+
+        public String toString() {
+            return "(round " + round + " :cfps " + cfpCnt + " :proposes " + proposeCnt + " :refuses " + refuseCnt + " :others " + otherCnt
+                    + " :outstanding " + outstandingCnt + " :accepted " + acceptedCnt + " :rejected " + rejectedCnt + " :early " + early
+                    + " :award-latency " + awardLatency + " :response-time (min " + getMinResponseTime() + " avg " + (long) getAvgResponseTime()
+                    + " p50 " + getResponseTimePercentile(0.5) + " p90 " + getResponseTimePercentile(0.9) + " p99 " + getResponseTimePercentile(0.99)
+                    + " max " + getMaxResponseTime() + "))";
+        }
+    }
+}
@@ -257,6 +257,13 @@ public class MsgReceiver extends SimpleBehaviour {
         template = mt;
     }
 
+    /**
+     * A  MsgReceiver   only needs to be restarted by messages matching its template
+     **/
+    public MessageTemplate getWakeupTemplate() {
+        return template;
+    }
+
     /**
      * This method allows modifying the key in the DS where to put the
      * received message
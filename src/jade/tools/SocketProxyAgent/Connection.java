@@ -26,13 +26,14 @@ package jade.tools.SocketProxyAgent;
 import jade.core.AID;
 import jade.core.Agent;
 import jade.lang.acl.ACLMessage;
-import jade.lang.acl.ACLParser;
+import jade.lang.acl.StringACLParser;
 import jade.util.Logger;
 
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.Socket;
+import java.nio.charset.Charset;
 import java.util.Iterator;
 import java.util.Vector;
 
@@ -169,12 +170,12 @@ class Connection extends Thread {
         boolean gotOneMessage = false;
         ACLMessage msg;
         try {
-            ACLParser parser = new ACLParser(in);
+            StringACLParser parser = new StringACLParser(in, Charset.defaultCharset());
 
             while (true) {
                 // This may throw a parsing exception due to
                 // end of file (stream).
-                msg = parser.Message();
+                msg = parser.next();
                 gotOneMessage = true;  // OK to ignore EOF now
                 if (logger.isLoggable(Logger.FINE)) {
                     logger.log(Logger.FINE, "Received message:" + msg);
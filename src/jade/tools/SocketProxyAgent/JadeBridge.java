@@ -19,7 +19,7 @@
 package jade.tools.SocketProxyAgent;
 
 import jade.lang.acl.ACLMessage;
-import jade.lang.acl.ACLParser;
+import jade.lang.acl.StringACLParser;
 import jade.util.Logger;
 
 import java.io.DataInputStream;
@@ -28,6 +28,7 @@ import java.io.PrintStream;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.charset.Charset;
 import java.util.Date;
 
 /**
@@ -198,9 +199,9 @@ public class JadeBridge {
             logger.log(Logger.FINE, "trying to get response...");
         }
         try {
-            ACLParser parser = new ACLParser(in);  // parser works off input
+            StringACLParser parser = new StringACLParser(in, Charset.defaultCharset());  // parser works off input
 
-            response = parser.Message();
+            response = parser.next();
             if (logger.isLoggable(Logger.FINE)) {
                 logger.log(Logger.FINE, "response:" + response);
             }
@@ -39,7 +39,11 @@ import jade.lang.acl.MessageTemplate;
 import jade.lang.acl.StringACLCodec;
 import jade.util.Logger;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /*
@@ -47,6 +51,42 @@ import java.util.*;
  @author Giovanni Caire -  TILAB
  */
 public class ToolNotifier extends ToolAgent implements MessageListener, AgentListener {
+    /**
+     * The suffix of the conversation-id of the REQUEST messages an observer
+     * can send to switch this notifier to (or back from) capture mode.
+     * The content of such messages is a list of <code>key=value</code>
+     * options separated by ';' (e.g. <code>encoding=binary;sample=10;performatives=inform,request</code>).
+     * In capture mode message events are notified as batches of
+     * <code>TraceRecord</code>s instead of SL encoded <code>Occurred</code> events.
+     */
+    public static final String CAPTURE_CONVERSATION_SUFFIX = "-capture";
+    /**
+     * Capture option: <code>binary</code> activates capture mode, any other value goes back to SL events
+     */
+    public static final String CAPTURE_ENCODING = "encoding";
+    public static final String CAPTURE_ENCODING_BINARY = "binary";
+    /**
+     * Capture option: only one message event out of N is notified (default 1)
+     */
+    public static final String CAPTURE_SAMPLE = "sample";
+    /**
+     * Capture option: comma separated list of the performatives to notify (default all)
+     */
+    public static final String CAPTURE_PERFORMATIVES = "performatives";
+    /**
+     * Capture option: comma separated list of the message events to notify among
+     * <code>sent</code>, <code>posted</code> and <code>received</code> (default <code>sent,posted</code>)
+     */
+    public static final String CAPTURE_EVENTS = "events";
+    /**
+     * Capture option: size in bytes above which a batch of trace records is sent (default 16384)
+     */
+    public static final String CAPTURE_BATCH_SIZE = "batch-size";
+    /**
+     * Capture option: maximum time in ms a trace record waits before being sent (default 500)
+     */
+    public static final String CAPTURE_FLUSH_PERIOD = "flush-period";
+
     private static final int IDLE_STATE = 0;
     private static final int ACTIVE_STATE = 1;
     private static final int TERMINATING_STATE = 2;
@@ -57,6 +97,8 @@ public class ToolNotifier extends ToolAgent implements MessageListener, AgentLis
     private final SequentialBehaviour AMSSubscribe = new SequentialBehaviour();
 
     private volatile int state = IDLE_STATE;
+    private volatile Capture capture;
+    private TickerBehaviour captureFlusher;
 
     private Logger myLogger;
 
@@ -75,9 +117,16 @@ public class ToolNotifier extends ToolAgent implements MessageListener, AgentLis
         // Handle incoming 'inform' messages from the AMS
         AMSSubscribe.addSubBehaviour(new NotifierAMSListenerBehaviour());
         addBehaviour(AMSSubscribe);
+
+        // Handle requests from the observer to switch to capture mode
+        addBehaviour(new CaptureOptionsListener());
     }
 
     protected void toolTakeDown() {
+        Capture c = capture;
+        if (c != null) {
+            c.flush();
+        }
         state = TERMINATING_STATE;
         send(getCancel());
         // If there are still threads waiting for some JADE event to be processed
@@ -133,6 +182,11 @@ public class ToolNotifier extends ToolAgent implements MessageListener, AgentLis
             AID receiver = ev.getReceiver();
             if (observedAgents.contains(sender)) {
                 ACLMessage msg = ev.getMessage();
+                Capture c = capture;
+                if (c != null) {
+                    c.capture(TraceRecord.SENT, sender, receiver, msg);
+                    return;
+                }
 
                 jade.domain.introspection.ACLMessage m = new jade.domain.introspection.ACLMessage();
                 // Note that we need to clone the Envelope otherwise we would
@@ -161,6 +215,11 @@ public class ToolNotifier extends ToolAgent implements MessageListener, AgentLis
             AID receiver = ev.getReceiver();
             if (observedAgents.contains(receiver)) {
                 ACLMessage msg = ev.getMessage();
+                Capture c = capture;
+                if (c != null) {
+                    c.capture(TraceRecord.POSTED, sender, receiver, msg);
+                    return;
+                }
 
                 jade.domain.introspection.ACLMessage m = new jade.domain.introspection.ACLMessage();
                 Object env = msg.getEnvelope();
@@ -187,6 +246,11 @@ public class ToolNotifier extends ToolAgent implements MessageListener, AgentLis
             AID receiver = ev.getReceiver();
             if (observedAgents.contains(receiver)) {
                 ACLMessage msg = ev.getMessage();
+                Capture c = capture;
+                if (c != null) {
+                    c.capture(TraceRecord.RECEIVED, sender, receiver, msg);
+                    return;
+                }
 
                 jade.domain.introspection.ACLMessage m = new jade.domain.introspection.ACLMessage();
                 Object env = msg.getEnvelope();
@@ -349,6 +413,62 @@ public class ToolNotifier extends ToolAgent implements MessageListener, AgentLis
         }
     }
 
+    private void sendTrace(byte[] records) {
+        if (state == ACTIVE_STATE) {
+            ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+            msg.addReceiver(observerAgent);
+            msg.setLanguage(TraceRecord.LANGUAGE);
+            msg.setConversationId(observerAgent.getName() + "-event");
+            msg.setByteSequenceContent(records);
+            msg.addUserDefinedParameter(ACLMessage.IGNORE_FAILURE, "true");
+            send(msg);
+        }
+    }
+
+    /**
+     * Switch to capture mode if the options specify the binary encoding
+     * or back to SL events otherwise.
+     */
+    private void setCaptureOptions(String options) {
+        Properties pp = new Properties();
+        if (options != null) {
+            StringTokenizer st = new StringTokenizer(options, ";");
+            while (st.hasMoreTokens()) {
+                String option = st.nextToken().trim();
+                int index = option.indexOf('=');
+                if (index > 0) {
+                    pp.setProperty(option.substring(0, index).trim(), option.substring(index + 1).trim());
+                } else if (option.length() > 0) {
+                    throw new IllegalArgumentException("Malformed capture option " + option);
+                }
+            }
+        }
+        Capture c = null;
+        if (CAPTURE_ENCODING_BINARY.equalsIgnoreCase(pp.getProperty(CAPTURE_ENCODING))) {
+            c = new Capture(pp);
+        }
+
+        Capture old = capture;
+        capture = c;
+        if (old != null) {
+            old.flush();
+        }
+        if (captureFlusher != null) {
+            removeBehaviour(captureFlusher);
+            captureFlusher = null;
+        }
+        if (c != null) {
+            final Capture current = c;
+            captureFlusher = new TickerBehaviour(this, c.flushPeriod) {
+                protected void onTick() {
+                    current.flush();
+                }
+            };
+            addBehaviour(captureFlusher);
+        }
+        myLogger.log(Logger.CONFIG, "ToolNotifier " + getName() + ": capture mode " + (c != null ? "on (" + options + ")" : "off"));
+    }
+
     //////////////////////////////////////////////
     // Utility methods dealing with pending events
     private void addPendingEvent(JADEEvent ev, AID id) {
@@ -425,6 +545,139 @@ public class ToolNotifier extends ToolAgent implements MessageListener, AgentLis
 
     } // END of inner class NotifierAMSListenerBehaviour
 
+    /**
+     * Inner class Capture.
+     * Holds the capture options and the batch of trace records not yet
+     * sent to the observer. Records are encoded in the thread of the observed
+     * agent; batches are sent as soon as they exceed the batch size or
+     * periodically by the capture flusher.
+     */
+    private class Capture {
+        private final boolean[] events = new boolean[TraceRecord.RECEIVED + 1];
+        private final boolean[] performatives;
+        private final int sample;
+        private final int batchSize;
+        private final long flushPeriod;
+        private final AtomicLong counter = new AtomicLong();
+        private final ByteArrayOutputStream batch;
+        private final DataOutputStream batchStream;
+
+        Capture(Properties pp) {
+            try {
+                sample = Integer.parseInt(pp.getProperty(CAPTURE_SAMPLE, "1"));
+                batchSize = Integer.parseInt(pp.getProperty(CAPTURE_BATCH_SIZE, "16384"));
+                flushPeriod = Long.parseLong(pp.getProperty(CAPTURE_FLUSH_PERIOD, "500"));
+            } catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException("Malformed capture option " + nfe.getMessage());
+            }
+            if (sample < 1 || batchSize < 1 || flushPeriod < 1) {
+                throw new IllegalArgumentException("Capture options must be positive");
+            }
+
+            StringTokenizer st = new StringTokenizer(pp.getProperty(CAPTURE_EVENTS, "sent,posted"), ",");
+            while (st.hasMoreTokens()) {
+                String e = st.nextToken().trim();
+                if (e.equalsIgnoreCase("sent")) {
+                    events[TraceRecord.SENT] = true;
+                } else if (e.equalsIgnoreCase("posted")) {
+                    events[TraceRecord.POSTED] = true;
+                } else if (e.equalsIgnoreCase("received")) {
+                    events[TraceRecord.RECEIVED] = true;
+                } else {
+                    throw new IllegalArgumentException("Unknown message event " + e);
+                }
+            }
+
+            String pfs = pp.getProperty(CAPTURE_PERFORMATIVES);
+            if (pfs != null) {
+                performatives = new boolean[ACLMessage.getAllPerformativeNames().length];
+                st = new StringTokenizer(pfs, ",");
+                while (st.hasMoreTokens()) {
+                    String p = st.nextToken().trim();
+                    int perf = ACLMessage.getInteger(p);
+                    if (perf < 0) {
+                        throw new IllegalArgumentException("Unknown performative " + p);
+                    }
+                    performatives[perf] = true;
+                }
+            } else {
+                performatives = null;
+            }
+
+            batch = new ByteArrayOutputStream(batchSize + 1024);
+            batchStream = new DataOutputStream(batch);
+        }
+
+        void capture(int type, AID sender, AID receiver, ACLMessage msg) {
+            if (!events[type]) {
+                return;
+            }
+            if (performatives != null) {
+                int perf = msg.getPerformative();
+                if (perf < 0 || perf >= performatives.length || !performatives[perf]) {
+                    return;
+                }
+            }
+            if (sample > 1 && counter.getAndIncrement() % sample != 0) {
+                return;
+            }
+
+            try {
+                byte[] record = TraceRecord.encode(type, System.currentTimeMillis(), sender, receiver, msg);
+                // Batches are sent while holding the lock to preserve the order of the records
+                synchronized (this) {
+                    TraceRecord.writeFrame(record, batchStream);
+                    if (batch.size() >= batchSize) {
+                        sendBatch();
+                    }
+                }
+            } catch (IOException ioe) {
+                myLogger.log(Logger.WARNING, "ToolNotifier " + getName() + ": Error encoding trace record", ioe);
+            }
+        }
+
+        synchronized void flush() {
+            if (batch.size() > 0) {
+                sendBatch();
+            }
+        }
+
+        private void sendBatch() {
+            byte[] records = batch.toByteArray();
+            batch.reset();
+            sendTrace(records);
+        }
+    } // END of inner class Capture
+
+    /**
+     * Inner class CaptureOptionsListener.
+     * Serves the requests of the observer to switch to/from capture mode.
+     */
+    private class CaptureOptionsListener extends CyclicBehaviour {
+        private final MessageTemplate template = MessageTemplate.and(
+                MessageTemplate.MatchConversationId(observerAgent.getName() + CAPTURE_CONVERSATION_SUFFIX),
+                MessageTemplate.MatchSender(observerAgent));
+
+        public void action() {
+            ACLMessage msg = myAgent.receive(template);
+            if (msg != null) {
+                if (msg.getPerformative() == ACLMessage.REQUEST) {
+                    ACLMessage reply = msg.createReply();
+                    try {
+                        setCaptureOptions(msg.getContent());
+                        reply.setPerformative(ACLMessage.INFORM);
+                    } catch (IllegalArgumentException iae) {
+                        reply.setPerformative(ACLMessage.FAILURE);
+                        reply.setContent(iae.getMessage());
+                    }
+                    send(reply);
+                }
+            } else {
+                block();
+            }
+        }
+    } // END of inner class CaptureOptionsListener
+
     /**
      * Inner class SynchEventInformer.
      * When the observation of an event must be synchronous (i.e. the
@@ -0,0 +1,177 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop 
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A. 
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation, 
+version 2.1 of the License. 
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.tools;
+
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.LEAPACLCodec;
+
+import java.io.*;
+
+/**
+ * Compact binary representation of a message event notified by a
+ * <code>ToolNotifier</code> running in <em>capture</em> mode.
+ * Unlike the SL encoded <code>Occurred</code> events, a record is
+ * made of a fixed header (event type, timestamp, performative, sender
+ * and receiver) followed by the message in the LEAP ACL representation,
+ * so that a capturing tool can filter records by looking at the header
+ * only and store them as they are.
+ * <p>
+ * Records travel (and are stored) as frames, i.e. a 4 bytes length
+ * followed by the record bytes. Several frames can be put one after
+ * the other in the byte sequence content of a single ACL message whose
+ * language is <code>LANGUAGE</code>.
+ */
+public class TraceRecord {
+    /**
+     * The content language of the messages carrying trace records
+     */
+    public static final String LANGUAGE = "jade-trace";
+
+    public static final int SENT = 1;
+    public static final int POSTED = 2;
+    public static final int RECEIVED = 3;
+
+    private final int type;
+    private final long time;
+    private final int performative;
+    private final AID sender;
+    private final AID receiver;
+    private final byte[] bytes;
+    private final int messageOffset;
+
+    private TraceRecord(int type, long time, int performative, AID sender, AID receiver, byte[] bytes, int messageOffset) {
+        this.type = type;
+        this.time = time;
+        this.performative = performative;
+        this.sender = sender;
+        this.receiver = receiver;
+        this.bytes = bytes;
+        this.messageOffset = messageOffset;
+    }
+
+    /**
+     * Encode a message event into a trace record
+     */
+    public static byte[] encode(int type, long time, AID sender, AID receiver, ACLMessage msg) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+        DataOutputStream dos = new DataOutputStream(baos);
+        dos.writeByte(type);
+        dos.writeLong(time);
+        dos.writeByte(msg.getPerformative());
+        writeAID(sender, dos);
+        writeAID(receiver, dos);
+        LEAPACLCodec.serializeACL(msg, dos);
+        dos.flush();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Decode the header of a trace record. The message itself is decoded
+     * only when <code>getMessage()</code> is called.
+     */
+    public static TraceRecord decode(byte[] bytes) throws IOException {
+        ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+        DataInputStream dis = new DataInputStream(bais);
+        int type = dis.readByte();
+        long time = dis.readLong();
+        int performative = dis.readByte();
+        AID sender = readAID(dis);
+        AID receiver = readAID(dis);
+        return new TraceRecord(type, time, performative, sender, receiver, bytes, bytes.length - bais.available());
+    }
+
+    /**
+     * Write a trace record as a frame
+     */
+    public static void writeFrame(byte[] bytes, DataOutputStream dos) throws IOException {
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    /**
+     * Read a frame written by <code>writeFrame()</code>.
+     *
+     * @return the trace record bytes or null if the end of the stream was reached.
+     */
+    public static byte[] readFrame(DataInputStream dis) throws IOException {
+        int length;
+        try {
+            length = dis.readInt();
+        } catch (EOFException eofe) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Corrupted trace frame (length = " + length + ")");
+        }
+        byte[] bytes = new byte[length];
+        dis.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeAID(AID id, DataOutputStream dos) throws IOException {
+        if (id != null) {
+            dos.writeBoolean(true);
+            LEAPACLCodec.serializeAID(id, dos);
+        } else {
+            dos.writeBoolean(false);
+        }
+    }
+
+    private static AID readAID(DataInputStream dis) throws IOException {
+        return dis.readBoolean() ? LEAPACLCodec.deserializeAID(dis) : null;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public int getPerformative() {
+        return performative;
+    }
+
+    public AID getSender() {
+        return sender;
+    }
+
+    public AID getReceiver() {
+        return receiver;
+    }
+
+    /**
+     * @return the encoded form of this trace record
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public ACLMessage getMessage() throws IOException {
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes, messageOffset, bytes.length - messageOffset));
+        return LEAPACLCodec.deserializeACL(dis);
+    }
+}
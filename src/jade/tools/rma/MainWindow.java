@@ -32,6 +32,7 @@ import jade.gui.APDescriptionPanel;
 import jade.gui.AclGui;
 import jade.gui.AgentTree;
 import jade.gui.AgentTreeModel;
+import jade.gui.AgentTreeUpdater;
 import jade.lang.acl.ACLMessage;
 
 import javax.swing.*;
@@ -47,6 +48,8 @@ import java.util.*;
 class MainWindow extends JFrame {
 
     private final MainPanel tree;
+    // All updates to the GUI go through the tree updater to preserve their order
+    private final AgentTreeUpdater treeUpdater;
     private final ActionProcessor actPro;
     private final PopupMenuAgent popA;
     private final PopupMenuFrozenAgent popFA;
@@ -66,6 +69,7 @@ class MainWindow extends JFrame {
 
         manageDlg = new ManageMTPsDialog(anRMA, this, false, addresses);
         tree = new MainPanel(anRMA, this);
+        treeUpdater = new AgentTreeUpdater(tree.getTreeAgent());
         actPro = new ActionProcessor(anRMA, this, tree);
         setJMenuBar(new MainMenu(this, actPro));
         popA = new PopupMenuAgent(actPro);
@@ -129,7 +133,7 @@ class MainWindow extends JFrame {
 
     public void resetTree() {
         Runnable resetIt = () -> tree.getTreeAgent().clearLocalPlatform();
-        SwingUtilities.invokeLater(resetIt);
+        treeUpdater.invoke(resetIt);
     }
 
     public void addContainer(final String name, final InetAddress addr) {
@@ -140,7 +144,7 @@ class MainWindow extends JFrame {
             containerNames.add(name);
             manageDlg.setData(containerNames, addresses);
         };
-        SwingUtilities.invokeLater(addIt);
+        treeUpdater.invoke(addIt);
     }
 
     public void removeContainer(final String name) {
@@ -151,42 +155,31 @@ class MainWindow extends JFrame {
             containerNames.remove(name);
             manageDlg.setData(containerNames, addresses);
         };
-        SwingUtilities.invokeLater(removeIt);
+        treeUpdater.invoke(removeIt);
     }
 
     public void addAgent(final String containerName, final AID agentID, final String state, final String ownership) {
 
         // Add an agent to the specified container
-        Runnable addIt = () -> {
-            String agentName = agentID.getName();
-            Iterator<String> add = agentID.getAllAddresses();
-            StringBuilder agentAddresses = new StringBuilder();
-            while (add.hasNext()) {
-                agentAddresses.append(add.next()).append(" ");
-            }
-            tree.getTreeAgent().addAgentNode(agentName, agentAddresses.toString(), containerName, state, ownership);
-        };
-        SwingUtilities.invokeLater(addIt);
+        String agentName = agentID.getName();
+        Iterator<String> add = agentID.getAllAddresses();
+        StringBuilder agentAddresses = new StringBuilder();
+        while (add.hasNext()) {
+            agentAddresses.append(add.next()).append(" ");
+        }
+        treeUpdater.agentBorn(containerName, agentName, agentAddresses.toString(), state, ownership);
     }
 
     public void removeAgent(final String containerName, final AID agentID) {
 
         // Remove an agent from the specified container
-        Runnable removeIt = () -> {
-            String agentName = agentID.getName();
-            tree.getTreeAgent().removeAgentNode(containerName, agentName);
-        };
-        SwingUtilities.invokeLater(removeIt);
+        treeUpdater.agentDead(containerName, agentID.getName());
     }
 
     public void modifyAgent(final String containerName, final AID agentID, final String state, final String ownership) {
 
-        // Remove an agent from the specified container
-        Runnable modifyIt = () -> {
-            String agentName = agentID.getName();
-            tree.getTreeAgent().modifyAgentNode(containerName, agentName, null, state, ownership);
-        };
-        SwingUtilities.invokeLater(modifyIt);
+        // Modify an agent in the specified container
+        treeUpdater.agentModified(containerName, agentID.getName(), state, ownership);
     }
 
     public void moveAgent(final String fromContainer, final String toContainer, final AID agentID) {
@@ -196,7 +189,7 @@ class MainWindow extends JFrame {
             String agentName = agentID.getName();
             tree.getTreeAgent().moveAgentNode(fromContainer, toContainer, agentName);
         };
-        SwingUtilities.invokeLater(moveIt);
+        treeUpdater.invoke(moveIt);
     }
 
     public void modifyFrozenAgent(final String oldContainer, final String newContainer, final AID agentID) {
@@ -206,7 +199,7 @@ class MainWindow extends JFrame {
             String agentName = agentID.getName();
             tree.getTreeAgent().freezeAgentNode(oldContainer, newContainer, agentName);
         };
-        SwingUtilities.invokeLater(freezeIt);
+        treeUpdater.invoke(freezeIt);
     }
 
     public void modifyThawedAgent(final String oldContainer, final String newContainer, final AID agentID) {
@@ -216,7 +209,7 @@ class MainWindow extends JFrame {
             String agentName = agentID.getName();
             tree.getTreeAgent().thawAgentNode(oldContainer, newContainer, agentName);
         };
-        SwingUtilities.invokeLater(thawIt);
+        treeUpdater.invoke(thawIt);
     }
 
     public void addAddress(final String address, final String where) {
@@ -225,7 +218,7 @@ class MainWindow extends JFrame {
             addrs.add(address);
             manageDlg.setData(containerNames, addresses);
         };
-        SwingUtilities.invokeLater(addIt);
+        treeUpdater.invoke(addIt);
 
 
     }
@@ -237,7 +230,7 @@ class MainWindow extends JFrame {
             tree.getTreeAgent().addRemotePlatformsFolderNode();
 
         };
-        SwingUtilities.invokeLater(addIt);
+        treeUpdater.invoke(addIt);
     }
 
 
@@ -246,7 +239,7 @@ class MainWindow extends JFrame {
         final APDescription desc = profile;
         final AID ams = name;
         Runnable addIt = () -> tree.getTreeAgent().addRemotePlatformNode(ams, desc);
-        SwingUtilities.invokeLater(addIt);
+        treeUpdater.invoke(addIt);
     }
 
 
@@ -262,13 +255,13 @@ class MainWindow extends JFrame {
                 tree.getTreeAgent().addRemoteAgentNode(agent, platform.getName());
             }
         };
-        SwingUtilities.invokeLater(addIt);
+        treeUpdater.invoke(addIt);
     }
 
     public void removeRemotePlatform(final String platformName) {
 
         Runnable addIt = () -> tree.getTreeAgent().removeRemotePlatformNode(platformName);
-        SwingUtilities.invokeLater(addIt);
+        treeUpdater.invoke(addIt);
     }
 
     public void removeAddress(final String address, final String where) {
@@ -281,14 +274,14 @@ class MainWindow extends JFrame {
                 manageDlg.setData(containerNames, addresses);
             }
         };
-        SwingUtilities.invokeLater(removeIt);
+        treeUpdater.invoke(removeIt);
     }
 
 
     public void refreshLocalPlatformName(final String name) {
 
         Runnable refreshName = () -> tree.getTreeAgent().refreshLocalPlatformName(name);
-        SwingUtilities.invokeLater(refreshName);
+        treeUpdater.invoke(refreshName);
 
     }
 
@@ -46,6 +46,7 @@ class ActionProcessor {
 
     public static final String CLEARCANVAS_ACTION = "ClearCanvasAction";
     public static final String DISPLAYLOGFILE_ACTION = "DisplayLogFileAction";
+    public static final String OPENTRACEFILE_ACTION = "OpenTraceFileAction";
     public static final String WRITELOGFILE_ACTION = "WriteLogFileAction";
     public static final String WRITEMESSAGELIST_ACTION = "MessageFileAction";
     public static final String EXIT_SNIFFER_ACTION = "ExitSnifferAction";
@@ -60,6 +61,7 @@ class ActionProcessor {
         this.mainPanel = mainPanel;
         actions.put(CLEARCANVAS_ACTION, new ClearCanvasAction(this, mainPanel));
         actions.put(DISPLAYLOGFILE_ACTION, new DisplayLogFileAction(this, mainPanel));
+        actions.put(OPENTRACEFILE_ACTION, new OpenTraceFileAction(this, mainPanel));
         actions.put(WRITELOGFILE_ACTION, new WriteLogFileAction(this, mainPanel));
         actions.put(WRITEMESSAGELIST_ACTION, new WriteMessageListAction(this, mainPanel));
         actions.put(EXIT_SNIFFER_ACTION, new ExitAction(this, mySniffer));
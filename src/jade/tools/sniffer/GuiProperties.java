@@ -49,6 +49,7 @@ public class GuiProperties {
         Object[] icons = {
                 "SnifferAction.ClearCanvasActionIcon", LookAndFeel.makeIcon(foo.getClass(), "images/litter2.gif"),
                 "SnifferAction.DisplayLogFileActionIcon", LookAndFeel.makeIcon(foo.getClass(), "images/open.gif"),
+                "SnifferAction.OpenTraceFileActionIcon", LookAndFeel.makeIcon(foo.getClass(), "images/open.gif"),
                 "SnifferAction.WriteLogFileActionIcon", LookAndFeel.makeIcon(foo.getClass(), "images/save1.gif"),
                 "SnifferAction.MessageFileActionIcon", LookAndFeel.makeIcon(foo.getClass(), "images/textfile.gif"),
                 "SnifferAction.DoSnifferActionIcon", LookAndFeel.makeIcon(foo.getClass(), "images/bullet1.gif"),
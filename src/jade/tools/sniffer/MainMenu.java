@@ -104,6 +104,7 @@ public class MainMenuSniffer extends MainMenu
    #DOTNET_INCLUDE_END*/
 
         paintM(true, actPro.actions.get(ActionProcessor.DISPLAYLOGFILE_ACTION));
+        paintM(true, actPro.actions.get(ActionProcessor.OPENTRACEFILE_ACTION));
         paintM(true, actPro.actions.get(ActionProcessor.WRITELOGFILE_ACTION));
         paintM(true, actPro.actions.get(ActionProcessor.WRITEMESSAGELIST_ACTION));
 
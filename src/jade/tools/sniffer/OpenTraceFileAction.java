@@ -0,0 +1,92 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A.
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation,
+version 2.1 of the License.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.tools.sniffer;
+
+import jade.tools.TraceRecord;
+import jade.util.Logger;
+
+import javax.swing.*;
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Loads one or more binary trace files recorded by a headless
+ * <em>Sniffer</em> and replays the captured messages on the canvas.
+ * Selected files are read in name order, i.e. in the order they were
+ * written.
+ *
+ * @see TraceFileReader
+ */
+public class OpenTraceFileAction extends FixedAction {
+
+    private static final Logger logger = Logger.getMyLogger(OpenTraceFileAction.class.getName());
+    private final MainPanel mainPanel;
+
+    public OpenTraceFileAction(ActionProcessor actPro, MainPanel mainPanel) {
+        super("OpenTraceFileActionIcon", "Open Trace File", actPro);
+        this.mainPanel = mainPanel;
+    }
+
+    public void doAction() {
+        JFileChooser fileDialog = new JFileChooser();
+        fileDialog.setMultiSelectionEnabled(true);
+        int returnVal = fileDialog.showOpenDialog(null);
+        if (returnVal == JFileChooser.APPROVE_OPTION) {
+            File[] files = fileDialog.getSelectedFiles();
+            Arrays.sort(files);
+            AgentList agents = new AgentList();
+            MessageList messages = new MessageList();
+            for (File f : files) {
+                int cnt = 0;
+                try (TraceFileReader reader = new TraceFileReader(f)) {
+                    TraceRecord r;
+                    while ((r = reader.next()) != null) {
+                        if (r.getType() == TraceRecord.RECEIVED) {
+                            // The message is already there as sent or posted
+                            continue;
+                        }
+                        addAgent(agents, r.getSender() != null ? r.getSender().getLocalName() : null);
+                        addAgent(agents, r.getReceiver() != null ? r.getReceiver().getLocalName() : null);
+                        messages.addMessage(new Message(r.getMessage(), r.getReceiver()));
+                        cnt++;
+                    }
+                    if (logger.isLoggable(Logger.CONFIG))
+                        logger.log(Logger.CONFIG, "Trace File " + f + " Read: " + cnt + " messages.");
+                } catch (Exception e) {
+                    if (logger.isLoggable(Logger.WARNING))
+                        logger.log(Logger.WARNING, "Error Reading Trace File " + f + ": " + e);
+                }
+            }
+            mainPanel.panelcan.canvAgent.setAgentList(agents);
+            mainPanel.panelcan.canvMess.setMessageList(messages);
+        }
+    }
+
+    private void addAgent(AgentList agents, String name) {
+        if (name != null && !agents.isPresent(name)) {
+            agents.addAgent(new Agent(name));
+        }
+    }
+
+}
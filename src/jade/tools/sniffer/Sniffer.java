@@ -45,6 +45,8 @@ import jade.lang.acl.StringACLCodec;
 import jade.proto.SimpleAchieveREInitiator;
 import jade.proto.SimpleAchieveREResponder;
 import jade.tools.ToolAgent;
+import jade.tools.ToolNotifier;
+import jade.tools.TraceRecord;
 import jade.util.ExtendedProperties;
 import jade.util.Logger;
 
@@ -87,7 +89,34 @@ import java.util.*;
  * <pre>
  * clip=com.hp.palo-alto.;helper.
  * </pre>
+ * <li>headless - If true no GUI is shown and sniffed messages are recorded in rotating
+ * binary trace files that can be replayed later by means of the <em>Open Trace File</em>
+ * action of the GUI. Records go through a bounded ring buffer (the oldest records are dropped
+ * if the disk cannot keep up) so that a busy agent cannot exhaust the sniffer memory.
+ * The following properties control the recording:
+ * <ul>
+ * <li>trace.dir - The directory where trace files are written (default the current directory)
+ * <li>trace.file-size - The size in bytes above which a new trace file is started (default 16 MB)
+ * <li>trace.files - The maximum number of trace files to keep (default 8)
+ * <li>trace.buffer - The capacity in records of the ring buffer (default 65536)
+ * </ul>
+ * <li>capture - If set to <code>binary</code> (implied by headless) the tool notifiers in the sniffed
+ * containers send message events in a compact binary form and in batches rather than one SL
+ * encoded event per message. The following properties are applied directly in the sniffed containers:
+ * <ul>
+ * <li>capture.sample - Only one message out of N is notified (default 1)
+ * <li>capture.performatives - Comma separated list of the performatives to notify (default all)
+ * <li>capture.events - Comma separated list of the message events to notify among <code>sent</code>,
+ * <code>posted</code> and <code>received</code> (default <code>sent,posted</code>)
+ * <li>capture.batch-size - Size in bytes above which a batch of events is sent (default 16384)
+ * <li>capture.flush-period - Maximum time in ms an event waits in a batch (default 500)
  * </ul>
+ * </ul>
+ * When the sniffer is started with arguments, those of the form <code>key=value</code> are
+ * used as properties and the others as preload descriptions. For instance
+ * <pre>
+ * sniffer:jade.tools.sniffer.Sniffer(headless=true, trace.dir=traces, capture.sample=10, da*)
+ * </pre>
  * The property file is looked for in the current directory, and if not found, it looks in
  * the parent directory and continues this until the file is either found or there isn't a parent
  * directory.
@@ -126,6 +155,13 @@ public class Sniffer extends ToolAgent {
 
     public static final boolean SNIFF_ON = true;
     public static final boolean SNIFF_OFF = false;
+
+    public static final String HEADLESS = "headless";
+    public static final String CAPTURE = "capture";
+    public static final String TRACE_DIR = "trace.dir";
+    public static final String TRACE_FILE_SIZE = "trace.file-size";
+    public static final String TRACE_FILES = "trace.files";
+    public static final String TRACE_BUFFER = "trace.buffer";
     private final ArrayList<Agent> agentsUnderSniff = new ArrayList<>();
     private final SequentialBehaviour AMSSubscribe = new SequentialBehaviour();
     private Set<AID> allAgents = null;
@@ -140,6 +176,11 @@ public class Sniffer extends ToolAgent {
      */
     private String myContainerName;
 
+    private boolean headless = false;
+    private String captureOptions = null;
+    private TraceBuffer traceBuffer;
+    private Thread traceWriter;
+
     //
     //
     //    * Search keys in preload for a string which matches (using isMatch method)
@@ -207,9 +248,18 @@ public class Sniffer extends ToolAgent {
         if ((arguments != null) && (arguments.length > 0)) {
             StringBuilder s = new StringBuilder();
             for (Object argument : arguments) {
-                s.append(argument.toString()).append(' ');
+                String arg = argument.toString();
+                int index = arg.indexOf('=');
+                if (index > 0) {
+                    // key=value arguments are sniffer properties
+                    properties.setProperty(arg.substring(0, index).trim(), arg.substring(index + 1).trim());
+                } else {
+                    s.append(arg).append(' ');
+                }
+            }
+            if (s.length() > 0) {
+                properties.setProperty("preload", s.toString());
             }
-            properties.setProperty("preload", s.toString());
 
         } else {
             String fileName = locateFile("sniffer.properties");
@@ -240,6 +290,14 @@ public class Sniffer extends ToolAgent {
             }
         }
 
+        headless = properties.getBooleanProperty(HEADLESS, false);
+        if (headless || ToolNotifier.CAPTURE_ENCODING_BINARY.equalsIgnoreCase(properties.getProperty(CAPTURE, null))) {
+            captureOptions = getCaptureOptions();
+        }
+        if (headless) {
+            startTraceRecording();
+        }
+
         //#DOTNET_EXCLUDE_BEGIN
         // Send 'subscribe' message to the AMS
         AMSSubscribe.addSubBehaviour(new SenderBehaviour(this, getSubscribe()));
@@ -253,10 +311,13 @@ public class Sniffer extends ToolAgent {
         // Schedule Behaviours for execution
         addBehaviour(AMSSubscribe);
         addBehaviour(new SniffListenerBehaviour());
+        addBehaviour(new NotifierControlBehaviour());
 
         // Show Graphical User Interface
-        myGUI = new MainWindow(this, properties);
-        myGUI.ShowCorrect();
+        if (!headless) {
+            myGUI = new MainWindow(this, properties);
+            myGUI.ShowCorrect();
+        }
         //#DOTNET_EXCLUDE_END
 
 		/*#DOTNET_INCLUDE_BEGIN
@@ -268,15 +329,87 @@ public class Sniffer extends ToolAgent {
     }
 
     private void addAgent(AID id) {
-        ActionProcessor ap = myGUI.actPro;
-        DoSnifferAction sa = (DoSnifferAction) ap.actions.get(ActionProcessor.DO_SNIFFER_ACTION);
-        sa.doSniff(id.getName());
+        if (myGUI != null) {
+            ActionProcessor ap = myGUI.actPro;
+            DoSnifferAction sa = (DoSnifferAction) ap.actions.get(ActionProcessor.DO_SNIFFER_ACTION);
+            sa.doSniff(id.getName());
+        } else {
+            List<Agent> l = new ArrayList<>();
+            l.add(new Agent(id));
+            sniffMsg(l, SNIFF_ON);
+        }
     }
 
     private void removeAgent(AID id) {
-        ActionProcessor ap = myGUI.actPro;
-        DoNotSnifferAction nsa = (DoNotSnifferAction) ap.actions.get(ActionProcessor.DO_NOT_SNIFFER_ACTION);
-        nsa.doNotSniff(id.getName());
+        if (myGUI != null) {
+            ActionProcessor ap = myGUI.actPro;
+            DoNotSnifferAction nsa = (DoNotSnifferAction) ap.actions.get(ActionProcessor.DO_NOT_SNIFFER_ACTION);
+            nsa.doNotSniff(id.getName());
+        } else {
+            List<Agent> l = new ArrayList<>();
+            l.add(new Agent(id));
+            sniffMsg(l, SNIFF_OFF);
+        }
+    }
+
+    private void showError(String msg) {
+        if (myGUI != null) {
+            myGUI.showError(msg);
+        } else {
+            logger.log(Logger.WARNING, msg);
+        }
+    }
+
+    /**
+     * Build the capture options to be sent to the tool notifiers of the
+     * sniffed containers from the capture.* properties
+     */
+    private String getCaptureOptions() {
+        StringBuilder sb = new StringBuilder(ToolNotifier.CAPTURE_ENCODING + "=" + ToolNotifier.CAPTURE_ENCODING_BINARY);
+        String[] keys = new String[]{ToolNotifier.CAPTURE_SAMPLE, ToolNotifier.CAPTURE_PERFORMATIVES, ToolNotifier.CAPTURE_EVENTS,
+                ToolNotifier.CAPTURE_BATCH_SIZE, ToolNotifier.CAPTURE_FLUSH_PERIOD};
+        for (String key : keys) {
+            String value = properties.getProperty(CAPTURE + "." + key, null);
+            if (value != null) {
+                sb.append(';').append(key).append('=').append(value);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void startTraceRecording() {
+        traceBuffer = new TraceBuffer(properties.getIntProperty(TRACE_BUFFER, 65536));
+        File dir = new File(properties.getProperty(TRACE_DIR, "."));
+        TraceFileWriter writer = new TraceFileWriter(traceBuffer, dir, getLocalName() + "-" + System.currentTimeMillis(),
+                properties.getIntProperty(TRACE_FILE_SIZE, 16 * 1024 * 1024), properties.getIntProperty(TRACE_FILES, 8));
+        traceWriter = new Thread(writer, getLocalName() + "-TraceWriter");
+        traceWriter.setDaemon(true);
+        traceWriter.start();
+        logger.log(Logger.INFO, "Sniffer " + getLocalName() + " recording trace files in " + dir.getAbsolutePath());
+    }
+
+    private void stopTraceRecording() {
+        if (traceBuffer != null) {
+            traceBuffer.close();
+            try {
+                traceWriter.join(5000);
+            } catch (InterruptedException ie) {
+                // Just go on
+            }
+        }
+    }
+
+    /**
+     * @return true if messages with the given sender and performative must
+     * be shown according to the preload filters
+     */
+    private boolean accept(AID sender, int performative) {
+        String key = preloadContains(sender.getName());
+        if (key != null) {
+            boolean[] filters = preload.get(key);
+            return (performative >= 0) && filters[performative];
+        }
+        return true;
     }
 
     /**
@@ -420,12 +553,14 @@ public class Sniffer extends ToolAgent {
             //System.out.println(e.getMessage());
         }
 
-        myGUI.mainPanel.panelcan.canvMess.ml.removeAllMessages();
-
         // Now we unsubscribe from the rma list
         send(getCancel());
-        // myGUI.setVisible(false); Not needed. Can cause thread deadlock.
-        myGUI.disposeAsync();
+        if (myGUI != null) {
+            myGUI.mainPanel.panelcan.canvMess.ml.removeAllMessages();
+            // myGUI.setVisible(false); Not needed. Can cause thread deadlock.
+            myGUI.disposeAsync();
+        }
+        stopTraceRecording();
 
     }
 
@@ -526,11 +661,11 @@ public class Sniffer extends ToolAgent {
         }
 
         protected void handleNotUnderstood(ACLMessage reply) {
-            myGUI.showError("NOT-UNDERSTOOD received during " + actionName);
+            showError("NOT-UNDERSTOOD received during " + actionName);
         }
 
         protected void handleRefuse(ACLMessage reply) {
-            myGUI.showError("REFUSE received during " + actionName);
+            showError("REFUSE received during " + actionName);
         }
 
         protected void handleAgree(ACLMessage reply) {
@@ -539,7 +674,7 @@ public class Sniffer extends ToolAgent {
         }
 
         protected void handleFailure(ACLMessage reply) {
-            myGUI.showError("FAILURE received during " + actionName);
+            showError("FAILURE received during " + actionName);
         }
 
         protected void handleInform(ACLMessage reply) {
@@ -561,6 +696,10 @@ public class Sniffer extends ToolAgent {
 
             ACLMessage current = receive(listenSniffTemplate);
             if (current != null) {
+                if (TraceRecord.LANGUAGE.equals(current.getLanguage())) {
+                    handleTraceRecords(current);
+                    return;
+                }
 
                 try {
                     Occurred o = (Occurred) getContentManager().extractContent(current);
@@ -569,11 +708,14 @@ public class Sniffer extends ToolAgent {
                     String content = null;
                     Envelope env = null;
                     AID unicastReceiver = null;
+                    int type;
                     if (ev instanceof SentMessage) {
+                        type = TraceRecord.SENT;
                         content = ((SentMessage) ev).getMessage().getPayload();
                         env = ((SentMessage) ev).getMessage().getEnvelope();
                         unicastReceiver = ((SentMessage) ev).getReceiver();
                     } else if (ev instanceof PostedMessage) {
+                        type = TraceRecord.POSTED;
                         content = ((PostedMessage) ev).getMessage().getPayload();
                         env = ((PostedMessage) ev).getMessage().getEnvelope();
                         unicastReceiver = ((PostedMessage) ev).getReceiver();
@@ -610,20 +752,16 @@ public class Sniffer extends ToolAgent {
                     // If the message that we just got is one that should be filtered out
                     // then drop it.  WARNING - this means that the log file
                     // that the sniffer might dump does not include the message!!!!
-                    boolean[] filters;
-                    String agentName = msg.getSender().getName();
-                    String key = preloadContains(agentName);
-                    if (key != null) {
-                        filters = preload.get(key);
-                        if ((msg.getPerformative() >= 0) && filters[msg.getPerformative()]) {
+                    if (accept(msg.getSender(), msg.getPerformative())) {
+                        if (traceBuffer != null) {
+                            traceBuffer.put(TraceRecord.encode(type, System.currentTimeMillis(), msg.getSender(), unicastReceiver, tmp));
+                        } else {
                             myGUI.mainPanel.panelcan.canvMess.recMessage(msg);
                         }
-                    } else {
-                        myGUI.mainPanel.panelcan.canvMess.recMessage(msg);
                     }
                 } catch (Throwable e) {
                     //System.out.println("Serious problem Occurred");
-                    myGUI.showError("An error occurred parsing the incoming message.\n" +
+                    showError("An error occurred parsing the incoming message.\n" +
                             "          The message was lost.");
                     if (logger.isLoggable(Logger.WARNING))
                         logger.log(Logger.WARNING, "The sniffer lost the following message because of a parsing error:" + current);
@@ -633,8 +771,74 @@ public class Sniffer extends ToolAgent {
                 block();
         }
 
+        /**
+         * Handle a batch of binary trace records sent by a tool notifier in capture mode.
+         * Records that pass the preload filters are either recorded as they are (headless
+         * mode) or decoded and shown.
+         */
+        private void handleTraceRecords(ACLMessage current) {
+            try {
+                DataInputStream dis = new DataInputStream(new ByteArrayInputStream(current.getByteSequenceContent()));
+                byte[] bytes;
+                while ((bytes = TraceRecord.readFrame(dis)) != null) {
+                    TraceRecord r = TraceRecord.decode(bytes);
+                    AID sender = r.getSender();
+                    if (sender == null) {
+                        continue;
+                    }
+                    if (r.getType() == TraceRecord.POSTED && agentsUnderSniff.contains(new Agent(sender))) {
+                        // Already notified as a 'sent-message' event
+                        continue;
+                    }
+                    if (accept(sender, r.getPerformative())) {
+                        if (traceBuffer != null) {
+                            traceBuffer.put(bytes);
+                        } else if (r.getType() != TraceRecord.RECEIVED) {
+                            myGUI.mainPanel.panelcan.canvMess.recMessage(new Message(r.getMessage(), r.getReceiver()));
+                        }
+                    }
+                }
+            } catch (IOException ioe) {
+                showError("An error occurred decoding trace records.\n" +
+                        "          Some messages were lost.");
+                if (logger.isLoggable(Logger.WARNING))
+                    logger.log(Logger.WARNING, "The sniffer lost trace records from " + current.getSender().getName(), ioe);
+            }
+        }
+
     } // End of SniffListenerBehaviour
 
+    /**
+     * Inner class NotifierControlBehaviour.
+     * Serves the control messages of the tool notifiers of the sniffed containers.
+     * When capture mode is active, as soon as a notifier starts notifying events
+     * about an agent, it is requested to switch to capture mode.
+     */
+    private class NotifierControlBehaviour extends CyclicBehaviour {
+
+        private final MessageTemplate template = MessageTemplate.or(
+                MessageTemplate.MatchConversationId(getName() + "-control"),
+                MessageTemplate.MatchConversationId(getName() + ToolNotifier.CAPTURE_CONVERSATION_SUFFIX));
+
+        public void action() {
+            ACLMessage msg = receive(template);
+            if (msg != null) {
+                if (ToolNotifier.CAPTURE_CONVERSATION_SUFFIX.equals(msg.getConversationId().substring(getName().length()))) {
+                    if (msg.getPerformative() != ACLMessage.INFORM) {
+                        showError("Tool notifier " + msg.getSender().getName() + " refused capture options: " + msg.getContent());
+                    }
+                } else if (captureOptions != null && msg.getPerformative() == ACLMessage.INFORM) {
+                    ACLMessage request = new ACLMessage(ACLMessage.REQUEST);
+                    request.addReceiver(msg.getSender());
+                    request.setConversationId(getName() + ToolNotifier.CAPTURE_CONVERSATION_SUFFIX);
+                    request.setContent(captureOptions);
+                    send(request);
+                }
+            } else
+                block();
+        }
+    } // End of NotifierControlBehaviour
+
     class SnifferAMSListenerBehaviour extends AMSListenerBehaviour {
 
         protected void installHandlers(Map<String, EventHandler> handlersTable) {
@@ -644,7 +848,8 @@ public class Sniffer extends ToolAgent {
 
             handlersTable.put(IntrospectionVocabulary.META_RESETEVENTS, (EventHandler) ev -> {
                 ResetEvents re = (ResetEvents) ev;
-                myGUI.resetTree();
+                if (myGUI != null)
+                    myGUI.resetTree();
                 allAgents.clear();
             });
 
@@ -653,6 +858,8 @@ public class Sniffer extends ToolAgent {
                 ContainerID cid = ac.getContainer();
                 String name = cid.getName();
                 String address = cid.getAddress();
+                if (myGUI == null)
+                    return;
                 try {
                     InetAddress addr = InetAddress.getByName(address);
                     myGUI.addContainer(name, addr);
@@ -665,7 +872,8 @@ public class Sniffer extends ToolAgent {
                 RemovedContainer rc = (RemovedContainer) ev;
                 ContainerID cid = rc.getContainer();
                 String name = cid.getName();
-                myGUI.removeContainer(name);
+                if (myGUI != null)
+                    myGUI.removeContainer(name);
             });
 
             handlersTable.put(IntrospectionVocabulary.BORNAGENT, (EventHandler) ev -> {
@@ -673,7 +881,8 @@ public class Sniffer extends ToolAgent {
                 ContainerID cid = ba.getWhere();
                 String container = cid.getName();
                 AID agent = ba.getAgent();
-                myGUI.addAgent(container, agent);
+                if (myGUI != null)
+                    myGUI.addAgent(container, agent);
                 allAgents.add(agent);
                 if (agent.equals(getAID()))
                     myContainerName = container;
@@ -683,9 +892,7 @@ public class Sniffer extends ToolAgent {
                 // Avoid sniffing myself to avoid infinite recursion
                 if (!agent.equals(getAID())) {
                     if (preloadContains(agent.getName()) != null) {
-                        ActionProcessor ap = myGUI.actPro;
-                        DoSnifferAction sa = (DoSnifferAction) ap.actions.get(ActionProcessor.DO_SNIFFER_ACTION);
-                        sa.doSniff(agent.getName());
+                        addAgent(agent);
                     }
                 }
             });
@@ -695,7 +902,8 @@ public class Sniffer extends ToolAgent {
                 ContainerID cid = da.getWhere();
                 String container = cid.getName();
                 AID agent = da.getAgent();
-                myGUI.removeAgent(container, agent);
+                if (myGUI != null)
+                    myGUI.removeAgent(container, agent);
                 allAgents.remove(agent);
 
             });
@@ -703,6 +911,8 @@ public class Sniffer extends ToolAgent {
             handlersTable.put(IntrospectionVocabulary.MOVEDAGENT, (EventHandler) ev -> {
                 MovedAgent ma = (MovedAgent) ev;
                 AID agent = ma.getAgent();
+                if (myGUI == null)
+                    return;
                 ContainerID from = ma.getFrom();
                 myGUI.removeAgent(from.getName(), agent);
                 ContainerID to = ma.getTo();
@@ -72,6 +72,9 @@ final public class ToolBar extends JToolBar {
         obj = actPro.actions.get(ActionProcessor.DISPLAYLOGFILE_ACTION);
         setButton(add(obj));
 
+        obj = actPro.actions.get(ActionProcessor.OPENTRACEFILE_ACTION);
+        setButton(add(obj));
+
         obj = actPro.actions.get(ActionProcessor.WRITELOGFILE_ACTION);
         setButton(add(obj));
 
@@ -0,0 +1,106 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A.
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation,
+version 2.1 of the License.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.tools.sniffer;
+
+import java.util.List;
+
+/**
+ * Bounded ring buffer of trace records used by the <em>Sniffer</em> in
+ * headless mode. Producers never block: when the buffer is full the
+ * oldest record is overwritten and counted as dropped.
+ */
+class TraceBuffer {
+
+    private final byte[][] records;
+    private int head = 0;
+    private int size = 0;
+    private long dropped = 0;
+    private boolean closed = false;
+
+    TraceBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Trace buffer capacity must be positive");
+        }
+        records = new byte[capacity][];
+    }
+
+    /**
+     * Add a record overwriting the oldest one if the buffer is full
+     *
+     * @return false if the record was not added since the buffer is closed
+     */
+    synchronized boolean put(byte[] record) {
+        if (closed) {
+            return false;
+        }
+        if (size == records.length) {
+            records[head] = null;
+            head = (head + 1) % records.length;
+            size--;
+            dropped++;
+        }
+        records[(head + size) % records.length] = record;
+        size++;
+        if (size == 1) {
+            notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Move all buffered records into the given list waiting until at
+     * least one is available or the buffer is closed.
+     *
+     * @return the number of records moved or -1 if the buffer is closed and empty
+     */
+    synchronized int drainTo(List<byte[]> l) throws InterruptedException {
+        while (size == 0 && !closed) {
+            wait();
+        }
+        if (size == 0) {
+            return -1;
+        }
+        int n = size;
+        for (int i = 0; i < n; i++) {
+            l.add(records[head]);
+            records[head] = null;
+            head = (head + 1) % records.length;
+        }
+        size = 0;
+        return n;
+    }
+
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    synchronized long getDropped() {
+        return dropped;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
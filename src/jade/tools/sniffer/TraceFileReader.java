@@ -0,0 +1,73 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A.
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation,
+version 2.1 of the License.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.tools.sniffer;
+
+import jade.tools.TraceRecord;
+
+import java.io.*;
+
+/**
+ * Reads the trace records stored in a binary trace file written by the
+ * <em>Sniffer</em> in headless mode.
+ *
+ * @see TraceFileWriter
+ */
+public class TraceFileReader implements Closeable {
+
+    private final DataInputStream in;
+
+    public TraceFileReader(File f) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 65536));
+        try {
+            if (in.readInt() != TraceFileWriter.MAGIC) {
+                throw new IOException(f + " is not a trace file");
+            }
+            int version = in.readInt();
+            if (version != TraceFileWriter.VERSION) {
+                throw new IOException("Unsupported trace file version " + version);
+            }
+        } catch (IOException ioe) {
+            in.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * @return the next trace record or null if the end of the file was reached
+     */
+    public TraceRecord next() throws IOException {
+        byte[] bytes;
+        try {
+            bytes = TraceRecord.readFrame(in);
+        } catch (EOFException eofe) {
+            // Truncated last record (e.g. the sniffer was killed while writing)
+            return null;
+        }
+        return bytes != null ? TraceRecord.decode(bytes) : null;
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+JADE - Java Agent DEvelopment Framework is a framework to develop
+multi-agent systems in compliance with the FIPA specifications.
+Copyright (C) 2000 CSELT S.p.A.
+
+GNU Lesser General Public License
+
+This library is free software; you can redistribute it and/or
+modify it under the terms of the GNU Lesser General Public
+License as published by the Free Software Foundation,
+version 2.1 of the License.
+
+This library is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the
+Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+Boston, MA  02111-1307, USA.
+*****************************************************************/
+
+package jade.tools.sniffer;
+
+import jade.tools.TraceRecord;
+import jade.util.Logger;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the trace records collected in a <code>TraceBuffer</code> to a
+ * set of rotating binary trace files named
+ * <code>&lt;prefix&gt;-&lt;n&gt;.trace</code>. When a file exceeds the
+ * maximum size a new one is started and, if there are more than the maximum
+ * number of files, the oldest one is deleted.
+ * Trace files can be read back by means of the <code>TraceFileReader</code>.
+ */
+class TraceFileWriter implements Runnable {
+
+    /**
+     * Magic number ("JTRC") at the beginning of every trace file
+     */
+    static final int MAGIC = 0x4A545243;
+    static final int VERSION = 1;
+    static final String EXTENSION = ".trace";
+
+    private static final Logger myLogger = Logger.getMyLogger(TraceFileWriter.class.getName());
+
+    private final TraceBuffer buffer;
+    private final File dir;
+    private final String prefix;
+    private final long maxFileSize;
+    private final int maxFiles;
+
+    private DataOutputStream out;
+    private long fileSize;
+    private int fileCnt = 0;
+    private long written = 0;
+    private long reportedDropped = 0;
+
+    TraceFileWriter(TraceBuffer buffer, File dir, String prefix, long maxFileSize, int maxFiles) {
+        this.buffer = buffer;
+        this.dir = dir;
+        this.prefix = prefix;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+    }
+
+    public void run() {
+        List<byte[]> records = new ArrayList<>();
+        try {
+            dir.mkdirs();
+            while (buffer.drainTo(records) >= 0) {
+                for (byte[] r : records) {
+                    if (out == null || fileSize >= maxFileSize) {
+                        rotate();
+                    }
+                    TraceRecord.writeFrame(r, out);
+                    fileSize += 4 + r.length;
+                }
+                written += records.size();
+                records.clear();
+                out.flush();
+
+                long dropped = buffer.getDropped();
+                if (dropped > reportedDropped) {
+                    myLogger.log(Logger.WARNING, "Trace buffer full: " + (dropped - reportedDropped) + " records dropped");
+                    reportedDropped = dropped;
+                }
+            }
+        } catch (InterruptedException ie) {
+            // Just terminate
+        } catch (IOException ioe) {
+            myLogger.log(Logger.SEVERE, "Error writing trace file. Capture aborted", ioe);
+            buffer.close();
+        } finally {
+            closeFile();
+            myLogger.log(Logger.INFO, "Trace recording terminated: " + written + " records written, " + buffer.getDropped() + " dropped");
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+        File f = getFile(fileCnt);
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 65536));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        fileSize = 8;
+        if (fileCnt >= maxFiles) {
+            File old = getFile(fileCnt - maxFiles);
+            if (!old.delete()) {
+                myLogger.log(Logger.WARNING, "Cannot delete old trace file " + old);
+            }
+        }
+        fileCnt++;
+        myLogger.log(Logger.CONFIG, "Writing trace file " + f);
+    }
+
+    private File getFile(int n) {
+        return new File(dir, prefix + "-" + String.format("%06d", n) + EXTENSION);
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ioe) {
+                // Ignore
+            }
+            out = null;
+        }
+    }
+}
@@ -26,6 +26,11 @@ package jade.wrapper;
 import jade.core.Location;
 import jade.util.Event;
 
+//#J2ME_EXCLUDE_BEGIN
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+//#J2ME_EXCLUDE_END
+
 /**
  * This interface is a Proxy, allowing access to a JADE agent.
  * Invoking methods on instances of this class, it is possible to
@@ -158,6 +163,37 @@ public interface AgentController {
      * @throws StaleProxyException If the underlying agent is dead or gone.
      */
     <T> T getO2AInterface(Class<T> theInterface) throws StaleProxyException;
+
+    /**
+     * Asynchronously invoke the implementation of an O2A (Object-to-Agent) interface registered
+     * by the controlled agent. The invocation is executed by the agent thread and the calling
+     * thread does not wait for it. E.g.
+     * <pre>
+     * CompletableFuture&lt;Integer&gt; f = controller.invokeO2AInterface(Counter.class, c -&gt; c.increment(5));
+     * </pre>
+     * The default implementation performs the invocation in the calling thread through the
+     * proxy returned by <code>getO2AInterface()</code>.
+     *
+     * @param theInterface The O2A interface whose implementation must be invoked
+     * @param invocation   The function invoking the registered implementation
+     * @return A future completed with the result of the invocation
+     * @throws StaleProxyException If the underlying agent is dead or gone.
+     * @see jade.core.Agent#invokeO2AInterface(Class, Function)
+     */
+    default <T, R> CompletableFuture<R> invokeO2AInterface(Class<T> theInterface, Function<? super T, ? extends R> invocation) throws StaleProxyException {
+        T o2aInterfaceImpl = getO2AInterface(theInterface);
+        CompletableFuture<R> result = new CompletableFuture<>();
+        if (o2aInterfaceImpl == null) {
+            result.completeExceptionally(new IllegalArgumentException("No implementation registered for O2A interface " + theInterface.getName()));
+            return result;
+        }
+        try {
+            result.complete(invocation.apply(o2aInterfaceImpl));
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        }
+        return result;
+    }
     //#J2ME_EXCLUDE_END
 
     /**
@@ -28,6 +28,11 @@ import jade.core.Location;
 import jade.core.NotFoundException;
 import jade.util.Event;
 
+//#J2ME_EXCLUDE_BEGIN
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+//#J2ME_EXCLUDE_END
+
 /**
  * This class is a Proxy class, allowing access to a JADE agent.
  * Invoking methods on instances of this class, it is possible to
@@ -144,16 +149,26 @@ class AgentControllerImpl implements AgentController {
      * @see AgentController#putO2AObject(Event, boolean)
      */
     public void putO2AObject(Event o, boolean blocking) throws StaleProxyException {
-        jade.core.Agent adaptee = myContainer.acquireLocalAgent(agentID);
+        // Producers do not need exclusive access to the agent: just prevent it from being moved or killed meanwhile
+        jade.core.Agent adaptee = myContainer.acquireLocalAgentShared(agentID);
         if (adaptee == null) {
             throw new StaleProxyException("Controlled agent does not exist");
         }
+        jade.core.O2AQueue.Rendezvous rendezvous;
         try {
-            adaptee.putO2AObject(o, blocking);
-        } catch (InterruptedException ace) {
-            throw new StaleProxyException(ace);
+            rendezvous = adaptee.offerO2AObject(o, blocking);
+        } catch (InterruptedException ie) {
+            throw new StaleProxyException(ie);
         } finally {
-            myContainer.releaseLocalAgent(agentID);
+            myContainer.releaseLocalAgentShared(agentID);
+        }
+        // Wait for the object to be retrieved outside the LADT row so that the agent can terminate meanwhile
+        if (rendezvous != null) {
+            try {
+                rendezvous.waitOn();
+            } catch (InterruptedException ie) {
+                throw new StaleProxyException(ie);
+            }
         }
     }
 
@@ -183,6 +198,18 @@ class AgentControllerImpl implements AgentController {
             myContainer.releaseLocalAgent(agentID);
         }
     }
+
+    public <T, R> CompletableFuture<R> invokeO2AInterface(Class<T> theInterface, Function<? super T, ? extends R> invocation) throws StaleProxyException {
+        jade.core.Agent adaptee = myContainer.acquireLocalAgentShared(agentID);
+        if (adaptee == null) {
+            throw new StaleProxyException("Controlled agent does not exist");
+        }
+        try {
+            return adaptee.invokeO2AInterface(theInterface, invocation);
+        } finally {
+            myContainer.releaseLocalAgentShared(agentID);
+        }
+    }
     //#J2ME_EXCLUDE_END
 
     /**
@@ -27,6 +27,8 @@ import jade.core.AgentContainer;
 import jade.core.*;
 import jade.mtp.MTPException;
 
+import java.util.List;
+
 /**
  * This class is a Proxy class, allowing access to a JADE agent
  * container. Invoking methods on instances of this class, it is
@@ -136,6 +138,62 @@ public class ContainerController {
         }
     }
 
+    /**
+     * Creates and starts a set of JADE agents, running within this container, in bulk.
+     * Agents are instantiated in parallel and registered with the main container
+     * in batches, which is much faster than calling  createNewAgent()   repeatedly
+     * when a large number of agents must be created. The failure of an agent creation
+     * (e.g. due to a name clash) does not affect the others.
+     *
+     * @param specs    The nicknames, class names and arguments of the agents to create
+     * @param failures An array, as long as  specs  , where to store, for each agent that could not
+     *                 be created, the reason of the failure. It can be  null   if not needed.
+     * @return An array, as long as  specs  , holding the proxy objects of the created agents.
+     * Entries corresponding to agents that could not be created are  null  .
+     */
+    public AgentController[] createNewAgents(List<Specifier> specs, Throwable[] failures) throws StaleProxyException {
+        if (myImpl == null || myProxy == null) {
+            throw new StaleProxyException();
+        }
+
+        AID[] agentIDs = new AID[specs.size()];
+        for (int i = 0; i < agentIDs.length; ++i) {
+            agentIDs[i] = new AID(AID.createGUID(specs.get(i).getName(), myImpl.getPlatformID()), AID.ISGUID);
+        }
+
+        try {
+            Throwable[] results = myProxy.createAgents(agentIDs, specs);
+            AgentController[] controllers = new AgentController[agentIDs.length];
+            for (int i = 0; i < agentIDs.length; ++i) {
+                if (results[i] == null) {
+                    // Start the agent once all agents have been created
+                    AgentController ac = new AgentControllerImpl(agentIDs[i], myProxy, myImpl);
+                    try {
+                        ac.start();
+                        controllers[i] = ac;
+                    } catch (StaleProxyException spe) {
+                        results[i] = spe;
+                    }
+                }
+                if (results[i] != null && failures != null) {
+                    failures[i] = results[i];
+                }
+            }
+            return controllers;
+        } catch (Throwable t) {
+            throw new StaleProxyException(t);
+        }
+    }
+
+    /**
+     * Creates and starts a set of JADE agents, running within this container, in bulk.
+     *
+     * @see #createNewAgents(List, Throwable[])
+     */
+    public AgentController[] createNewAgents(List<Specifier> specs) throws StaleProxyException {
+        return createNewAgents(specs, null);
+    }
+
     // HP Patch begin ----------------------------------------------------------------------------------
 
     /**
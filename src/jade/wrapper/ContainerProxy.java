@@ -27,8 +27,11 @@ package jade.wrapper;
 
 import jade.core.AID;
 import jade.core.Location;
+import jade.core.Specifier;
 import jade.mtp.MTPDescriptor;
 
+import java.util.List;
+
 /**
  * This interface is used by an AgentController or ContainerController
  * to request action to the underlying implementation as if they
@@ -42,6 +45,24 @@ import jade.mtp.MTPDescriptor;
 public interface ContainerProxy {
     void createAgent(AID id, String className, Object[] args) throws Throwable;
 
+    /**
+     * Create a set of agents without starting them.
+     * By default agents are created one by one.
+     *
+     * @return For each agent,  null   if it was created successfully or the reason of the failure
+     */
+    default Throwable[] createAgents(AID[] ids, List<Specifier> specs) throws Throwable {
+        Throwable[] results = new Throwable[ids.length];
+        for (int i = 0; i < ids.length; ++i) {
+            try {
+                createAgent(ids[i], specs.get(i).getClassName(), specs.get(i).getArgs());
+            } catch (Throwable t) {
+                results[i] = t;
+            }
+        }
+        return results;
+    }
+
     void killContainer() throws Throwable;
 
     MTPDescriptor installMTP(String address, String className) throws Throwable;